@@ -0,0 +1,216 @@
+/**
+ * VectorKernels.java
+ */
+package artiano.core.structure;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>Description: {@link Kernels} on the Vector API (<code>jdk.incubator.vector</code>, JDK 16 and later), a
+ * lane of the preferred species of the CPU at a time and a scalar loop for the tail. Element-wise results are
+ * the same as the scalar ones, reductions keep one accumulator per lane so they may differ in the last bits.</p>
+ * <p>This class is kept out of <code>src</code> because the module has to be named both to compile and to run
+ * it:
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp bin -d bin src-vector/artiano/core/structure/VectorKernels.java
+ * java --add-modules jdk.incubator.vector -Dartiano.kernels=vector ...
+ * </pre>
+ * It is not the default, {@link Kernels#select(String)} loads it by reflection only when it is asked for and
+ * falls back to the unrolled kernels when it is not on the class path or the module is not resolved.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class VectorKernels extends Kernels {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+
+	@Override
+	String name(){
+		return "vector";
+	}
+
+	@Override
+	void add(double[] a, int ao, double[] b, int bo, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			DoubleVector.fromArray(SPECIES, a, ao + i).add(DoubleVector.fromArray(SPECIES, b, bo + i))
+					.intoArray(y, yo + i);
+		for (; i < n; i++)
+			y[yo + i] = a[ao + i] + b[bo + i];
+	}
+
+	@Override
+	void sub(double[] a, int ao, double[] b, int bo, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			DoubleVector.fromArray(SPECIES, a, ao + i).sub(DoubleVector.fromArray(SPECIES, b, bo + i))
+					.intoArray(y, yo + i);
+		for (; i < n; i++)
+			y[yo + i] = a[ao + i] - b[bo + i];
+	}
+
+	@Override
+	void mul(double[] a, int ao, double[] b, int bo, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			DoubleVector.fromArray(SPECIES, a, ao + i).mul(DoubleVector.fromArray(SPECIES, b, bo + i))
+					.intoArray(y, yo + i);
+		for (; i < n; i++)
+			y[yo + i] = a[ao + i] * b[bo + i];
+	}
+
+	@Override
+	void div(double[] a, int ao, double[] b, int bo, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			DoubleVector.fromArray(SPECIES, a, ao + i).div(DoubleVector.fromArray(SPECIES, b, bo + i))
+					.intoArray(y, yo + i);
+		for (; i < n; i++)
+			y[yo + i] = a[ao + i] / b[bo + i];
+	}
+
+	@Override
+	void add(double[] a, int ao, double s, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			DoubleVector.fromArray(SPECIES, a, ao + i).add(s).intoArray(y, yo + i);
+		for (; i < n; i++)
+			y[yo + i] = a[ao + i] + s;
+	}
+
+	@Override
+	void mul(double[] a, int ao, double s, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			DoubleVector.fromArray(SPECIES, a, ao + i).mul(s).intoArray(y, yo + i);
+		for (; i < n; i++)
+			y[yo + i] = a[ao + i] * s;
+	}
+
+	@Override
+	void div(double[] a, int ao, double s, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			DoubleVector.fromArray(SPECIES, a, ao + i).div(s).intoArray(y, yo + i);
+		for (; i < n; i++)
+			y[yo + i] = a[ao + i] / s;
+	}
+
+	@Override
+	void sqrt(double[] a, int ao, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			DoubleVector.fromArray(SPECIES, a, ao + i).lanewise(VectorOperators.SQRT).intoArray(y, yo + i);
+		for (; i < n; i++)
+			y[yo + i] = Math.sqrt(a[ao + i]);
+	}
+
+	@Override
+	void abs(double[] a, int ao, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			DoubleVector.fromArray(SPECIES, a, ao + i).abs().intoArray(y, yo + i);
+		for (; i < n; i++)
+			y[yo + i] = Math.abs(a[ao + i]);
+	}
+
+	@Override
+	void maxInto(double[] a, int ao, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES){
+			DoubleVector x = DoubleVector.fromArray(SPECIES, a, ao + i), m = DoubleVector.fromArray(SPECIES, y, yo + i);
+			//a NaN compares false and is skipped
+			m.blend(x, x.compare(VectorOperators.GT, m)).intoArray(y, yo + i);
+		}
+		for (; i < n; i++)
+			if (a[ao + i] > y[yo + i])
+				y[yo + i] = a[ao + i];
+	}
+
+	@Override
+	void minInto(double[] a, int ao, double[] y, int yo, int n){
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES){
+			DoubleVector x = DoubleVector.fromArray(SPECIES, a, ao + i), m = DoubleVector.fromArray(SPECIES, y, yo + i);
+			m.blend(x, x.compare(VectorOperators.LT, m)).intoArray(y, yo + i);
+		}
+		for (; i < n; i++)
+			if (a[ao + i] < y[yo + i])
+				y[yo + i] = a[ao + i];
+	}
+
+	@Override
+	double sum(double[] a, int ao, int n){
+		DoubleVector s = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			s = s.add(DoubleVector.fromArray(SPECIES, a, ao + i));
+		double t = s.reduceLanes(VectorOperators.ADD);
+		for (; i < n; i++)
+			t += a[ao + i];
+		return t;
+	}
+
+	@Override
+	double max(double[] a, int ao, int n, double seed){
+		DoubleVector m = DoubleVector.broadcast(SPECIES, seed);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES){
+			DoubleVector x = DoubleVector.fromArray(SPECIES, a, ao + i);
+			VectorMask<Double> greater = x.compare(VectorOperators.GT, m);
+			m = m.blend(x, greater);
+		}
+		double t = m.reduceLanes(VectorOperators.MAX);
+		for (; i < n; i++)
+			if (a[ao + i] > t)
+				t = a[ao + i];
+		return t;
+	}
+
+	@Override
+	double min(double[] a, int ao, int n, double seed){
+		DoubleVector m = DoubleVector.broadcast(SPECIES, seed);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES){
+			DoubleVector x = DoubleVector.fromArray(SPECIES, a, ao + i);
+			VectorMask<Double> less = x.compare(VectorOperators.LT, m);
+			m = m.blend(x, less);
+		}
+		double t = m.reduceLanes(VectorOperators.MIN);
+		for (; i < n; i++)
+			if (a[ao + i] < t)
+				t = a[ao + i];
+		return t;
+	}
+
+	@Override
+	double squaredDistance(double[] a, int ao, double[] b, int bo, int n){
+		DoubleVector s = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES){
+			DoubleVector t = DoubleVector.fromArray(SPECIES, a, ao + i).sub(DoubleVector.fromArray(SPECIES, b, bo + i));
+			s = s.add(t.mul(t));
+		}
+		double r = s.reduceLanes(VectorOperators.ADD);
+		for (; i < n; i++){
+			double t = a[ao + i] - b[bo + i];
+			r += t * t;
+		}
+		return r;
+	}
+
+	@Override
+	double absoluteDistance(double[] a, int ao, double[] b, int bo, int n){
+		DoubleVector s = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(n); i < bound; i += LANES)
+			s = s.add(DoubleVector.fromArray(SPECIES, a, ao + i).sub(DoubleVector.fromArray(SPECIES, b, bo + i)).abs());
+		double r = s.reduceLanes(VectorOperators.ADD);
+		for (; i < n; i++)
+			r += Math.abs(a[ao + i] - b[bo + i]);
+		return r;
+	}
+}
@@ -0,0 +1,25 @@
+package artiano.core.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+/***
+ * 能够以流的方式读写数据的持久化方式。保存和加载时数据直接写入或读出流，不需要先在内存中拼成一个完整的字节数组
+ */
+public interface StreamDataSave extends DataSave{
+	/***
+	 * 
+	 * @param key 字符串，可以是文件地址，可以是唯一标识
+	 * @return 写入数据的输出流，由调用者关闭
+	 * @throws IOException
+	 */
+	OutputStream openOutput(String key) throws IOException;
+	/***
+	 * 
+	 * @param key 字符串，可以是文件地址，可以是唯一标识
+	 * @return 读取数据的输入流，由调用者关闭
+	 * @throws IOException
+	 */
+	InputStream openInput(String key) throws IOException;
+
+}
@@ -1,6 +1,7 @@
 package artiano.core.data;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -8,6 +9,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 import artiano.core.structure.Matrix;
@@ -16,7 +18,9 @@ import artiano.core.structure.Matrix;
  * @author BreezeDust
  *
  */
-public class TextFileData implements DataSave{
+public class TextFileData implements StreamDataSave{
+	/** 流的缓冲区大小 */
+	private static final int BUFFER_SIZE = 1 << 16;
 
 	@Override
 	public boolean save(String key, byte[] cache) {
@@ -58,5 +62,15 @@ public class TextFileData implements DataSave{
 		}
 		return outs.toByteArray();
 	}
+
+	@Override
+	public OutputStream openOutput(String key) throws IOException {
+		return new BufferedOutputStream(new FileOutputStream(new File(key)), BUFFER_SIZE);
+	}
+
+	@Override
+	public InputStream openInput(String key) throws IOException {
+		return new BufferedInputStream(new FileInputStream(new File(key)), BUFFER_SIZE);
+	}
 	
 }
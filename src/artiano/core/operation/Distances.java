@@ -0,0 +1,291 @@
+/**
+ * Distances.java
+ */
+package artiano.core.operation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.core.structure.RowCursor;
+
+/**
+ * <p>Pairwise and cross distance matrices between the rows of matrices.</p>
+ * <p>Euclidean, squared Euclidean and cosine distances are computed from the Gram matrix:
+ * <pre>
+ * |x-y|^2 = |x|^2 + |y|^2 - 2*x.y,   cos(x, y) = x.y/(|x|*|y|)
+ * </pre>
+ * so the O(n*m*k) part is a single {@link Matrix#gemm} per tile. The result is built tile by tile, a tile
+ * being at most about {@link #getMemoryBudget()} bytes, and the tiles run on the pool of the matrix
+ * multiplication ({@link Matrix#getParallelPool(long)}) when {@link Matrix#setParallelism(int)} allows it and
+ * the work is at least {@link Matrix#getParallelThreshold()}; the product of each tile is then serial.
+ * Manhattan distances have no such factorization, they are computed pair by pair inside the same tiles.</p>
+ * <p>The Gram form loses relative accuracy for points that are very close compared with their norms (the
+ * difference of two nearly equal numbers). The Euclidean metrics are translation invariant, so the rows are
+ * centred on their mean first (a copy of x and y) and data far from the origin keeps its accuracy; negative
+ * results of the rounding are clamped to zero. Use
+ * {@link RowCursor#squaredDistance(RowCursor)} when a few distances have to be exact.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class Distances {
+	/** Euclidean distance sqrt(sum[(x-y)^2]) */
+	public static final int EUCLIDEAN = 0;
+	/** squared Euclidean distance sum[(x-y)^2] */
+	public static final int SQUARED_EUCLIDEAN = 1;
+	/** Manhattan distance sum[|x-y|] */
+	public static final int MANHATTAN = 2;
+	/** cosine distance 1-x.y/(|x|*|y|), 1 when either vector is zero */
+	public static final int COSINE = 3;
+	/** smallest tile side */
+	private static final int MIN_TILE = 32;
+	/** bytes of one tile */
+	private static long memoryBudget = 4L << 20;
+
+	private Distances(){ }
+
+	/**
+	 * Set the size of one tile in bytes. Tiles are square, {@link #condensed(Matrix, int)} keeps one tile
+	 * buffer per running task.
+	 * @param bytes memory of one tile
+	 */
+	public static synchronized void setMemoryBudget(long bytes){
+		if (bytes < 8L * MIN_TILE * MIN_TILE)
+			throw new IllegalArgumentException("Distances, memory budget must be at least " + 8L * MIN_TILE * MIN_TILE + " bytes.");
+		memoryBudget = bytes;
+	}
+
+	/**
+	 * Get the size of one tile in bytes.
+	 * @return memory of one tile
+	 */
+	public static synchronized long getMemoryBudget(){
+		return memoryBudget;
+	}
+
+	/**
+	 * Distances between every two rows of x.
+	 * @param x samples, one per row
+	 * @param metric {@link #EUCLIDEAN}, {@link #SQUARED_EUCLIDEAN}, {@link #MANHATTAN} or {@link #COSINE}
+	 * @return symmetric n*n matrix with zero diagonal
+	 */
+	public static Matrix pairwise(Matrix x, int metric){
+		Matrix out = new Matrix(x.rows(), x.rows());
+		compute(x, x, true, metric, out, null);
+		return out;
+	}
+
+	/**
+	 * Distances between every two different rows of x, stored as the upper triangle by rows (the order of
+	 * {@link #condensedIndex(int, int, int)}), half the memory of {@link #pairwise(Matrix, int)}.
+	 * @param x samples, one per row
+	 * @param metric distance metric
+	 * @return n*(n-1)/2 distances
+	 */
+	public static double[] condensed(Matrix x, int metric){
+		long n = x.rows(), size = n * (n - 1) / 2;
+		if (size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Distances condensed, too many samples.");
+		double[] out = new double[(int) size];
+		compute(x, x, true, metric, null, out);
+		return out;
+	}
+
+	/**
+	 * Position of the distance between rows i and j in the result of {@link #condensed(Matrix, int)}.
+	 * @param n number of samples
+	 * @param i row index
+	 * @param j another row index, different from i
+	 * @return index in the condensed array
+	 */
+	public static int condensedIndex(int n, int i, int j){
+		if (i == j || i < 0 || j < 0 || i >= n || j >= n)
+			throw new IndexOutOfBoundsException("Distances condensed, invalid index pair.");
+		if (i > j){
+			int t = i;
+			i = j;
+			j = t;
+		}
+		return (int) ((long) i * (2 * n - i - 1) / 2) + j - i - 1;
+	}
+
+	/**
+	 * Distances from every row of x to every row of y.
+	 * @param x samples, one per row
+	 * @param y other samples with the same number of columns
+	 * @param metric distance metric
+	 * @return x.rows()*y.rows() matrix
+	 */
+	public static Matrix cross(Matrix x, Matrix y, int metric){
+		Matrix out = new Matrix(x.rows(), y.rows());
+		cross(x, y, metric, out);
+		return out;
+	}
+
+	/**
+	 * Distances from every row of x to every row of y, written into out.
+	 * @param x samples, one per row
+	 * @param y other samples with the same number of columns
+	 * @param metric distance metric
+	 * @param out x.rows()*y.rows() matrix or view
+	 */
+	public static void cross(Matrix x, Matrix y, int metric, Matrix out){
+		if (out.rows() != x.rows() || out.columns() != y.rows())
+			throw new IllegalArgumentException("Distances cross, output size not match.");
+		compute(x, y, false, metric, out, null);
+	}
+
+	/**
+	 * Compute all tiles, into out (full matrix) or condensed (upper triangle of a symmetric result).
+	 */
+	private static void compute(Matrix x, Matrix y, boolean symmetric, int metric, Matrix out, double[] condensed){
+		if (metric < EUCLIDEAN || metric > COSINE)
+			throw new IllegalArgumentException("Distances, unknown metric.");
+		if (x.columns() != y.columns())
+			throw new IllegalArgumentException("Distances, dimension not match.");
+		if (metric == EUCLIDEAN || metric == SQUARED_EUCLIDEAN){
+			//both are translation invariant, centred copies keep |x|^2 and |y|^2 of the order of the distances
+			Matrix mean = x.rowMean();
+			if (!symmetric){
+				double wx = x.rows(), wy = y.rows();
+				mean = mean.lazy().multiply(wx / (wx + wy)).plus(y.rowMean().lazy().multiply(wy / (wx + wy))).eval();
+			}
+			x = x.lazy().minus(mean).eval();
+			y = symmetric ? x: y.lazy().minus(mean).eval();
+		}
+		if (x.isTransposed()){
+			//rows of a transposed view are strided, the per-row kernels want adjacent elements
+			x = x.clone();
+			y = symmetric ? x: y;
+		}
+		if (y.isTransposed())
+			y = y.clone();
+		double[] nx = null, ny = null;
+		if (metric != MANHATTAN){
+			nx = norms(x, metric == COSINE);
+			ny = symmetric ? nx: norms(y, metric == COSINE);
+		}
+		int tile;
+		synchronized (Distances.class){
+			tile = (int) Math.max(MIN_TILE, Math.min(Integer.MAX_VALUE, (long) Math.sqrt(memoryBudget / 8)));
+		}
+		int tilesX = (x.rows() + tile - 1) / tile;
+		long work = (long) x.rows() * y.rows() * x.columns() / (symmetric ? 2: 1);
+		Tiles task = new Tiles(x, y, symmetric, metric, nx, ny, tile, out, condensed, 0, tilesX);
+		ForkJoinPool p = Matrix.getParallelPool(work);
+		if (p != null && tilesX > 1)
+			p.invoke(task);
+		else
+			task.compute();
+	}
+
+	/** squared norms of the rows, or the norms for the cosine metric */
+	private static double[] norms(Matrix x, boolean root){
+		double[] s = new double[x.rows()];
+		RowCursor r = x.cursor();
+		for (int i = 0; r.next(); i++){
+			double v = 0.;
+			for (int j = 0; j < r.length(); j++)
+				v += r.get(j) * r.get(j);
+			s[i] = root ? Math.sqrt(v): v;
+		}
+		return s;
+	}
+
+	/**
+	 * A range of tile rows, split in halves until a single tile row is left.
+	 */
+	private static final class Tiles extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Matrix x, y, out;
+		private final boolean symmetric;
+		private final int metric, tile, from, to;
+		private final double[] nx, ny, condensed;
+
+		Tiles(Matrix x, Matrix y, boolean symmetric, int metric, double[] nx, double[] ny, int tile,
+				Matrix out, double[] condensed, int from, int to){
+			this.x = x;
+			this.y = y;
+			this.symmetric = symmetric;
+			this.metric = metric;
+			this.nx = nx;
+			this.ny = ny;
+			this.tile = tile;
+			this.out = out;
+			this.condensed = condensed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if (to - from > 1){
+				int mid = (from + to) >>> 1;
+				invokeAll(new Tiles(x, y, symmetric, metric, nx, ny, tile, out, condensed, from, mid),
+						new Tiles(x, y, symmetric, metric, nx, ny, tile, out, condensed, mid, to));
+				return;
+			}
+			Matrix buffer = condensed == null ? null: new Matrix(tile, tile);
+			int i0 = from * tile, i1 = Math.min(i0 + tile, x.rows());
+			Range ri = new Range(i0, i1);
+			Matrix xi = x.at(ri, Range.all());
+			for (int j0 = symmetric ? i0: 0; j0 < y.rows(); j0 += tile){
+				int j1 = Math.min(j0 + tile, y.rows());
+				Range rj = new Range(j0, j1);
+				Matrix yj = y.at(rj, Range.all());
+				Matrix g = buffer == null ? out.at(ri, rj): buffer.at(new Range(0, i1 - i0), new Range(0, j1 - j0));
+				tile(xi, yj, i0, j0, g);
+				if (symmetric && i0 == j0)
+					for (int i = 0; i < i1 - i0; i++)
+						g.set(i, i, 0.);
+				if (condensed != null)
+					scatter(g, i0, j0);
+				else if (symmetric && j0 != i0)
+					g.t().copyTo(out.at(rj, ri));
+			}
+		}
+
+		/** distances between the rows i0.. of x and j0.. of y into g */
+		private void tile(Matrix xi, Matrix yj, int i0, int j0, Matrix g){
+			RowCursor r = g.cursor();
+			if (metric == MANHATTAN){
+				RowCursor a = xi.cursor(), b = yj.cursor();
+				while (r.next()){
+					a.moveTo(r.index());
+					for (int j = 0; j < r.length(); j++)
+						r.set(j, a.absoluteDistance(b.moveTo(j)));
+				}
+				return;
+			}
+			Matrix.gemm(1., xi, false, yj, true, 0., g);
+			for (int i = i0; r.next(); i++)
+				for (int j = 0; j < r.length(); j++){
+					double dot = r.get(j), d;
+					if (metric == COSINE){
+						double n = nx[i] * ny[j0 + j];
+						d = n == 0. ? 1.: Math.max(0., 1. - dot / n);
+					} else {
+						d = Math.max(0., nx[i] + ny[j0 + j] - 2. * dot);
+						if (metric == EUCLIDEAN)
+							d = Math.sqrt(d);
+					}
+					r.set(j, d);
+				}
+		}
+
+		/** copy the part of tile g above the diagonal into the condensed array */
+		private void scatter(Matrix g, int i0, int j0){
+			int n = x.rows();
+			RowCursor r = g.cursor();
+			for (int i = i0; r.next(); i++){
+				int begin = Math.max(0, i + 1 - j0);
+				if (begin >= r.length())
+					continue;
+				int p = condensedIndex(n, i, j0 + begin);
+				for (int j = begin; j < r.length(); j++)
+					condensed[p++] = r.get(j);
+			}
+		}
+	}
+}
@@ -4,6 +4,8 @@
 package artiano.core.operation;
 
 import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.core.structure.SymmetricMatrix;
 
 /**
  * <p>Operation on matrix.</p>
@@ -14,6 +16,8 @@ import artiano.core.structure.Matrix;
  * @since 1.0.0
  */
 public class MatrixOpt {
+	/** vectors centred at a time by {@link #computeCovarianceByCol(Matrix[], Matrix, double)} */
+	private static final int BLOCK_ROWS = 256;
 	
 	/**
 	 * Normalize the matrices by minimum element and maximum element of the matrix on the matrices.
@@ -97,12 +101,17 @@ public class MatrixOpt {
 			throw new IllegalArgumentException("MatrixOpt computeCovarianceByRow, accept row vectors only.");
 		if (start < 0 || start + length > vectors.length)
 			throw new IllegalArgumentException("MatrixOpt computeCovarianceByRow, out of range.");
+		int m = vectors[0].columns();
 		Matrix cov = new Matrix(length, length);
-		for (int i = start; i < length; i++){
-			Matrix t = vectors[i].minus(mean, true);
-			for (int j = 0; j < length; j++){
-				Matrix r = vectors[j].minus(mean, true).t();
-				cov.set(i, j, t.multiply(r).data()[0]*scale);
+		for (int i = 0; i < length; i++){
+			Matrix vi = vectors[start + i];
+			for (int j = i; j < length; j++){
+				Matrix vj = vectors[start + j];
+				double s = 0.;
+				for (int k = 0; k < m; k++)
+					s += (vi.at(0, k) - mean.at(0, k)) * (vj.at(0, k) - mean.at(0, k));
+				cov.set(i, j, s * scale);
+				cov.set(j, i, s * scale);
 			}
 		}
 		return cov;
@@ -139,19 +148,19 @@ public class MatrixOpt {
 	public static Matrix computeCovarianceByCol(Matrix[] vectors, Matrix mean, double scale){
 		if (vectors[0].rows() != 1)
 			throw new IllegalArgumentException("MatrixOpt computeCovarianceByCol, accept row vectors only.");
-		Matrix cov = new Matrix(vectors[0].columns(), vectors[0].columns());
-		Matrix t = new Matrix(1, vectors.length);
-		Matrix r = new Matrix(vectors.length, 1);
-		for (int i = 0; i < vectors[0].columns(); i++){
-			for (int k = 0; k < vectors.length; k++)
-				t.set(0, k, vectors[k].at(0, i) - mean.at(0, i));
-			for (int j = 0; j < vectors[0].columns(); j++){
-				for (int h = 0; h < vectors.length; h++)
-					r.set(h, 0, vectors[h].at(0, j) - mean.at(0, j));
-				cov.set(i, j, t.multiply(r).data()[0]*scale);
-			}
+		//accumulate Cov+=T'*T over blocks of centred vectors T
+		int m = vectors[0].columns();
+		SymmetricMatrix cov = new SymmetricMatrix(m);
+		int block = Math.min(BLOCK_ROWS, vectors.length);
+		Matrix t = new Matrix(block, m);
+		for (int k = 0; k < vectors.length; k += block){
+			int b = Math.min(block, vectors.length - k);
+			Matrix c = b == block ? t: t.at(new Range(0, b), Range.all());
+			for (int i = 0; i < b; i++)
+				vectors[k + i].lazy().minus(mean).eval(c.row(i));
+			SymmetricMatrix.syrk(1., c, true, 1., cov);
 		}
-		return cov;
+		return cov.multiply(scale).toMatrix();
 	}
 	
 	/**
@@ -165,9 +174,10 @@ public class MatrixOpt {
 	 */
 	public static Matrix compute2DCovariance(Matrix[] matrices, Matrix mean, double scale){
 		Matrix cov = new Matrix(mean.columns(), mean.columns());
+		Matrix t = new Matrix(mean.rows(), mean.columns());
 		for (int i = 0; i < matrices.length; i++){
-			Matrix t = matrices[i].minus(mean, true);
-			cov.plus(t.t().multiply(t));
+			matrices[i].lazy().minus(mean).eval(t);
+			Matrix.gemm(1., t, true, t, false, 1., cov);
 		}
 		cov.multiply(scale);
 		return cov;
@@ -6,11 +6,14 @@ package artiano.core.operation;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import artiano.core.data.DataSave;
 import artiano.core.data.DataSaveFactory;
+import artiano.core.data.StreamDataSave;
 
 /**
  * <p>Description: Abstract class of every preservable class. Every preservable class should extends this
@@ -25,22 +28,39 @@ public abstract class Preservable implements Serializable {
 	private static final long serialVersionUID = -4129767820227253645L;
 	
 	/***
-	 * 以序列化的形式保存数据，并被适配器转换成任意数据
+	 * 以序列化的形式保存数据，并被适配器转换成任意数据。如果持久化方式支持流（{@link StreamDataSave}），
+	 * 数据直接写入流，不在内存中缓存
 	 * @param key 字符串，可以是文件地址，可以是唯一标识
 	 * @throws IOException
 	 */
 	public boolean save(String key) throws IOException{
+		DataSave dataSave=DataSaveFactory.createDataSave();
+		if(dataSave instanceof StreamDataSave){
+			try(OutputStream out=((StreamDataSave)dataSave).openOutput(key)){
+				save(out);
+			}
+			return true;
+		}
 		ByteArrayOutputStream cache=new ByteArrayOutputStream();
 		ObjectOutputStream oos = new ObjectOutputStream(cache);
 		oos.writeObject(this);
-		DataSave dataSave=DataSaveFactory.createDataSave();
-		boolean flag=dataSave.save(key,cache.toByteArray());
 		oos.flush();
+		boolean flag=dataSave.save(key,cache.toByteArray());
 		oos.close();
 		cache.close();
 		if(flag) return true;
 		return false;
 	}
+	/***
+	 * 以序列化的形式将数据写入输出流，输出流不会被关闭
+	 * @param out 输出流
+	 * @throws IOException
+	 */
+	public void save(OutputStream out) throws IOException{
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(this);
+		oos.flush();
+	}
 	/***
 	 * 加载保存的数据
 	 * @param key 字符串，可以是文件地址，可以是唯一标识
@@ -50,6 +70,11 @@ public abstract class Preservable implements Serializable {
 	 */
 	public  static Object load(String key) throws IOException, ClassNotFoundException{
 		DataSave dataSave=DataSaveFactory.createDataSave();
+		if(dataSave instanceof StreamDataSave){
+			try(InputStream in=((StreamDataSave)dataSave).openInput(key)){
+				return load(in);
+			}
+		}
 		byte[] cache=dataSave.load(key);
 		ByteArrayInputStream bIn=new ByteArrayInputStream(cache);
 		ObjectInputStream ois = new ObjectInputStream(bIn);
@@ -59,5 +84,16 @@ public abstract class Preservable implements Serializable {
 		return obj;
 		
 	}
+	/***
+	 * 从输入流中加载保存的数据，输入流不会被关闭
+	 * @param in 输入流
+	 * @return
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public static Object load(InputStream in) throws IOException, ClassNotFoundException{
+		ObjectInputStream ois = new ObjectInputStream(in);
+		return ois.readObject();
+	}
 	
 }
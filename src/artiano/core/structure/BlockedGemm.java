@@ -0,0 +1,428 @@
+/**
+ * BlockedGemm.java
+ */
+package artiano.core.structure;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>Description: Cache-blocked, register-tiled kernel for general matrix multiplication. It computes
+ * <b>C += A*B</b> directly on the backing arrays of the operands.</p>
+ * <p>Every operand is described by its data array, the offset of element (0,0) and the distance between two
+ * adjacent rows and two adjacent columns, so sub-matrix views, strided views (offset/dCols/colStride) as well as
+ * transposed access are handled without copying the operand first.</p>
+ * <p>The kernel follows the usual three-level blocking scheme: a KC*NC panel of B and a MC*KC block of A are
+ * packed into contiguous buffers, then a MR*NR micro-kernel keeps a tile of C in registers while it runs down
+ * the shared dimension. For element C(i,j) the accumulation order depends on KC only, so any partition of C
+ * into tiles produces exactly the same result.</p>
+ * <p>When a parallelism level greater than 1 is set (see {@link Matrix#setParallelism(int)}) and the product is
+ * large enough, C is split into tiles that are computed by a {@link ForkJoinPool}. Because of the property above,
+ * the parallel result is bit-identical to the serial one. A product asked for by a task already running in that
+ * pool (e.g. a tile of {@link artiano.core.operation.Distances}) is computed serially by that task.</p>
+ * <p>The packing buffers are kept per thread, so apart from the parallel tasks the kernel does not allocate.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class BlockedGemm {
+	/** rows of A packed per block */
+	static final int MC = 64;
+	/** depth of the shared dimension per block */
+	static final int KC = 256;
+	/** columns of B packed per panel */
+	static final int NC = 1024;
+	/** rows of the register tile */
+	static final int MR = 4;
+	/** columns of the register tile */
+	static final int NR = 4;
+	/** below this amount of work (m*n*k) the packing does not pay off */
+	static final int SMALL = 16 * 16 * 16;
+	/** maximal rows of C computed by one parallel task */
+	static final int TILE_M = 2 * MC;
+	/** maximal columns of C computed by one parallel task */
+	static final int TILE_N = 256;
+	/** order of the tiles of C in the symmetric rank-k update */
+	static final int SYRK_TILE = 256;
+	
+	/** number of threads, 1 means serial */
+	private static int parallelism = 1;
+	/** below this amount of work (m*n*k) the multiplication stays serial */
+	private static long parallelThreshold = 128L * 128 * 128;
+	/** pool of the parallel mode, null while serial */
+	private static ForkJoinPool pool = null;
+	/** packing buffers of every thread, so that a multiplication does not allocate */
+	private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>(){
+		@Override
+		protected Workspace initialValue(){
+			return new Workspace();
+		}
+	};
+
+	private BlockedGemm(){ }
+
+	/**
+	 * Set the number of threads used by the multiplication.
+	 * @param level parallelism level, 1 means serial
+	 */
+	static synchronized void setParallelism(int level){
+		if (level < 1)
+			throw new IllegalArgumentException("Matrix parallelism, level must be positive integer.");
+		if (level == parallelism)
+			return;
+		ForkJoinPool old = pool;
+		pool = level > 1 ? new ForkJoinPool(level): null;
+		parallelism = level;
+		if (old != null)
+			old.shutdown();
+	}
+	
+	static synchronized int getParallelism(){
+		return parallelism;
+	}
+	
+	static synchronized void setParallelThreshold(long work){
+		if (work < 0)
+			throw new IllegalArgumentException("Matrix parallel threshold, must not be negative.");
+		parallelThreshold = work;
+	}
+	
+	static synchronized long getParallelThreshold(){
+		return parallelThreshold;
+	}
+	
+	/** the pool for this amount of work, null when it should stay serial (also used by {@link MatrixStatistics}) */
+	static synchronized ForkJoinPool poolFor(long work){
+		return work >= parallelThreshold ? pool: null;
+	}
+
+	/**
+	 * Offset of element (0,0) of x in its backing array.
+	 * @param x matrix or view
+	 * @return offset
+	 */
+	static int offset(Matrix x){
+		return x.offset;
+	}
+
+	/**
+	 * C += A*B for three matrices (or views) stored in row-major order.
+	 * @param a left operand (m*k)
+	 * @param b right operand (k*n)
+	 * @param c result (m*n), accumulated
+	 */
+	static void multiply(Matrix a, Matrix b, Matrix c){
+		multiply(1., a, false, b, false, c);
+	}
+
+	/**
+	 * C += alpha*op(A)*op(B), op(X) is X or the transpose of X.
+	 * @param alpha scale of the product
+	 * @param a left operand
+	 * @param transA use the transpose of A
+	 * @param b right operand
+	 * @param transB use the transpose of B
+	 * @param c result, accumulated
+	 */
+	static void multiply(double alpha, Matrix a, boolean transA, Matrix b, boolean transB, Matrix c){
+		gemm(c.rows, c.cols, transA ? a.rows: a.cols, alpha,
+				a.d, a.offset, transA ? a.colStride: a.dCols, transA ? a.dCols: a.colStride,
+				b.d, b.offset, transB ? b.colStride: b.dCols, transB ? b.dCols: b.colStride,
+				c.d, c.offset, c.dCols, c.colStride);
+	}
+
+	/**
+	 * Judge if two matrices (or views) may share some elements. The answer is exact for two row-major views
+	 * with the same row stride (rectangles of the same parent), otherwise it is conservative: the index spans
+	 * of the two views intersect.
+	 * @param x matrix
+	 * @param y another matrix
+	 * @return true if x and y overlap
+	 */
+	static boolean overlaps(Matrix x, Matrix y){
+		if (x.d != y.d)
+			return false;
+		if (x.colStride == 1 && y.colStride == 1 && x.dCols == y.dCols && x.dCols > 0){
+			int xr = x.offset / x.dCols, xc = x.offset % x.dCols, yr = y.offset / y.dCols, yc = y.offset % y.dCols;
+			return xr < yr + y.rows && yr < xr + x.rows && xc < yc + y.cols && yc < xc + x.cols;
+		}
+		return x.offset <= last(y) && y.offset <= last(x);
+	}
+
+	/** index of the last element of x */
+	private static int last(Matrix x){
+		return x.offset + (x.rows - 1) * x.dCols + (x.cols - 1) * x.colStride;
+	}
+
+	/**
+	 * C += A*B on strided storage, element (i,j) of X is stored at <code>x[xOff + i*xRs + j*xCs]</code>.
+	 * @param m rows of A and C
+	 * @param n columns of B and C
+	 * @param k columns of A and rows of B
+	 */
+	static void gemm(int m, int n, int k,
+			double[] a, int aOff, int aRs, int aCs,
+			double[] b, int bOff, int bRs, int bCs,
+			double[] c, int cOff, int cRs, int cCs){
+		gemm(m, n, k, 1., a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs);
+	}
+
+	/**
+	 * C += alpha*A*B on strided storage.
+	 * @see #gemm(int, int, int, double[], int, int, int, double[], int, int, int, double[], int, int, int)
+	 */
+	static void gemm(int m, int n, int k, double alpha,
+			double[] a, int aOff, int aRs, int aCs,
+			double[] b, int bOff, int bRs, int bCs,
+			double[] c, int cOff, int cRs, int cCs){
+		if (m <= 0 || n <= 0 || k <= 0 || alpha == 0.)
+			return;
+		long work = (long) m * n * k;
+		if (work <= SMALL){
+			small(m, n, k, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs);
+			return;
+		}
+		ForkJoinPool p = poolFor(work);
+		if (p != null && ForkJoinTask.getPool() != p)
+			p.invoke(new Tile(0, m, 0, n, k, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs));
+		else
+			blocked(m, n, k, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs);
+	}
+	
+	/**
+	 * Symmetric rank-k update C += alpha*A*A', A (n*k) on strided storage, C kept as its upper triangle packed
+	 * by rows (see {@link SymmetricMatrix}). C is split into SYRK_TILE*SYRK_TILE tiles and only the tiles on or
+	 * above the diagonal are multiplied, each one through {@link #gemm} into a buffer whose upper part is then
+	 * added to C.
+	 */
+	static void syrk(int n, int k, double alpha, double[] a, int aOff, int aRs, int aCs, double[] c){
+		if (n <= 0 || k <= 0 || alpha == 0.)
+			return;
+		int t = Math.min(SYRK_TILE, n);
+		double[] tile = new double[t * t];
+		for (int i0 = 0; i0 < n; i0 += t){
+			int mi = Math.min(t, n - i0);
+			for (int j0 = i0; j0 < n; j0 += t){
+				int nj = Math.min(t, n - j0);
+				java.util.Arrays.fill(tile, 0, mi * nj, 0.);
+				gemm(mi, nj, k, alpha, a, aOff + i0 * aRs, aRs, aCs, a, aOff + j0 * aRs, aCs, aRs, tile, 0, nj, 1);
+				for (int i = 0; i < mi; i++){
+					int row = i0 + i, from = Math.max(j0, row);
+					int p = SymmetricMatrix.index(n, row, from), q = i * nj + from - j0;
+					for (int j = from; j < j0 + nj; j++)
+						c[p++] += tile[q++];
+				}
+			}
+		}
+	}
+
+	/**
+	 * The blocked path of {@link #gemm}, used by the serial mode and by every parallel tile.
+	 */
+	private static void blocked(int m, int n, int k, double alpha,
+			double[] a, int aOff, int aRs, int aCs,
+			double[] b, int bOff, int bRs, int bCs,
+			double[] c, int cOff, int cRs, int cCs){
+		Workspace w = WORKSPACE.get();
+		double[] packA = w.packA(roundUp(Math.min(MC, m), MR) * Math.min(KC, k));
+		double[] packB = w.packB(Math.min(KC, k) * roundUp(Math.min(NC, n), NR));
+		for (int jc = 0; jc < n; jc += NC){
+			int nc = Math.min(NC, n - jc);
+			for (int pc = 0; pc < k; pc += KC){
+				int kc = Math.min(KC, k - pc);
+				packB(b, bOff + pc * bRs + jc * bCs, bRs, bCs, kc, nc, packB);
+				for (int ic = 0; ic < m; ic += MC){
+					int mc = Math.min(MC, m - ic);
+					packA(a, aOff + ic * aRs + pc * aCs, aRs, aCs, mc, kc, packA);
+					macroKernel(mc, nc, kc, alpha, packA, packB, w.tile, c, cOff + ic * cRs + jc * cCs, cRs, cCs);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Direct i-k-j loop for tiny products where packing costs more than it saves.
+	 */
+	private static void small(int m, int n, int k, double alpha,
+			double[] a, int aOff, int aRs, int aCs,
+			double[] b, int bOff, int bRs, int bCs,
+			double[] c, int cOff, int cRs, int cCs){
+		for (int i = 0; i < m; i++){
+			int ci = cOff + i * cRs;
+			int ai = aOff + i * aRs;
+			for (int l = 0; l < k; l++){
+				double ail = alpha * a[ai + l * aCs];
+				int bl = bOff + l * bRs;
+				for (int j = 0; j < n; j++)
+					c[ci + j * cCs] += ail * b[bl + j * bCs];
+			}
+		}
+	}
+
+	/**
+	 * Pack a mc*kc block of A into slivers of MR rows, each sliver stored column by column. Rows beyond mc are
+	 * padded with zeros so that the micro-kernel never needs a bound check.
+	 */
+	private static void packA(double[] a, int off, int rs, int cs, int mc, int kc, double[] dst){
+		int p = 0;
+		for (int ir = 0; ir < mc; ir += MR){
+			int mr = Math.min(MR, mc - ir);
+			int base = off + ir * rs;
+			if (mr == MR && cs == 1){
+				int r0 = base, r1 = base + rs, r2 = base + 2 * rs, r3 = base + 3 * rs;
+				for (int l = 0; l < kc; l++){
+					dst[p++] = a[r0 + l];
+					dst[p++] = a[r1 + l];
+					dst[p++] = a[r2 + l];
+					dst[p++] = a[r3 + l];
+				}
+			} else {
+				for (int l = 0; l < kc; l++){
+					int col = base + l * cs;
+					for (int i = 0; i < MR; i++)
+						dst[p++] = i < mr ? a[col + i * rs]: 0.;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pack a kc*nc panel of B into slivers of NR columns, each sliver stored row by row. Columns beyond nc are
+	 * padded with zeros.
+	 */
+	private static void packB(double[] b, int off, int rs, int cs, int kc, int nc, double[] dst){
+		int p = 0;
+		for (int jr = 0; jr < nc; jr += NR){
+			int nr = Math.min(NR, nc - jr);
+			int base = off + jr * cs;
+			if (nr == NR && cs == 1){
+				for (int l = 0; l < kc; l++){
+					int row = base + l * rs;
+					dst[p++] = b[row];
+					dst[p++] = b[row + 1];
+					dst[p++] = b[row + 2];
+					dst[p++] = b[row + 3];
+				}
+			} else {
+				for (int l = 0; l < kc; l++){
+					int row = base + l * rs;
+					for (int j = 0; j < NR; j++)
+						dst[p++] = j < nr ? b[row + j * cs]: 0.;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Multiply a packed block of A with a packed panel of B and accumulate into C.
+	 */
+	private static void macroKernel(int mc, int nc, int kc, double alpha, double[] packA, double[] packB,
+			double[] t, double[] c, int cOff, int cRs, int cCs){
+		for (int jr = 0; jr < nc; jr += NR){
+			int nr = Math.min(NR, nc - jr);
+			int pb = jr * kc;
+			for (int ir = 0; ir < mc; ir += MR){
+				int mr = Math.min(MR, mc - ir);
+				int pa = ir * kc;
+				double c00 = 0., c01 = 0., c02 = 0., c03 = 0.;
+				double c10 = 0., c11 = 0., c12 = 0., c13 = 0.;
+				double c20 = 0., c21 = 0., c22 = 0., c23 = 0.;
+				double c30 = 0., c31 = 0., c32 = 0., c33 = 0.;
+				for (int l = 0; l < kc; l++){
+					double a0 = packA[pa], a1 = packA[pa + 1], a2 = packA[pa + 2], a3 = packA[pa + 3];
+					double b0 = packB[pb], b1 = packB[pb + 1], b2 = packB[pb + 2], b3 = packB[pb + 3];
+					c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+					c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+					c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+					c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+					pa += MR;
+					pb += NR;
+				}
+				pb -= kc * NR;
+				int ct = cOff + ir * cRs + jr * cCs;
+				if (mr == MR && nr == NR && cCs == 1){
+					int r0 = ct, r1 = ct + cRs, r2 = ct + 2 * cRs, r3 = ct + 3 * cRs;
+					c[r0] += alpha * c00; c[r0 + 1] += alpha * c01; c[r0 + 2] += alpha * c02; c[r0 + 3] += alpha * c03;
+					c[r1] += alpha * c10; c[r1 + 1] += alpha * c11; c[r1 + 2] += alpha * c12; c[r1 + 3] += alpha * c13;
+					c[r2] += alpha * c20; c[r2 + 1] += alpha * c21; c[r2 + 2] += alpha * c22; c[r2 + 3] += alpha * c23;
+					c[r3] += alpha * c30; c[r3 + 1] += alpha * c31; c[r3 + 2] += alpha * c32; c[r3 + 3] += alpha * c33;
+				} else {
+					t[0] = c00; t[1] = c01; t[2] = c02; t[3] = c03;
+					t[4] = c10; t[5] = c11; t[6] = c12; t[7] = c13;
+					t[8] = c20; t[9] = c21; t[10] = c22; t[11] = c23;
+					t[12] = c30; t[13] = c31; t[14] = c32; t[15] = c33;
+					for (int i = 0; i < mr; i++)
+						for (int j = 0; j < nr; j++)
+							c[ct + i * cRs + j * cCs] += alpha * t[i * NR + j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * A rectangle [i0,i1)*[j0,j1) of C, split in halves until it fits into TILE_M*TILE_N.
+	 */
+	private static final class Tile extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		final int i0, i1, j0, j1, k;
+		final double alpha;
+		final double[] a, b, c;
+		final int aOff, aRs, aCs, bOff, bRs, bCs, cOff, cRs, cCs;
+
+		Tile(int i0, int i1, int j0, int j1, int k, double alpha,
+				double[] a, int aOff, int aRs, int aCs,
+				double[] b, int bOff, int bRs, int bCs,
+				double[] c, int cOff, int cRs, int cCs){
+			this.i0 = i0; this.i1 = i1; this.j0 = j0; this.j1 = j1; this.k = k; this.alpha = alpha;
+			this.a = a; this.aOff = aOff; this.aRs = aRs; this.aCs = aCs;
+			this.b = b; this.bOff = bOff; this.bRs = bRs; this.bCs = bCs;
+			this.c = c; this.cOff = cOff; this.cRs = cRs; this.cCs = cCs;
+		}
+
+		@Override
+		protected void compute(){
+			int m = i1 - i0, n = j1 - j0;
+			if (m > TILE_M && (long) m * TILE_N >= (long) n * TILE_M){
+				int mid = i0 + roundUp(m / 2, MR);
+				invokeAll(split(i0, mid, j0, j1), split(mid, i1, j0, j1));
+			} else if (n > TILE_N){
+				int mid = j0 + roundUp(n / 2, NR);
+				invokeAll(split(i0, i1, j0, mid), split(i0, i1, mid, j1));
+			} else
+				blocked(m, n, k, alpha, a, aOff + i0 * aRs, aRs, aCs, b, bOff + j0 * bCs, bRs, bCs,
+						c, cOff + i0 * cRs + j0 * cCs, cRs, cCs);
+		}
+
+		private Tile split(int i0, int i1, int j0, int j1){
+			return new Tile(i0, i1, j0, j1, k, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs);
+		}
+	}
+
+	/**
+	 * Packing buffers of one thread, they grow on demand and are never shrunk.
+	 */
+	private static final class Workspace {
+		double[] packA = new double[0];
+		double[] packB = new double[0];
+		final double[] tile = new double[MR * NR];
+
+		double[] packA(int size){
+			if (packA.length < size)
+				packA = new double[size];
+			return packA;
+		}
+
+		double[] packB(int size){
+			if (packB.length < size)
+				packB = new double[size];
+			return packB;
+		}
+	}
+
+	/**
+	 * Round x up to a multiple of m.
+	 */
+	private static int roundUp(int x, int m){
+		return (x + m - 1) / m * m;
+	}
+}
@@ -0,0 +1,238 @@
+/**
+ * CSCMatrix.java
+ */
+package artiano.core.structure;
+
+import java.io.Serializable;
+
+/**
+ * <p>按列压缩存储（Compressed Sparse Column）的稀疏矩阵。第j列的非零元素的行下标和值分别保存在
+ * <code>rowIndices()</code>和<code>values()</code>的[columnPointers()[j], columnPointers()[j+1])区间内，
+ * 同一列内行下标严格递增。适用于按列访问（例如按属性统计）以及A'*x形式的计算。</p>
+ * <p>按行压缩的矩阵参见{@link CSRMatrix}。</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class CSCMatrix implements Serializable{
+
+	private static final long serialVersionUID = 1L;
+	/**
+	 * 矩阵的行数
+	 */
+	protected int rows = 0;
+	/**
+	 * 矩阵的列数
+	 */
+	protected int cols = 0;
+	/**
+	 * 列指针，长度为cols+1
+	 */
+	protected int[] colPtr = null;
+	/**
+	 * 非零元素的行下标
+	 */
+	protected int[] rowIdx = null;
+	/**
+	 * 非零元素的值
+	 */
+	protected double[] values = null;
+
+	/**
+	 * 使用压缩数组直接构造矩阵，数组不会被拷贝。
+	 * @param rows 行数
+	 * @param cols 列数
+	 * @param colPtr 列指针，长度为cols+1
+	 * @param rowIdx 行下标，每列内严格递增
+	 * @param values 非零元素的值
+	 */
+	public CSCMatrix(int rows, int cols, int[] colPtr, int[] rowIdx, double[] values){
+		if (rows <= 0 || cols <= 0)
+			throw new IllegalArgumentException("CSCMatrix, columns and rows must be positive integer.");
+		if (colPtr.length != cols + 1 || rowIdx.length < colPtr[cols] || values.length < colPtr[cols])
+			throw new IllegalArgumentException("CSCMatrix, illegal compressed arrays.");
+		this.rows = rows;
+		this.cols = cols;
+		this.colPtr = colPtr;
+		this.rowIdx = rowIdx;
+		this.values = values;
+	}
+
+	/**
+	 * 使用三元组(i, j, value)构造矩阵，三元组可以是任意顺序，重复的(i, j)将被累加。
+	 * @param rows 行数
+	 * @param cols 列数
+	 * @param i 行下标
+	 * @param j 列下标
+	 * @param v 值
+	 * @return 稀疏矩阵
+	 */
+	public static CSCMatrix fromTriplets(int rows, int cols, int[] i, int[] j, double[] v){
+		CSRMatrix.Compressed c = CSRMatrix.compress(cols, rows, j, i, v, v.length);
+		return new CSCMatrix(rows, cols, c.ptr, c.idx, c.values);
+	}
+
+	/**
+	 * 将稠密矩阵（或子矩阵）转换为稀疏矩阵，只保留非零元素。
+	 * @param x 稠密矩阵
+	 * @return 稀疏矩阵
+	 */
+	public static CSCMatrix valueOf(Matrix x){
+		return CSRMatrix.valueOf(x).toCSC();
+	}
+
+	/**
+	 * 将表转换为稀疏矩阵，参见{@link CSRMatrix#valueOf(Table)}。
+	 * @param table 表
+	 * @return 稀疏矩阵
+	 */
+	public static CSCMatrix valueOf(Table table){
+		return CSRMatrix.valueOf(table).toCSC();
+	}
+
+	/**
+	 * 获取矩阵的行数。
+	 * @return 矩阵行数。
+	 */
+	public int rows(){
+		return rows;
+	}
+
+	/**
+	 * 获取矩阵的列数。
+	 * @return 矩阵的列数。
+	 */
+	public int columns(){
+		return cols;
+	}
+
+	/**
+	 * 非零元素的个数
+	 * @return 非零元素的个数
+	 */
+	public int nonZeros(){
+		return colPtr[cols];
+	}
+
+	/**
+	 * 获取列指针数组，第j列的非零元素位于[columnPointers()[j], columnPointers()[j+1])。
+	 * @return 列指针
+	 */
+	public int[] columnPointers(){
+		return colPtr;
+	}
+
+	/**
+	 * 获取非零元素的行下标数组。
+	 * @return 行下标
+	 */
+	public int[] rowIndices(){
+		return rowIdx;
+	}
+
+	/**
+	 * 获取非零元素的值数组。
+	 * @return 值
+	 */
+	public double[] values(){
+		return values;
+	}
+
+	/**
+	 * 获取矩阵在行下标为i列下标为j处的值。
+	 * @param i 行下标。
+	 * @param j 列下标。
+	 * @return 值。
+	 */
+	public double at(int i, int j){
+		if (i < 0 || i >= rows || j < 0 || j >= cols)
+			throw new IndexOutOfBoundsException("CSCMatrix at, index out of range.");
+		int k = java.util.Arrays.binarySearch(rowIdx, colPtr[j], colPtr[j + 1], i);
+		return k < 0 ? 0.: values[k];
+	}
+
+	/**
+	 * 稀疏矩阵与向量相乘 (y=A*x)。
+	 * @param x 长度为cols的向量
+	 * @param y 长度为rows的结果向量
+	 */
+	public void multiply(double[] x, double[] y){
+		if (x.length != cols || y.length != rows)
+			throw new IllegalArgumentException("CSCMatrix multiplication, size not match.");
+		java.util.Arrays.fill(y, 0.);
+		for (int j = 0; j < cols; j++){
+			double xj = x[j];
+			if (xj == 0.)
+				continue;
+			for (int k = colPtr[j]; k < colPtr[j + 1]; k++)
+				y[rowIdx[k]] += values[k] * xj;
+		}
+	}
+
+	/**
+	 * 稀疏矩阵与稠密矩阵相乘 (Y=A*X)。
+	 * @param x 稠密矩阵，行数等于本矩阵的列数
+	 * @return 稠密的结果矩阵
+	 */
+	public Matrix multiply(Matrix x){
+		if (x.rows != cols)
+			throw new IllegalArgumentException("CSCMatrix multiplication, size not match.");
+		x = x.rowMajor();
+		Matrix y = new Matrix(rows, x.cols);
+		int n = x.cols, xOff = BlockedGemm.offset(x);
+		for (int j = 0; j < cols; j++){
+			int xj = xOff + j * x.dCols;
+			for (int k = colPtr[j]; k < colPtr[j + 1]; k++){
+				double a = values[k];
+				int yi = rowIdx[k] * n;
+				for (int c = 0; c < n; c++)
+					y.d[yi + c] += a * x.d[xj + c];
+			}
+		}
+		return y;
+	}
+
+	/**
+	 * 转置矩阵与向量相乘 (y=A'*x)，按列逐个计算内积。
+	 * @param x 长度为rows的向量
+	 * @param y 长度为cols的结果向量
+	 */
+	public void transposeMultiply(double[] x, double[] y){
+		if (x.length != rows || y.length != cols)
+			throw new IllegalArgumentException("CSCMatrix multiplication, size not match.");
+		for (int j = 0; j < cols; j++){
+			double s = 0.;
+			for (int k = colPtr[j]; k < colPtr[j + 1]; k++)
+				s += values[k] * x[rowIdx[k]];
+			y[j] = s;
+		}
+	}
+
+	/**
+	 * 矩阵转置，按列压缩的矩阵的转置即为按行压缩的矩阵，数组被共享而不拷贝。
+	 * @return 转置矩阵（按行压缩）
+	 */
+	public CSRMatrix t(){
+		return new CSRMatrix(cols, rows, colPtr, rowIdx, values);
+	}
+
+	/**
+	 * 转换为按行压缩的矩阵
+	 * @return 按行压缩的矩阵
+	 */
+	public CSRMatrix toCSR(){
+		CSRMatrix.Compressed c = CSRMatrix.transpose(cols, rows, colPtr, rowIdx, values);
+		return new CSRMatrix(rows, cols, c.ptr, c.idx, c.values);
+	}
+
+	/**
+	 * 转换为稠密矩阵
+	 * @return 稠密矩阵
+	 */
+	public Matrix toMatrix(){
+		Matrix x = new Matrix(rows, cols);
+		for (int j = 0; j < cols; j++)
+			for (int k = colPtr[j]; k < colPtr[j + 1]; k++)
+				x.d[rowIdx[k] * cols + j] = values[k];
+		return x;
+	}
+}
@@ -0,0 +1,470 @@
+/**
+ * CSRMatrix.java
+ */
+package artiano.core.structure;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>按行压缩存储（Compressed Sparse Row）的稀疏矩阵。只保存非零元素：第i行的非零元素的列下标和值分别保存在
+ * <code>columnIndices()</code>和<code>values()</code>的[rowPointers()[i], rowPointers()[i+1])区间内，
+ * 同一行内列下标严格递增。内存占用与非零元素个数成正比，适用于独热编码（参见{@link NominalAttribute#toBinary()}）
+ * 以及文本等绝大多数元素为0的特征。</p>
+ * <p>按列压缩的矩阵参见{@link CSCMatrix}，两者互为转置时共享相同的数组结构。</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class CSRMatrix implements Serializable{
+
+	private static final long serialVersionUID = 1L;
+	/**
+	 * 矩阵的行数
+	 */
+	protected int rows = 0;
+	/**
+	 * 矩阵的列数
+	 */
+	protected int cols = 0;
+	/**
+	 * 行指针，长度为rows+1
+	 */
+	protected int[] rowPtr = null;
+	/**
+	 * 非零元素的列下标
+	 */
+	protected int[] colIdx = null;
+	/**
+	 * 非零元素的值
+	 */
+	protected double[] values = null;
+
+	/**
+	 * 使用压缩数组直接构造矩阵，数组不会被拷贝。
+	 * @param rows 行数
+	 * @param cols 列数
+	 * @param rowPtr 行指针，长度为rows+1
+	 * @param colIdx 列下标，每行内严格递增
+	 * @param values 非零元素的值
+	 */
+	public CSRMatrix(int rows, int cols, int[] rowPtr, int[] colIdx, double[] values){
+		if (rows <= 0 || cols <= 0)
+			throw new IllegalArgumentException("CSRMatrix, columns and rows must be positive integer.");
+		if (rowPtr.length != rows + 1 || colIdx.length < rowPtr[rows] || values.length < rowPtr[rows])
+			throw new IllegalArgumentException("CSRMatrix, illegal compressed arrays.");
+		this.rows = rows;
+		this.cols = cols;
+		this.rowPtr = rowPtr;
+		this.colIdx = colIdx;
+		this.values = values;
+	}
+
+	/**
+	 * 使用三元组(i, j, value)构造矩阵，三元组可以是任意顺序，重复的(i, j)将被累加。
+	 * @param rows 行数
+	 * @param cols 列数
+	 * @param i 行下标
+	 * @param j 列下标
+	 * @param v 值
+	 * @return 稀疏矩阵
+	 */
+	public static CSRMatrix fromTriplets(int rows, int cols, int[] i, int[] j, double[] v){
+		Compressed c = compress(rows, cols, i, j, v, v.length);
+		return new CSRMatrix(rows, cols, c.ptr, c.idx, c.values);
+	}
+
+	/**
+	 * 将稠密矩阵（或子矩阵）转换为稀疏矩阵，只保留非零元素。
+	 * @param x 稠密矩阵
+	 * @return 稀疏矩阵
+	 */
+	public static CSRMatrix valueOf(Matrix x){
+		Builder b = new Builder(x.rows, x.cols);
+		for (int i = 0; i < x.rows; i++){
+			for (int j = 0; j < x.cols; j++)
+				b.add(j, x.at(i, j));
+			b.endRow();
+		}
+		return b.build();
+	}
+
+	/**
+	 * <p>将表转换为稀疏矩阵，不会构造稠密的中间矩阵。数值属性占一列（缺失值保存为NaN，与{@link Table#toMatrix()}
+	 * 一致）；名词属性按{@link NominalAttribute#toBinary()}的顺序展开为独热编码的若干列，缺失值全部为0。</p>
+	 * @param table 表
+	 * @return 稀疏矩阵
+	 */
+	public static CSRMatrix valueOf(Table table){
+		int n = table.columns();
+		int[] offsets = new int[n + 1];
+		List<Map<Object, Integer>> nominals = new java.util.ArrayList<Map<Object, Integer>>();
+		for (int j = 0; j < n; j++){
+			Attribute att = table.attribute(j);
+			Map<Object, Integer> map = null;
+			if (att instanceof NominalAttribute){
+				List<Object> list = ((NominalAttribute) att).nominals();
+				map = new HashMap<Object, Integer>();
+				for (int k = 0; k < list.size(); k++)
+					if (!list.get(k).equals(Attribute.MISSING_VALUE))
+						map.put(list.get(k), map.size());
+				offsets[j + 1] = offsets[j] + map.size();
+			} else if (att instanceof NumericAttribute)
+				offsets[j + 1] = offsets[j] + 1;
+			else
+				throw new UnsupportedOperationException("CSRMatrix, only numeric and nominal attributes supported.");
+			nominals.add(map);
+		}
+		Builder b = new Builder(table.rows(), offsets[n]);
+		for (int i = 0; i < table.rows(); i++){
+			for (int j = 0; j < n; j++){
+				Object v = table.at(i, j);
+				Map<Object, Integer> map = nominals.get(j);
+				if (map == null)
+					b.add(offsets[j], (Double) v);
+				else if (!v.equals(Attribute.MISSING_VALUE)){
+					Integer k = map.get(v);
+					if (k == null)
+						throw new IllegalArgumentException("CSRMatrix, unknown nominal value: " + v);
+					b.add(offsets[j] + k, 1.);
+				}
+			}
+			b.endRow();
+		}
+		return b.build();
+	}
+
+	/**
+	 * 获取矩阵的行数。
+	 * @return 矩阵行数。
+	 */
+	public int rows(){
+		return rows;
+	}
+
+	/**
+	 * 获取矩阵的列数。
+	 * @return 矩阵的列数。
+	 */
+	public int columns(){
+		return cols;
+	}
+
+	/**
+	 * 非零元素的个数
+	 * @return 非零元素的个数
+	 */
+	public int nonZeros(){
+		return rowPtr[rows];
+	}
+
+	/**
+	 * 获取行指针数组，第i行的非零元素位于[rowPointers()[i], rowPointers()[i+1])。
+	 * @return 行指针
+	 */
+	public int[] rowPointers(){
+		return rowPtr;
+	}
+
+	/**
+	 * 获取非零元素的列下标数组。
+	 * @return 列下标
+	 */
+	public int[] columnIndices(){
+		return colIdx;
+	}
+
+	/**
+	 * 获取非零元素的值数组。
+	 * @return 值
+	 */
+	public double[] values(){
+		return values;
+	}
+
+	/**
+	 * 获取矩阵在行下标为i列下标为j处的值。
+	 * @param i 行下标。
+	 * @param j 列下标。
+	 * @return 值。
+	 */
+	public double at(int i, int j){
+		if (i < 0 || i >= rows || j < 0 || j >= cols)
+			throw new IndexOutOfBoundsException("CSRMatrix at, index out of range.");
+		int k = java.util.Arrays.binarySearch(colIdx, rowPtr[i], rowPtr[i + 1], j);
+		return k < 0 ? 0.: values[k];
+	}
+
+	/**
+	 * 获取第i行（1*cols的稀疏矩阵，数据被拷贝）。
+	 * @param i 行下标
+	 * @return 行向量
+	 */
+	public CSRMatrix row(int i){
+		if (i < 0 || i >= rows)
+			throw new IndexOutOfBoundsException("CSRMatrix row, index out of range.");
+		int begin = rowPtr[i], n = rowPtr[i + 1] - begin;
+		int[] idx = new int[n];
+		double[] v = new double[n];
+		System.arraycopy(colIdx, begin, idx, 0, n);
+		System.arraycopy(values, begin, v, 0, n);
+		return new CSRMatrix(1, cols, new int[]{0, n}, idx, v);
+	}
+
+	/**
+	 * 稀疏矩阵与向量相乘 (y=A*x)。
+	 * @param x 长度为cols的向量
+	 * @param y 长度为rows的结果向量
+	 */
+	public void multiply(double[] x, double[] y){
+		if (x.length != cols || y.length != rows)
+			throw new IllegalArgumentException("CSRMatrix multiplication, size not match.");
+		for (int i = 0; i < rows; i++){
+			double s = 0.;
+			for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++)
+				s += values[k] * x[colIdx[k]];
+			y[i] = s;
+		}
+	}
+
+	/**
+	 * 稀疏矩阵与稠密矩阵相乘 (Y=A*X)，X为列向量时即为SpMV。
+	 * @param x 稠密矩阵，行数等于本矩阵的列数
+	 * @return 稠密的结果矩阵
+	 */
+	public Matrix multiply(Matrix x){
+		if (x.rows != cols)
+			throw new IllegalArgumentException("CSRMatrix multiplication, size not match.");
+		x = x.rowMajor();
+		Matrix y = new Matrix(rows, x.cols);
+		int n = x.cols, xOff = BlockedGemm.offset(x);
+		for (int i = 0; i < rows; i++){
+			int yi = i * n;
+			for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++){
+				double a = values[k];
+				int xj = xOff + colIdx[k] * x.dCols;
+				for (int j = 0; j < n; j++)
+					y.d[yi + j] += a * x.d[xj + j];
+			}
+		}
+		return y;
+	}
+
+	/**
+	 * 转置矩阵与稠密矩阵相乘 (Y=A'*X)，不需要构造转置矩阵。
+	 * @param x 稠密矩阵，行数等于本矩阵的行数
+	 * @return 稠密的结果矩阵 (cols*x.columns())
+	 */
+	public Matrix transposeMultiply(Matrix x){
+		if (x.rows != rows)
+			throw new IllegalArgumentException("CSRMatrix multiplication, size not match.");
+		x = x.rowMajor();
+		Matrix y = new Matrix(cols, x.cols);
+		int n = x.cols, xOff = BlockedGemm.offset(x);
+		for (int i = 0; i < rows; i++){
+			int xi = xOff + i * x.dCols;
+			for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++){
+				double a = values[k];
+				int yj = colIdx[k] * n;
+				for (int j = 0; j < n; j++)
+					y.d[yj + j] += a * x.d[xi + j];
+			}
+		}
+		return y;
+	}
+
+	/**
+	 * 矩阵转置
+	 * @return 转置矩阵（按行压缩）
+	 */
+	public CSRMatrix t(){
+		Compressed c = transpose(rows, cols, rowPtr, colIdx, values);
+		return new CSRMatrix(cols, rows, c.ptr, c.idx, c.values);
+	}
+
+	/**
+	 * 转换为按列压缩的矩阵
+	 * @return 按列压缩的矩阵
+	 */
+	public CSCMatrix toCSC(){
+		Compressed c = transpose(rows, cols, rowPtr, colIdx, values);
+		return new CSCMatrix(rows, cols, c.ptr, c.idx, c.values);
+	}
+
+	/**
+	 * 转换为稠密矩阵
+	 * @return 稠密矩阵
+	 */
+	public Matrix toMatrix(){
+		Matrix x = new Matrix(rows, cols);
+		for (int i = 0; i < rows; i++)
+			for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++)
+				x.d[i * cols + colIdx[k]] = values[k];
+		return x;
+	}
+
+	/**
+	 * 第i行与另一个稀疏矩阵第j行之间的欧式距离，只访问两行的非零元素。
+	 * @param i 本矩阵的行下标
+	 * @param y 另一个稀疏矩阵
+	 * @param j y的行下标
+	 * @return 欧式距离
+	 */
+	public double distance(int i, CSRMatrix y, int j){
+		if (y.cols != cols)
+			throw new IllegalArgumentException("CSRMatrix distance, size not match.");
+		int p = rowPtr[i], pe = rowPtr[i + 1], q = y.rowPtr[j], qe = y.rowPtr[j + 1];
+		double s = 0.;
+		while (p < pe && q < qe){
+			int a = colIdx[p], b = y.colIdx[q];
+			double t;
+			if (a == b)
+				t = values[p++] - y.values[q++];
+			else if (a < b)
+				t = values[p++];
+			else
+				t = y.values[q++];
+			s += t * t;
+		}
+		for (; p < pe; p++)
+			s += values[p] * values[p];
+		for (; q < qe; q++)
+			s += y.values[q] * y.values[q];
+		return Math.sqrt(s);
+	}
+
+	/**
+	 * 第i行与稠密行向量x之间的欧式距离，沿着x顺序扫描并在非零元素处计算差值。
+	 * @param i 行下标
+	 * @param x 稠密行向量 (1*cols)
+	 * @return 欧式距离
+	 */
+	public double distance(int i, Matrix x){
+		if (x.rows != 1 || x.cols != cols)
+			throw new IllegalArgumentException("CSRMatrix distance, size not match.");
+		//x may be a strided view (a column of a transpose), step by its column stride
+		int p = BlockedGemm.offset(x), stride = x.colStride, k = rowPtr[i], end = rowPtr[i + 1];
+		double s = 0.;
+		for (int j = 0; j < cols; j++, p += stride){
+			double t = x.d[p];
+			if (k < end && colIdx[k] == j)
+				t -= values[k++];
+			s += t * t;
+		}
+		return Math.sqrt(s);
+	}
+
+	/**
+	 * 压缩数组
+	 */
+	static class Compressed {
+		int[] ptr;
+		int[] idx;
+		double[] values;
+	}
+
+	/**
+	 * 按major排序的压缩（计数排序，稳定），若输入已按minor排序，则输出在每个major内按minor有序
+	 */
+	private static Compressed bucket(int majors, int[] major, int[] minor, double[] v, int nnz){
+		Compressed c = new Compressed();
+		c.ptr = new int[majors + 1];
+		for (int k = 0; k < nnz; k++)
+			c.ptr[major[k] + 1]++;
+		for (int i = 0; i < majors; i++)
+			c.ptr[i + 1] += c.ptr[i];
+		int[] next = c.ptr.clone();
+		c.idx = new int[nnz];
+		c.values = new double[nnz];
+		for (int k = 0; k < nnz; k++){
+			int p = next[major[k]]++;
+			c.idx[p] = minor[k];
+			c.values[p] = v[k];
+		}
+		return c;
+	}
+
+	/**
+	 * 将三元组压缩为按major压缩的数组，每个major内minor严格递增，重复元素累加
+	 */
+	static Compressed compress(int majors, int minors, int[] major, int[] minor, double[] v, int nnz){
+		if (major.length < nnz || minor.length < nnz)
+			throw new IllegalArgumentException("CSRMatrix, triplets size not match.");
+		for (int k = 0; k < nnz; k++)
+			if (major[k] < 0 || major[k] >= majors || minor[k] < 0 || minor[k] >= minors)
+				throw new IndexOutOfBoundsException("CSRMatrix, triplet index out of range.");
+		//sort by minor first, then a stable sort by major
+		Compressed byMinor = bucket(minors, minor, major, v, nnz);
+		int[] minorOf = new int[nnz];
+		for (int j = 0; j < minors; j++)
+			for (int k = byMinor.ptr[j]; k < byMinor.ptr[j + 1]; k++)
+				minorOf[k] = j;
+		Compressed c = bucket(majors, byMinor.idx, minorOf, byMinor.values, nnz);
+		//merge duplicates
+		int w = 0, begin = 0;
+		for (int i = 0; i < majors; i++){
+			int end = c.ptr[i + 1];
+			for (int k = begin; k < end; k++){
+				if (w > c.ptr[i] && c.idx[w - 1] == c.idx[k])
+					c.values[w - 1] += c.values[k];
+				else {
+					c.idx[w] = c.idx[k];
+					c.values[w++] = c.values[k];
+				}
+			}
+			begin = end;
+			c.ptr[i + 1] = w;
+		}
+		return c;
+	}
+
+	/**
+	 * 压缩数组的转置（CSR与CSC之间的转换）
+	 */
+	static Compressed transpose(int majors, int minors, int[] ptr, int[] idx, double[] v){
+		int nnz = ptr[majors];
+		int[] majorOf = new int[nnz];
+		for (int i = 0; i < majors; i++)
+			for (int k = ptr[i]; k < ptr[i + 1]; k++)
+				majorOf[k] = i;
+		return bucket(minors, idx, majorOf, v, nnz);
+	}
+
+	/**
+	 * 按行顺序追加元素的构造器，自动忽略0
+	 */
+	static class Builder {
+		final int rows, cols;
+		int[] rowPtr;
+		int[] colIdx = new int[16];
+		double[] values = new double[16];
+		int row = 0, nnz = 0;
+
+		Builder(int rows, int cols){
+			this.rows = rows;
+			this.cols = cols;
+			this.rowPtr = new int[rows + 1];
+		}
+
+		void add(int j, double v){
+			if (v == 0.)
+				return;
+			if (nnz == colIdx.length){
+				colIdx = java.util.Arrays.copyOf(colIdx, nnz * 2);
+				values = java.util.Arrays.copyOf(values, nnz * 2);
+			}
+			colIdx[nnz] = j;
+			values[nnz++] = v;
+		}
+
+		void endRow(){
+			rowPtr[++row] = nnz;
+		}
+
+		CSRMatrix build(){
+			return new CSRMatrix(rows, cols, rowPtr, java.util.Arrays.copyOf(colIdx, nnz),
+					java.util.Arrays.copyOf(values, nnz));
+		}
+	}
+}
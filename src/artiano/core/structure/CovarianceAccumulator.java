@@ -0,0 +1,188 @@
+/**
+ * CovarianceAccumulator.java
+ */
+package artiano.core.structure;
+
+import java.io.Serializable;
+
+/**
+ * <p>流式的均值及协方差累加器，样本（行向量）可以分批加入，累加器只保存样本个数、均值向量以及关于均值的离差平方和
+ * 矩阵（co-moment，以{@link SymmetricMatrix}压缩保存），因此不需要同时持有全部数据。</p>
+ * <p>每批样本被划分为若干块，每块先求块均值，再将减去块均值后的块通过{@link SymmetricMatrix#syrk}累加为块的离差平方和，
+ * 最后与已有的结果按Chan等人的合并公式合并：
+ * <pre>
+ * M2 = M2a + M2b + d*d'*na*nb/(na+nb)，d = mean_b - mean_a
+ * </pre>
+ * 这样既不会出现先求平方和再减去均值平方带来的精度损失，内存占用也只与维数和块大小有关。
+ * 多线程时每个线程使用各自的累加器，最后使用{@link #merge(CovarianceAccumulator)}合并。累加器不是线程安全的。</p>
+ * <p>用法如下：
+ * <pre><code>
+ * CovarianceAccumulator acc = new CovarianceAccumulator(dimension);
+ * while (reader.hasNext())
+ *     acc.add(reader.nextBatch());
+ * Matrix mean = acc.mean(), cov = acc.covariance();
+ * </code></pre></p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class CovarianceAccumulator implements Serializable{
+
+	private static final long serialVersionUID = 1L;
+	/** 每块的行数 */
+	static final int BLOCK_ROWS = 256;
+	/** 样本维数 */
+	private final int m;
+	/** 样本个数 */
+	private long n = 0;
+	/** 均值向量 */
+	private final double[] mean;
+	/** 关于均值的离差平方和 */
+	private final SymmetricMatrix m2;
+
+	/**
+	 * 构造一个空的累加器。
+	 * @param dimension 样本维数（矩阵的列数）
+	 */
+	public CovarianceAccumulator(int dimension){
+		if (dimension <= 0)
+			throw new IllegalArgumentException("CovarianceAccumulator, dimension must be positive integer.");
+		this.m = dimension;
+		this.mean = new double[dimension];
+		this.m2 = new SymmetricMatrix(dimension);
+	}
+
+	/**
+	 * 加入一批样本，矩阵的每一行为一个样本。
+	 * @param samples 样本（可以是子矩阵、转置等视图），列数等于维数
+	 * @return 累加器本身
+	 */
+	public CovarianceAccumulator add(Matrix samples){
+		if (samples.cols != m)
+			throw new IllegalArgumentException("CovarianceAccumulator add, dimension not match.");
+		int block = Math.min(BLOCK_ROWS, samples.rows);
+		Matrix centred = new Matrix(block, m);
+		SymmetricMatrix blockM2 = new SymmetricMatrix(m);
+		for (int i = 0; i < samples.rows; i += block){
+			int b = Math.min(block, samples.rows - i);
+			Matrix x = samples.at(new Range(i, i + b), Range.all());
+			Matrix c = b == block ? centred: centred.at(new Range(0, b), Range.all());
+			Matrix blockMean = x.rowMean();
+			x.lazy().minus(blockMean).eval(c);
+			SymmetricMatrix.syrk(1., c, true, 0., blockM2);
+			merge(b, blockMean.d, blockM2.d);
+		}
+		return this;
+	}
+
+	/**
+	 * 合并另一个累加器的结果（相当于将它的样本加入本累加器）。
+	 * @param other 维数相同的累加器
+	 * @return 累加器本身
+	 */
+	public CovarianceAccumulator merge(CovarianceAccumulator other){
+		if (other.m != m)
+			throw new IllegalArgumentException("CovarianceAccumulator merge, dimension not match.");
+		merge(other.n, other.mean, other.m2.d);
+		return this;
+	}
+
+	/**
+	 * 合并nb个均值为meanB、离差平方和（按行压缩的上三角）为m2B的样本
+	 */
+	private void merge(long nb, double[] meanB, double[] m2B){
+		if (nb == 0)
+			return;
+		long na = n, nn = na + nb;
+		double[] d = m2.d;
+		int size = d.length;
+		if (na == 0){
+			System.arraycopy(meanB, 0, mean, 0, m);
+			System.arraycopy(m2B, 0, d, 0, size);
+			n = nb;
+			return;
+		}
+		double[] delta = new double[m];
+		for (int j = 0; j < m; j++)
+			delta[j] = meanB[j] - mean[j];
+		double f = (double) na * nb / nn;
+		for (int i = 0, p = 0; i < m; i++){
+			double di = f * delta[i];
+			for (int j = i; j < m; j++, p++)
+				d[p] += m2B[p] + di * delta[j];
+		}
+		double w = (double) nb / nn;
+		for (int j = 0; j < m; j++)
+			mean[j] += delta[j] * w;
+		n = nn;
+	}
+
+	/**
+	 * 获取样本维数。
+	 * @return 维数
+	 */
+	public int dimension(){
+		return m;
+	}
+
+	/**
+	 * 获取已加入的样本个数。
+	 * @return 样本个数
+	 */
+	public long count(){
+		return n;
+	}
+
+	/**
+	 * 获取均值向量。
+	 * @return 1*dimension的行向量
+	 */
+	public Matrix mean(){
+		return new Matrix(1, m, mean.clone());
+	}
+
+	/**
+	 * 获取关于均值的离差平方和矩阵（未缩放的协方差矩阵，同
+	 * <code>covarianceOfRows(Matrix.COVARIANCE_NORMAL, null, false)</code>）。
+	 * @return 离差平方和矩阵
+	 */
+	public SymmetricMatrix scatterPacked(){
+		return m2.clone();
+	}
+
+	/**
+	 * 获取关于均值的离差平方和矩阵，参见{@link #scatterPacked()}。
+	 * @return 离差平方和矩阵
+	 */
+	public Matrix scatter(){
+		return m2.toMatrix();
+	}
+
+	/**
+	 * 获取协方差矩阵（除以样本个数n）。
+	 * @return 协方差矩阵
+	 */
+	public SymmetricMatrix covariancePacked(){
+		return scaled(n);
+	}
+
+	/**
+	 * 获取协方差矩阵（除以样本个数n）。
+	 * @return 协方差矩阵
+	 */
+	public Matrix covariance(){
+		return covariancePacked().toMatrix();
+	}
+
+	/**
+	 * 获取样本协方差矩阵（除以n-1）。
+	 * @return 样本协方差矩阵
+	 */
+	public Matrix sampleCovariance(){
+		return scaled(n - 1).toMatrix();
+	}
+
+	private SymmetricMatrix scaled(long divisor){
+		SymmetricMatrix s = m2.clone();
+		return divisor > 0 ? s.divide(divisor): s;
+	}
+}
@@ -0,0 +1,593 @@
+/**
+ * Expression.java
+ */
+package artiano.core.structure;
+
+import java.util.Arrays;
+
+/**
+ * <p>矩阵的延迟计算表达式。由{@link Matrix#lazy()}得到，逐元素运算、标量运算、广播（行向量或列向量）以及转置
+ * 只构造表达式树而不计算，直到调用{@link #eval()}或被{@link #multiply(Expression)}使用时才按行一次性计算，
+ * 不产生中间矩阵，也不会多次遍历数据。例如：
+ * <pre><code>
+ * //y=(x-mean)/std，mean与std为行向量
+ * Matrix y = x.lazy().minus(mean).divide(std).eval();
+ * //feature=(sample-mean)*eigenVectors.t()
+ * Matrix feature = sample.lazy().minus(mean).multiply(eigenVectors.lazy().t());
+ * </code></pre></p>
+ * <p>表达式引用而不拷贝矩阵，计算时读取矩阵的当前值。表达式在计算期间使用自身的缓冲区，同一个表达式不能被多个线程
+ * 同时计算。</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public abstract class Expression {
+	/** 运算：加 */
+	static final int PLUS = 0;
+	/** 运算：减 */
+	static final int MINUS = 1;
+	/** 运算：逐元素乘 */
+	static final int TIMES = 2;
+	/** 运算：逐元素除 */
+	static final int DIVIDE = 3;
+	/** 运算：开根 */
+	static final int SQRT = 4;
+	/** 运算：绝对值 */
+	static final int ABS = 5;
+	/** 被乘法使用时每次计算的行数 */
+	static final int BLOCK_ROWS = 64;
+	private static final Kernels KERNELS = Kernels.INSTANCE;
+
+	/**
+	 * 表达式结果的行数
+	 */
+	protected final int rows;
+	/**
+	 * 表达式结果的列数
+	 */
+	protected final int cols;
+
+	Expression(int rows, int cols){
+		this.rows = rows;
+		this.cols = cols;
+	}
+
+	/**
+	 * 获取结果的行数。
+	 * @return 行数
+	 */
+	public int rows(){
+		return rows;
+	}
+
+	/**
+	 * 获取结果的列数。
+	 * @return 列数
+	 */
+	public int columns(){
+		return cols;
+	}
+
+	/**
+	 * 加法，x可以是同型矩阵，也可以是按行或按列广播的行向量或列向量。
+	 * @param x 表达式
+	 * @return 新的表达式
+	 */
+	public Expression plus(Expression x){
+		return new Binary(PLUS, this, x);
+	}
+
+	/**
+	 * 加法，参见{@link #plus(Expression)}。
+	 * @param x 矩阵
+	 * @return 新的表达式
+	 */
+	public Expression plus(Matrix x){
+		return plus(x.lazy());
+	}
+
+	/**
+	 * 加上标量。
+	 * @param x 标量
+	 * @return 新的表达式
+	 */
+	public Expression plus(double x){
+		return new Scalar(PLUS, this, x);
+	}
+
+	/**
+	 * 减法，x可以是同型矩阵，也可以是按行或按列广播的行向量或列向量。
+	 * @param x 表达式
+	 * @return 新的表达式
+	 */
+	public Expression minus(Expression x){
+		return new Binary(MINUS, this, x);
+	}
+
+	/**
+	 * 减法，参见{@link #minus(Expression)}。
+	 * @param x 矩阵
+	 * @return 新的表达式
+	 */
+	public Expression minus(Matrix x){
+		return minus(x.lazy());
+	}
+
+	/**
+	 * 减去标量。
+	 * @param x 标量
+	 * @return 新的表达式
+	 */
+	public Expression minus(double x){
+		return new Scalar(PLUS, this, -x);
+	}
+
+	/**
+	 * 逐元素乘法，x可以是同型矩阵，也可以是按行或按列广播的行向量或列向量。
+	 * @param x 表达式
+	 * @return 新的表达式
+	 */
+	public Expression times(Expression x){
+		return new Binary(TIMES, this, x);
+	}
+
+	/**
+	 * 逐元素乘法，参见{@link #times(Expression)}。
+	 * @param x 矩阵
+	 * @return 新的表达式
+	 */
+	public Expression times(Matrix x){
+		return times(x.lazy());
+	}
+
+	/**
+	 * 数乘。
+	 * @param x 标量
+	 * @return 新的表达式
+	 */
+	public Expression multiply(double x){
+		return new Scalar(TIMES, this, x);
+	}
+
+	/**
+	 * 逐元素除法，x可以是同型矩阵，也可以是按行或按列广播的行向量或列向量。
+	 * @param x 表达式
+	 * @return 新的表达式
+	 */
+	public Expression divide(Expression x){
+		return new Binary(DIVIDE, this, x);
+	}
+
+	/**
+	 * 逐元素除法，参见{@link #divide(Expression)}。
+	 * @param x 矩阵
+	 * @return 新的表达式
+	 */
+	public Expression divide(Matrix x){
+		return divide(x.lazy());
+	}
+
+	/**
+	 * 除以标量。
+	 * @param x 标量
+	 * @return 新的表达式
+	 */
+	public Expression divide(double x){
+		if (x == 0.)
+			throw new ArithmeticException("Expression divide, divisor is 0.");
+		return new Scalar(DIVIDE, this, x);
+	}
+
+	/**
+	 * 开根。
+	 * @return 新的表达式
+	 */
+	public Expression sqrt(){
+		return new Unary(SQRT, this);
+	}
+
+	/**
+	 * 绝对值。
+	 * @return 新的表达式
+	 */
+	public Expression abs(){
+		return new Unary(ABS, this);
+	}
+
+	/**
+	 * 转置。被乘法使用时，矩阵的转置不需要计算（参见{@link Matrix#gemm}）。
+	 * @return 新的表达式
+	 */
+	public Expression t(){
+		return new Transpose(this);
+	}
+
+	/**
+	 * 计算表达式，结果保存在新的矩阵中。
+	 * @return 结果
+	 */
+	public Matrix eval(){
+		return eval(new Matrix(rows, cols));
+	}
+
+	/**
+	 * 计算表达式，结果保存在y中（不分配内存）。y可以是表达式中的同型矩阵本身（原地计算），但不能与表达式中
+	 * 被广播或转置的矩阵重叠。
+	 * @param y 与结果同型的矩阵
+	 * @return y
+	 */
+	public Matrix eval(Matrix y){
+		if (y.rows != rows || y.cols != cols)
+			throw new IllegalArgumentException("Expression eval, size not match.");
+		if (conflicts(y))
+			throw new IllegalArgumentException("Expression eval, output overlaps an operand.");
+		prepare();
+		if (y.colStride == 1){
+			for (int i = 0; i < rows; i++)
+				row(i, y.d, y.offset + i * y.dCols);
+			return y;
+		}
+		//y is a transposed or strided view, write through a row buffer
+		double[] buf = new double[cols];
+		for (int i = 0; i < rows; i++){
+			row(i, buf, 0);
+			for (int j = 0, k = y.offset + i * y.dCols; j < cols; j++, k += y.colStride)
+				y.d[k] = buf[j];
+		}
+		return y;
+	}
+
+	/**
+	 * 矩阵乘法，参见{@link #multiply(Expression, Matrix)}。
+	 * @param x 矩阵
+	 * @return 结果
+	 */
+	public Matrix multiply(Matrix x){
+		return multiply(x.lazy());
+	}
+
+	/**
+	 * 矩阵乘法，参见{@link #multiply(Expression, Matrix)}。
+	 * @param x 表达式
+	 * @return 结果
+	 */
+	public Matrix multiply(Expression x){
+		return multiply(x, new Matrix(rows, x.cols));
+	}
+
+	/**
+	 * <p>矩阵乘法 (y=this*x)，结果保存在y中。矩阵及其转置直接交给{@link Matrix#gemm}；其他表达式按每块
+	 * {@link #BLOCK_ROWS}行计算后立即相乘，不会生成完整的中间矩阵。</p>
+	 * @param x 表达式
+	 * @param y 结果，不能与表达式中的矩阵重叠
+	 * @return y
+	 */
+	public Matrix multiply(Expression x, Matrix y){
+		if (cols != x.rows)
+			throw new IllegalArgumentException("Expression multiplication, size not match.");
+		if (y.rows != rows || y.cols != x.cols)
+			throw new IllegalArgumentException("Expression multiplication, output size not match.");
+		if (overlaps(y) || x.overlaps(y))
+			throw new IllegalArgumentException("Expression multiplication, output overlaps an operand.");
+		Matrix b = x.operand();
+		boolean transB = b == null;
+		if (transB)
+			b = x.transposedOperand();
+		if (b == null){
+			b = x.eval();
+			transB = false;
+		}
+		Matrix a = operand();
+		if (a != null){
+			Matrix.gemm(1., a, false, b, transB, 0., y);
+			return y;
+		}
+		a = transposedOperand();
+		if (a != null){
+			Matrix.gemm(1., a, true, b, transB, 0., y);
+			return y;
+		}
+		prepare();
+		int block = Math.min(BLOCK_ROWS, rows);
+		Matrix buffer = new Matrix(block, cols);
+		for (int i = 0; i < rows; i += block){
+			int n = Math.min(block, rows - i);
+			Matrix ai = n == block ? buffer: buffer.at(new Range(0, n), Range.all());
+			for (int k = 0; k < n; k++)
+				row(i + k, buffer.d, k * cols);
+			Matrix.gemm(1., ai, false, b, transB, 0., y.at(new Range(i, i + n), Range.all()));
+		}
+		return y;
+	}
+
+	/**
+	 * 若表达式就是一个矩阵，返回该矩阵
+	 */
+	Matrix operand(){
+		return null;
+	}
+
+	/**
+	 * 若表达式是一个矩阵的转置，返回该矩阵
+	 */
+	Matrix transposedOperand(){
+		return null;
+	}
+
+	/**
+	 * 表达式中是否有矩阵与y重叠
+	 */
+	abstract boolean overlaps(Matrix y);
+
+	/**
+	 * 按行写入y时是否会破坏尚未读取的数据
+	 */
+	abstract boolean conflicts(Matrix y);
+
+	/**
+	 * 计算前分配缓冲区
+	 */
+	abstract void prepare();
+
+	/**
+	 * 计算第i行，写入y[yo, yo+cols)
+	 */
+	abstract void row(int i, double[] y, int yo);
+
+	/**
+	 * 获取表达式x第i行（按本表达式的行数广播）的数据，行内元素相邻的矩阵直接返回偏移量，其他表达式计算到buffer中
+	 * （列向量被广播为cols个元素）。
+	 * @return 数据的偏移量，数据位于{@link #source(Expression, double[])}
+	 */
+	static int fetch(Expression x, int i, int cols, double[] buffer){
+		int r = x.rows == 1 ? 0: i;
+		if (x.cols == cols && x instanceof Leaf && ((Leaf) x).x.colStride == 1)
+			return ((Leaf) x).offset(r);
+		x.row(r, buffer, 0);
+		if (x.cols != cols)
+			Arrays.fill(buffer, 1, cols, buffer[0]);
+		return 0;
+	}
+
+	/**
+	 * 与{@link #fetch(Expression, int, int, double[])}对应的数据数组
+	 */
+	static double[] source(Expression x, int cols, double[] buffer){
+		return x.cols == cols && x instanceof Leaf && ((Leaf) x).x.colStride == 1 ? ((Leaf) x).x.d: buffer;
+	}
+
+	/**
+	 * 矩阵
+	 */
+	static final class Leaf extends Expression {
+		final Matrix x;
+		final int off;
+
+		Leaf(Matrix x){
+			super(x.rows, x.cols);
+			this.x = x;
+			this.off = BlockedGemm.offset(x);
+		}
+
+		int offset(int i){
+			return off + i * x.dCols;
+		}
+
+		@Override
+		Matrix operand(){
+			return x;
+		}
+
+		@Override
+		boolean overlaps(Matrix y){
+			return BlockedGemm.overlaps(x, y);
+		}
+
+		@Override
+		boolean conflicts(Matrix y){
+			boolean same = x.d == y.d && off == BlockedGemm.offset(y) && x.dCols == y.dCols &&
+					x.colStride == y.colStride;
+			return overlaps(y) && !(same && x.rows == y.rows && x.cols == y.cols);
+		}
+
+		@Override
+		void prepare(){ }
+
+		@Override
+		void row(int i, double[] y, int yo){
+			if (x.colStride == 1)
+				System.arraycopy(x.d, offset(i), y, yo, cols);
+			else
+				for (int j = 0, k = offset(i); j < cols; j++, k += x.colStride)
+					y[yo + j] = x.d[k];
+		}
+	}
+
+	/**
+	 * 两个表达式的逐元素运算，支持行向量和列向量的广播
+	 */
+	static final class Binary extends Expression {
+		final int op;
+		final Expression left, right;
+		double[] lbuf, rbuf;
+
+		Binary(int op, Expression left, Expression right){
+			super(broadcast(left.rows, right.rows), broadcast(left.cols, right.cols));
+			this.op = op;
+			this.left = left;
+			this.right = right;
+		}
+
+		private static int broadcast(int a, int b){
+			if (a != b && a != 1 && b != 1)
+				throw new IllegalArgumentException("Expression, size not match.");
+			return Math.max(a, b);
+		}
+
+		@Override
+		boolean overlaps(Matrix y){
+			return left.overlaps(y) || right.overlaps(y);
+		}
+
+		@Override
+		boolean conflicts(Matrix y){
+			return left.conflicts(y) || right.conflicts(y);
+		}
+
+		@Override
+		void prepare(){
+			left.prepare();
+			right.prepare();
+			if (lbuf == null){
+				lbuf = new double[cols];
+				rbuf = new double[cols];
+			}
+		}
+
+		@Override
+		void row(int i, double[] y, int yo){
+			int ao = fetch(left, i, cols, lbuf), bo = fetch(right, i, cols, rbuf);
+			double[] a = source(left, cols, lbuf), b = source(right, cols, rbuf);
+			switch (op){
+			case PLUS: KERNELS.add(a, ao, b, bo, y, yo, cols); break;
+			case MINUS: KERNELS.sub(a, ao, b, bo, y, yo, cols); break;
+			case TIMES: KERNELS.mul(a, ao, b, bo, y, yo, cols); break;
+			default: KERNELS.div(a, ao, b, bo, y, yo, cols);
+			}
+		}
+	}
+
+	/**
+	 * 表达式与标量的运算
+	 */
+	static final class Scalar extends Expression {
+		final int op;
+		final Expression x;
+		final double s;
+		double[] buf;
+
+		Scalar(int op, Expression x, double s){
+			super(x.rows, x.cols);
+			this.op = op;
+			this.x = x;
+			this.s = s;
+		}
+
+		@Override
+		boolean overlaps(Matrix y){
+			return x.overlaps(y);
+		}
+
+		@Override
+		boolean conflicts(Matrix y){
+			return x.conflicts(y);
+		}
+
+		@Override
+		void prepare(){
+			x.prepare();
+			if (buf == null)
+				buf = new double[cols];
+		}
+
+		@Override
+		void row(int i, double[] y, int yo){
+			int ao = fetch(x, i, cols, buf);
+			double[] a = source(x, cols, buf);
+			switch (op){
+			case PLUS: KERNELS.add(a, ao, s, y, yo, cols); break;
+			case TIMES: KERNELS.mul(a, ao, s, y, yo, cols); break;
+			default: KERNELS.div(a, ao, s, y, yo, cols);
+			}
+		}
+	}
+
+	/**
+	 * 逐元素的一元运算
+	 */
+	static final class Unary extends Expression {
+		final int op;
+		final Expression x;
+		double[] buf;
+
+		Unary(int op, Expression x){
+			super(x.rows, x.cols);
+			this.op = op;
+			this.x = x;
+		}
+
+		@Override
+		boolean overlaps(Matrix y){
+			return x.overlaps(y);
+		}
+
+		@Override
+		boolean conflicts(Matrix y){
+			return x.conflicts(y);
+		}
+
+		@Override
+		void prepare(){
+			x.prepare();
+			if (buf == null)
+				buf = new double[cols];
+		}
+
+		@Override
+		void row(int i, double[] y, int yo){
+			int ao = fetch(x, i, cols, buf);
+			double[] a = source(x, cols, buf);
+			if (op == SQRT)
+				KERNELS.sqrt(a, ao, y, yo, cols);
+			else
+				KERNELS.abs(a, ao, y, yo, cols);
+		}
+	}
+
+	/**
+	 * 转置。矩阵的转置按列读取；其他表达式的转置在计算前先求值一次。
+	 */
+	static final class Transpose extends Expression {
+		final Expression x;
+		Matrix source;
+
+		Transpose(Expression x){
+			super(x.cols, x.rows);
+			this.x = x;
+		}
+
+		@Override
+		public Expression t(){
+			return x;
+		}
+
+		@Override
+		Matrix transposedOperand(){
+			return x.operand();
+		}
+
+		@Override
+		boolean overlaps(Matrix y){
+			return x.overlaps(y);
+		}
+
+		@Override
+		boolean conflicts(Matrix y){
+			return x.overlaps(y);
+		}
+
+		@Override
+		void prepare(){
+			source = x.operand();
+			if (source == null)
+				source = x.eval();
+		}
+
+		@Override
+		void row(int i, double[] y, int yo){
+			double[] d = source.d;
+			int off = source.offset + i * source.colStride, dCols = source.dCols;
+			for (int j = 0; j < cols; j++)
+				y[yo + j] = d[off + j * dCols];
+		}
+	}
+}
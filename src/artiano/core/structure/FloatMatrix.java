@@ -0,0 +1,911 @@
+/**
+ * FloatMatrix.java
+ */
+package artiano.core.structure;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * <p>单精度矩阵，数据以<code>float[]</code>保存，内存占用为{@link Matrix}的一半。适用于精度要求不高但数据量很大
+ * 的场合，例如KNN训练集、PCA特征向量等。</p>
+ * <p>接口与{@link Matrix}保持一致（子矩阵、乘法、转置、均值、协方差等），语义也相同，具体说明请参见{@link Matrix}
+ * 中的同名方法。两种矩阵之间可以通过{@link #valueOf(Matrix)}、{@link #toMatrix()}以及
+ * {@link Matrix#toFloatMatrix()}相互转换。</p>
+ * <p>矩阵乘法以及归约运算中的累加使用双精度进行，只有存储使用单精度。</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class FloatMatrix implements Serializable{
+
+	private static final long serialVersionUID = 1L;
+	/** 乘法中公共维的分块大小 */
+	private static final int KC = 256;
+	/** 乘法中结果矩阵列的分块大小 */
+	private static final int NC = 1024;
+	/**
+	 * 矩阵的列数
+	 */
+	protected int cols = 0;
+	/**
+	 * 矩阵的行数
+	 */
+	protected int rows = 0;
+	/**
+	 * 保存矩阵的数据
+	 */
+	protected float[] d = null;
+	/**
+	 * 行步长，即相邻两行的第一个元素在数据中的距离，含义同{@link Matrix#dCols}
+	 */
+	protected int dCols = 0;
+	/**
+	 * 列步长，即同一行中相邻两个元素在数据中的距离。通常为1，转置（{@link #t()}）中为原始矩阵的行步长
+	 */
+	protected int colStride = 1;
+	/**
+	 * 第0行第0列的元素在数据中的下标。矩阵在行i列j处的元素保存在<code>d[offset + i*dCols + j*colStride]</code>，
+	 * 子矩阵及转置与原始矩阵共享数据，它们只是offset、行步长和列步长不同
+	 */
+	protected int offset = 0;
+
+	private FloatMatrix(){ }
+
+	/**
+	 * 使用声明的行数rows和列数cols构造一个矩阵，此时内存已经被分配
+	 * @param rows 矩阵行数。
+	 * @param cols 矩阵列数
+	 */
+	public FloatMatrix(int rows, int cols){
+		this(rows, cols, new float[cols * rows]);
+	}
+
+	/**
+	 * 使用声明的行数和列数以及预先分配的单精度浮点型数据构造一个矩阵。
+	 * @param rows 矩阵行数。
+	 * @param cols 矩阵列数。
+	 * @param data 预先存储的数据。
+	 */
+	public FloatMatrix(int rows, int cols, float[] data){
+		if (cols <= 0 || rows <= 0)
+			throw new IllegalArgumentException("FloatMatrix, columns and rows must be positive integer.");
+		if (cols * rows > data.length)
+			throw new IllegalArgumentException("FloatMatrix, the size of the matrix does not match the length of the data.");
+		this.cols = cols;
+		this.rows = rows;
+		this.d = data;
+		this.dCols = cols;
+	}
+
+	/**
+	 * 将双精度矩阵（或子矩阵）转换为单精度矩阵，数据将被拷贝。
+	 * @param x 双精度矩阵
+	 * @return 单精度矩阵
+	 * @see #toMatrix()
+	 */
+	public static FloatMatrix valueOf(Matrix x){
+		FloatMatrix y = new FloatMatrix(x.rows, x.cols);
+		int off = BlockedGemm.offset(x);
+		for (int i = 0; i < x.rows; i++){
+			int xi = off + i * x.dCols, yi = i * y.cols;
+			for (int j = 0; j < x.cols; j++)
+				y.d[yi + j] = (float) x.d[xi + j * x.colStride];
+		}
+		return y;
+	}
+
+	/**
+	 * 将矩阵转换为双精度矩阵，数据将被拷贝。
+	 * @return 双精度矩阵
+	 * @see #valueOf(Matrix)
+	 */
+	public Matrix toMatrix(){
+		Matrix y = new Matrix(rows, cols);
+		for (int i = 0; i < rows; i++){
+			int xi = offset + i * dCols, yi = i * cols;
+			for (int j = 0; j < cols; j++)
+				y.d[yi + j] = d[xi + j * colStride];
+		}
+		return y;
+	}
+
+	/**
+	 * 构造一个单位矩阵。
+	 * @param size 矩阵边长。
+	 * @return 单位矩阵。
+	 */
+	public static FloatMatrix unit(int size){
+		FloatMatrix x = new FloatMatrix(size, size);
+		for (int i = 0; i < size; i++)
+			x.set(i, i, 1.);
+		return x;
+	}
+
+	/**
+	 * 构造一个所有元素具有相同数据的矩阵。
+	 * @param rows 矩阵行数。
+	 * @param cols 矩阵列数。
+	 * @param scale 元素的值。
+	 * @return 矩阵
+	 */
+	public static FloatMatrix ones(int rows, int cols, double scale){
+		FloatMatrix x = new FloatMatrix(rows, cols);
+		x.fill(scale);
+		return x;
+	}
+
+	/**
+	 * 构造一个与原始矩阵共享数据的视图
+	 */
+	private FloatMatrix view(int rows, int cols, int offset, int rowStride, int colStride){
+		FloatMatrix x = new FloatMatrix();
+		x.rows = rows;
+		x.cols = cols;
+		x.d = d;
+		x.offset = offset;
+		x.dCols = rowStride;
+		x.colStride = colStride;
+		return x;
+	}
+
+	/**
+	 * 元素(i, j)在数据中的下标
+	 */
+	private int index(int i, int j){
+		return offset + i * dCols + j * colStride;
+	}
+
+	/**
+	 * 与x的行步长和列步长都相同（同一元素在两者中的下标之差为常数）
+	 */
+	private boolean sameLayout(FloatMatrix x){
+		return (dCols == x.dCols || rows == 1) && (colStride == x.colStride || cols == 1);
+	}
+
+	/**
+	 * 与x共享数据但布局不同时返回x的拷贝，使逐元素写入y时不会覆盖尚未读取的x的元素
+	 */
+	private FloatMatrix unaliased(FloatMatrix x){
+		return x.d == d && !sameLayout(x) ? x.clone(): x;
+	}
+
+	/**
+	 * 判断矩阵是否为转置视图，参见{@link Matrix#isTransposed()}
+	 * @return 是转置视图返回<code>true</code>
+	 */
+	public boolean isTransposed(){
+		return colStride > dCols;
+	}
+
+	/**
+	 * 判断矩阵的元素在数据中是否按行连续存放，参见{@link Matrix#isContinuous()}
+	 * @return 连续返回<code>true</code>
+	 */
+	public boolean isContinuous(){
+		return colStride == 1 && (dCols == cols || rows == 1);
+	}
+
+	/**
+	 * 获取按行连续存放的矩阵：若矩阵的数据恰好是<code>data()</code>的前rows*cols个元素则返回矩阵本身，否则
+	 * （子矩阵或转置）返回一个拷贝，参见{@link Matrix#compact()}
+	 * @return 按行连续存放的矩阵
+	 */
+	public FloatMatrix compact(){
+		return offset == 0 && isContinuous() ? this: clone();
+	}
+
+	/**
+	 * 判断矩阵是否为行向量
+	 * @return 行向量返回<code>true</code>
+	 */
+	public boolean isRowVector(){
+		return rows == 1;
+	}
+
+	/**
+	 * 判断矩阵是否为列向量
+	 * @return 列向量返回<code>true</code>
+	 */
+	public boolean isColumnVector(){
+		return cols == 1;
+	}
+
+	/**
+	 * 判断两个矩阵是否是同型矩阵（即行列相等）
+	 * @param x 另一个矩阵
+	 * @return 同型返回<code>true</code>，反之则反
+	 */
+	public boolean sameType(FloatMatrix x){
+		return (rows == x.rows && cols == x.cols);
+	}
+
+	/**
+	 * 判断是否为方阵。
+	 * @return 方阵返回<code>true</code>
+	 */
+	public boolean isSquare(){
+		return rows == cols;
+	}
+
+	/**
+	 * 得到矩阵大小（size=rows*columns）
+	 * @return 元素个数
+	 */
+	public int size(){
+		return rows * cols;
+	}
+
+	/**
+	 * 获取矩阵的列数。
+	 * @return 列数
+	 */
+	public int columns(){
+		return this.cols;
+	}
+
+	/**
+	 * 获取矩阵的行数。
+	 * @return 行数
+	 */
+	public int rows(){
+		return this.rows;
+	}
+
+	/**
+	 * 获取存储于矩阵中的数据。
+	 * @return 数据
+	 */
+	public float[] data(){
+		return this.d;
+	}
+
+	/**
+	 * 获取向量在下标i处的值（行向量或列向量均可）。
+	 * @param i 下标。
+	 * @return 值。
+	 */
+	public double at(int i){
+		if (rows != 1 && cols != 1)
+			throw new UnsupportedOperationException("FloatMatrix at, only vector takes one parameter.");
+		return rows == 1 ? at(0, i): at(i, 0);
+	}
+
+	/**
+	 * 获取矩阵在行下标为i列下标为j处的值。
+	 * @param i 行下标。
+	 * @param j 列下标。
+	 * @return 值。
+	 */
+	public double at(int i, int j){
+		if (i < 0 || i >= rows || j < 0 || j >= cols)
+			throw new IndexOutOfBoundsException("FloatMatrix at, index out of range.");
+		return d[index(i, j)];
+	}
+
+	/**
+	 * 获取由行范围和列范围决定的子矩阵，子矩阵与原矩阵共享数据。
+	 * @see Matrix#at(Range, Range)
+	 */
+	public FloatMatrix at(Range row, Range col){
+		boolean allRows = row.equals(Range.all()), allCols = col.equals(Range.all());
+		int r0 = allRows ? 0: row.begin(), r1 = allRows ? rows: row.end();
+		int c0 = allCols ? 0: col.begin(), c1 = allCols ? cols: col.end();
+		if (r0 < 0 || r1 > rows || c0 < 0 || c1 > cols)
+			throw new IllegalArgumentException("FloatMatrix at, out of range.");
+		return view(r1 - r0, c1 - c0, index(r0, c0), dCols, colStride);
+	}
+
+	/**
+	 * 获取矩阵在行下标为i处的行向量，与原矩阵共享数据。
+	 * @param i 行下标。
+	 * @return 特定的行向量。
+	 */
+	public FloatMatrix row(int i){
+		return at(new Range(i, i+1), Range.all());
+	}
+
+	/**
+	 * 获取矩阵在列下标为i处的列向量，与原矩阵共享数据。
+	 * @param i 列下标。
+	 * @return 特定的列向量。
+	 */
+	public FloatMatrix column(int i){
+		return at(Range.all(), new Range(i, i+1));
+	}
+
+	/**
+	 * 设置向量在下标i处的值（行向量或列向量）。
+	 * @param i 下标。
+	 * @param value 需要设置的值，保存时转换为单精度。
+	 */
+	public void set(int i, double value){
+		if (rows != 1 && cols != 1)
+			throw new UnsupportedOperationException("FloatMatrix set, only vector takes one parameter.");
+		if (rows == 1)
+			set(0, i, value);
+		else
+			set(i, 0, value);
+	}
+
+	/**
+	 * 设置矩阵在行下标i以及列下标j处的值。
+	 * @param i 行下标。
+	 * @param j 列下标。
+	 * @param value 需要设置的值，保存时转换为单精度。
+	 */
+	public void set(int i, int j, double value){
+		if (i < 0 || i >= rows || j < 0 || j >= cols)
+			throw new IndexOutOfBoundsException("FloatMatrix set, index out of range."+" i:"+i+"    j:"+j);
+		d[index(i, j)] = (float) value;
+	}
+
+	/**
+	 * 将矩阵value拷贝到由行范围和列范围决定的子矩阵。
+	 * @param row 行范围。
+	 * @param col 列范围。
+	 * @param value 需要设置的矩阵的值。
+	 */
+	public void set(Range row, Range col, FloatMatrix value){
+		value.copyTo(at(row, col));
+	}
+
+	/**
+	 * 设置矩阵在行i处的值。
+	 * @param i 行下标。
+	 * @param value 要设置的值（行向量）。
+	 */
+	public void setRow(int i, FloatMatrix value){
+		if (value.rows != 1)
+			throw new IllegalArgumentException("FloatMatrix setRow, accept row vector only.");
+		value.copyTo(row(i));
+	}
+
+	/**
+	 * 设置矩阵在列i处的值。
+	 * @param i 列下标。
+	 * @param value 要设置的值（列向量）。
+	 */
+	public void setColumn(int i, FloatMatrix value){
+		if (value.cols != 1)
+			throw new IllegalArgumentException("FloatMatrix setCol, accept column vector only.");
+		value.copyTo(column(i));
+	}
+
+	/**
+	 * 使用指定值填充矩阵
+	 * @param value 指定值
+	 */
+	public void fill(double value){
+		for (int i = 0; i < rows; i++){
+			int xi = offset + i * dCols;
+			for (int j = 0; j < cols; j++)
+				d[xi + j * colStride] = (float) value;
+		}
+	}
+
+	/**
+	 * 将矩阵的所有元素置为0
+	 */
+	public void clear(){
+		fill(0.);
+	}
+
+	/**
+	 * 将矩阵拷贝到同型的矩阵x（可以是子矩阵或转置），x与矩阵共享数据时结果同样正确。
+	 * @param x 目标矩阵
+	 */
+	public void copyTo(FloatMatrix x){
+		if (x.rows != rows || x.cols != cols)
+			throw new IllegalArgumentException("FloatMatrix copy, size not match.");
+		FloatMatrix s = x.unaliased(this);
+		for (int i = 0; i < rows; i++){
+			int si = s.offset + i * s.dCols, xi = x.offset + i * x.dCols;
+			if (s.colStride == 1 && x.colStride == 1)
+				System.arraycopy(s.d, si, x.d, xi, cols);
+			else
+				for (int j = 0; j < cols; j++)
+					x.d[xi + j * x.colStride] = s.d[si + j * s.colStride];
+		}
+	}
+
+	/**
+	 * 将矩阵的元素按行拷贝到一个新的数组。
+	 * @return 长度为rows*cols的数组
+	 */
+	public float[] toArray(){
+		float[] x = new float[size()];
+		copyTo(new FloatMatrix(rows, cols, x));
+		return x;
+	}
+
+	/**
+	 * 拷贝矩阵，得到按行连续存放的新矩阵（子矩阵及转置只拷贝它们所看到的元素）。
+	 * @return 拷贝
+	 */
+	@Override
+	public FloatMatrix clone(){
+		FloatMatrix x = new FloatMatrix(rows, cols);
+		copyTo(x);
+		return x;
+	}
+
+	/**
+	 * 转置当前矩阵。
+	 * <br><b><i>NOTICE:</i></b> 同{@link Matrix#t()}，转置是与原始矩阵共享数据的视图（交换行列数以及行列步长），
+	 * 不会拷贝数据，修改转置将修改原始矩阵。需要独立的转置矩阵时使用<code>t().clone()</code>。
+	 * @return 矩阵的转置。
+	 */
+	public FloatMatrix t(){
+		return view(cols, rows, offset, colStride, dCols);
+	}
+
+	/**
+	 * 计算矩阵的迹，以双精度累加。
+	 * @return 矩阵的迹。
+	 */
+	public double trace(){
+		if (rows != cols)
+			throw new UnsupportedOperationException("FloatMatrix trace, only squre matrix has trace.");
+		double tr = 0.;
+		for (int i = 0; i < rows; i++)
+			tr += at(i, i);
+		return tr;
+	}
+
+	/**
+	 * 逐元素计算<code>y=alpha*this+beta*x</code>，x为null时视为0矩阵
+	 */
+	private FloatMatrix combine(double alpha, FloatMatrix x, double beta, boolean reserve){
+		if (x != null && (rows != x.rows || cols != x.cols))
+			throw new IllegalArgumentException("FloatMatrix, size not match.");
+		FloatMatrix y = reserve ? new FloatMatrix(rows, cols): this;
+		if (x != null)
+			x = y.unaliased(x);
+		for (int i = 0; i < rows; i++){
+			int ti = offset + i * dCols, yi = y.offset + i * y.dCols;
+			if (x == null)
+				for (int j = 0; j < cols; j++)
+					y.d[yi + j * y.colStride] = (float) (alpha * d[ti + j * colStride] + beta);
+			else {
+				int xi = x.offset + i * x.dCols;
+				for (int j = 0; j < cols; j++)
+					y.d[yi + j * y.colStride] =
+							(float) (alpha * d[ti + j * colStride] + beta * x.d[xi + j * x.colStride]);
+			}
+		}
+		return y;
+	}
+
+	/**
+	 * 矩阵加法 (z = this + x)
+	 * @param x 同型矩阵
+	 * @param reserve 为<code>true</code>时保留原始矩阵，结果保存在新的矩阵中
+	 * @return 结果
+	 */
+	public FloatMatrix plus(FloatMatrix x, boolean reserve){
+		return combine(1., x, 1., reserve);
+	}
+
+	/**
+	 * 矩阵加法 (z = this + x)
+	 * <br><b><i>NOTICE:</i></b> 这个方法将用相加后的结果替换原始矩阵。
+	 * @param x 同型矩阵
+	 * @return 结果
+	 */
+	public FloatMatrix plus(FloatMatrix x){
+		return plus(x, false);
+	}
+
+	/**
+	 * 矩阵的每个元素加上一个数。
+	 * @param x 加数
+	 * @param reserve 为<code>true</code>时保留原始矩阵
+	 * @return 结果
+	 */
+	public FloatMatrix plus(Number x, boolean reserve){
+		return combine(1., null, x.doubleValue(), reserve);
+	}
+
+	/**
+	 * 矩阵的每个元素加上一个数，结果替换原始矩阵。
+	 * @param x 加数
+	 * @return 结果
+	 */
+	public FloatMatrix plus(Number x){
+		return plus(x, false);
+	}
+
+	/**
+	 * 矩阵减法 (z = this - x)
+	 * @param x 同型矩阵
+	 * @param reserve 为<code>true</code>时保留原始矩阵，结果保存在新的矩阵中
+	 * @return 结果
+	 */
+	public FloatMatrix minus(FloatMatrix x, boolean reserve){
+		return combine(1., x, -1., reserve);
+	}
+
+	/**
+	 * 矩阵减法 (z = this - x)
+	 * <br><b><i>NOTICE:</i></b> 这个方法将用相减后的结果替换原始矩阵。
+	 * @param x 同型矩阵
+	 * @return 结果
+	 */
+	public FloatMatrix minus(FloatMatrix x){
+		return minus(x, false);
+	}
+
+	/**
+	 * 矩阵的每个元素减去一个数。
+	 * @param x 减数
+	 * @param reserve 为<code>true</code>时保留原始矩阵
+	 * @return 结果
+	 */
+	public FloatMatrix minus(Number x, boolean reserve){
+		return combine(1., null, -x.doubleValue(), reserve);
+	}
+
+	/**
+	 * 矩阵的每个元素减去一个数，结果替换原始矩阵。
+	 * @param x 减数
+	 * @return 结果
+	 */
+	public FloatMatrix minus(Number x){
+		return minus(x, false);
+	}
+
+	/**
+	 * 矩阵数乘。
+	 * @param x 乘数
+	 * @param reserve 为<code>true</code>时保留原始矩阵
+	 * @return 结果
+	 */
+	public FloatMatrix multiply(Number x, boolean reserve){
+		return combine(x.doubleValue(), null, 0., reserve);
+	}
+
+	/**
+	 * 矩阵数乘，结果替换原始矩阵。
+	 * @param x 乘数
+	 * @return 结果
+	 */
+	public FloatMatrix multiply(Number x){
+		return multiply(x, false);
+	}
+
+	/**
+	 * 矩阵的每个元素除以一个数。
+	 * @param x 除数，不能为0
+	 * @param reserve 为<code>true</code>时保留原始矩阵
+	 * @return 结果
+	 */
+	public FloatMatrix divide(Number x, boolean reserve){
+		if (x.doubleValue() == 0.)
+			throw new ArithmeticException("FloatMatrix divide, divisor is 0.");
+		return combine(1. / x.doubleValue(), null, 0., reserve);
+	}
+
+	/**
+	 * 矩阵的每个元素除以一个数，结果替换原始矩阵。
+	 * @param x 除数，不能为0
+	 * @return 结果
+	 */
+	public FloatMatrix divide(Number x){
+		return divide(x, false);
+	}
+
+	/**
+	 * 对矩阵的每个元素开平方。
+	 * @param reserve 为<code>true</code>时保留原始矩阵
+	 * @return 结果
+	 */
+	public FloatMatrix sqrt(boolean reserve){
+		FloatMatrix y = reserve ? new FloatMatrix(rows, cols): this;
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				y.set(i, j, Math.sqrt(at(i, j)));
+		return y;
+	}
+
+	/**
+	 * 对矩阵的每个元素开平方，结果替换原始矩阵。
+	 * @return 结果
+	 */
+	public FloatMatrix sqrt(){
+		return sqrt(false);
+	}
+
+	/**
+	 * 对矩阵的每个元素取绝对值。
+	 * @param reserve 为<code>true</code>时保留原始矩阵
+	 * @return 结果
+	 */
+	public FloatMatrix abs(boolean reserve){
+		FloatMatrix y = reserve ? new FloatMatrix(rows, cols): this;
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				y.set(i, j, Math.abs(at(i, j)));
+		return y;
+	}
+
+	/**
+	 * 对矩阵的每个元素取绝对值，结果替换原始矩阵。
+	 * @return 结果
+	 */
+	public FloatMatrix abs(){
+		return abs(false);
+	}
+
+	/**
+	 * 矩阵乘法 (z=x*y)，累加以双精度进行。
+	 * @param x
+	 * @return 结果
+	 */
+	public FloatMatrix multiply(FloatMatrix x){
+		if (x.rows != cols)
+			throw new IllegalArgumentException("FloatMatrix multiplication, size not match.");
+		FloatMatrix y = new FloatMatrix(rows, x.cols);
+		multiply(rows, x.cols, cols, d, offset, dCols, colStride, x.d, x.offset, x.dCols, x.colStride, y.d, y.cols);
+		return y;
+	}
+
+	/**
+	 * 矩阵转置乘法，参见{@link Matrix#multiplyTranspose(int)}
+	 * @param method {@link Matrix#MULTIPLY_LEFT_TRANSPOSE}或{@link Matrix#MULTIPLY_RIGHT_TRANSPOSE}
+	 * @return 运算结果
+	 */
+	public FloatMatrix multiplyTranspose(int method){
+		FloatMatrix y = null;
+		if (method == Matrix.MULTIPLY_RIGHT_TRANSPOSE){
+			y = new FloatMatrix(rows, rows);
+			multiply(rows, rows, cols, d, offset, dCols, colStride, d, offset, colStride, dCols, y.d, rows);
+		} else if (method == Matrix.MULTIPLY_LEFT_TRANSPOSE){
+			y = new FloatMatrix(cols, cols);
+			multiply(cols, cols, rows, d, offset, colStride, dCols, d, offset, dCols, colStride, y.d, cols);
+		}
+		return y;
+	}
+
+	/**
+	 * C=A*B，C为紧凑存储的m*n矩阵。按列分块，每个分块内以i-k-j顺序累加到双精度的行缓冲中，
+	 * 使B按行连续访问。
+	 */
+	private static void multiply(int m, int n, int k,
+			float[] a, int aOff, int aRs, int aCs,
+			float[] b, int bOff, int bRs, int bCs,
+			float[] c, int ldc){
+		double[] acc = new double[Math.min(NC, n)];
+		for (int jc = 0; jc < n; jc += NC){
+			int nc = Math.min(NC, n - jc);
+			for (int i = 0; i < m; i++){
+				Arrays.fill(acc, 0, nc, 0.);
+				int ai = aOff + i * aRs;
+				for (int pc = 0; pc < k; pc += KC){
+					int kc = Math.min(KC, k - pc);
+					for (int l = pc; l < pc + kc; l++){
+						double ail = a[ai + l * aCs];
+						int bl = bOff + l * bRs + jc * bCs;
+						if (bCs == 1)
+							for (int j = 0; j < nc; j++)
+								acc[j] += ail * b[bl + j];
+						else
+							for (int j = 0; j < nc; j++)
+								acc[j] += ail * b[bl + j * bCs];
+					}
+				}
+				int ci = i * ldc + jc;
+				for (int j = 0; j < nc; j++)
+					c[ci + j] = (float) acc[j];
+			}
+		}
+	}
+
+	/**
+	 * 求取矩阵行元素的最大值（NaN被忽略）
+	 * @return 1*rows的行向量
+	 */
+	public FloatMatrix rowMax(){
+		FloatMatrix m = new FloatMatrix(1, rows);
+		for (int i = 0; i < rows; i++){
+			double max = Double.NEGATIVE_INFINITY;
+			for (int j = 0; j < cols; j++)
+				if (at(i, j) > max)
+					max = at(i, j);
+			m.set(0, i, max);
+		}
+		return m;
+	}
+
+	/**
+	 * 求取矩阵行元素的最小值（NaN被忽略）
+	 * @return 1*rows的行向量
+	 */
+	public FloatMatrix rowMin(){
+		FloatMatrix m = new FloatMatrix(1, rows);
+		for (int i = 0; i < rows; i++){
+			double min = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < cols; j++)
+				if (at(i, j) < min)
+					min = at(i, j);
+			m.set(0, i, min);
+		}
+		return m;
+	}
+
+	/**
+	 * 求取矩阵列元素的最大值（NaN被忽略）
+	 * @return 1*cols的行向量
+	 */
+	public FloatMatrix colMax(){
+		FloatMatrix m = new FloatMatrix(1, cols);
+		for (int j = 0; j < cols; j++){
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < rows; i++)
+				if (at(i, j) > max)
+					max = at(i, j);
+			m.set(0, j, max);
+		}
+		return m;
+	}
+
+	/**
+	 * 求取矩阵列元素的最小值（NaN被忽略）
+	 * @return 1*cols的行向量
+	 */
+	public FloatMatrix colMin(){
+		FloatMatrix m = new FloatMatrix(1, cols);
+		for (int j = 0; j < cols; j++){
+			double min = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < rows; i++)
+				if (at(i, j) < min)
+					min = at(i, j);
+			m.set(0, j, min);
+		}
+		return m;
+	}
+
+	/**
+	 * 计算矩阵的行向量集合的均值向量。
+	 * @return 均值向量（1*cols）。
+	 */
+	public FloatMatrix rowMean(){
+		double[] sum = new double[cols];
+		for (int i = 0; i < rows; i++){
+			int xi = offset + i * dCols;
+			for (int j = 0; j < cols; j++)
+				sum[j] += d[xi + j * colStride];
+		}
+		FloatMatrix mean = new FloatMatrix(1, cols);
+		for (int j = 0; j < cols; j++)
+			mean.d[j] = (float) (sum[j] / rows);
+		return mean;
+	}
+
+	/**
+	 * 计算矩阵的列向量集合的均值向量。
+	 * @return 均值向量（rows*1）。
+	 */
+	public FloatMatrix colMean(){
+		FloatMatrix mean = new FloatMatrix(rows, 1);
+		for (int i = 0; i < rows; i++){
+			int xi = offset + i * dCols;
+			double sum = 0.;
+			for (int j = 0; j < cols; j++)
+				sum += d[xi + j * colStride];
+			mean.d[i] = (float) (sum / cols);
+		}
+		return mean;
+	}
+
+	/**
+	 * 按行（将矩阵每行作为一个样本）计算矩阵的协方差矩阵，参见{@link Matrix#covarianceOfRows(int, Matrix, boolean)}
+	 * @param method {@link Matrix#COVARIANCE_INVERTED}或{@link Matrix#COVARIANCE_NORMAL}
+	 * @param rowMean 行均值向量，为null时由方法计算
+	 * @param doScale 是否将结果除以行数
+	 * @return 协方差矩阵
+	 */
+	public FloatMatrix covarianceOfRows(int method, FloatMatrix rowMean, boolean doScale){
+		FloatMatrix mean = rowMean == null ? rowMean(): rowMean;
+		FloatMatrix t = this.clone();
+		for (int i = 0; i < t.rows; i++)
+			t.row(i).minus(mean);
+		FloatMatrix cov = null;
+		if (method == Matrix.COVARIANCE_INVERTED)
+			cov = t.multiplyTranspose(Matrix.MULTIPLY_RIGHT_TRANSPOSE);
+		else if (method == Matrix.COVARIANCE_NORMAL)
+			cov = t.multiplyTranspose(Matrix.MULTIPLY_LEFT_TRANSPOSE);
+		if (cov != null && doScale)
+			cov.divide(this.rows);
+		return cov;
+	}
+
+	/**
+	 * 计算两个矩阵之间的差别。
+	 * <p>给定两个矩阵x、y，它们之间的差别计算为：
+	 * <br><i>差别<code>=sum[abs(x(i,j)-y(i,j)]</code></i></p>
+	 * 以双精度累加。
+	 * @param x 同型矩阵
+	 * @return 差别
+	 */
+	public double difference(FloatMatrix x){
+		if (x.rows != rows || x.cols != cols)
+			throw new IllegalArgumentException("FloatMatrix difference, size not match.");
+		double dif = 0.;
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				dif += Math.abs(at(i, j) - x.at(i, j));
+		return dif;
+	}
+
+	/**
+	 * 计算第i行与x的第j行之间欧式距离的平方，直接读取单精度数据，以双精度累加。
+	 * @param i 行下标
+	 * @param x 列数相同的矩阵（可以是this）
+	 * @param j x的行下标
+	 * @return 距离的平方
+	 */
+	public double squaredDistance(int i, FloatMatrix x, int j){
+		if (x.cols != cols)
+			throw new IllegalArgumentException("FloatMatrix squaredDistance, size not match.");
+		if (i < 0 || i >= rows || j < 0 || j >= x.rows)
+			throw new IndexOutOfBoundsException("FloatMatrix squaredDistance, index out of range.");
+		int p = index(i, 0), q = x.index(j, 0);
+		double s = 0.;
+		for (int k = 0; k < cols; k++){
+			double t = (double) d[p + k * colStride] - x.d[q + k * x.colStride];
+			s += t * t;
+		}
+		return s;
+	}
+
+	/**
+	 * 计算两个矩阵之差的l2范数。
+	 * <p>给定两个矩阵x、y，l2范数的计算方法为：
+	 * <br><i><code>l2-norm=sqrt{sum[(x(i, j) - y(i, j))^2]}</code></i></p>
+	 * 以双精度累加。
+	 * @param x 同型矩阵
+	 * @return l2范数
+	 */
+	public double l2Norm(FloatMatrix x){
+		if (x.rows != rows || x.cols != cols)
+			throw new IllegalArgumentException("FloatMatrix l2Norm, size not match.");
+		double norm = 0.;
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++){
+				double t = at(i, j) - x.at(i, j);
+				norm += t * t;
+			}
+		return Math.sqrt(norm);
+	}
+
+	/**
+	 * 检查两个矩阵是否相等（行列数相同且对应元素相等）。
+	 * @param obj 另一个矩阵
+	 * @return 相等返回<code>true</code>
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof FloatMatrix))
+			return false;
+		FloatMatrix x = (FloatMatrix) obj;
+		if (rows != x.rows || cols != x.cols)
+			return false;
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				if (at(i, j) != x.at(i, j))
+					return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.columns() * this.rows();
+	}
+
+	/**
+	 * 辅助方法，将矩阵打印到控制台
+	 */
+	public void print(){
+		toMatrix().print();
+	}
+}
@@ -0,0 +1,294 @@
+/**
+ * Kernels.java
+ */
+package artiano.core.structure;
+
+/**
+ * <p>Description: Element-wise and reduction kernels over raw arrays, used by {@link Matrix} for its
+ * arithmetic, statistics and distances. Every kernel works on a contiguous run of <code>n</code> elements
+ * starting at the given offsets, so a matrix (or a view) is processed row by row, or in one call when its rows
+ * are contiguous.</p>
+ * <p>The implementation is chosen once when the class is loaded and can be forced with the system property
+ * <code>artiano.kernels</code>:</p>
+ * <ul>
+ * <li><code>unrolled</code> (default): the element-wise loops are plain counted loops that HotSpot's superword pass
+ * compiles to SIMD instructions; reductions keep four independent accumulators so they are not bound by the
+ * latency of a single dependency chain. Results of reductions may differ from a sequential sum in the last
+ * bits.</li>
+ * <li><code>scalar</code>: reference implementation, reductions accumulate strictly left to right.</li>
+ * <li><code>vector</code>: the Vector API kernels of <code>VectorKernels</code>, kept out of the build in the
+ * <code>src-vector</code> source root because they need <code>--add-modules jdk.incubator.vector</code> to
+ * compile and to run. The class is loaded by reflection, when it has not been compiled or the module is not
+ * resolved the <code>unrolled</code> kernels are used instead.</li>
+ * </ul>
+ * <p>Use {@link Matrix#kernels()} to find out which path is active.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+abstract class Kernels {
+	/** The active implementation */
+	static final Kernels INSTANCE = select(System.getProperty("artiano.kernels", "unrolled"));
+
+	static Kernels select(String name){
+		if ("scalar".equals(name))
+			return new Scalar();
+		if ("unrolled".equals(name))
+			return new Unrolled();
+		if ("vector".equals(name)){
+			Kernels vector = vector();
+			return vector != null ? vector: new Unrolled();
+		}
+		throw new IllegalArgumentException("Kernels, unknown implementation: " + name);
+	}
+
+	/**
+	 * the Vector API kernels, or null when they are not on the class path or jdk.incubator.vector is not resolved
+	 */
+	private static Kernels vector(){
+		try {
+			return (Kernels) Class.forName("artiano.core.structure.VectorKernels").getDeclaredConstructor()
+					.newInstance();
+		} catch (Exception e){
+			return null;
+		} catch (LinkageError e){
+			return null;
+		}
+	}
+
+	/** Name of the implementation */
+	abstract String name();
+
+	/** y = a + b */
+	void add(double[] a, int ao, double[] b, int bo, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			y[yo + i] = a[ao + i] + b[bo + i];
+	}
+
+	/** y = a - b */
+	void sub(double[] a, int ao, double[] b, int bo, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			y[yo + i] = a[ao + i] - b[bo + i];
+	}
+
+	/** y = a .* b */
+	void mul(double[] a, int ao, double[] b, int bo, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			y[yo + i] = a[ao + i] * b[bo + i];
+	}
+
+	/** y = a ./ b */
+	void div(double[] a, int ao, double[] b, int bo, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			y[yo + i] = a[ao + i] / b[bo + i];
+	}
+
+	/** y = a + s */
+	void add(double[] a, int ao, double s, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			y[yo + i] = a[ao + i] + s;
+	}
+
+	/** y = a * s */
+	void mul(double[] a, int ao, double s, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			y[yo + i] = a[ao + i] * s;
+	}
+
+	/** y = a / s */
+	void div(double[] a, int ao, double s, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			y[yo + i] = a[ao + i] / s;
+	}
+
+	/** y = sqrt(a) */
+	void sqrt(double[] a, int ao, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			y[yo + i] = Math.sqrt(a[ao + i]);
+	}
+
+	/** y = abs(a) */
+	void abs(double[] a, int ao, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			y[yo + i] = Math.abs(a[ao + i]);
+	}
+
+	/** y = max(y, a), NaN in a is ignored */
+	void maxInto(double[] a, int ao, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			if (a[ao + i] > y[yo + i])
+				y[yo + i] = a[ao + i];
+	}
+
+	/** y = min(y, a), NaN in a is ignored */
+	void minInto(double[] a, int ao, double[] y, int yo, int n){
+		for (int i = 0; i < n; i++)
+			if (a[ao + i] < y[yo + i])
+				y[yo + i] = a[ao + i];
+	}
+
+	/** sum(a) */
+	abstract double sum(double[] a, int ao, int n);
+
+	/** max(seed, a), NaN in a is ignored */
+	abstract double max(double[] a, int ao, int n, double seed);
+
+	/** min(seed, a), NaN in a is ignored */
+	abstract double min(double[] a, int ao, int n, double seed);
+
+	/** sum((a-b)^2) */
+	abstract double squaredDistance(double[] a, int ao, double[] b, int bo, int n);
+
+	/** sum(abs(a-b)) */
+	abstract double absoluteDistance(double[] a, int ao, double[] b, int bo, int n);
+
+	/**
+	 * Reference kernels, reductions accumulate left to right.
+	 */
+	static final class Scalar extends Kernels {
+
+		@Override
+		String name(){
+			return "scalar";
+		}
+
+		@Override
+		double sum(double[] a, int ao, int n){
+			double s = 0.;
+			for (int i = 0; i < n; i++)
+				s += a[ao + i];
+			return s;
+		}
+
+		@Override
+		double max(double[] a, int ao, int n, double seed){
+			double m = seed;
+			for (int i = 0; i < n; i++)
+				if (a[ao + i] > m)
+					m = a[ao + i];
+			return m;
+		}
+
+		@Override
+		double min(double[] a, int ao, int n, double seed){
+			double m = seed;
+			for (int i = 0; i < n; i++)
+				if (a[ao + i] < m)
+					m = a[ao + i];
+			return m;
+		}
+
+		@Override
+		double squaredDistance(double[] a, int ao, double[] b, int bo, int n){
+			double s = 0.;
+			for (int i = 0; i < n; i++){
+				double t = a[ao + i] - b[bo + i];
+				s += t * t;
+			}
+			return s;
+		}
+
+		@Override
+		double absoluteDistance(double[] a, int ao, double[] b, int bo, int n){
+			double s = 0.;
+			for (int i = 0; i < n; i++)
+				s += Math.abs(a[ao + i] - b[bo + i]);
+			return s;
+		}
+	}
+
+	/**
+	 * Reductions with four independent accumulators.
+	 */
+	static final class Unrolled extends Kernels {
+
+		@Override
+		String name(){
+			return "unrolled";
+		}
+
+		@Override
+		double sum(double[] a, int ao, int n){
+			double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+			int i = 0;
+			for (; i + 3 < n; i += 4){
+				s0 += a[ao + i];
+				s1 += a[ao + i + 1];
+				s2 += a[ao + i + 2];
+				s3 += a[ao + i + 3];
+			}
+			for (; i < n; i++)
+				s0 += a[ao + i];
+			return (s0 + s1) + (s2 + s3);
+		}
+
+		@Override
+		double max(double[] a, int ao, int n, double seed){
+			double m0 = seed, m1 = seed, m2 = seed, m3 = seed;
+			int i = 0;
+			for (; i + 3 < n; i += 4){
+				if (a[ao + i] > m0) m0 = a[ao + i];
+				if (a[ao + i + 1] > m1) m1 = a[ao + i + 1];
+				if (a[ao + i + 2] > m2) m2 = a[ao + i + 2];
+				if (a[ao + i + 3] > m3) m3 = a[ao + i + 3];
+			}
+			for (; i < n; i++)
+				if (a[ao + i] > m0) m0 = a[ao + i];
+			if (m1 > m0) m0 = m1;
+			if (m3 > m2) m2 = m3;
+			return m2 > m0 ? m2: m0;
+		}
+
+		@Override
+		double min(double[] a, int ao, int n, double seed){
+			double m0 = seed, m1 = seed, m2 = seed, m3 = seed;
+			int i = 0;
+			for (; i + 3 < n; i += 4){
+				if (a[ao + i] < m0) m0 = a[ao + i];
+				if (a[ao + i + 1] < m1) m1 = a[ao + i + 1];
+				if (a[ao + i + 2] < m2) m2 = a[ao + i + 2];
+				if (a[ao + i + 3] < m3) m3 = a[ao + i + 3];
+			}
+			for (; i < n; i++)
+				if (a[ao + i] < m0) m0 = a[ao + i];
+			if (m1 < m0) m0 = m1;
+			if (m3 < m2) m2 = m3;
+			return m2 < m0 ? m2: m0;
+		}
+
+		@Override
+		double squaredDistance(double[] a, int ao, double[] b, int bo, int n){
+			double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+			int i = 0;
+			for (; i + 3 < n; i += 4){
+				double t0 = a[ao + i] - b[bo + i];
+				double t1 = a[ao + i + 1] - b[bo + i + 1];
+				double t2 = a[ao + i + 2] - b[bo + i + 2];
+				double t3 = a[ao + i + 3] - b[bo + i + 3];
+				s0 += t0 * t0;
+				s1 += t1 * t1;
+				s2 += t2 * t2;
+				s3 += t3 * t3;
+			}
+			for (; i < n; i++){
+				double t = a[ao + i] - b[bo + i];
+				s0 += t * t;
+			}
+			return (s0 + s1) + (s2 + s3);
+		}
+
+		@Override
+		double absoluteDistance(double[] a, int ao, double[] b, int bo, int n){
+			double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+			int i = 0;
+			for (; i + 3 < n; i += 4){
+				s0 += Math.abs(a[ao + i] - b[bo + i]);
+				s1 += Math.abs(a[ao + i + 1] - b[bo + i + 1]);
+				s2 += Math.abs(a[ao + i + 2] - b[bo + i + 2]);
+				s3 += Math.abs(a[ao + i + 3] - b[bo + i + 3]);
+			}
+			for (; i < n; i++)
+				s0 += Math.abs(a[ao + i] - b[bo + i]);
+			return (s0 + s1) + (s2 + s3);
+		}
+	}
+}
@@ -3,8 +3,19 @@
  */
 package artiano.core.structure;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -18,6 +29,17 @@ import java.util.Random;
 public class Matrix implements Serializable{
 	
 	private static final long serialVersionUID = 1L;
+	/**
+	 * 序列化时只写出行数和列数，元素由{@link #writeObject(ObjectOutputStream)}以little-endian的块写出，
+	 * 数据数组、步长及偏移不再按默认方式序列化
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("rows", int.class), new ObjectStreamField("cols", int.class)
+	};
+	/** 序列化时每次读写的元素个数 */
+	private static final int SERIAL_BLOCK = 1024;
+	/** 逐元素运算及统计量的计算核心 */
+	private static final Kernels KERNELS = Kernels.INSTANCE;
 	/**
 	 * 矩阵的列数
 	 */
@@ -31,22 +53,20 @@ public class Matrix implements Serializable{
 	 */
 	protected double[] d = null;
 	/**
-	 * 数据列数，最原始矩阵的列数
+	 * 行步长，即相邻两行的第一个元素在数据中的距离。由构造方法得到的矩阵及其子矩阵（由{@link #at(Range, Range)}得到）
+	 * 的行步长为最原始矩阵的列数
 	 */
 	protected int dCols = 0;
 	/**
-	 * 相对于最原始矩阵（由构造方法得到）的行范围，最初这个字段应该等于Range.all()，当rowRange被声明，则这个矩阵的行开始
-	 * 下标相对于最初的矩阵的行为rowRange.begin()，矩阵的行结束下标相对于最初的矩阵行为rowRange.end()。举个列子：
-	 * 当<code>rowRange.start==2</code>且<code>rowRange.end==5</code>时，那么这个矩阵相对于最原始矩阵的行的开始
-	 * 和结束下标为2和5。这个字段一般由：
-	 * {@link #at(Range, Range)}，{@link #set(Range, Range, Matrix)}
-	 * 使用
+	 * 列步长，即同一行中相邻两个元素在数据中的距离。通常为1，转置（{@link #t()}）及按步长抽取的子矩阵
+	 * （{@link #stride(int, int)}）中可以是其他正整数
 	 */
-	protected Range rowRange = null;
+	protected int colStride = 1;
 	/**
-	 * 相对于最原始矩阵的列范围，解释同{@link #rowRange}
+	 * 第0行第0列的元素在数据中的下标。矩阵在行i列j处的元素保存在<code>d[offset + i*dCols + j*colStride]</code>，
+	 * 子矩阵、转置及按步长抽取的子矩阵与原始矩阵共享数据，它们只是offset、行步长和列步长不同
 	 */
-	protected Range colRange = null;
+	protected int offset = 0;
 	
 	private Matrix(){ }
 	
@@ -77,8 +97,122 @@ public class Matrix implements Serializable{
 		this.rows = rows;
 		this.d = data;
 		this.dCols = cols;
-		rowRange = new Range(0, rows);
-		colRange = new Range(0, cols);
+	}
+	
+	/** 按行存放（默认），同一行的元素在数据中相邻，在构造器{@link #Matrix(int, int, int)}中作为参数使用 */
+	public static final int ROW_MAJOR = 0;
+	/** 按列存放，同一列的元素在数据中相邻，在构造器{@link #Matrix(int, int, int)}中作为参数使用 */
+	public static final int COLUMN_MAJOR = 1;
+	
+	/**
+	 * 使用声明的行数、列数以及存放方式构造一个矩阵。
+	 * <br>按列存放的矩阵与按行存放的矩阵支持相同的全部方法，其布局与一个按行存放的矩阵的转置（{@link #t()}）相同：
+	 * 元素(i, j)保存在<code>data()[i + j*rows]</code>。按列进行的统计（如{@link #rowMean()}、{@link #colMax()}）
+	 * 在按列存放的矩阵上顺序访问内存，适合行数远大于列数的样本矩阵。
+	 * @param rows 矩阵行数。
+	 * @param cols 矩阵列数。
+	 * @param layout 存放方式，{@link #ROW_MAJOR}或{@link #COLUMN_MAJOR}
+	 * @see #toColumnMajor()
+	 * @see #toRowMajor()
+	 */
+	public Matrix(int rows, int cols, int layout){
+		this(rows, cols);
+		if (layout == COLUMN_MAJOR){
+			this.dCols = 1;
+			this.colStride = rows;
+		} else if (layout != ROW_MAJOR)
+			throw new IllegalArgumentException("Matrix, unknown layout.");
+	}
+	
+	/**
+	 * 构造一个与原始矩阵共享数据的视图
+	 */
+	private Matrix view(int rows, int cols, int offset, int rowStride, int colStride){
+		Matrix x = new Matrix();
+		x.rows = rows;
+		x.cols = cols;
+		x.d = d;
+		x.offset = offset;
+		x.dCols = rowStride;
+		x.colStride = colStride;
+		return x;
+	}
+	
+	/**
+	 * 元素(i, j)在数据中的下标
+	 */
+	private int index(int i, int j){
+		return offset + i * dCols + j * colStride;
+	}
+	
+	/**
+	 * 写出行数、列数及按行排列的可见元素（little-endian）。视图只写出它所看到的部分，而不是整个共享的数据数组
+	 * @serialData 行数和列数之后是rows*cols个按行排列、little-endian的双精度数
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException{
+		ObjectOutputStream.PutField f = out.putFields();
+		f.put("rows", rows);
+		f.put("cols", cols);
+		out.writeFields();
+		ByteBuffer bytes = ByteBuffer.allocate(SERIAL_BLOCK * 8).order(ByteOrder.LITTLE_ENDIAN);
+		DoubleBuffer buffer = bytes.asDoubleBuffer();
+		for (int i = 0; i < rows; i++){
+			int p = offset + i * dCols;
+			for (int j = 0; j < cols; ){
+				int n = Math.min(cols - j, buffer.remaining());
+				if (colStride == 1)
+					buffer.put(d, p, n);
+				else
+					for (int k = 0; k < n; k++)
+						buffer.put(d[p + k * colStride]);
+				p += n * colStride;
+				j += n;
+				if (!buffer.hasRemaining()){
+					out.write(bytes.array(), 0, buffer.position() * 8);
+					buffer.clear();
+				}
+			}
+		}
+		out.write(bytes.array(), 0, buffer.position() * 8);
+	}
+	
+	/**
+	 * 按块读入{@link #writeObject(ObjectOutputStream)}写出的元素，得到按行连续存储的矩阵；同时兼容由旧版本
+	 * （默认序列化整个数据数组，以及以行范围和列范围描述子矩阵）序列化的矩阵
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException{
+		ObjectInputStream.GetField f = in.readFields();
+		ObjectStreamClass stream = f.getObjectStreamClass();
+		rows = f.get("rows", 0);
+		cols = f.get("cols", 0);
+		if (stream.getField("d") != null){
+			d = (double[]) f.get("d", null);
+			dCols = f.get("dCols", 0);
+			if (stream.getField("colStride") == null){
+				Range rowRange = (Range) f.get("rowRange", null), colRange = (Range) f.get("colRange", null);
+				colStride = 1;
+				offset = rowRange == null ? 0: rowRange.begin() * dCols + colRange.begin();
+			} else {
+				colStride = f.get("colStride", 1);
+				offset = f.get("offset", 0);
+			}
+			return;
+		}
+		if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE)
+			throw new InvalidObjectException("Matrix, invalid size " + rows + "*" + cols + ".");
+		d = new double[rows * cols];
+		dCols = cols;
+		colStride = 1;
+		offset = 0;
+		byte[] bytes = new byte[Math.min(SERIAL_BLOCK, d.length) * 8];
+		DoubleBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		for (int p = 0; p < d.length; ){
+			int n = Math.min(SERIAL_BLOCK, d.length - p);
+			in.readFully(bytes, 0, n * 8);
+			buffer.clear();
+			buffer.get(d, p, n);
+			p += n;
+		}
 	}
 	/**
 	 * 构造一个从以pitch为间隔从begin到end递增的向量。
@@ -214,6 +348,187 @@ public class Matrix implements Serializable{
 		return rows*cols;
 	}
 	
+	/**
+	 * 判断矩阵的元素在数据中是否按行连续存放，即从offset开始的rows*cols个元素（不是转置、按步长抽取的子矩阵，
+	 * 也不是由列范围截取的子矩阵）。
+	 * @return 连续返回<code>true</code>
+	 * @see #compact()
+	 */
+	public boolean isContinuous(){
+		return colStride == 1 && (dCols == cols || rows == 1);
+	}
+	
+	/**
+	 * 判断矩阵是否为转置视图，即同一列的元素在数据中比同一行的元素更靠近（参见{@link #t()}）。
+	 * @return 是转置视图返回<code>true</code>
+	 */
+	public boolean isTransposed(){
+		return colStride > dCols;
+	}
+	
+	/**
+	 * 判断矩阵是否按列连续存放，即元素(i, j)位于<code>offset + i + j*rows</code>（由
+	 * {@link #Matrix(int, int, int)}构造的按列存放的矩阵、连续矩阵的转置以及它们按列范围截取的子矩阵）。
+	 * 只有1行或1列的连续矩阵同时也是按行连续存放的。
+	 * @return 按列连续存放返回<code>true</code>
+	 * @see #isContinuous()
+	 */
+	public boolean isColumnMajor(){
+		return dCols == 1 && (colStride == rows || cols == 1);
+	}
+	
+	/**
+	 * 获取按列连续存放的矩阵，已经按列连续存放时返回矩阵本身，否则返回一个按列存放的拷贝（分块转置）。
+	 * @return 按列存放的矩阵
+	 * @see #Matrix(int, int, int)
+	 */
+	public Matrix toColumnMajor(){
+		if (isColumnMajor())
+			return this;
+		Matrix x = new Matrix(rows, cols, COLUMN_MAJOR);
+		transpose(this, x.t());
+		return x;
+	}
+	
+	/**
+	 * 获取按行连续存放的矩阵，已经按行连续存放时返回矩阵本身，否则返回一个按行存放的拷贝。
+	 * @return 按行存放的矩阵
+	 * @see #compact()
+	 */
+	public Matrix toRowMajor(){
+		if (isContinuous())
+			return this;
+		if (columnsAdjacent()){
+			Matrix x = new Matrix(rows, cols);
+			transpose(t(), x);
+			return x;
+		}
+		return clone();
+	}
+	
+	/**
+	 * 同一列的元素在数据中相邻（按列存放或转置），按列统计时应逐列调用计算核心
+	 */
+	private boolean columnsAdjacent(){
+		return dCols == 1 && colStride != 1;
+	}
+	
+	/**
+	 * 获取按行连续存放的矩阵：若矩阵的数据恰好是<code>data()</code>的前rows*cols个元素则返回矩阵本身，否则
+	 * （子矩阵、转置或按步长抽取的子矩阵）返回一个拷贝。需要直接使用{@link #data()}的代码应先调用此方法。
+	 * @return 按行连续存放的矩阵
+	 */
+	public Matrix compact(){
+		return offset == 0 && isContinuous() ? this: clone();
+	}
+	
+	/**
+	 * 行内元素相邻存放（列步长为1）的矩阵，否则返回按行连续存放的拷贝，供只支持行内连续的计算使用
+	 */
+	Matrix rowMajor(){
+		return colStride == 1 ? this: clone();
+	}
+	
+	/** 逐元素运算的种类，由{@link #elementWise(int, Matrix, Matrix, double, Matrix)}使用 */
+	private static final int COPY = 0, ADD = 1, SUB = 2, ADD_SCALAR = 3, MUL_SCALAR = 4, DIV_SCALAR = 5,
+			SQRT = 6, ABS = 7;
+	
+	/**
+	 * 逐元素计算y=op(a, b, s)，a、b、y可以是任意步长的视图：各矩阵的行内元素相邻时逐行（整体连续时一次）调用计算核心，
+	 * 列内元素相邻时（例如转置或按列存放，整体按列连续时一次）逐列调用，否则经由行缓冲区读取和写回。与y共享元素但布局不同的操作数将先被拷贝，
+	 * 因此<code>x.plus(x.t())</code>也能得到正确的结果。
+	 */
+	private static void elementWise(int op, Matrix a, Matrix b, double s, Matrix y){
+		if (a != y && !a.sameLayout(y) && BlockedGemm.overlaps(a, y))
+			a = a.clone();
+		if (b != null && b != y && !b.sameLayout(y) && BlockedGemm.overlaps(b, y))
+			b = b.clone();
+		boolean unary = b == null;
+		double[] bd = unary ? null: b.d;
+		if (a.colStride == 1 && y.colStride == 1 && (unary || b.colStride == 1)){
+			if (a.isContinuous() && y.isContinuous() && (unary || b.isContinuous()))
+				apply(op, a.d, a.offset, bd, unary ? 0: b.offset, s, y.d, y.offset, y.rows * y.cols);
+			else
+				for (int i = 0; i < y.rows; i++)
+					apply(op, a.d, a.offset + i * a.dCols, bd, unary ? 0: b.offset + i * b.dCols, s,
+							y.d, y.offset + i * y.dCols, y.cols);
+		} else if (a.dCols == 1 && y.dCols == 1 && (unary || b.dCols == 1)){
+			if (a.isColumnMajor() && y.isColumnMajor() && (unary || b.isColumnMajor()))
+				apply(op, a.d, a.offset, bd, unary ? 0: b.offset, s, y.d, y.offset, y.rows * y.cols);
+			else
+				for (int j = 0; j < y.cols; j++)
+					apply(op, a.d, a.offset + j * a.colStride, bd, unary ? 0: b.offset + j * b.colStride, s,
+							y.d, y.offset + j * y.colStride, y.rows);
+		} else {
+			double[] ab = a.rowBuffer(), bb = unary ? null: b.rowBuffer(), yb = y.rowBuffer();
+			double[] ar = a.rowData(ab), br = unary ? null: b.rowData(bb);
+			for (int i = 0; i < y.rows; i++){
+				int ao = a.fetchRow(i, ab), bo = unary ? 0: b.fetchRow(i, bb);
+				if (y.colStride == 1)
+					apply(op, ar, ao, br, bo, s, y.d, y.offset + i * y.dCols, y.cols);
+				else {
+					apply(op, ar, ao, br, bo, s, yb, 0, y.cols);
+					y.storeRow(i, yb);
+				}
+			}
+		}
+	}
+	
+	private static void apply(int op, double[] a, int ao, double[] b, int bo, double s, double[] y, int yo, int n){
+		switch (op){
+		case COPY: System.arraycopy(a, ao, y, yo, n); break;
+		case ADD: KERNELS.add(a, ao, b, bo, y, yo, n); break;
+		case SUB: KERNELS.sub(a, ao, b, bo, y, yo, n); break;
+		case ADD_SCALAR: KERNELS.add(a, ao, s, y, yo, n); break;
+		case MUL_SCALAR: KERNELS.mul(a, ao, s, y, yo, n); break;
+		case DIV_SCALAR: KERNELS.div(a, ao, s, y, yo, n); break;
+		case SQRT: KERNELS.sqrt(a, ao, y, yo, n); break;
+		case ABS: KERNELS.abs(a, ao, y, yo, n); break;
+		default: throw new IllegalArgumentException("Matrix element-wise, unknown operation.");
+		}
+	}
+	
+	/**
+	 * 判断两个矩阵是否以完全相同的方式使用同一份数据
+	 */
+	private boolean sameLayout(Matrix x){
+		return d == x.d && offset == x.offset && dCols == x.dCols && colStride == x.colStride;
+	}
+	
+	/**
+	 * 行缓冲区，行内元素相邻时不需要缓冲区
+	 */
+	private double[] rowBuffer(){
+		return colStride == 1 ? null: new double[cols];
+	}
+	
+	/**
+	 * 各行所在的数组：行内元素相邻时为数据本身，否则为缓冲区
+	 */
+	private double[] rowData(double[] buffer){
+		return colStride == 1 ? d: buffer;
+	}
+	
+	/**
+	 * 第i行在{@link #rowData(double[])}中的下标，行内元素不相邻时先将第i行拷贝到缓冲区
+	 */
+	private int fetchRow(int i, double[] buffer){
+		int k = offset + i * dCols;
+		if (colStride == 1)
+			return k;
+		for (int j = 0; j < cols; j++, k += colStride)
+			buffer[j] = d[k];
+		return 0;
+	}
+	
+	/**
+	 * 将缓冲区写回第i行
+	 */
+	private void storeRow(int i, double[] buffer){
+		for (int j = 0, k = offset + i * dCols; j < cols; j++, k += colStride)
+			d[k] = buffer[j];
+	}
+	
 	/**
 	 * 计算矩阵的绝对值
 	 * @param reserve 指示是否保留原始矩阵，若<code>reserve==false</code>，方法将使用绝对值矩阵替换原始矩阵。
@@ -222,11 +537,7 @@ public class Matrix implements Serializable{
 	 */
 	public Matrix abs(boolean reserve){
 		Matrix x = reserve?new Matrix(rows,cols):this;
-		for (int i=0; i<rows; i++)
-			for (int j=0; j<cols; j++){
-				double d = at(i, j);
-				x.set(i, j, d>=0.?d:-d);
-			}
+		elementWise(ABS, this, null, 0., x);
 		return x;
 	}
 	
@@ -244,9 +555,7 @@ public class Matrix implements Serializable{
 	 * 将矩阵清零。
 	 */
 	public void clear(){
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				set(i, j, 0);
+		fill(0.);
 	}
 	
 	/**
@@ -257,9 +566,7 @@ public class Matrix implements Serializable{
 	public void copyTo(Matrix x){
 		if (x.rows != rows || x.cols != cols)
 			throw new IllegalArgumentException("Matrix copy, size not match.");
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				x.set(i, j, at(i, j));
+		elementWise(COPY, this, null, 0., x);
 	}
 	
 	/**
@@ -270,15 +577,7 @@ public class Matrix implements Serializable{
 	 * @return
 	 */
 	public double[] toArray(){
-		double[] x = new double[size()];
-		int c = 0;
-		for (int i=0; i<rows; i++){
-			for (int j=0; j<cols; j++){
-				x[c] = at(i, j);
-				c++;
-			}
-		}
-		return x;
+		return clone().d;
 	}
 	
 	/**
@@ -294,8 +593,73 @@ public class Matrix implements Serializable{
 		return x;
 	}
 	
+	/**
+	 * 将矩阵（或子矩阵）转换为单精度矩阵，数据将被拷贝。
+	 * @return 单精度矩阵
+	 * @see FloatMatrix#valueOf(Matrix)
+	 */
+	public FloatMatrix toFloatMatrix(){
+		return FloatMatrix.valueOf(this);
+	}
+	
+	/**
+	 * 获取矩阵的延迟计算表达式，之后的逐元素运算、广播及转置只构造表达式，直到调用{@link Expression#eval()}
+	 * 或被乘法使用时才一次性计算，参见{@link Expression}。
+	 * @return 表达式
+	 */
+	public Expression lazy(){
+		return new Expression.Leaf(this);
+	}
+	
+	/**
+	 * <p>将矩阵（或子矩阵）以二进制格式流式写入文件，不会在内存中构造整个文件的拷贝。文件格式为：32字节的头部
+	 * （魔数"ARTM"、版本号、数据类型、行数、列数，均为little-endian的int），随后是按行存储的little-endian
+	 * 双精度元素。</p>
+	 * @param path 文件路径，已存在的文件将被覆盖
+	 * @throws IOException 写入失败
+	 */
+	public void save(Path path) throws IOException{
+		MatrixFile.write(path, this);
+	}
+	
+	/**
+	 * 将{@link #save(Path)}保存的矩阵文件读入内存。
+	 * @param path 文件路径
+	 * @return 矩阵
+	 * @throws IOException 文件不存在、格式错误或矩阵太大
+	 */
+	public static Matrix load(Path path) throws IOException{
+		return MatrixFile.read(path);
+	}
+	
+	/**
+	 * 以只读方式映射矩阵文件，参见{@link #map(Path, boolean)}。
+	 * @param path 文件路径
+	 * @return 映射到文件的矩阵
+	 * @throws IOException 文件不存在或格式错误
+	 */
+	public static OffHeapMatrix map(Path path) throws IOException{
+		return OffHeapMatrix.map(path, false);
+	}
+	
+	/**
+	 * 映射矩阵文件（<code>FileChannel.map</code>），打开文件是即时的，只有被访问的行才会载入内存，
+	 * 同一主机上的多个JVM共享文件页。数据可能超过2^31个元素，因此返回{@link OffHeapMatrix}，使用完毕后应调用
+	 * {@link OffHeapMatrix#close()}解除映射。
+	 * @param path 文件路径
+	 * @param writable 是否以读写方式映射
+	 * @return 映射到文件的矩阵
+	 * @throws IOException 文件不存在或格式错误
+	 */
+	public static OffHeapMatrix map(Path path, boolean writable) throws IOException{
+		return OffHeapMatrix.map(path, writable);
+	}
+	
 	/**
 	 * 获取存储于矩阵中的数据。
+	 * <br><b><i>NOTICE:</i></b> 子矩阵、转置及按步长抽取的子矩阵返回的是与原始矩阵共享的全部数据，元素(i, j)
+	 * 位于下标<code>offset + i*dCols + j*colStride</code>处；需要按行连续的数组时请使用
+	 * <code>compact().data()</code>，参见{@link #compact()}。
 	 * @return 数据
 	 */
 	public double[] data(){
@@ -327,6 +691,25 @@ public class Matrix implements Serializable{
 		return at(new Range(i, i+1), Range.all());
 	}
 	
+	/**
+	 * 获取矩阵的行游标，逐行访问时不会为每一行构造新的对象，参见{@link RowCursor}。
+	 * @return 还未开始的游标，第一次调用{@link RowCursor#next()}时移动到第0行
+	 */
+	public RowCursor cursor(){
+		return new RowCursor(this);
+	}
+	
+	/**
+	 * 依次访问矩阵的每一行，所有的回调共享同一个游标。
+	 * @param visitor 行回调
+	 * @see #cursor()
+	 */
+	public void forEachRow(RowCursor.Visitor visitor){
+		RowCursor c = cursor();
+		while (c.next())
+			visitor.visit(c);
+	}
+	
 	/**
 	 * 获取矩阵在列下标为i处的列向量。
 	 * @param i 列下标。
@@ -341,9 +724,15 @@ public class Matrix implements Serializable{
 	 * @param value 指定值
 	 */
 	public void fill(double value){
-		for (int i=0; i<rows; i++)
-			for (int j=0; j<cols; j++)
-				set(i, j, value);
+		if (isContinuous() || isColumnMajor())
+			java.util.Arrays.fill(d, offset, offset + rows * cols, value);
+		else if (colStride == 1)
+			for (int i = 0; i < rows; i++)
+				java.util.Arrays.fill(d, offset + i * dCols, offset + i * dCols + cols, value);
+		else
+			for (int i = 0; i < rows; i++)
+				for (int j = 0; j < cols; j++)
+					d[index(i, j)] = value;
 	}
 	
 	/**
@@ -353,10 +742,14 @@ public class Matrix implements Serializable{
 	public double trace(){
 		if (rows != cols)
 			throw new UnsupportedOperationException("Matrix trace, only squre matrix has trace.");
-		double tr = 0.;
-		for (int i = 0; i < rows; i++)
-			tr += at(i, i);
-		return tr;
+		//compensated (Kahan-Babuska) summation
+		double tr = 0., c = 0.;
+		for (int i = 0; i < rows; i++){
+			double v = d[offset + i * (dCols + colStride)], t = tr + v;
+			c += Math.abs(tr) >= Math.abs(v) ? (tr - t) + v: (v - t) + tr;
+			tr = t;
+		}
+		return Double.isInfinite(tr) ? tr: tr + c;
 	}
 	
 	/**
@@ -384,7 +777,7 @@ public class Matrix implements Serializable{
 	public double at(int i, int j){
 		if (i < 0 || i >= rows || j < 0 || j >= cols)
 			throw new IndexOutOfBoundsException("Matrix at, index out of range.");
-		return d[(i + rowRange.begin()) * dCols + j + colRange.begin()];
+		return d[index(i, j)];
 	}
 	
 	/**
@@ -399,23 +792,28 @@ public class Matrix implements Serializable{
 	 * @see #copyTo(Matrix)
 	 */
 	public Matrix at(Range row, Range col){
-		row = row.equals(Range.all()) ? this.rowRange:
-			new Range(row.begin() + this.rowRange.begin(), row.end() + this.rowRange.begin());
-		col = col.equals(Range.all()) ? this.colRange: 
-			new Range(col.begin() + this.colRange.begin(), col.end() + this.colRange.begin());
-		
-		if (!this.rowRange.isContain(row) || !this.colRange.isContain(col))
+		boolean allRows = row.equals(Range.all()), allCols = col.equals(Range.all());
+		int r0 = allRows ? 0: row.begin(), r1 = allRows ? rows: row.end();
+		int c0 = allCols ? 0: col.begin(), c1 = allCols ? cols: col.end();
+		if (r0 < 0 || r1 > rows || c0 < 0 || c1 > cols)
 			throw new IllegalArgumentException("Matrix at, out of range.");
-		Matrix x = new Matrix();
-		// row range of x
-		x.rowRange = row;
-		//column range of x
-		x.colRange = col;
-		x.dCols = dCols;
-		x.d = d;
-		x.rows = x.rowRange.length();
-		x.cols = x.colRange.length();
-		return x;
+		return view(r1 - r0, c1 - c0, index(r0, c0), dCols, colStride);
+	}
+	
+	/**
+	 * 按步长抽取子矩阵：从第0行第0列开始，每rowStep行取一行，每colStep列取一列，例如
+	 * <code>x.stride(k, 1)</code>为每k行取一行得到的样本子集。
+	 * <br><b><i>NOTICE:</i></b> 同{@link #at(Range, Range)}，子矩阵与原始矩阵共享数据，不会被拷贝。
+	 * @param rowStep 行步长
+	 * @param colStep 列步长
+	 * @return 子矩阵
+	 * @see #compact()
+	 */
+	public Matrix stride(int rowStep, int colStep){
+		if (rowStep <= 0 || colStep <= 0)
+			throw new IllegalArgumentException("Matrix stride, steps must be positive integer.");
+		return view((rows + rowStep - 1) / rowStep, (cols + colStep - 1) / colStep, offset,
+				dCols * rowStep, colStride * colStep);
 	}
 	
 	/**
@@ -447,7 +845,7 @@ public class Matrix implements Serializable{
 	public void set(int i, int j, double value){
 		if (i < 0 || i >= rows || j < 0 || j >= cols)
 			throw new IndexOutOfBoundsException("Matrix set, index out of range."+" i:"+i+"    j:"+j);
-		d[(i + rowRange.begin()) * dCols + j + colRange.begin()] = value;
+		d[index(i, j)] = value;
 	}
 	
 	/**
@@ -464,9 +862,7 @@ public class Matrix implements Serializable{
 		Matrix x = at(row, col);
 		if (value.rows != x.rows || value.cols != x.cols)
 			throw new IllegalArgumentException("Matrix set, size not match.");
-		for (int i = 0; i < x.rows; i++)
-			for (int j = 0; j < x.cols; j++)
-				x.set(i, j, value.at(i, j));
+		value.copyTo(x);
 	}
 	
 	/**
@@ -479,8 +875,7 @@ public class Matrix implements Serializable{
 			throw new IllegalArgumentException("Matrix setRow, accept row vector only.");
 		if (value.cols != cols)
 			throw new IllegalArgumentException("Matrix setRow, size not match.");
-		for (int j = 0; j < value.cols; j++)
-			set(i, j, value.at(0, j));
+		value.copyTo(row(i));
 	}
 	
 	/**
@@ -493,20 +888,18 @@ public class Matrix implements Serializable{
 			throw new IllegalArgumentException("Matrix setCol, accept column vector only.");
 		if (value.rows != rows)
 			throw new IllegalArgumentException("Matrix setCol, size not match.");
-		for (int j = 0; j < value.rows; j++)
-			set(j, i, value.at(j, 0));
+		value.copyTo(column(i));
 	}
 	
 	/**
 	 * 转置当前矩阵。
+	 * <br><b><i>NOTICE:</i></b> 转置是与原始矩阵共享数据的视图（交换行列数以及行列步长），不会拷贝数据，修改转置
+	 * 将修改原始矩阵。需要独立的转置矩阵时使用<code>t().clone()</code>或{@link #transpose(Matrix, Matrix)}。
 	 * @return 矩阵的转置。
+	 * @see #compact()
 	 */
 	public Matrix t(){
-		Matrix x = new Matrix(cols, rows);
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j <cols; j++)
-				x.set(j, i, at(i, j));
-		return x;
+		return view(cols, rows, offset, colStride, dCols);
 	}
 	
 	/**
@@ -539,9 +932,7 @@ public class Matrix implements Serializable{
 		if (rows != x.rows || cols != x.cols)
 			throw new IllegalArgumentException("Matrix add, size not match.");
 		Matrix y = reserve ? new Matrix(rows, cols): this;
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				y.set(i, j, at(i, j) + x.at(i, j));
+		elementWise(ADD, this, x, 0., y);
 		return y;
 	}
 	
@@ -559,9 +950,8 @@ public class Matrix implements Serializable{
 	 */
 	public Matrix plus(Number x, boolean reserve){
 		Matrix y = reserve ? new Matrix(rows, cols): this;
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				y.set(i, j, at(i, j) + x.doubleValue());
+		double s = x.doubleValue();
+		elementWise(ADD_SCALAR, this, null, s, y);
 		return y;
 	}
 	
@@ -588,7 +978,7 @@ public class Matrix implements Serializable{
 	public void plus(int i, int j, Number value){
 		if (i < 0 || i >= rows || j < 0 || j >= cols)
 			throw new IndexOutOfBoundsException("Matrix at, index out of range.");
-		d[(i + rowRange.begin()) * dCols + j + colRange.begin()] += value.doubleValue();
+		d[index(i, j)] += value.doubleValue();
 	}
 	
 	/**
@@ -600,7 +990,7 @@ public class Matrix implements Serializable{
 	public void minus(int i, int j, Number value){
 		if (i < 0 || i >= rows || j < 0 || j >= cols)
 			throw new IndexOutOfBoundsException("Matrix at, index out of range.");
-		d[(i + rowRange.begin()) * dCols + j + colRange.begin()] -= value.doubleValue();
+		d[index(i, j)] -= value.doubleValue();
 	}
 	
 	/**
@@ -638,9 +1028,7 @@ public class Matrix implements Serializable{
 		if (x.rows != rows || x.cols != cols)
 			throw new IllegalArgumentException("Matrix minus, size not match.");
 		Matrix y = reserve ? new Matrix(rows, cols): this;
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				y.set(i, j, at(i, j) - x.at(i, j));
+		elementWise(SUB, this, x, 0., y);
 		return y;
 	}
 	
@@ -676,14 +1064,15 @@ public class Matrix implements Serializable{
 	 */
 	public Matrix minus(Number x, boolean reserve){
 		Matrix y = reserve ? new Matrix(rows, cols): this;
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				y.set(i, j, at(i, j) - x.doubleValue());
+		//a-s is exactly a+(-s)
+		double s = -x.doubleValue();
+		elementWise(ADD_SCALAR, this, null, s, y);
 		return y;
 	}
 	
 	/**
 	 * 矩阵乘法 (z=x*y)
+	 * <br>计算直接在底层数组上进行（分块并按寄存器分片），支持子矩阵（由{@link #at(Range, Range)}得到）。
 	 * @param x
 	 * @return 结果
 	 * @see #multiply(Number)
@@ -693,14 +1082,8 @@ public class Matrix implements Serializable{
 	public Matrix multiply(Matrix x){
 		if (x.rows != cols)
 			throw new IllegalArgumentException("Matrix multiplication, size not match.");
-		int m = rows;
-		int s = x.rows;
-		int n = x.cols;
-		Matrix y = new Matrix(m, n);
-		for (int i = 0; i < m; i++)
-			for (int j = 0; j < n; j++)
-				for (int k = 0; k < s; k++)
-					y.plus(i, j ,at(i, k) * x.at(k, j));
+		Matrix y = new Matrix(rows, x.cols);
+		BlockedGemm.multiply(this, x, y);
 		return y;
 	}
 	
@@ -716,9 +1099,8 @@ public class Matrix implements Serializable{
 	 */
 	public Matrix multiply(Number x, boolean reserve){
 		Matrix y = reserve ? new Matrix(rows, cols): this;
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				y.set(i, j, at(i, j) * x.doubleValue());
+		double s = x.doubleValue();
+		elementWise(MUL_SCALAR, this, null, s, y);
 		return y;
 	}
 	
@@ -790,9 +1172,8 @@ public class Matrix implements Serializable{
 		if (x.doubleValue() == 0.)
 			throw new ArithmeticException("Matrix divide, divisor is 0.");
 		Matrix y = reserve? new Matrix(rows, cols): this;
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				y.set(i, j, at(i, j)/x.doubleValue());
+		double s = x.doubleValue();
+		elementWise(DIV_SCALAR, this, null, s, y);
 		return y;
 	}
 	/** 左转置乘，在方法{@link #multiplyTranspose(int)}方法中作为参数使用 */
@@ -806,125 +1187,211 @@ public class Matrix implements Serializable{
 	 * @return 运算结果
 	 */
 	public Matrix multiplyTranspose(int method){
-		Matrix y = null;
+		SymmetricMatrix y = multiplyTransposePacked(method);
+		return y == null ? null: y.toMatrix();
+	}
+	
+	/**
+	 * 矩阵转置乘法，结果是对称矩阵，只计算并以压缩形式保存上三角，参见{@link SymmetricMatrix}。
+	 * @param method 使用何种方法做转置乘法，应使用参数{@link #MULTIPLY_LEFT_TRANSPOSE}或
+	 * {@link #MULTIPLY_RIGHT_TRANSPOSE}
+	 * @return 运算结果
+	 * @see #multiplyTranspose(int)
+	 */
+	public SymmetricMatrix multiplyTransposePacked(int method){
+		SymmetricMatrix y = null;
 		if (method == MULTIPLY_RIGHT_TRANSPOSE){
-			int m = rows;
-			int s = cols;
-			int n = rows;
-			y = new Matrix(m, m);
-			for (int i = 0; i < m; i++){
-				for (int j = i; j < n; j++){
-					for (int k = 0; k < s; k++){
-						y.plus(i, j ,at(i, k) * at(j, k));
-					}
-					y.set(j, i, y.at(i, j));
-				}
-			}
+			//y=x*x.t()
+			y = new SymmetricMatrix(rows);
+			SymmetricMatrix.syrk(1., this, false, 0., y);
 		} else if (method == MULTIPLY_LEFT_TRANSPOSE){
-			int m = cols;
-			int s = rows;
-			int n = cols;
-			y = new Matrix(m, m);
-			for (int i = 0; i < m; i++){
-				for (int j = i; j < n; j++){
-					for (int k = 0; k < s; k++){
-						y.plus(i, j ,at(k, i) * at(k, j));
-					}
-					y.set(j, i, y.at(i, j));
+			//y=x.t()*x
+			y = new SymmetricMatrix(cols);
+			SymmetricMatrix.syrk(1., this, true, 0., y);
+		}
+		return y;
+	}
+
+	/**
+	 * 通用矩阵乘法（同BLAS中的GEMM）：<code>C=alpha*op(A)*op(B)+beta*C</code>，其中op(X)为X或X的转置。
+	 * <br>结果直接写入调用者提供的矩阵c（可以是子矩阵），方法不会分配新的矩阵，适合在迭代算法中重复使用输出矩阵。
+	 * <br><b><i>NOTICE:</i></b> c不能与a或b共享元素。当<code>beta==0</code>时，c中原有的值将被忽略。
+	 * @param alpha 乘积的缩放比例
+	 * @param a 矩阵A
+	 * @param transA 是否使用A的转置
+	 * @param b 矩阵B
+	 * @param transB 是否使用B的转置
+	 * @param beta c的缩放比例
+	 * @param c 输出矩阵
+	 * @see #geam(double, Matrix, double, Matrix, Matrix)
+	 */
+	public static void gemm(double alpha, Matrix a, boolean transA, Matrix b, boolean transB,
+			double beta, Matrix c){
+		int m = transA ? a.cols: a.rows;
+		int k = transA ? a.rows: a.cols;
+		int kb = transB ? b.cols: b.rows;
+		int n = transB ? b.rows: b.cols;
+		if (k != kb || c.rows != m || c.cols != n)
+			throw new IllegalArgumentException("Matrix gemm, size not match.");
+		if (BlockedGemm.overlaps(c, a) || BlockedGemm.overlaps(c, b))
+			throw new IllegalArgumentException("Matrix gemm, output must not overlap the operands.");
+		if (beta == 0.)
+			c.fill(0.);
+		else if (beta != 1.)
+			elementWise(MUL_SCALAR, c, null, beta, c);
+		BlockedGemm.multiply(alpha, a, transA, b, transB, c);
+	}
+
+	/**
+	 * 矩阵线性组合：<code>C=alpha*A+beta*B</code>，结果直接写入调用者提供的矩阵c（可以是子矩阵）。
+	 * <br>c可以就是a或者b，例如<code>geam(1, x, -1, y, x)</code>即为<code>x.minus(y)</code>。
+	 * @param alpha A的缩放比例
+	 * @param a 矩阵A
+	 * @param beta B的缩放比例
+	 * @param b 矩阵B
+	 * @param c 输出矩阵
+	 * @see #gemm(double, Matrix, boolean, Matrix, boolean, double, Matrix)
+	 */
+	public static void geam(double alpha, Matrix a, double beta, Matrix b, Matrix c){
+		if (!a.sameType(b) || !a.sameType(c))
+			throw new IllegalArgumentException("Matrix geam, size not match.");
+		if (!a.sameLayout(c) && BlockedGemm.overlaps(a, c))
+			a = a.clone();
+		if (!b.sameLayout(c) && BlockedGemm.overlaps(b, c))
+			b = b.clone();
+		for (int i = 0; i < c.rows; i++){
+			int ai = a.offset + i * a.dCols, bi = b.offset + i * b.dCols, ci = c.offset + i * c.dCols;
+			for (int j = 0; j < c.cols; j++)
+				c.d[ci + j * c.colStride] = alpha * a.d[ai + j * a.colStride] + beta * b.d[bi + j * b.colStride];
+		}
+	}
+
+	/**
+	 * 将矩阵a的转置写入调用者提供的矩阵c（可以是子矩阵）。
+	 * @param a 矩阵A
+	 * @param c 输出矩阵，不能与a共享元素
+	 * @see #t()
+	 */
+	public static void transpose(Matrix a, Matrix c){
+		if (c.rows != a.cols || c.cols != a.rows)
+			throw new IllegalArgumentException("Matrix transpose, size not match.");
+		if (BlockedGemm.overlaps(c, a))
+			throw new IllegalArgumentException("Matrix transpose, output must not overlap the input.");
+		//tiles of TRANSPOSE_TILE*TRANSPOSE_TILE keep both the rows read and the rows written in cache
+		for (int i0 = 0; i0 < a.rows; i0 += TRANSPOSE_TILE){
+			int i1 = Math.min(i0 + TRANSPOSE_TILE, a.rows);
+			for (int j0 = 0; j0 < a.cols; j0 += TRANSPOSE_TILE){
+				int j1 = Math.min(j0 + TRANSPOSE_TILE, a.cols);
+				for (int i = i0; i < i1; i++){
+					int ai = a.offset + i * a.dCols, ci = c.offset + i * c.colStride;
+					for (int j = j0; j < j1; j++)
+						c.d[ci + j * c.dCols] = a.d[ai + j * a.colStride];
 				}
 			}
 		}
-		return y;
 	}
 	
+	/** {@link #transpose(Matrix, Matrix)}的分块大小 */
+	private static final int TRANSPOSE_TILE = 32;
+
 	/**
-	 * 求取矩阵行元素的最大值
-	 * @return
+	 * 设置矩阵乘法（{@link #multiply(Matrix)}，{@link #multiplyTranspose(int)}）使用的线程数。
+	 * <br>当线程数大于1并且计算量（m*n*k）不小于{@link #setParallelThreshold(long)}设置的阈值时，结果矩阵将被
+	 * 划分为若干块，由{@link java.util.concurrent.ForkJoinPool}并行计算，其结果与串行计算逐位相同。
+	 * @param level 线程数，1表示串行（默认）
+	 */
+	public static void setParallelism(int level){
+		BlockedGemm.setParallelism(level);
+	}
+
+	/**
+	 * 获取矩阵乘法使用的线程数。
+	 * @return 线程数
+	 */
+	public static int getParallelism(){
+		return BlockedGemm.getParallelism();
+	}
+
+	/**
+	 * 设置并行计算的阈值，计算量（m*n*k）小于此值的乘法将串行计算。
+	 * @param work 阈值，默认为128*128*128
+	 */
+	public static void setParallelThreshold(long work){
+		BlockedGemm.setParallelThreshold(work);
+	}
+
+	/**
+	 * 获取并行计算的阈值。
+	 * @return 阈值
+	 */
+	public static long getParallelThreshold(){
+		return BlockedGemm.getParallelThreshold();
+	}
+
+	/**
+	 * 获取矩阵乘法使用的线程池，供其他需要并行计算的运算共享，避免各自创建线程。
+	 * <br>在该线程池的任务中调用的矩阵乘法将串行计算。
+	 * @param work 计算量
+	 * @return 线程池，线程数为1或计算量小于{@link #getParallelThreshold()}时返回<code>null</code>
+	 */
+	public static ForkJoinPool getParallelPool(long work){
+		return BlockedGemm.poolFor(work);
+	}
+	
+	/**
+	 * 求取矩阵行元素的最大值（NaN被忽略）
+	 * @return 1*rows的行向量
+	 * @see MatrixStatistics
 	 */
 	public Matrix rowMax(){
-		Matrix m = Matrix.ones(1, rows, Double.MIN_VALUE);
-		for (int i=0; i<rows(); i++){
-			for (int j=0; j<columns(); j++){
-				if (m.at(0, i) < at(i, j)) {
-					m.set(0, i, at(i, j));
-				}
-			}
-		}
-		return m;
+		return MatrixStatistics.ofRows(this, MatrixStatistics.MAX).max();
 	}
 	
 	/**
-	 * 求取矩阵行元素的最小值
-	 * @return
+	 * 求取矩阵行元素的最小值（NaN被忽略）
+	 * @return 1*rows的行向量
+	 * @see MatrixStatistics
 	 */
 	public Matrix rowMin(){
-		Matrix m = Matrix.ones(1, rows, Double.MAX_VALUE);
-		for (int i=0; i<rows(); i++){
-			for (int j=0; j<columns(); j++){
-				if (m.at(0,i) > at(i, j)) {
-					m.set(0, i, at(i, j));
-				}
-			}
-		}
-		return m;
+		return MatrixStatistics.ofRows(this, MatrixStatistics.MIN).min();
 	}
 	
 	/**
-	 * 求取矩阵列元素的最大值
-	 * @return
+	 * 求取矩阵列元素的最大值（NaN被忽略）
+	 * @return 1*cols的行向量
+	 * @see MatrixStatistics
 	 */
 	public Matrix colMax(){
-		Matrix m = Matrix.ones(1, cols, Double.MIN_VALUE);
-		for (int j=0; j<columns(); j++){
-			for (int i=0; i<columns(); i++){
-				if (m.at(0, j) < at(i, j)) {
-					m.set(0, j, at(i, j));
-				}
-			}
-		}
-		return m;
+		return MatrixStatistics.ofColumns(this, MatrixStatistics.MAX).max();
 	}
 	
 	/**
-	 * 求取矩阵列元素的最小值
-	 * @return
+	 * 求取矩阵列元素的最小值（NaN被忽略）
+	 * @return 1*cols的行向量
+	 * @see MatrixStatistics
 	 */
 	public Matrix colMin(){
-		Matrix m = Matrix.ones(1, cols, Double.MAX_VALUE);
-		for (int j=0; j<columns(); j++){
-			for (int i=0; i<columns(); i++){
-				if (m.at(0, j) > at(i, j)) {
-					m.set(0, j, at(i, j));
-				}
-			}
-		}
-		return m;
+		return MatrixStatistics.ofColumns(this, MatrixStatistics.MIN).min();
 	}
 	
 	/**
 	 * 计算矩阵的行向量集合的均值向量。
 	 * @return 均值向量。
 	 * @see #colMean()
+	 * @see MatrixStatistics
 	 */
 	public Matrix rowMean(){
-		Matrix mean = new Matrix(1, cols);
-		for (int i = 0; i < rows; i++)
-			mean.plus(row(i));
-		mean.divide(rows);
-		return mean;
+		return MatrixStatistics.ofColumns(this, MatrixStatistics.SUM).mean();
 	}
 	
 	/**
 	 * 计算矩阵的列向量集合的均值向量。
 	 * @return 均值向量。
 	 * @see #rowMean()
+	 * @see MatrixStatistics
 	 */
 	public Matrix colMean(){
-		Matrix mean = new Matrix(rows, 1);
-		for (int i = 0; i < cols; i++)
-			mean.plus(column(i));
-		mean.divide(cols);
-		return mean;
+		return new Matrix(rows, 1, MatrixStatistics.ofRows(this, MatrixStatistics.SUM).mean().d);
 	}
 	/**
 	 * 将矩阵按行归一化到[-1,1]
@@ -1007,21 +1474,39 @@ public class Matrix implements Serializable{
 	 * @return
 	 */
 	public Matrix covarianceOfRows(int method, Matrix rowMean, boolean doScale){
+		SymmetricMatrix cov = covarianceOfRowsPacked(method, rowMean, doScale);
+		return cov == null ? null: cov.toMatrix();
+	}
+	
+	/**
+	 * 按行计算矩阵的协方差矩阵，只计算并以压缩形式保存上三角，参数同
+	 * {@link #covarianceOfRows(int, Matrix, boolean)}。对于维数很高的样本，内存和计算量都约为前者的一半。
+	 * <br>使用{@link #COVARIANCE_NORMAL}时矩阵按行分块减去均值后累加，只需要一块的临时空间，不会拷贝整个矩阵；
+	 * 数据无法一次读入内存时参见{@link CovarianceAccumulator}。
+	 * @param method 计算方法，为{@link #COVARIANCE_INVERTED}或{@link #COVARIANCE_NORMAL}两种
+	 * @param rowMean 行均值向量。若没有指定（为null），方法将计算均值向量。
+	 * @param doScale 指定是否进行缩放
+	 * @return 协方差矩阵
+	 */
+	public SymmetricMatrix covarianceOfRowsPacked(int method, Matrix rowMean, boolean doScale){
 		Matrix mean = rowMean == null?rowMean():rowMean;
-		Matrix t = this.clone();
-		Matrix cov = null;
-		for (int i=0; i<t.rows; i++)
-			t.row(i).minus(mean);
-		if (method == Matrix.COVARIANCE_INVERTED) {
-			cov = t.multiplyTranspose(MULTIPLY_RIGHT_TRANSPOSE);
-			if (doScale)
-				cov.divide(this.rows());
-		}
-		else if (method == Matrix.COVARIANCE_NORMAL) {
-			cov = t.multiplyTranspose(Matrix.MULTIPLY_LEFT_TRANSPOSE);
-			if (doScale)
-				cov.divide(this.rows());
+		SymmetricMatrix cov = null;
+		if (method == Matrix.COVARIANCE_INVERTED)
+			cov = lazy().minus(mean).eval().multiplyTransposePacked(MULTIPLY_RIGHT_TRANSPOSE);
+		else if (method == Matrix.COVARIANCE_NORMAL){
+			//C=sum of t'*t over blocks of centred rows t
+			cov = new SymmetricMatrix(cols);
+			int block = Math.min(CovarianceAccumulator.BLOCK_ROWS, rows);
+			Matrix t = new Matrix(block, cols);
+			for (int i = 0; i < rows; i += block){
+				int b = Math.min(block, rows - i);
+				Matrix c = b == block ? t: t.at(new Range(0, b), Range.all());
+				at(new Range(i, i + b), Range.all()).lazy().minus(mean).eval(c);
+				SymmetricMatrix.syrk(1., c, true, 1., cov);
+			}
 		}
+		if (cov != null && doScale)
+			cov.divide(this.rows());
 		return cov;
 	}
 	
@@ -1034,9 +1519,7 @@ public class Matrix implements Serializable{
 	 */
 	public Matrix sqrt(boolean reserve){
 		Matrix x = reserve? new Matrix(rows, cols): this;
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				x.set(i, j, Math.sqrt(at(i, j)));
+		elementWise(SQRT, this, null, 0., x);
 		return x;
 	}
 	
@@ -1061,41 +1544,77 @@ public class Matrix implements Serializable{
 		if (x.rows != rows || x.cols != cols)
 			throw new IllegalArgumentException("Matrix difference, size not match.");
 		double dif = 0.;
+		double[] ab = rowBuffer(), bb = x.rowBuffer(), ar = rowData(ab), br = x.rowData(bb);
 		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				dif += Math.abs(at(i, j) - x.at(i, j));
+			dif += KERNELS.absoluteDistance(ar, fetchRow(i, ab), br, x.fetchRow(i, bb), cols);
 		return dif;
 	}
 	
 	/**
-	 * 计算两个矩阵的l2范数。
+	 * 计算两个矩阵之差的l2范数。
 	 * <p>给定两个矩阵x、y，l2范数的计算方法为：
-	 * <br><i><code>l2-norm=sqrt{sum[x(i, j) - y(i, j)]}</code></i></p>
+	 * <br><i><code>l2-norm=sqrt{sum[(x(i, j) - y(i, j))^2]}</code></i></p>
+	 * 平方和上溢或下溢时按最大的差值缩放后重新计算。
 	 * @param x
 	 * @return - l2-norm
 	 */
 	public double l2Norm(Matrix x){
-		double norm = 0.;
+		double s = squaredDistance(x);
+		if (s > Double.MIN_NORMAL && s < Double.POSITIVE_INFINITY)
+			return Math.sqrt(s);
 		//store the scale, avoid underflow or overflow
-		final double TINY = 1e-10;
+		double scale = 0.;
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				scale = Math.max(scale, Math.abs(at(i, j) - x.at(i, j)));
+		if (scale == 0. || Double.isInfinite(scale) || Double.isNaN(s))
+			return Math.sqrt(s);
+		double t = 0.;
 		for (int i = 0; i < rows; i++)
 			for (int j = 0; j < cols; j++){
-				double t = at(i, j) - x.at(i, j);
-				norm += t*t*TINY;
+				double e = (at(i, j) - x.at(i, j)) / scale;
+				t += e * e;
 			}
-		norm = Math.sqrt(norm)/TINY;
-		return norm;
+		return scale * Math.sqrt(t);
+	}
+	
+	/**
+	 * 计算两个同型矩阵之间的欧式距离的平方。
+	 * <p>给定两个矩阵x、y，距离的平方为：
+	 * <br><i><code>sum[(x(i, j) - y(i, j))^2]</code></i></p>
+	 * @param x 同型矩阵（例如两个行向量）
+	 * @return 欧式距离的平方
+	 */
+	public double squaredDistance(Matrix x){
+		if (x.rows != rows || x.cols != cols)
+			throw new IllegalArgumentException("Matrix distance, size not match.");
+		//rows are summed by the kernel, the row sums with compensation
+		double s = 0., c = 0.;
+		double[] ab = rowBuffer(), bb = x.rowBuffer(), ar = rowData(ab), br = x.rowData(bb);
+		for (int i = 0; i < rows; i++){
+			double v = KERNELS.squaredDistance(ar, fetchRow(i, ab), br, x.fetchRow(i, bb), cols), t = s + v;
+			c += s >= v ? (s - t) + v: (v - t) + s;
+			s = t;
+		}
+		return Double.isInfinite(s) ? s: s + c;
+	}
+	
+	/**
+	 * 获取当前使用的计算核心（逐元素运算、统计量及距离的实现），由系统属性<code>artiano.kernels</code>
+	 * 在启动时选择。
+	 * @return 计算核心的名称，<code>"vector"</code>、<code>"unrolled"</code>或<code>"scalar"</code>
+	 */
+	public static String kernels(){
+		return KERNELS.name();
 	}
 	
 	/**
-	 * 克隆一个矩阵。
+	 * 克隆一个矩阵，得到的矩阵总是按行连续存放的。
 	 */
 	@Override
 	public Matrix clone(){
 		Matrix x = new Matrix(rows, cols);
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				x.set(i, j, at(i, j));
+		copyTo(x);
 		return x;
 	}
 	
@@ -1186,8 +1705,8 @@ public class Matrix implements Serializable{
 		this.cols = x.cols;
 		this.dCols = x.dCols;
 		this.d = x.d;
-		this.rowRange = x.rowRange;
-		this.colRange = x.colRange;
+		this.offset = 0;
+		this.colStride = 1;
 	}
 	/***
 	 * 得到其中的一列
@@ -1195,11 +1714,7 @@ public class Matrix implements Serializable{
 	 * @return
 	 */
 	public Matrix getSingerCol(int colIndex){
-		Matrix mx=new Matrix(this.rows,1);
-		for(int i=0;i<this.rows;i++){
-			mx.set(i, 0, this.at(i,colIndex));
-		}
-		return mx;
+		return column(colIndex).clone();
 	}
 	
 	public static void main(String[] args){
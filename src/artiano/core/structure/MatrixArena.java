@@ -0,0 +1,361 @@
+/**
+ * MatrixArena.java
+ */
+package artiano.core.structure;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>矩阵临时空间的作用域分配器。大量分解小矩阵时（如每秒分解数千个64*64以下的矩阵），分解对象内部的临时数组和
+ * 矩阵的拷贝是主要的内存分配来源。在作用域内，这些数组从当前线程的缓冲池中取出，作用域关闭时全部归还，供下一个
+ * 作用域重复使用：</p>
+ * <pre><code>
+ * for (Matrix x: inputs){
+ *     try (MatrixArena arena = MatrixArena.open()){
+ *         LUDecomposition lu = new LUDecomposition(x, true);
+ *         results.add(lu.solve(b, true));
+ *     }
+ * }
+ * </code></pre>
+ * <p>作用域与线程绑定且可以嵌套，{@link #close()}必须按打开的相反顺序在同一线程中调用。
+ * {@link artiano.linalg.decomposition.LUDecomposition}、{@link artiano.linalg.decomposition.QRDecomposition}、
+ * {@link artiano.linalg.decomposition.SingularValueDecomposition}和
+ * {@link artiano.linalg.decomposition.GaussJordan}通过{@link #allocate(int, int)}等静态方法申请内部空间，
+ * 没有打开的作用域时这些方法直接分配新的数组，行为与原来相同。</p>
+ * <p><b><i>NOTICE:</i></b> 作用域关闭后，在作用域内构造的分解对象以及它们所持有的矩阵（如
+ * {@link artiano.linalg.decomposition.SingularValueDecomposition#U()}、
+ * {@link artiano.linalg.decomposition.GaussJordan#getInversion()}）都不能再使用，需要保留时应在关闭前
+ * {@link Matrix#clone()}。solve、inverse等方法返回的结果总是新分配的，不受作用域影响。</p>
+ * <p>{@link #pooledAllocations()}和{@link #freshAllocations()}统计了所有线程中在作用域内申请的数组分别来自缓冲池和
+ * 新分配的次数。没有打开的作用域时（包括被{@link #suspend()}暂停时）的申请不计入统计，不增加任何开销。</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class MatrixArena implements AutoCloseable {
+	/** 缓冲池只保存长度不超过该值的数组（512KB） */
+	public static final int MAX_POOLED_LENGTH = 1 << 16;
+	/** 每种长度最多保存的数组个数 */
+	private static final int MAX_PER_LENGTH = 32;
+
+	private static final ThreadLocal<MatrixArena> CURRENT = new ThreadLocal<MatrixArena>();
+	private static final ThreadLocal<Pool> POOL = new ThreadLocal<Pool>(){
+		@Override
+		protected Pool initialValue(){
+			return new Pool();
+		}
+	};
+
+	private static final AtomicLong pooled = new AtomicLong();
+	private static final AtomicLong fresh = new AtomicLong();
+	private static final AtomicLong pooledBytes = new AtomicLong();
+	private static final AtomicLong freshBytes = new AtomicLong();
+
+	/** 外层作用域 */
+	private final MatrixArena parent;
+	private final Thread owner;
+	private final Pool pool;
+	/** 作用域内申请的数组，关闭时归还 */
+	private final ArrayList<double[]> doubles = new ArrayList<double[]>();
+	private final ArrayList<int[]> ints = new ArrayList<int[]>();
+	private boolean closed = false;
+
+	private MatrixArena(){
+		this.parent = CURRENT.get();
+		this.owner = Thread.currentThread();
+		this.pool = POOL.get();
+	}
+
+	/**
+	 * 在当前线程中打开一个作用域，它成为{@link #current()}直到被关闭。
+	 * @return 作用域
+	 */
+	public static MatrixArena open(){
+		MatrixArena arena = new MatrixArena();
+		CURRENT.set(arena);
+		return arena;
+	}
+
+	/**
+	 * 获取当前线程中最内层的作用域。
+	 * @return 作用域，没有打开的作用域时返回<code>null</code>
+	 */
+	public static MatrixArena current(){
+		return CURRENT.get();
+	}
+
+	/**
+	 * 暂停当前线程的作用域，直到{@link #resume(MatrixArena)}为止，其间的申请都直接分配新的数组。用于在作用域内
+	 * 构造需要比作用域存活更久的对象（如缓存的分解）：
+	 * <pre><code>
+	 * MatrixArena suspended = MatrixArena.suspend();
+	 * try {
+	 *     lu = new LUDecomposition(a, true);
+	 * } finally {
+	 *     MatrixArena.resume(suspended);
+	 * }
+	 * </code></pre>
+	 * @return 被暂停的作用域，没有打开的作用域时返回<code>null</code>
+	 */
+	public static MatrixArena suspend(){
+		MatrixArena arena = CURRENT.get();
+		if (arena != null)
+			CURRENT.remove();
+		return arena;
+	}
+
+	/**
+	 * 恢复被{@link #suspend()}暂停的作用域。
+	 * @param arena {@link #suspend()}的返回值，可以为<code>null</code>
+	 */
+	public static void resume(MatrixArena arena){
+		if (arena == null)
+			return;
+		if (Thread.currentThread() != arena.owner)
+			throw new IllegalStateException("MatrixArena, arena is confined to the thread that opened it.");
+		CURRENT.set(arena);
+	}
+
+	/**
+	 * 从作用域中申请一个rows*cols的零矩阵。
+	 * @param rows 行数
+	 * @param cols 列数
+	 * @return 矩阵
+	 */
+	public Matrix matrix(int rows, int cols){
+		if (cols <= 0 || rows <= 0)
+			throw new IllegalArgumentException("MatrixArena, columns and rows must be positive integer.");
+		return new Matrix(rows, cols, doubles(rows * cols));
+	}
+
+	/**
+	 * 从作用域中申请一个矩阵并将x拷贝到其中。
+	 * @param x 被拷贝的矩阵（可以是子矩阵或转置）
+	 * @return 拷贝
+	 */
+	public Matrix copy(Matrix x){
+		Matrix y = new Matrix(x.rows(), x.columns(), take(x.rows() * x.columns()));
+		x.copyTo(y);
+		return y;
+	}
+
+	/**
+	 * 从作用域中申请一个元素全为0的数组。
+	 * @param length 长度
+	 * @return 数组
+	 */
+	public double[] doubles(int length){
+		double[] a = take(length);
+		Arrays.fill(a, 0.);
+		return a;
+	}
+
+	/**
+	 * 从作用域中申请一个元素全为0的整型数组。
+	 * @param length 长度
+	 * @return 数组
+	 */
+	public int[] ints(int length){
+		check();
+		int[] a = length <= MAX_POOLED_LENGTH ? pool.takeInts(length): null;
+		if (a == null){
+			a = new int[length];
+			count(false, 4L * length);
+		} else {
+			Arrays.fill(a, 0);
+			count(true, 4L * length);
+		}
+		ints.add(a);
+		return a;
+	}
+
+	/**
+	 * 未清零的数组
+	 */
+	private double[] take(int length){
+		check();
+		double[] a = length <= MAX_POOLED_LENGTH ? pool.takeDoubles(length): null;
+		if (a == null){
+			a = new double[length];
+			count(false, 8L * length);
+		} else
+			count(true, 8L * length);
+		doubles.add(a);
+		return a;
+	}
+
+	private void check(){
+		if (closed)
+			throw new IllegalStateException("MatrixArena, arena has been closed.");
+		if (Thread.currentThread() != owner)
+			throw new IllegalStateException("MatrixArena, arena is confined to the thread that opened it.");
+	}
+
+	private static void count(boolean fromPool, long bytes){
+		if (fromPool){
+			pooled.incrementAndGet();
+			pooledBytes.addAndGet(bytes);
+		} else {
+			fresh.incrementAndGet();
+			freshBytes.addAndGet(bytes);
+		}
+	}
+
+	/**
+	 * 关闭作用域，作用域内申请的数组全部归还给当前线程的缓冲池，外层作用域重新成为{@link #current()}。
+	 * 重复关闭没有影响。
+	 */
+	@Override
+	public void close(){
+		if (closed)
+			return;
+		if (Thread.currentThread() != owner)
+			throw new IllegalStateException("MatrixArena, arena is confined to the thread that opened it.");
+		if (CURRENT.get() != this)
+			throw new IllegalStateException("MatrixArena, nested arenas must be closed in reverse order.");
+		closed = true;
+		for (double[] a: doubles)
+			pool.give(a);
+		for (int[] a: ints)
+			pool.give(a);
+		doubles.clear();
+		ints.clear();
+		if (parent == null)
+			CURRENT.remove();
+		else
+			CURRENT.set(parent);
+	}
+
+	/**
+	 * 申请一个rows*cols的零矩阵，有打开的作用域时从作用域中申请，否则直接构造。
+	 * @param rows 行数
+	 * @param cols 列数
+	 * @return 矩阵
+	 */
+	public static Matrix allocate(int rows, int cols){
+		MatrixArena arena = CURRENT.get();
+		if (arena != null)
+			return arena.matrix(rows, cols);
+		return new Matrix(rows, cols);
+	}
+
+	/**
+	 * 拷贝矩阵，有打开的作用域时从作用域中申请空间，否则同{@link Matrix#clone()}。
+	 * @param x 被拷贝的矩阵
+	 * @return 拷贝
+	 */
+	public static Matrix copyOf(Matrix x){
+		MatrixArena arena = CURRENT.get();
+		if (arena != null)
+			return arena.copy(x);
+		return x.clone();
+	}
+
+	/**
+	 * 申请元素全为0的数组，有打开的作用域时从作用域中申请，否则直接构造。
+	 * @param length 长度
+	 * @return 数组
+	 */
+	public static double[] allocateDoubles(int length){
+		MatrixArena arena = CURRENT.get();
+		if (arena != null)
+			return arena.doubles(length);
+		return new double[length];
+	}
+
+	/**
+	 * 申请元素全为0的整型数组，有打开的作用域时从作用域中申请，否则直接构造。
+	 * @param length 长度
+	 * @return 数组
+	 */
+	public static int[] allocateInts(int length){
+		MatrixArena arena = CURRENT.get();
+		if (arena != null)
+			return arena.ints(length);
+		return new int[length];
+	}
+
+	/**
+	 * 作用域内从缓冲池中取得的数组个数。
+	 * @return 个数
+	 */
+	public static long pooledAllocations(){
+		return pooled.get();
+	}
+
+	/**
+	 * 作用域内新分配的数组个数（缓冲池中没有相同长度的数组）。
+	 * @return 个数
+	 */
+	public static long freshAllocations(){
+		return fresh.get();
+	}
+
+	/**
+	 * 作用域内从缓冲池中取得的字节数。
+	 * @return 字节数
+	 */
+	public static long pooledBytes(){
+		return pooledBytes.get();
+	}
+
+	/**
+	 * 作用域内新分配的字节数。
+	 * @return 字节数
+	 */
+	public static long freshBytes(){
+		return freshBytes.get();
+	}
+
+	/**
+	 * 将统计数据清零。
+	 */
+	public static void resetStatistics(){
+		pooled.set(0);
+		fresh.set(0);
+		pooledBytes.set(0);
+		freshBytes.set(0);
+	}
+
+	/**
+	 * 每个线程的缓冲池，按数组长度保存空闲数组
+	 */
+	private static final class Pool {
+		private final Map<Integer, ArrayDeque<double[]>> doubles = new HashMap<Integer, ArrayDeque<double[]>>();
+		private final Map<Integer, ArrayDeque<int[]>> ints = new HashMap<Integer, ArrayDeque<int[]>>();
+
+		double[] takeDoubles(int length){
+			ArrayDeque<double[]> q = doubles.get(length);
+			return q == null ? null: q.pollLast();
+		}
+
+		int[] takeInts(int length){
+			ArrayDeque<int[]> q = ints.get(length);
+			return q == null ? null: q.pollLast();
+		}
+
+		void give(double[] a){
+			if (a.length > MAX_POOLED_LENGTH)
+				return;
+			ArrayDeque<double[]> q = doubles.get(a.length);
+			if (q == null)
+				doubles.put(a.length, q = new ArrayDeque<double[]>());
+			if (q.size() < MAX_PER_LENGTH)
+				q.addLast(a);
+		}
+
+		void give(int[] a){
+			if (a.length > MAX_POOLED_LENGTH)
+				return;
+			ArrayDeque<int[]> q = ints.get(a.length);
+			if (q == null)
+				ints.put(a.length, q = new ArrayDeque<int[]>());
+			if (q.size() < MAX_PER_LENGTH)
+				q.addLast(a);
+		}
+	}
+}
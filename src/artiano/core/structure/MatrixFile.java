@@ -0,0 +1,207 @@
+/**
+ * MatrixFile.java
+ */
+package artiano.core.structure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>矩阵的二进制文件格式。文件由固定长度的头部和数据组成，所有数值均为little-endian：</p>
+ * <pre>
+ * 偏移  长度  内容
+ * 0     4     魔数 "ARTM"
+ * 4     4     版本号（1）
+ * 8     4     数据类型（{@link #FLOAT64}）
+ * 12    4     行数
+ * 16    4     列数
+ * 20    12    保留
+ * 32    ...   按行存储的元素
+ * </pre>
+ * <p>头部长度是8的倍数，因此数据区可以直接映射为<code>DoubleBuffer</code>，打开文件时不需要拷贝。</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class MatrixFile {
+	/** 魔数"ARTM" */
+	static final int MAGIC = 0x4d545241;
+	/** 版本号 */
+	static final int VERSION = 1;
+	/** 数据类型：双精度 */
+	static final int FLOAT64 = 0;
+	/** 头部长度 */
+	static final int HEADER = 32;
+	/** 流式写入时缓冲区的元素个数 */
+	static final int BUFFER = 8192;
+
+	private MatrixFile(){ }
+
+	private static ByteBuffer header(int rows, int cols){
+		ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+		h.putInt(MAGIC).putInt(VERSION).putInt(FLOAT64).putInt(rows).putInt(cols);
+		h.clear();
+		return h;
+	}
+
+	/**
+	 * 读取并校验头部，返回{行数, 列数}
+	 */
+	static int[] readHeader(FileChannel ch) throws IOException{
+		ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+		while (h.hasRemaining())
+			if (ch.read(h, h.position()) < 0)
+				throw new IOException("MatrixFile, unexpected end of file.");
+		h.flip();
+		if (h.getInt() != MAGIC)
+			throw new IOException("MatrixFile, not a matrix file.");
+		if (h.getInt() != VERSION)
+			throw new IOException("MatrixFile, unsupported version.");
+		if (h.getInt() != FLOAT64)
+			throw new IOException("MatrixFile, unsupported data type.");
+		int rows = h.getInt(), cols = h.getInt();
+		if (rows <= 0 || cols <= 0)
+			throw new IOException("MatrixFile, illegal size.");
+		if (ch.size() < HEADER + (long) rows * cols * 8)
+			throw new IOException("MatrixFile, file is truncated.");
+		return new int[]{rows, cols};
+	}
+
+	/**
+	 * 流式写入堆上的矩阵（或子矩阵），只使用一个固定大小的缓冲区
+	 */
+	static void write(Path path, Matrix x) throws IOException{
+		x = x.rowMajor();
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeFully(ch, header(x.rows, x.cols));
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER * 8).order(ByteOrder.LITTLE_ENDIAN);
+			DoubleBuffer db = buf.asDoubleBuffer();
+			int off = BlockedGemm.offset(x);
+			for (int i = 0; i < x.rows; i++){
+				for (int j = 0; j < x.cols; ){
+					int n = Math.min(x.cols - j, db.remaining());
+					db.put(x.d, off + i * x.dCols + j, n);
+					j += n;
+					if (!db.hasRemaining())
+						flush(ch, buf, db);
+				}
+			}
+			flush(ch, buf, db);
+		}
+	}
+
+	/**
+	 * 流式写入堆外矩阵（或子矩阵），与{@link #write(Path, Matrix)}使用同样大小的缓冲区，跨行填满后再写出
+	 */
+	static void write(Path path, OffHeapMatrix x) throws IOException{
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeFully(ch, header(x.rows, x.cols));
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER * 8).order(ByteOrder.LITTLE_ENDIAN);
+			DoubleBuffer db = buf.asDoubleBuffer();
+			double[] row = new double[x.cols];
+			for (int i = 0; i < x.rows; i++){
+				x.getRow(i, row, 0);
+				for (int j = 0; j < x.cols; ){
+					int n = Math.min(x.cols - j, db.remaining());
+					db.put(row, j, n);
+					j += n;
+					if (!db.hasRemaining())
+						flush(ch, buf, db);
+				}
+			}
+			flush(ch, buf, db);
+		}
+	}
+
+	private static void flush(FileChannel ch, ByteBuffer buf, DoubleBuffer db) throws IOException{
+		buf.clear();
+		buf.limit(db.position() * 8);
+		writeFully(ch, buf);
+		db.clear();
+	}
+
+	private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException{
+		while (buf.hasRemaining())
+			ch.write(buf);
+	}
+
+	/**
+	 * 读取到堆上的矩阵
+	 */
+	static Matrix read(Path path) throws IOException{
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			int[] size = readHeader(ch);
+			if ((long) size[0] * size[1] > Integer.MAX_VALUE)
+				throw new IOException("MatrixFile, matrix is too large to load on heap, use map instead.");
+			Matrix x = new Matrix(size[0], size[1]);
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER * 8).order(ByteOrder.LITTLE_ENDIAN);
+			long pos = HEADER;
+			for (int i = 0; i < x.d.length; ){
+				buf.clear();
+				buf.limit(Math.min(BUFFER, x.d.length - i) * 8);
+				while (buf.hasRemaining())
+					if (ch.read(buf, pos + buf.position()) < 0)
+						throw new IOException("MatrixFile, unexpected end of file.");
+				buf.flip();
+				pos += buf.limit();
+				int n = buf.limit() / 8;
+				buf.asDoubleBuffer().get(x.d, i, n);
+				i += n;
+			}
+			return x;
+		}
+	}
+
+	/**
+	 * 创建大小为rows*cols的文件（数据为0）并以读写方式映射
+	 */
+	static OffHeapMatrix create(Path path, int rows, int cols) throws IOException{
+		if (cols <= 0 || rows <= 0)
+			throw new IllegalArgumentException("MatrixFile, columns and rows must be positive integer.");
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			writeFully(ch, header(rows, cols));
+			//extend the file, the rest is filled with zeros
+			writeFully(ch, ByteBuffer.allocate(1), HEADER + (long) rows * cols * 8 - 1);
+			return map(ch, rows, cols, true);
+		}
+	}
+
+	private static void writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException{
+		while (buf.hasRemaining())
+			pos += ch.write(buf, pos);
+	}
+
+	/**
+	 * 映射文件，文件页由操作系统按需载入，同一主机上的多个JVM共享
+	 */
+	static OffHeapMatrix map(Path path, boolean writable) throws IOException{
+		try (FileChannel ch = writable ?
+				FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE):
+				FileChannel.open(path, StandardOpenOption.READ)) {
+			int[] size = readHeader(ch);
+			return map(ch, size[0], size[1], writable);
+		}
+	}
+
+	private static OffHeapMatrix map(FileChannel ch, int rows, int cols, boolean writable) throws IOException{
+		long length = (long) rows * cols;
+		int n = (int) ((length + OffHeapMatrix.CHUNK - 1) >>> OffHeapMatrix.CHUNK_SHIFT);
+		MappedByteBuffer[] bytes = new MappedByteBuffer[n];
+		for (int i = 0; i < n; i++){
+			long begin = (long) i << OffHeapMatrix.CHUNK_SHIFT;
+			long len = Math.min(OffHeapMatrix.CHUNK, length - begin);
+			bytes[i] = ch.map(writable ? FileChannel.MapMode.READ_WRITE: FileChannel.MapMode.READ_ONLY,
+					HEADER + begin * 8, len * 8);
+		}
+		//the mapping stays valid after the channel is closed
+		return new OffHeapMatrix(rows, cols, new OffHeapMatrix.Storage(bytes, ByteOrder.LITTLE_ENDIAN, length));
+	}
+}
@@ -0,0 +1,427 @@
+/**
+ * MatrixStatistics.java
+ */
+package artiano.core.structure;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>矩阵的按列（或按行）统计量：和、均值、最小值、最大值、方差以及l1、l2范数，只需遍历一次矩阵就能同时得到所需的
+ * 全部统计量。</p>
+ * <p>矩阵的行被划分为若干块，每块先计算块内的和以及关于块均值的偏差平方和（块很小，第二次遍历在缓存中完成），
+ * 再按二叉树两两合并（pairwise summation，方差使用Chan等人的合并公式），因此误差随行数的增长只是对数级的，
+ * 方差也不会因为先求平方和再减去均值的平方而丢失精度。划分方式只与矩阵大小有关，当矩阵乘法的并行度大于1
+ * （见{@link Matrix#setParallelism(int)}）且元素个数不小于并行阈值时，各子树由线程池并行计算，结果与串行计算
+ * 逐位相同。</p>
+ * <p>用法如下：
+ * <pre><code>
+ * MatrixStatistics s = MatrixStatistics.ofColumns(samples,
+ *         MatrixStatistics.MIN | MatrixStatistics.MAX | MatrixStatistics.VARIANCE);
+ * Matrix mean = s.mean(), std = s.standardDeviation();
+ * </code></pre>
+ * 数据无法一次读入内存时，可以构造空的统计量并使用{@link #add(Matrix)}逐块加入（参见
+ * {@link OffHeapMatrix#statistics(int)}）。统计量中的NaN将传播到和、均值、方差及范数，但在最小值和最大值中被忽略。</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class MatrixStatistics {
+	/** 和以及均值 */
+	public static final int SUM = 1;
+	/** 最小值 */
+	public static final int MIN = 2;
+	/** 最大值 */
+	public static final int MAX = 4;
+	/** 方差及标准差（同时计算和） */
+	public static final int VARIANCE = 8;
+	/** l1范数及l2范数 */
+	public static final int NORM = 16;
+	/** 全部统计量 */
+	public static final int ALL = SUM | MIN | MAX | VARIANCE | NORM;
+
+	/** 每块元素个数的目标值，使块在第二次遍历时仍在缓存中 */
+	private static final int BLOCK_ELEMENTS = 1 << 14;
+	/** 每块最少的行数 */
+	private static final int MIN_BLOCK_ROWS = 64;
+
+	private final int which;
+	private final int k;
+	/** 每个统计量包含的值的个数 */
+	private long n = 0;
+	private final double[] sum, m2, min, max, l1, sq;
+
+	/**
+	 * 构造k个空的统计量，之后使用{@link #add(Matrix)}加入数据。
+	 * @param k 统计量的个数（按列统计时为矩阵的列数）
+	 * @param which 需要计算的统计量，{@link #SUM}、{@link #MIN}、{@link #MAX}、{@link #VARIANCE}、{@link #NORM}
+	 * 的组合
+	 */
+	public MatrixStatistics(int k, int which){
+		if (k <= 0)
+			throw new IllegalArgumentException("MatrixStatistics, size must be positive integer.");
+		if ((which & VARIANCE) != 0)
+			which |= SUM;
+		this.k = k;
+		this.which = which;
+		sum = (which & SUM) != 0 ? new double[k]: null;
+		m2 = (which & VARIANCE) != 0 ? new double[k]: null;
+		min = (which & MIN) != 0 ? filled(k, Double.POSITIVE_INFINITY): null;
+		max = (which & MAX) != 0 ? filled(k, Double.NEGATIVE_INFINITY): null;
+		l1 = (which & NORM) != 0 ? new double[k]: null;
+		sq = (which & NORM) != 0 ? new double[k]: null;
+	}
+
+	private static double[] filled(int k, double value){
+		double[] a = new double[k];
+		java.util.Arrays.fill(a, value);
+		return a;
+	}
+
+	/**
+	 * 计算矩阵每一列的统计量（每个统计量为1*cols的行向量）。
+	 * @param x 矩阵（可以是子矩阵、转置等视图）
+	 * @param which 需要计算的统计量
+	 * @return 统计量
+	 */
+	public static MatrixStatistics ofColumns(Matrix x, int which){
+		MatrixStatistics s = new MatrixStatistics(x.cols, which);
+		s.add(x);
+		return s;
+	}
+
+	/**
+	 * 计算矩阵每一列的全部统计量。
+	 * @param x 矩阵
+	 * @return 统计量
+	 */
+	public static MatrixStatistics ofColumns(Matrix x){
+		return ofColumns(x, ALL);
+	}
+
+	/**
+	 * 计算矩阵每一行的统计量（每个统计量为1*rows的行向量）。
+	 * @param x 矩阵
+	 * @param which 需要计算的统计量
+	 * @return 统计量
+	 */
+	public static MatrixStatistics ofRows(Matrix x, int which){
+		return ofColumns(x.t(), which);
+	}
+
+	/**
+	 * 计算矩阵每一行的全部统计量。
+	 * @param x 矩阵
+	 * @return 统计量
+	 */
+	public static MatrixStatistics ofRows(Matrix x){
+		return ofRows(x, ALL);
+	}
+
+	/**
+	 * 计算矩阵全部元素的统计量（每个统计量为1*1的矩阵）。
+	 * @param x 矩阵
+	 * @param which 需要计算的统计量
+	 * @return 统计量
+	 */
+	public static MatrixStatistics of(Matrix x, int which){
+		MatrixStatistics s = ofColumns(x, which), total = new MatrixStatistics(1, which);
+		for (int j = 0; j < s.k; j++)
+			total.merge(0, s, j);
+		return total;
+	}
+
+	/**
+	 * 将矩阵的各行加入统计量（与之前加入的行一起统计）。
+	 * @param x 矩阵，列数等于统计量的个数
+	 * @return 统计量本身
+	 */
+	public MatrixStatistics add(Matrix x){
+		if (x.cols != k)
+			throw new IllegalArgumentException("MatrixStatistics add, size not match.");
+		int block = Math.max(MIN_BLOCK_ROWS, BLOCK_ELEMENTS / k);
+		ForkJoinPool pool = BlockedGemm.poolFor((long) x.rows * x.cols);
+		MatrixStatistics s = pool != null ? pool.invoke(new Task(x, which, block, 0, x.rows)):
+			reduce(x, which, block, 0, x.rows);
+		merge(s);
+		return this;
+	}
+
+	/**
+	 * 合并另一组统计量（相当于将它统计过的行加入本统计量）。
+	 * @param other 统计量个数及种类都相同的统计量
+	 * @return 统计量本身
+	 */
+	public MatrixStatistics merge(MatrixStatistics other){
+		if (other.k != k || other.which != which)
+			throw new IllegalArgumentException("MatrixStatistics merge, statistics not match.");
+		if (other.n == 0)
+			return this;
+		long na = n;
+		for (int j = 0; j < k; j++){
+			n = na;
+			merge(j, other, j);
+		}
+		n = na + other.n;
+		return this;
+	}
+
+	/**
+	 * 将other的第jo个统计量合并到本统计量的第j个，完成后n为合并后的个数
+	 */
+	private void merge(int j, MatrixStatistics other, int jo){
+		long na = n, nb = other.n, nn = na + nb;
+		if (nb == 0)
+			return;
+		if (m2 != null){
+			if (na == 0)
+				m2[j] = other.m2[jo];
+			else {
+				double delta = other.sum[jo] / nb - sum[j] / na;
+				m2[j] += other.m2[jo] + delta * delta * ((double) na * nb / nn);
+			}
+		}
+		if (sum != null)
+			sum[j] += other.sum[jo];
+		if (min != null && other.min[jo] < min[j])
+			min[j] = other.min[jo];
+		if (max != null && other.max[jo] > max[j])
+			max[j] = other.max[jo];
+		if (l1 != null){
+			l1[j] += other.l1[jo];
+			sq[j] += other.sq[jo];
+		}
+		n = nn;
+	}
+
+	/**
+	 * 以与划分无关的固定方式将行[r0, r1)划分为左右两部分，左边包含一半的块
+	 */
+	private static int split(int block, int r0, int r1){
+		int blocks = (r1 - r0 + block - 1) / block;
+		return r0 + blocks / 2 * block;
+	}
+
+	/**
+	 * 串行计算行[r0, r1)的统计量
+	 */
+	private static MatrixStatistics reduce(Matrix x, int which, int block, int r0, int r1){
+		if (r1 - r0 <= block)
+			return leaf(x, which, r0, r1);
+		int mid = split(block, r0, r1);
+		return reduce(x, which, block, r0, mid).merge(reduce(x, which, block, mid, r1));
+	}
+
+	/**
+	 * 并行计算行[r0, r1)的统计量，划分方式与{@link MatrixStatistics#reduce}相同
+	 */
+	private static final class Task extends RecursiveTask<MatrixStatistics> {
+		private static final long serialVersionUID = 1L;
+		/** 每个任务至少包含的块数 */
+		private static final int TASK_BLOCKS = 8;
+		private final Matrix x;
+		private final int which, block, r0, r1;
+
+		Task(Matrix x, int which, int block, int r0, int r1){
+			this.x = x;
+			this.which = which;
+			this.block = block;
+			this.r0 = r0;
+			this.r1 = r1;
+		}
+
+		@Override
+		protected MatrixStatistics compute(){
+			if (r1 - r0 <= (long) TASK_BLOCKS * block)
+				return reduce(x, which, block, r0, r1);
+			int mid = split(block, r0, r1);
+			Task right = new Task(x, which, block, mid, r1);
+			right.fork();
+			MatrixStatistics left = new Task(x, which, block, r0, mid).compute();
+			return left.merge(right.join());
+		}
+	}
+
+	/**
+	 * 一块行的统计量：第一次遍历求和、最值及范数，第二次遍历（块在缓存中）求关于块均值的偏差平方和
+	 */
+	private static MatrixStatistics leaf(Matrix x, int which, int r0, int r1){
+		MatrixStatistics s = new MatrixStatistics(x.cols, which);
+		int k = x.cols, rows = r1 - r0;
+		double[] d = x.d;
+		s.n = rows;
+		if (x.dCols == 1 && x.colStride != 1){
+			//elements of a column are adjacent, walk column by column
+			for (int j = 0; j < k; j++){
+				int p0 = x.offset + r0 + j * x.colStride, p1 = p0 + rows;
+				double t = 0., lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY, a = 0., q = 0.;
+				for (int p = p0; p < p1; p++){
+					double v = d[p];
+					t += v;
+					if (v < lo) lo = v;
+					if (v > hi) hi = v;
+					a += Math.abs(v);
+					q += v * v;
+				}
+				if (s.sum != null)
+					s.sum[j] = t;
+				if (s.min != null)
+					s.min[j] = lo;
+				if (s.max != null)
+					s.max[j] = hi;
+				if (s.l1 != null){
+					s.l1[j] = a;
+					s.sq[j] = q;
+				}
+				if (s.m2 != null){
+					double mean = t / rows, m = 0.;
+					for (int p = p0; p < p1; p++){
+						double e = d[p] - mean;
+						m += e * e;
+					}
+					s.m2[j] = m;
+				}
+			}
+			return s;
+		}
+		//walk row by row
+		int cs = x.colStride;
+		for (int i = r0; i < r1; i++){
+			int p = x.offset + i * x.dCols;
+			if (s.sum != null)
+				for (int j = 0, q = p; j < k; j++, q += cs)
+					s.sum[j] += d[q];
+			if (s.min != null)
+				for (int j = 0, q = p; j < k; j++, q += cs)
+					if (d[q] < s.min[j]) s.min[j] = d[q];
+			if (s.max != null)
+				for (int j = 0, q = p; j < k; j++, q += cs)
+					if (d[q] > s.max[j]) s.max[j] = d[q];
+			if (s.l1 != null)
+				for (int j = 0, q = p; j < k; j++, q += cs){
+					s.l1[j] += Math.abs(d[q]);
+					s.sq[j] += d[q] * d[q];
+				}
+		}
+		if (s.m2 != null){
+			double[] mean = new double[k];
+			for (int j = 0; j < k; j++)
+				mean[j] = s.sum[j] / rows;
+			for (int i = r0; i < r1; i++)
+				for (int j = 0, q = x.offset + i * x.dCols; j < k; j++, q += cs){
+					double e = d[q] - mean[j];
+					s.m2[j] += e * e;
+				}
+		}
+		return s;
+	}
+
+	private void require(int flag, String name){
+		if ((which & flag) == 0)
+			throw new IllegalStateException("MatrixStatistics, " + name + " was not computed.");
+	}
+
+	private static Matrix vector(double[] v){
+		return new Matrix(1, v.length, v.clone());
+	}
+
+	/**
+	 * 获取统计量的个数。
+	 * @return 个数
+	 */
+	public int size(){
+		return k;
+	}
+
+	/**
+	 * 获取每个统计量包含的值的个数（按列统计时为行数）。
+	 * @return 个数
+	 */
+	public long count(){
+		return n;
+	}
+
+	/**
+	 * 获取和。
+	 * @return 1*k的行向量
+	 */
+	public Matrix sum(){
+		require(SUM, "sum");
+		return vector(sum);
+	}
+
+	/**
+	 * 获取均值。
+	 * @return 1*k的行向量
+	 */
+	public Matrix mean(){
+		require(SUM, "sum");
+		Matrix m = vector(sum);
+		return n == 0 ? m: m.divide(n);
+	}
+
+	/**
+	 * 获取最小值。
+	 * @return 1*k的行向量，没有数据（或全部为NaN）时为正无穷
+	 */
+	public Matrix min(){
+		require(MIN, "min");
+		return vector(min);
+	}
+
+	/**
+	 * 获取最大值。
+	 * @return 1*k的行向量，没有数据（或全部为NaN）时为负无穷
+	 */
+	public Matrix max(){
+		require(MAX, "max");
+		return vector(max);
+	}
+
+	/**
+	 * 获取方差（除以n）。
+	 * @return 1*k的行向量
+	 * @see #sampleVariance()
+	 */
+	public Matrix variance(){
+		require(VARIANCE, "variance");
+		Matrix v = vector(m2);
+		return n == 0 ? v: v.divide(n);
+	}
+
+	/**
+	 * 获取样本方差（除以n-1）。
+	 * @return 1*k的行向量
+	 * @see #variance()
+	 */
+	public Matrix sampleVariance(){
+		require(VARIANCE, "variance");
+		Matrix v = vector(m2);
+		return n <= 1 ? v: v.divide(n - 1);
+	}
+
+	/**
+	 * 获取标准差（方差除以n后开方）。
+	 * @return 1*k的行向量
+	 */
+	public Matrix standardDeviation(){
+		return variance().sqrt();
+	}
+
+	/**
+	 * 获取l1范数，即元素绝对值的和。
+	 * @return 1*k的行向量
+	 */
+	public Matrix l1Norm(){
+		require(NORM, "norm");
+		return vector(l1);
+	}
+
+	/**
+	 * 获取l2范数，即元素平方和的平方根。
+	 * @return 1*k的行向量
+	 */
+	public Matrix l2Norm(){
+		require(NORM, "norm");
+		return vector(sq).sqrt();
+	}
+}
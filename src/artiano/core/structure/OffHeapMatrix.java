@@ -0,0 +1,508 @@
+/**
+ * OffHeapMatrix.java
+ */
+package artiano.core.structure;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * <p>存储于堆外内存的矩阵。{@link Matrix}的数据保存在以int为下标的<code>double[]</code>中，元素个数不能超过
+ * 2^31，并且大矩阵会加重GC的负担；本类将数据保存在若干块直接内存（direct ByteBuffer）中，以long为下标，
+ * 元素个数只受物理内存的限制，例如一个50M*64的特征矩阵。</p>
+ * <p>子矩阵的语义与{@link Matrix#at(Range, Range)}相同：子矩阵与原矩阵共享存储，不会拷贝数据。</p>
+ * <p>矩阵也可以映射到文件（参见{@link #map(Path, boolean)}），文件格式参见{@link Matrix#save(Path)}。</p>
+ * <p>矩阵实现了{@link AutoCloseable}，调用{@link #close()}将立即释放堆外内存（所有共享该存储的子矩阵都将不可用），
+ * 建议使用如下代码：
+ * <pre><code>
+ * try (OffHeapMatrix x = new OffHeapMatrix(50000000, 64)) {
+ *     ...
+ * }
+ * </code></pre></p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class OffHeapMatrix implements AutoCloseable{
+	/** 每块存储包含2^CHUNK_SHIFT个元素 */
+	static final int CHUNK_SHIFT = 27;
+	/** 每块存储的元素个数 */
+	static final long CHUNK = 1L << CHUNK_SHIFT;
+	/** 块内下标的掩码 */
+	static final long CHUNK_MASK = CHUNK - 1;
+	/** 按行分块计算时每块的行数 */
+	static final int BLOCK_ROWS = 1024;
+
+	/**
+	 * 矩阵的列数
+	 */
+	protected int cols = 0;
+	/**
+	 * 矩阵的行数
+	 */
+	protected int rows = 0;
+	/**
+	 * 数据列数，最原始矩阵的列数
+	 */
+	protected int dCols = 0;
+	/**
+	 * 相对于最原始矩阵（由构造方法得到）的行范围，子矩阵的第0行为最原始矩阵的第rowRange.begin()行
+	 */
+	protected Range rowRange = null;
+	/**
+	 * 相对于最原始矩阵的列范围，解释同{@link #rowRange}
+	 */
+	protected Range colRange = null;
+	/**
+	 * 共享的堆外存储
+	 */
+	protected Storage storage = null;
+
+	private OffHeapMatrix(){ }
+
+	/**
+	 * 使用声明的行数和列数构造一个矩阵，堆外内存将被分配并清零。
+	 * @param rows 矩阵行数
+	 * @param cols 矩阵列数
+	 */
+	public OffHeapMatrix(int rows, int cols){
+		this(rows, cols, Storage.allocate((long) rows * cols));
+	}
+
+	OffHeapMatrix(int rows, int cols, Storage storage){
+		if (cols <= 0 || rows <= 0)
+			throw new IllegalArgumentException("OffHeapMatrix, columns and rows must be positive integer.");
+		if ((long) rows * cols > storage.length)
+			throw new IllegalArgumentException("OffHeapMatrix, the size of the matrix does not match the storage.");
+		this.rows = rows;
+		this.cols = cols;
+		this.dCols = cols;
+		this.storage = storage;
+		rowRange = new Range(0, rows);
+		colRange = new Range(0, cols);
+	}
+
+	/**
+	 * 将堆上的矩阵（或子矩阵）拷贝到堆外。
+	 * @param x 矩阵
+	 * @return 堆外矩阵
+	 */
+	public static OffHeapMatrix valueOf(Matrix x){
+		OffHeapMatrix y = new OffHeapMatrix(x.rows, x.cols);
+		y.set(0, 0, x);
+		return y;
+	}
+
+	/**
+	 * 映射矩阵文件，打开文件不会读入数据，只有被访问的行才会由操作系统载入，同一主机上的多个JVM共享文件页。
+	 * @param path 文件路径
+	 * @param writable 是否以读写方式映射，只读映射时修改矩阵将抛出{@link java.nio.ReadOnlyBufferException}
+	 * @return 映射到文件的矩阵
+	 * @throws IOException 文件不存在或格式错误
+	 */
+	public static OffHeapMatrix map(Path path, boolean writable) throws IOException{
+		return MatrixFile.map(path, writable);
+	}
+
+	/**
+	 * 创建一个大小为rows*cols、元素为0的矩阵文件，并以读写方式映射。
+	 * @param path 文件路径，已存在的文件将被覆盖
+	 * @param rows 矩阵行数
+	 * @param cols 矩阵列数
+	 * @return 映射到文件的矩阵
+	 * @throws IOException 创建文件失败
+	 */
+	public static OffHeapMatrix create(Path path, int rows, int cols) throws IOException{
+		return MatrixFile.create(path, rows, cols);
+	}
+
+	/**
+	 * 将矩阵流式写入文件，参见{@link Matrix#save(Path)}。
+	 * @param path 文件路径，已存在的文件将被覆盖
+	 * @throws IOException 写入失败
+	 */
+	public void save(Path path) throws IOException{
+		MatrixFile.write(path, this);
+	}
+
+	/**
+	 * 将映射矩阵的修改写回文件；对于非映射的矩阵没有影响。
+	 */
+	public void flush(){
+		storage.force();
+	}
+
+	/**
+	 * 获取矩阵的行数。
+	 * @return 矩阵行数。
+	 */
+	public int rows(){
+		return rows;
+	}
+
+	/**
+	 * 获取矩阵的列数。
+	 * @return 矩阵的列数。
+	 */
+	public int columns(){
+		return cols;
+	}
+
+	/**
+	 * 得到矩阵大小（size=rows*columns）
+	 * @return 矩阵大小
+	 */
+	public long size(){
+		return (long) rows * cols;
+	}
+
+	/**
+	 * 判断存储是否已经被释放
+	 * @return 已释放返回<code>true</code>
+	 */
+	public boolean isClosed(){
+		return storage.buffers == null;
+	}
+
+	/**
+	 * 元素(i,j)在存储中的下标
+	 */
+	private long index(int i, int j){
+		return (long) (i + rowRange.begin()) * dCols + j + colRange.begin();
+	}
+
+	/**
+	 * 获取矩阵在行下标为i列下标为j处的值。
+	 * @param i 行下标。
+	 * @param j 列下标。
+	 * @return 值。
+	 */
+	public double at(int i, int j){
+		if (i < 0 || i >= rows || j < 0 || j >= cols)
+			throw new IndexOutOfBoundsException("OffHeapMatrix at, index out of range.");
+		return storage.get(index(i, j));
+	}
+
+	/**
+	 * 设置矩阵在行下标i以及列下标j出的值。
+	 * @param i 行下标。
+	 * @param j 列下标。
+	 * @param value 需要设置的值。
+	 */
+	public void set(int i, int j, double value){
+		if (i < 0 || i >= rows || j < 0 || j >= cols)
+			throw new IndexOutOfBoundsException("OffHeapMatrix set, index out of range."+" i:"+i+"    j:"+j);
+		storage.put(index(i, j), value);
+	}
+
+	/**
+	 * 获取由行范围和列范围决定的子矩阵，子矩阵与原矩阵共享存储。
+	 * @param row 行范围
+	 * @param col 列范围
+	 * @return 子矩阵
+	 * @see Matrix#at(Range, Range)
+	 */
+	public OffHeapMatrix at(Range row, Range col){
+		row = row.equals(Range.all()) ? this.rowRange:
+			new Range(row.begin() + this.rowRange.begin(), row.end() + this.rowRange.begin());
+		col = col.equals(Range.all()) ? this.colRange:
+			new Range(col.begin() + this.colRange.begin(), col.end() + this.colRange.begin());
+		if (!this.rowRange.isContain(row) || !this.colRange.isContain(col))
+			throw new IllegalArgumentException("OffHeapMatrix at, out of range.");
+		OffHeapMatrix x = new OffHeapMatrix();
+		x.rowRange = row;
+		x.colRange = col;
+		x.dCols = dCols;
+		x.storage = storage;
+		x.rows = row.length();
+		x.cols = col.length();
+		return x;
+	}
+
+	/**
+	 * 获取行下标为i的行向量（子矩阵）。
+	 * @param i 行下标
+	 * @return 行向量
+	 */
+	public OffHeapMatrix row(int i){
+		return at(new Range(i, i+1), Range.all());
+	}
+
+	/**
+	 * 将第i行的数据批量读入数组。
+	 * @param i 行下标
+	 * @param dst 目标数组
+	 * @param offset 数组中的开始位置
+	 */
+	public void getRow(int i, double[] dst, int offset){
+		if (i < 0 || i >= rows)
+			throw new IndexOutOfBoundsException("OffHeapMatrix getRow, index out of range.");
+		storage.get(index(i, 0), dst, offset, cols);
+	}
+
+	/**
+	 * 将数组中的数据批量写入第i行。
+	 * @param i 行下标
+	 * @param src 源数组
+	 * @param offset 数组中的开始位置
+	 */
+	public void setRow(int i, double[] src, int offset){
+		if (i < 0 || i >= rows)
+			throw new IndexOutOfBoundsException("OffHeapMatrix setRow, index out of range.");
+		storage.put(index(i, 0), src, offset, cols);
+	}
+
+	/**
+	 * 将堆上的矩阵x拷贝到以(row,col)为左上角的区域。
+	 * @param row 开始行
+	 * @param col 开始列
+	 * @param x 矩阵
+	 */
+	public void set(int row, int col, Matrix x){
+		if (row < 0 || col < 0 || row + x.rows > rows || col + x.cols > cols)
+			throw new IllegalArgumentException("OffHeapMatrix set, size not match.");
+		x = x.rowMajor();
+		int off = BlockedGemm.offset(x);
+		for (int i = 0; i < x.rows; i++)
+			storage.put(index(row + i, col), x.d, off + i * x.dCols, x.cols);
+	}
+
+	/**
+	 * 将以(row,0)开始的若干行读入堆上的矩阵x（x的行数决定读入的行数，列数必须相等）。
+	 * @param row 开始行
+	 * @param x 目标矩阵
+	 */
+	public void getRows(int row, Matrix x){
+		if (x.cols != cols || row < 0 || row + x.rows > rows)
+			throw new IllegalArgumentException("OffHeapMatrix getRows, size not match.");
+		if (x.colStride != 1){
+			Matrix t = new Matrix(x.rows, x.cols);
+			getRows(row, t);
+			t.copyTo(x);
+			return;
+		}
+		int off = BlockedGemm.offset(x);
+		for (int i = 0; i < x.rows; i++)
+			storage.get(index(row + i, 0), x.d, off + i * x.dCols, cols);
+	}
+
+	/**
+	 * 使用指定值填充矩阵
+	 * @param value 指定值
+	 */
+	public void fill(double value){
+		double[] t = new double[cols];
+		java.util.Arrays.fill(t, value);
+		for (int i = 0; i < rows; i++)
+			setRow(i, t, 0);
+	}
+
+	/**
+	 * 将矩阵拷贝到堆上，矩阵大小必须不超过2^31。
+	 * @return 堆上的矩阵
+	 */
+	public Matrix toMatrix(){
+		if (size() > Integer.MAX_VALUE)
+			throw new UnsupportedOperationException("OffHeapMatrix toMatrix, matrix is too large.");
+		Matrix x = new Matrix(rows, cols);
+		getRows(0, x);
+		return x;
+	}
+
+	/**
+	 * 矩阵乘法 (z=x*y)，x按行分块读入堆上后使用{@link Matrix#gemm}计算，结果仍保存于堆外。
+	 * @param y 堆上的矩阵
+	 * @return 结果
+	 */
+	public OffHeapMatrix multiply(Matrix y){
+		if (y.rows != cols)
+			throw new IllegalArgumentException("OffHeapMatrix multiplication, size not match.");
+		OffHeapMatrix z = new OffHeapMatrix(rows, y.cols);
+		int block = Math.min(BLOCK_ROWS, rows);
+		Matrix a = new Matrix(block, cols);
+		Matrix c = new Matrix(block, y.cols);
+		for (int i = 0; i < rows; i += block){
+			int n = Math.min(block, rows - i);
+			Matrix an = n == block ? a: a.at(new Range(0, n), Range.all());
+			Matrix cn = n == block ? c: c.at(new Range(0, n), Range.all());
+			getRows(i, an);
+			Matrix.gemm(1., an, false, y, false, 0., cn);
+			z.set(i, 0, cn);
+		}
+		return z;
+	}
+
+	/**
+	 * 计算矩阵的行向量集合的均值向量。
+	 * @return 均值向量（1*cols）
+	 */
+	public Matrix rowMean(){
+		return statistics(MatrixStatistics.SUM).mean();
+	}
+
+	/**
+	 * 一次遍历计算每一列的统计量，矩阵按行分块读入堆上后加入统计量。
+	 * @param which 需要计算的统计量，参见{@link MatrixStatistics}
+	 * @return 统计量
+	 */
+	public MatrixStatistics statistics(int which){
+		MatrixStatistics s = new MatrixStatistics(cols, which);
+		//larger blocks than BLOCK_ROWS so that each block is big enough to be reduced in parallel
+		int block = Math.min(rows, Math.max(BLOCK_ROWS, (4 << 20) / cols));
+		Matrix a = new Matrix(block, cols);
+		for (int i = 0; i < rows; i += block){
+			int n = Math.min(block, rows - i);
+			Matrix an = n == block ? a: a.at(new Range(0, n), Range.all());
+			getRows(i, an);
+			s.add(an);
+		}
+		return s;
+	}
+
+	/**
+	 * 立即释放堆外内存（映射的文件将被解除映射），共享该存储的所有子矩阵都将不可用。重复调用没有影响。
+	 */
+	@Override
+	public void close(){
+		storage.release();
+	}
+
+	/**
+	 * <p>堆外存储，由若干块直接内存组成，每块最多{@link OffHeapMatrix#CHUNK}个元素。</p>
+	 */
+	static class Storage {
+		/** 元素个数 */
+		final long length;
+		/** 每块存储，释放后为null */
+		volatile ByteBuffer[] bytes;
+		/** 每块存储的double视图，释放后为null */
+		volatile DoubleBuffer[] buffers;
+
+		Storage(ByteBuffer[] bytes, ByteOrder order, long length){
+			this.length = length;
+			this.bytes = bytes;
+			this.buffers = new DoubleBuffer[bytes.length];
+			for (int i = 0; i < bytes.length; i++)
+				buffers[i] = bytes[i].duplicate().order(order).asDoubleBuffer();
+		}
+
+		/**
+		 * 分配能够容纳length个元素的直接内存
+		 */
+		static Storage allocate(long length){
+			int n = (int) ((length + CHUNK - 1) >>> CHUNK_SHIFT);
+			ByteBuffer[] bytes = new ByteBuffer[n];
+			for (int i = 0; i < n; i++){
+				long len = Math.min(CHUNK, length - ((long) i << CHUNK_SHIFT));
+				bytes[i] = ByteBuffer.allocateDirect((int) (len * 8));
+			}
+			return new Storage(bytes, ByteOrder.nativeOrder(), length);
+		}
+
+		private DoubleBuffer[] buffers(){
+			DoubleBuffer[] b = buffers;
+			if (b == null)
+				throw new IllegalStateException("OffHeapMatrix, storage has been released.");
+			return b;
+		}
+
+		double get(long index){
+			return buffers()[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+		}
+
+		void put(long index, double value){
+			buffers()[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+		}
+
+		/**
+		 * 从index开始批量读取length个元素，可以跨越块的边界
+		 */
+		void get(long index, double[] dst, int offset, int length){
+			DoubleBuffer[] b = buffers();
+			while (length > 0){
+				DoubleBuffer buf = b[(int) (index >>> CHUNK_SHIFT)].duplicate();
+				int pos = (int) (index & CHUNK_MASK);
+				int n = Math.min(length, buf.capacity() - pos);
+				buf.position(pos);
+				buf.get(dst, offset, n);
+				index += n;
+				offset += n;
+				length -= n;
+			}
+		}
+
+		/**
+		 * 从index开始批量写入length个元素，可以跨越块的边界
+		 */
+		void put(long index, double[] src, int offset, int length){
+			DoubleBuffer[] b = buffers();
+			while (length > 0){
+				DoubleBuffer buf = b[(int) (index >>> CHUNK_SHIFT)].duplicate();
+				int pos = (int) (index & CHUNK_MASK);
+				int n = Math.min(length, buf.capacity() - pos);
+				buf.position(pos);
+				buf.put(src, offset, n);
+				index += n;
+				offset += n;
+				length -= n;
+			}
+		}
+
+		synchronized void force(){
+			ByteBuffer[] b = bytes;
+			if (b == null)
+				throw new IllegalStateException("OffHeapMatrix, storage has been released.");
+			for (int i = 0; i < b.length; i++)
+				if (b[i] instanceof MappedByteBuffer && !b[i].isReadOnly())
+					((MappedByteBuffer) b[i]).force();
+		}
+
+		synchronized void release(){
+			ByteBuffer[] b = bytes;
+			if (b == null)
+				return;
+			buffers = null;
+			bytes = null;
+			for (int i = 0; i < b.length; i++)
+				free(b[i]);
+		}
+
+		/**
+		 * 释放直接内存。JDK没有公开的释放方法，这里通过sun.misc.Unsafe.invokeCleaner（Java 9+）释放，
+		 * 不可用时交由GC回收。
+		 */
+		private static void free(ByteBuffer buffer){
+			if (CLEANER == null || !buffer.isDirect())
+				return;
+			try {
+				CLEANER.invoke(UNSAFE, buffer);
+			} catch (Exception e) {
+				//left to the garbage collector
+			}
+		}
+
+		private static final Object UNSAFE;
+		private static final Method CLEANER;
+		static {
+			Object unsafe = null;
+			Method cleaner = null;
+			try {
+				Class<?> c = Class.forName("sun.misc.Unsafe");
+				Field f = c.getDeclaredField("theUnsafe");
+				f.setAccessible(true);
+				unsafe = f.get(null);
+				cleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch (Exception e) {
+				unsafe = null;
+				cleaner = null;
+			}
+			UNSAFE = unsafe;
+			CLEANER = cleaner;
+		}
+	}
+}
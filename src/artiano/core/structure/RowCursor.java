@@ -0,0 +1,207 @@
+/**
+ * RowCursor.java
+ */
+package artiano.core.structure;
+
+/**
+ * <p>矩阵的行游标，逐行遍历矩阵而不为每一行构造新的对象（{@link Matrix#row(int)}每次调用都会构造一个子矩阵以及两个
+ * {@link Range}）。游标直接给出当前行在底层数组中的位置：第j个元素位于
+ * <code>array()[offset() + j*stride()]</code>，共<code>length()</code>个元素；对于普通矩阵及其子矩阵
+ * <code>stride()==1</code>。</p>
+ * <p>用法如下：
+ * <pre><code>
+ * RowCursor a = x.cursor(), b = x.cursor();
+ * while (a.next()){
+ *     b.moveTo(0);
+ *     ...a.squaredDistance(b)...
+ * }
+ * </code></pre>
+ * 也可以使用回调{@link Matrix#forEachRow(RowCursor.Visitor)}。</p>
+ * <p>{@link #get(int)}和{@link #set(int, double)}不检查列下标，只检查行下标（在{@link #moveTo(int)}中）。
+ * 需要{@link Matrix}作为参数的方法可以使用{@link #view()}，它是一个随游标移动的1行子矩阵（同一个对象），
+ * 因此不能被保存下来，需要保存时应使用{@link #toMatrix()}拷贝。</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class RowCursor {
+	/** 被遍历的矩阵 */
+	private final Matrix x;
+	/** 随游标移动的当前行 */
+	private final Matrix view;
+	/** 当前行下标，-1表示还未开始 */
+	private int row = -1;
+
+	RowCursor(Matrix x){
+		this.x = x;
+		this.view = x.row(0);
+	}
+
+	/**
+	 * 行回调，参见{@link Matrix#forEachRow(Visitor)}
+	 */
+	public interface Visitor {
+		/**
+		 * 访问一行
+		 * @param row 位于该行的游标，回调返回后游标将移动到下一行
+		 */
+		void visit(RowCursor row);
+	}
+
+	/**
+	 * 移动到第i行。
+	 * @param i 行下标
+	 * @return 游标本身
+	 */
+	public RowCursor moveTo(int i){
+		if (i < 0 || i >= x.rows)
+			throw new IndexOutOfBoundsException("RowCursor, index out of range.");
+		row = i;
+		view.offset = x.offset + i * x.dCols;
+		return this;
+	}
+
+	/**
+	 * 移动到下一行，新构造的游标第一次调用时移动到第0行。
+	 * @return 移动成功返回<code>true</code>，已经是最后一行时返回<code>false</code>
+	 */
+	public boolean next(){
+		if (row + 1 >= x.rows)
+			return false;
+		moveTo(row + 1);
+		return true;
+	}
+
+	/**
+	 * 获取当前行的下标。
+	 * @return 行下标，还未移动时为-1
+	 */
+	public int index(){
+		return row;
+	}
+
+	/**
+	 * 获取当前行所在的数组（即矩阵的数据）。
+	 * @return 数组
+	 */
+	public double[] array(){
+		return x.d;
+	}
+
+	/**
+	 * 获取当前行第0个元素在{@link #array()}中的下标。
+	 * @return 下标
+	 */
+	public int offset(){
+		return view.offset;
+	}
+
+	/**
+	 * 获取当前行相邻两个元素在{@link #array()}中的距离，普通矩阵及其子矩阵为1。
+	 * @return 步长
+	 */
+	public int stride(){
+		return x.colStride;
+	}
+
+	/**
+	 * 获取行的长度（矩阵的列数）。
+	 * @return 长度
+	 */
+	public int length(){
+		return x.cols;
+	}
+
+	/**
+	 * 获取当前行第j个元素，不检查下标。
+	 * @param j 列下标
+	 * @return 值
+	 */
+	public double get(int j){
+		return x.d[view.offset + j * x.colStride];
+	}
+
+	/**
+	 * 设置当前行第j个元素，不检查下标。
+	 * @param j 列下标
+	 * @param value 值
+	 */
+	public void set(int j, double value){
+		x.d[view.offset + j * x.colStride] = value;
+	}
+
+	/**
+	 * 获取随游标移动的1行子矩阵，参见类的说明。
+	 * @return 当前行
+	 */
+	public Matrix view(){
+		return view;
+	}
+
+	/**
+	 * 将当前行拷贝为新的行向量。
+	 * @return 行向量
+	 */
+	public Matrix toMatrix(){
+		return view.clone();
+	}
+
+	/**
+	 * 将当前行拷贝到数组中。
+	 * @param dst 目标数组
+	 * @param off 目标数组的开始下标
+	 */
+	public void copyTo(double[] dst, int off){
+		int p = view.offset, s = x.colStride;
+		if (s == 1)
+			System.arraycopy(x.d, p, dst, off, x.cols);
+		else
+			for (int j = 0; j < x.cols; j++, p += s)
+				dst[off + j] = x.d[p];
+	}
+
+	/**
+	 * 计算当前行与另一个游标的当前行之间的欧式距离的平方。
+	 * @param other 另一个游标，行长度必须相等
+	 * @return 欧式距离的平方
+	 * @see Matrix#squaredDistance(Matrix)
+	 */
+	public double squaredDistance(RowCursor other){
+		if (other.x.cols != x.cols)
+			throw new IllegalArgumentException("RowCursor distance, size not match.");
+		if (x.colStride == 1 && other.x.colStride == 1)
+			return Kernels.INSTANCE.squaredDistance(x.d, view.offset, other.x.d, other.view.offset, x.cols);
+		return view.squaredDistance(other.view);
+	}
+
+	/**
+	 * 计算当前行与另一个游标的当前行之间的曼哈顿距离（元素之差的绝对值之和）。
+	 * @param other 另一个游标，行长度必须相等
+	 * @return 曼哈顿距离
+	 */
+	public double absoluteDistance(RowCursor other){
+		if (other.x.cols != x.cols)
+			throw new IllegalArgumentException("RowCursor distance, size not match.");
+		int p = view.offset, q = other.view.offset, s = x.colStride, t = other.x.colStride;
+		if (s == 1 && t == 1)
+			return Kernels.INSTANCE.absoluteDistance(x.d, p, other.x.d, q, x.cols);
+		double sum = 0.;
+		for (int j = 0; j < x.cols; j++, p += s, q += t)
+			sum += Math.abs(x.d[p] - other.x.d[q]);
+		return sum;
+	}
+
+	/**
+	 * 判断当前行与另一个游标的当前行的元素是否全部相等（同{@link Matrix#equals(Object)}）。
+	 * @param other 另一个游标
+	 * @return 相等返回<code>true</code>
+	 */
+	public boolean valueEquals(RowCursor other){
+		if (other.x.cols != x.cols)
+			return false;
+		int p = view.offset, q = other.view.offset, s = x.colStride, t = other.x.colStride;
+		for (int j = 0; j < x.cols; j++, p += s, q += t)
+			if (x.d[p] != other.x.d[q])
+				return false;
+		return true;
+	}
+}
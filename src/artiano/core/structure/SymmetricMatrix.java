@@ -0,0 +1,237 @@
+/**
+ * SymmetricMatrix.java
+ */
+package artiano.core.structure;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * <p>以压缩形式保存的对称矩阵，只保存上三角（含对角线）的n*(n+1)/2个元素，内存占用约为同阶{@link Matrix}的一半。
+ * 上三角按行依次存放：第i行的元素(i, i), (i, i+1), ..., (i, n-1)紧接在第i-1行之后，元素(i, j)（i&lt;=j）的下标为
+ * <code>i*(2n-i-1)/2+j</code>；访问下三角的元素(i, j)即访问(j, i)。</p>
+ * <p>协方差矩阵、Gram矩阵（A'*A或A*A'）都是对称的，可以由{@link #syrk(double, Matrix, boolean, double, SymmetricMatrix)}
+ * 直接计算出上三角，计算量也约为一般矩阵乘法的一半。{@link artiano.linalg.decomposition.EigenValueDecomposition}
+ * 和{@link artiano.linalg.decomposition.CholeskyDecomposition}可以直接接受压缩形式的矩阵。</p>
+ * <p>由于数据保存在一个数组中，矩阵的阶数不能超过65535。</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class SymmetricMatrix implements Serializable{
+
+	private static final long serialVersionUID = 1L;
+	/** 最大阶数，使n*(n+1)/2不超过数组的最大长度 */
+	private static final int MAX_ORDER = 65535;
+	/**
+	 * 矩阵的阶数
+	 */
+	protected int n = 0;
+	/**
+	 * 按行压缩保存的上三角
+	 */
+	protected double[] d = null;
+
+	/**
+	 * 构造一个n阶的零矩阵。
+	 * @param n 阶数
+	 */
+	public SymmetricMatrix(int n){
+		this(n, new double[length(n)]);
+	}
+
+	/**
+	 * 使用按行压缩保存的上三角构造矩阵，数据不会被拷贝。
+	 * @param n 阶数
+	 * @param packed 上三角，长度至少为n*(n+1)/2
+	 */
+	public SymmetricMatrix(int n, double[] packed){
+		if (packed.length < length(n))
+			throw new IllegalArgumentException("SymmetricMatrix, the order of the matrix does not match the length of the data.");
+		this.n = n;
+		this.d = packed;
+	}
+
+	private static int length(int n){
+		if (n <= 0 || n > MAX_ORDER)
+			throw new IllegalArgumentException("SymmetricMatrix, order must be in [1, " + MAX_ORDER + "].");
+		return (int) ((long) n * (n + 1) / 2);
+	}
+
+	/**
+	 * 阶数为n的矩阵中上三角元素(i, j)（i&lt;=j）在压缩数据中的下标
+	 */
+	static int index(int n, int i, int j){
+		return (int) ((long) i * (2 * n - i - 1) / 2) + j;
+	}
+
+	/**
+	 * 使用方阵（或子矩阵）的上三角构造对称矩阵，下三角被忽略，数据将被拷贝。
+	 * @param x 方阵
+	 * @return 对称矩阵
+	 */
+	public static SymmetricMatrix valueOf(Matrix x){
+		if (!x.isSquare())
+			throw new IllegalArgumentException("SymmetricMatrix, accept square matrix only.");
+		SymmetricMatrix s = new SymmetricMatrix(x.rows);
+		for (int i = 0, p = 0; i < x.rows; i++)
+			for (int j = i; j < x.cols; j++)
+				s.d[p++] = x.at(i, j);
+		return s;
+	}
+
+	/**
+	 * 对称秩k更新（同BLAS中的SYRK）：<code>C=alpha*op(A)*op(A)'+beta*C</code>，其中op(A)为A或A的转置。
+	 * <br>只计算结果的上三角：C被划分为若干块，只有对角线上及其右上方的块才会由分块乘法核心计算，因此计算量约为
+	 * 相同大小的一般矩阵乘法的一半。当<code>beta==0</code>时，c中原有的值将被忽略。
+	 * @param alpha 乘积的缩放比例
+	 * @param a 矩阵A（可以是子矩阵或转置）
+	 * @param transA 是否使用A的转置，<code>false</code>时计算A*A'，<code>true</code>时计算A'*A
+	 * @param beta c的缩放比例
+	 * @param c 输出矩阵
+	 * @see Matrix#gemm(double, Matrix, boolean, Matrix, boolean, double, Matrix)
+	 */
+	public static void syrk(double alpha, Matrix a, boolean transA, double beta, SymmetricMatrix c){
+		int order = transA ? a.cols: a.rows, k = transA ? a.rows: a.cols;
+		if (c.n != order)
+			throw new IllegalArgumentException("SymmetricMatrix syrk, size not match.");
+		if (beta == 0.)
+			Arrays.fill(c.d, 0, length(c.n), 0.);
+		else if (beta != 1.)
+			c.multiply(beta);
+		BlockedGemm.syrk(order, k, alpha, a.d, a.offset,
+				transA ? a.colStride: a.dCols, transA ? a.dCols: a.colStride, c.d);
+	}
+
+	/**
+	 * 获取矩阵的行数（等于阶数）。
+	 * @return 矩阵行数。
+	 */
+	public int rows(){
+		return n;
+	}
+
+	/**
+	 * 获取矩阵的列数（等于阶数）。
+	 * @return 矩阵的列数。
+	 */
+	public int columns(){
+		return n;
+	}
+
+	/**
+	 * 获取按行压缩保存的上三角数据。
+	 * @return 数据
+	 */
+	public double[] data(){
+		return d;
+	}
+
+	/**
+	 * 获取矩阵在行下标为i列下标为j处的值，(i, j)与(j, i)是同一个元素。
+	 * @param i 行下标。
+	 * @param j 列下标。
+	 * @return 值。
+	 */
+	public double at(int i, int j){
+		if (i < 0 || i >= n || j < 0 || j >= n)
+			throw new IndexOutOfBoundsException("SymmetricMatrix at, index out of range.");
+		return i <= j ? d[index(n, i, j)]: d[index(n, j, i)];
+	}
+
+	/**
+	 * 设置矩阵在行下标i以及列下标j处的值，(j, i)处的值同时被改变。
+	 * @param i 行下标。
+	 * @param j 列下标。
+	 * @param value 需要设置的值。
+	 */
+	public void set(int i, int j, double value){
+		if (i < 0 || i >= n || j < 0 || j >= n)
+			throw new IndexOutOfBoundsException("SymmetricMatrix set, index out of range.");
+		d[i <= j ? index(n, i, j): index(n, j, i)] = value;
+	}
+
+	/**
+	 * 矩阵数乘，结果替换原始矩阵。
+	 * @param x 标量
+	 * @return 矩阵本身
+	 */
+	public SymmetricMatrix multiply(Number x){
+		Kernels.INSTANCE.mul(d, 0, x.doubleValue(), d, 0, length(n));
+		return this;
+	}
+
+	/**
+	 * 矩阵除法（除以标量），结果替换原始矩阵。
+	 * @param x 标量
+	 * @return 矩阵本身
+	 */
+	public SymmetricMatrix divide(Number x){
+		if (x.doubleValue() == 0.)
+			throw new ArithmeticException("SymmetricMatrix divide, divisor is 0.");
+		Kernels.INSTANCE.div(d, 0, x.doubleValue(), d, 0, length(n));
+		return this;
+	}
+
+	/**
+	 * 对称矩阵与稠密矩阵相乘 (Y=S*X)，上三角的每个元素只被读取一次。
+	 * @param x 稠密矩阵，行数等于本矩阵的阶数
+	 * @return 结果
+	 */
+	public Matrix multiply(Matrix x){
+		if (x.rows != n)
+			throw new IllegalArgumentException("SymmetricMatrix multiplication, size not match.");
+		x = x.rowMajor();
+		int m = x.cols;
+		Matrix y = new Matrix(n, m);
+		for (int i = 0, p = 0; i < n; i++){
+			int xi = x.offset + i * x.dCols, yi = i * m;
+			double s0 = d[p++];
+			for (int l = 0; l < m; l++)
+				y.d[yi + l] += s0 * x.d[xi + l];
+			for (int j = i + 1; j < n; j++, p++){
+				double s = d[p];
+				if (s == 0.)
+					continue;
+				int xj = x.offset + j * x.dCols, yj = j * m;
+				for (int l = 0; l < m; l++){
+					y.d[yi + l] += s * x.d[xj + l];
+					y.d[yj + l] += s * x.d[xi + l];
+				}
+			}
+		}
+		return y;
+	}
+
+	/**
+	 * 计算矩阵的迹。
+	 * @return 矩阵的迹。
+	 */
+	public double trace(){
+		double tr = 0.;
+		for (int i = 0; i < n; i++)
+			tr += d[index(n, i, i)];
+		return tr;
+	}
+
+	/**
+	 * 转换为稠密矩阵（上下三角都被填充）。
+	 * @return 稠密矩阵
+	 */
+	public Matrix toMatrix(){
+		Matrix x = new Matrix(n, n);
+		for (int i = 0, p = 0; i < n; i++)
+			for (int j = i; j < n; j++, p++){
+				x.d[i * n + j] = d[p];
+				x.d[j * n + i] = d[p];
+			}
+		return x;
+	}
+
+	/**
+	 * 克隆一个矩阵。
+	 */
+	@Override
+	public SymmetricMatrix clone(){
+		return new SymmetricMatrix(n, Arrays.copyOf(d, length(n)));
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * ArenaBenchmark.java
+ */
+package artiano.core.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.MatrixArena;
+import artiano.linalg.decomposition.LUDecomposition;
+import artiano.linalg.decomposition.QRDecomposition;
+import artiano.linalg.decomposition.SingularValueDecomposition;
+
+/**
+ * <p>Description: Allocation benchmark of {@link MatrixArena}. Decomposes small square matrices (LU, QR and
+ * SVD, each reserving its input) with and without an arena per decomposition, and prints the bytes allocated
+ * by the thread per decomposition (measured with <code>com.sun.management.ThreadMXBean</code>) together
+ * with the pooled/fresh counters of the arena.</p>
+ * <p>Usage: <code>ArenaBenchmark [maxSize] [iterations]</code>, sizes double from 8 up to maxSize (default 64),
+ * iterations defaults to 20000.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ArenaBenchmark {
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static double sink = 0.;
+
+	static void decompose(Matrix a){
+		sink += new LUDecomposition(a, true).det();
+		new QRDecomposition(a, true);
+		sink += new SingularValueDecomposition(a, true, false).W().at(0, 0);
+	}
+
+	/** bytes allocated per iteration */
+	static double run(Matrix a, int iterations, boolean arena){
+		long id = Thread.currentThread().getId();
+		long before = THREADS.getThreadAllocatedBytes(id);
+		for (int i = 0; i < iterations; i++){
+			if (arena){
+				MatrixArena scope = MatrixArena.open();
+				try {
+					decompose(a);
+				} finally {
+					scope.close();
+				}
+			} else
+				decompose(a);
+		}
+		return (THREADS.getThreadAllocatedBytes(id) - before) / (double) iterations;
+	}
+
+	public static void main(String[] args){
+		int maxSize = args.length > 0 ? Integer.parseInt(args[0]): 64;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]): 20000;
+		Random r = new Random(1);
+		System.out.println("size\tfresh(B/op)\tarena(B/op)\tpooled\tfresh");
+		for (int n = 8; n <= maxSize; n *= 2){
+			Matrix a = MultiplyBenchmark.random(n, n, r);
+			for (int i = 0; i < n; i++)
+				a.plus(i, i, n);
+			//warm up
+			run(a, iterations / 10 + 1, false);
+			run(a, iterations / 10 + 1, true);
+			double plain = run(a, iterations, false);
+			MatrixArena.resetStatistics();
+			double pooled = run(a, iterations, true);
+			System.out.printf("%d\t%.0f\t%.0f\t%d\t%d%n", n, plain, pooled,
+					MatrixArena.pooledAllocations(), MatrixArena.freshAllocations());
+		}
+		if (sink == 42.)
+			System.out.println();
+	}
+}
@@ -0,0 +1,105 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.operation.MatrixOpt;
+import artiano.core.structure.CovarianceAccumulator;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.statistics.reducer.PrincipleComponentAnalysis;
+
+public class CovarianceAccumulatorTest {
+
+	private static void assertClose(Matrix expected, Matrix actual, double eps) {
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.columns(), actual.columns());
+		for (int i = 0; i < expected.rows(); i++)
+			for (int j = 0; j < expected.columns(); j++)
+				assertEquals(expected.at(i, j), actual.at(i, j), eps);
+	}
+
+	/** (X-M)'*(X-M) by plain loops */
+	private static Matrix scatter(Matrix x, Matrix mean) {
+		Matrix s = new Matrix(x.columns(), x.columns());
+		for (int k = 0; k < x.rows(); k++)
+			for (int i = 0; i < x.columns(); i++)
+				for (int j = 0; j < x.columns(); j++)
+					s.plus(i, j, (x.at(k, i) - mean.at(i)) * (x.at(k, j) - mean.at(j)));
+		return s;
+	}
+
+	@Test
+	public void testBatches() {
+		Random r = new Random(61);
+		Matrix x = MatrixMultiplyTest.random(1000, 6, r);
+		CovarianceAccumulator acc = new CovarianceAccumulator(6);
+		for (int i = 0; i < 1000; i += 77)
+			acc.add(x.at(new Range(i, Math.min(i + 77, 1000)), Range.all()));
+		assertEquals(1000, acc.count());
+		assertClose(x.rowMean(), acc.mean(), 1e-14);
+		Matrix expected = scatter(x, x.rowMean());
+		assertClose(expected, acc.scatter(), 1e-10);
+		assertClose(expected.divide(1000., true), acc.covariance(), 1e-13);
+		assertClose(expected.divide(999., true), acc.sampleCovariance(), 1e-13);
+		assertClose(expected, x.covarianceOfRows(Matrix.COVARIANCE_NORMAL, null, false), 1e-10);
+	}
+
+	@Test
+	public void testMerge() {
+		Random r = new Random(67);
+		Matrix x = MatrixMultiplyTest.random(600, 5, r);
+		CovarianceAccumulator a = new CovarianceAccumulator(5), b = new CovarianceAccumulator(5);
+		a.add(x.at(new Range(0, 250), Range.all()));
+		b.add(x.at(new Range(250, 600), Range.all()));
+		a.merge(b).merge(new CovarianceAccumulator(5));
+		assertEquals(600, a.count());
+		assertClose(x.rowMean(), a.mean(), 1e-14);
+		assertClose(scatter(x, x.rowMean()), a.scatter(), 1e-10);
+	}
+
+	@Test
+	public void testLargeOffset() {
+		Random r = new Random(71);
+		Matrix x = MatrixMultiplyTest.random(3000, 3, r);
+		Matrix shifted = x.plus(1e8, true);
+		CovarianceAccumulator acc = new CovarianceAccumulator(3);
+		acc.add(shifted);
+		assertClose(new CovarianceAccumulator(3).add(x).covariance(), acc.covariance(), 1e-8);
+	}
+
+	@Test
+	public void testMatrixOpt() {
+		Random r = new Random(73);
+		Matrix[] v = new Matrix[300];
+		Matrix x = MatrixMultiplyTest.random(300, 4, r);
+		for (int i = 0; i < v.length; i++)
+			v[i] = x.row(i).clone();
+		Matrix mean = MatrixOpt.computeMean(v);
+		assertClose(scatter(x, mean).multiply(.5, true), MatrixOpt.computeCovarianceByCol(v, mean, .5), 1e-10);
+		Matrix byRow = MatrixOpt.computeCovarianceByRow(v, mean, 2.);
+		Matrix t = x.lazy().minus(mean).eval();
+		assertClose(t.multiply(t.t()).multiply(2., true), byRow, 1e-12);
+	}
+
+	@Test
+	public void testPrincipleComponentAnalysis() {
+		Random r = new Random(79);
+		Matrix x = MatrixMultiplyTest.random(400, 5, r);
+		PrincipleComponentAnalysis direct = new PrincipleComponentAnalysis();
+		direct.train(x.clone());
+		CovarianceAccumulator acc = new CovarianceAccumulator(5);
+		for (int i = 0; i < 400; i += 100)
+			acc.add(x.at(new Range(i, i + 100), Range.all()));
+		PrincipleComponentAnalysis streamed = new PrincipleComponentAnalysis();
+		streamed.train(acc);
+		assertClose(direct.getEigenValue(), streamed.getEigenValue(), 1e-10);
+		Matrix sample = x.row(3).clone();
+		Matrix a = direct.reduce(sample), b = streamed.reduce(sample);
+		for (int j = 0; j < a.columns(); j++)
+			assertEquals(Math.abs(a.at(j)), Math.abs(b.at(j)), 1e-10);
+	}
+}
@@ -0,0 +1,148 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.operation.Distances;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.core.structure.RowCursor;
+
+public class DistancesTest {
+
+	private static final int[] METRICS = { Distances.EUCLIDEAN, Distances.SQUARED_EUCLIDEAN, Distances.MANHATTAN,
+			Distances.COSINE };
+
+	/** distance between row i of x and row j of y pair by pair */
+	private static double reference(Matrix x, int i, Matrix y, int j, int metric) {
+		RowCursor a = x.cursor().moveTo(i), b = y.cursor().moveTo(j);
+		switch (metric) {
+		case Distances.EUCLIDEAN:
+			return Math.sqrt(a.squaredDistance(b));
+		case Distances.SQUARED_EUCLIDEAN:
+			return a.squaredDistance(b);
+		case Distances.MANHATTAN:
+			return a.absoluteDistance(b);
+		default:
+			double dot = 0., na = 0., nb = 0.;
+			for (int k = 0; k < a.length(); k++) {
+				dot += a.get(k) * b.get(k);
+				na += a.get(k) * a.get(k);
+				nb += b.get(k) * b.get(k);
+			}
+			return 1. - dot / Math.sqrt(na * nb);
+		}
+	}
+
+	private static void assertCross(Matrix x, Matrix y, Matrix d, int metric) {
+		assertEquals(x.rows(), d.rows());
+		assertEquals(y.rows(), d.columns());
+		for (int i = 0; i < x.rows(); i++)
+			for (int j = 0; j < y.rows(); j++)
+				assertEquals(reference(x, i, y, j, metric), d.at(i, j), 1e-10);
+	}
+
+	@Test
+	public void testPairwiseAndCondensed() {
+		Random r = new Random(101);
+		Matrix x = MatrixMultiplyTest.random(150, 9, r);
+		long budget = Distances.getMemoryBudget();
+		try {
+			Distances.setMemoryBudget(8 * 40 * 40);
+			for (int metric : METRICS) {
+				Matrix d = Distances.pairwise(x, metric);
+				assertCross(x, x, d, metric);
+				for (int i = 0; i < x.rows(); i++)
+					assertEquals(0., d.at(i, i), 0.);
+				double[] c = Distances.condensed(x, metric);
+				assertEquals(150 * 149 / 2, c.length);
+				for (int i = 0; i < x.rows(); i++)
+					for (int j = i + 1; j < x.rows(); j++)
+						assertEquals(d.at(i, j), c[Distances.condensedIndex(150, j, i)], 0.);
+			}
+		} finally {
+			Distances.setMemoryBudget(budget);
+		}
+	}
+
+	@Test
+	public void testCrossOnViews() {
+		Random r = new Random(103);
+		Matrix x = MatrixMultiplyTest.random(70, 12, r), y = MatrixMultiplyTest.random(12, 45, r).t();
+		Matrix sub = x.at(new Range(5, 60), new Range(0, 12));
+		for (int metric : METRICS) {
+			assertCross(sub, y, Distances.cross(sub, y, metric), metric);
+			assertCross(x.toColumnMajor(), y, Distances.cross(x.toColumnMajor(), y, metric), metric);
+			Matrix out = new Matrix(80, 50);
+			Matrix view = out.at(new Range(0, 70), new Range(3, 48)).t();
+			Distances.cross(y, x, metric, view);
+			assertCross(y, x, view, metric);
+		}
+	}
+
+	@Test
+	public void testZeroVectorsAndExactValues() {
+		Matrix x = new Matrix(3, 2, new double[] { 0, 0, 3, 4, 6, 8 });
+		Matrix e = Distances.pairwise(x, Distances.EUCLIDEAN);
+		assertEquals(5., e.at(0, 1), 0.);
+		assertEquals(10., e.at(2, 0), 0.);
+		assertEquals(7., Distances.pairwise(x, Distances.MANHATTAN).at(1, 0), 0.);
+		Matrix c = Distances.pairwise(x, Distances.COSINE);
+		assertEquals(1., c.at(0, 1), 0.);
+		assertEquals(0., c.at(1, 2), 1e-15);
+	}
+
+	@Test
+	public void testParallelTiles() {
+		Random r = new Random(107);
+		Matrix x = MatrixMultiplyTest.random(300, 5, r), y = MatrixMultiplyTest.random(200, 5, r);
+		Matrix serial = Distances.cross(x, y, Distances.EUCLIDEAN);
+		double[] condensed = Distances.condensed(x, Distances.MANHATTAN);
+		int level = Matrix.getParallelism();
+		long threshold = Matrix.getParallelThreshold(), budget = Distances.getMemoryBudget();
+		try {
+			Matrix.setParallelism(4);
+			Matrix.setParallelThreshold(0);
+			Distances.setMemoryBudget(8 * 64 * 64);
+			Matrix parallel = Distances.cross(x, y, Distances.EUCLIDEAN);
+			for (int i = 0; i < x.rows(); i++)
+				for (int j = 0; j < y.rows(); j++)
+					assertEquals(serial.at(i, j), parallel.at(i, j), 1e-12);
+			double[] c = Distances.condensed(x, Distances.MANHATTAN);
+			for (int i = 0; i < c.length; i++)
+				assertEquals(condensed[i], c[i], 0.);
+		} finally {
+			Matrix.setParallelism(level);
+			Matrix.setParallelThreshold(threshold);
+			Distances.setMemoryBudget(budget);
+		}
+	}
+
+	@Test
+	public void testOffsetData() {
+		// points near 1e5, |x|^2 is 1e10 times the squared distances
+		Random r = new Random(109);
+		Matrix x = new Matrix(200, 3), y = new Matrix(50, 3);
+		for (int i = 0; i < 200; i++)
+			for (int j = 0; j < 3; j++) {
+				x.set(i, j, 1e5 + r.nextDouble());
+				if (i < 50)
+					y.set(i, j, 1e5 + r.nextDouble());
+			}
+		for (int metric : new int[] { Distances.EUCLIDEAN, Distances.SQUARED_EUCLIDEAN }) {
+			assertCross(x, x, Distances.pairwise(x, metric), metric);
+			assertCross(x, y, Distances.cross(x, y, metric), metric);
+			double[] c = Distances.condensed(x, metric);
+			assertEquals(reference(x, 3, x, 150, metric), c[Distances.condensedIndex(200, 3, 150)], 1e-10);
+		}
+		assertCross(x, x.t().t(), Distances.cross(x, x.t().t(), Distances.EUCLIDEAN), Distances.EUCLIDEAN);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDimensionMismatch() {
+		Distances.cross(new Matrix(3, 2), new Matrix(3, 4), Distances.EUCLIDEAN);
+	}
+}
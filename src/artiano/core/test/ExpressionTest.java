@@ -0,0 +1,74 @@
+package artiano.core.test;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+
+public class ExpressionTest {
+
+	@Test
+	public void testFusedElementWise() {
+		Random r = new Random(31);
+		Matrix x = MatrixMultiplyTest.random(17, 11, r);
+		Matrix y = MatrixMultiplyTest.random(17, 11, r);
+		Matrix rowVector = MatrixMultiplyTest.random(1, 11, r);
+		Matrix colVector = MatrixMultiplyTest.random(17, 1, r);
+		//((x-row)*2+y)/col, abs, sqrt
+		Matrix expected = new Matrix(17, 11);
+		for (int i = 0; i < 17; i++)
+			for (int j = 0; j < 11; j++)
+				expected.set(i, j, Math.sqrt(Math.abs(((x.at(i, j) - rowVector.at(j)) * 2 + y.at(i, j))
+						/ colVector.at(i))));
+		Matrix actual = x.lazy().minus(rowVector).multiply(2.).plus(y).divide(colVector).abs().sqrt().eval();
+		MatrixMultiplyTest.assertClose(expected, actual);
+		//element-wise product and transpose of an expression
+		MatrixMultiplyTest.assertClose(x.t().minus(y.t(), true),
+				x.lazy().minus(y).t().eval());
+		Matrix z = MatrixMultiplyTest.random(11, 17, r);
+		Matrix product = x.clone();
+		for (int i = 0; i < 17; i++)
+			for (int j = 0; j < 11; j++)
+				product.set(i, j, x.at(i, j) * z.at(j, i) + 1);
+		MatrixMultiplyTest.assertClose(product, x.lazy().times(z.lazy().t()).plus(1.).eval());
+	}
+
+	@Test
+	public void testInPlaceAndViews() {
+		Random r = new Random(37);
+		Matrix x = MatrixMultiplyTest.random(20, 30, r);
+		Matrix v = x.at(new Range(3, 13), new Range(4, 24));
+		Matrix mean = v.rowMean();
+		Matrix expected = v.clone();
+		for (int i = 0; i < v.rows(); i++)
+			expected.row(i).minus(mean);
+		v.lazy().minus(mean).eval(v);
+		MatrixMultiplyTest.assertClose(expected, v);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBroadcastOverlap() {
+		Matrix x = MatrixMultiplyTest.random(5, 5, new Random(41));
+		x.lazy().minus(x.row(0)).eval(x);
+	}
+
+	@Test
+	public void testMultiply() {
+		Random r = new Random(43);
+		Matrix a = MatrixMultiplyTest.random(150, 40, r);
+		Matrix b = MatrixMultiplyTest.random(25, 40, r);
+		Matrix mean = a.rowMean();
+		Matrix centered = a.clone();
+		for (int i = 0; i < a.rows(); i++)
+			centered.row(i).minus(mean);
+		MatrixMultiplyTest.assertClose(centered.multiply(b.t()),
+				a.lazy().minus(mean).multiply(b.lazy().t()));
+		MatrixMultiplyTest.assertClose(a.t().multiply(centered),
+				a.lazy().t().multiply(a.lazy().minus(mean)));
+		MatrixMultiplyTest.assertClose(centered.multiply(b.t()).multiply(2.),
+				a.lazy().minus(mean).multiply(b.lazy().multiply(2.).t()));
+	}
+
+}
@@ -0,0 +1,113 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.FloatMatrix;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+
+public class FloatMatrixTest {
+
+	static void assertClose(Matrix expected, FloatMatrix actual, double eps){
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.columns(), actual.columns());
+		for (int i = 0; i < expected.rows(); i++)
+			for (int j = 0; j < expected.columns(); j++)
+				assertEquals(expected.at(i, j), actual.at(i, j), eps);
+	}
+
+	@Test
+	public void testConversion() {
+		Matrix x = MatrixMultiplyTest.random(6, 7, new Random(3));
+		Matrix view = x.at(new Range(1, 5), new Range(2, 6));
+		FloatMatrix f = view.toFloatMatrix();
+		assertClose(view, f, 1e-7);
+		assertClose(view, FloatMatrix.valueOf(f.toMatrix().clone()), 1e-7);
+	}
+
+	@Test
+	public void testArithmetic() {
+		Random r = new Random(5);
+		Matrix a = MatrixMultiplyTest.random(50, 300, r);
+		Matrix b = MatrixMultiplyTest.random(300, 40, r);
+		FloatMatrix fa = a.toFloatMatrix(), fb = b.toFloatMatrix();
+		assertClose(a.multiply(b), fa.multiply(fb), 1e-4);
+		assertClose(a.t(), fa.t(), 1e-7);
+		assertClose(a.rowMean(), fa.rowMean(), 1e-6);
+		assertClose(a.colMean(), fa.colMean(), 1e-6);
+		assertClose(a.covarianceOfRows(Matrix.COVARIANCE_NORMAL, null, true),
+				fa.covarianceOfRows(Matrix.COVARIANCE_NORMAL, null, true), 1e-5);
+		assertClose(a.covarianceOfRows(Matrix.COVARIANCE_INVERTED, null, true),
+				fa.covarianceOfRows(Matrix.COVARIANCE_INVERTED, null, true), 1e-4);
+		FloatMatrix v = fa.at(new Range(10, 20), new Range(0, 5));
+		v.plus(1.);
+		assertEquals(a.at(10, 0) + 1., fa.at(10, 0), 1e-6);
+	}
+
+	@Test
+	public void testViews() {
+		// t() and at(Range, Range) are views with the aliasing rules of Matrix
+		Random r = new Random(11);
+		Matrix a = MatrixMultiplyTest.random(7, 5, r);
+		FloatMatrix f = a.toFloatMatrix(), t = f.t();
+		assertTrue(t.isTransposed());
+		assertTrue(f.data() == t.data());
+		t.set(4, 6, 2.);
+		assertEquals(2., f.at(6, 4), 0.);
+		a.set(6, 4, 2.);
+		Matrix sub = a.t().at(new Range(1, 4), new Range(2, 6));
+		FloatMatrix fsub = t.at(new Range(1, 4), new Range(2, 6));
+		assertClose(sub, fsub, 1e-7);
+		assertClose(sub, fsub.compact(), 1e-7);
+		assertClose(sub, FloatMatrix.valueOf(sub), 1e-7);
+		Matrix b = MatrixMultiplyTest.random(7, 3, r);
+		assertClose(a.t().multiply(b), t.multiply(b.toFloatMatrix()), 1e-5);
+		assertClose(a.t().rowMean(), t.rowMean(), 1e-6);
+		assertClose(a.t().covarianceOfRows(Matrix.COVARIANCE_NORMAL, null, true),
+				t.covarianceOfRows(Matrix.COVARIANCE_NORMAL, null, true), 1e-5);
+		// a square matrix plus its own transpose
+		Matrix s = MatrixMultiplyTest.random(6, 6, r);
+		FloatMatrix fs = s.toFloatMatrix();
+		fs.plus(fs.t());
+		assertClose(s.plus(s.t(), true), fs, 1e-6);
+		fs.t().copyTo(fs);
+		assertClose(s.plus(s.t(), true), fs, 1e-6);
+	}
+
+	@Test
+	public void testNonFinite() {
+		// 0*NaN and 0*Inf are NaN, as in Matrix.multiply
+		Matrix a = new Matrix(2, 2, new double[] { 0., 1., 2., 0. });
+		Matrix b = new Matrix(2, 2, new double[] { Double.NaN, 1., Double.POSITIVE_INFINITY, 2. });
+		Matrix expected = a.multiply(b);
+		FloatMatrix f = a.toFloatMatrix().multiply(b.toFloatMatrix());
+		for (int i = 0; i < 2; i++)
+			for (int j = 0; j < 2; j++)
+				assertEquals(expected.at(i, j), f.at(i, j), 0.);
+		assertTrue(Double.isNaN(f.at(0, 0)) && Double.isNaN(f.at(1, 0)));
+		// the extrema ignore NaN, as in Matrix
+		Matrix n = new Matrix(2, 2, new double[] { Double.NaN, 1., Double.NaN, Double.NaN });
+		FloatMatrix fn = n.toFloatMatrix();
+		assertClose(n.rowMax(), fn.rowMax(), 0.);
+		assertClose(n.rowMin(), fn.rowMin(), 0.);
+		assertClose(n.colMax(), fn.colMax(), 0.);
+		assertClose(n.colMin(), fn.colMin(), 0.);
+	}
+
+	@Test
+	public void testSquaredDistance() {
+		Random r = new Random(7);
+		Matrix a = MatrixMultiplyTest.random(8, 9, r);
+		FloatMatrix f = a.toFloatMatrix(), view = f.at(new Range(2, 6), new Range(1, 9));
+		assertEquals(a.row(1).squaredDistance(a.row(5)), f.squaredDistance(1, f, 5), 1e-5);
+		Matrix b = a.at(new Range(2, 6), new Range(1, 9));
+		assertEquals(b.row(0).squaredDistance(b.row(3)), view.squaredDistance(0, view, 3), 1e-5);
+		assertEquals(0., view.squaredDistance(2, view, 2), 0.);
+	}
+
+}
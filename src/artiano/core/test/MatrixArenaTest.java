@@ -0,0 +1,149 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.MatrixArena;
+import artiano.linalg.decomposition.GaussJordan;
+import artiano.linalg.decomposition.LUDecomposition;
+import artiano.linalg.decomposition.QRDecomposition;
+import artiano.linalg.decomposition.SingularValueDecomposition;
+
+public class MatrixArenaTest {
+
+	private static Matrix wellConditioned(int n, Random r) {
+		Matrix a = MatrixMultiplyTest.random(n, n, r);
+		for (int i = 0; i < n; i++)
+			a.plus(i, i, n);
+		return a;
+	}
+
+	private static void assertClose(Matrix expected, Matrix actual) {
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.columns(), actual.columns());
+		for (int i = 0; i < expected.rows(); i++)
+			for (int j = 0; j < expected.columns(); j++)
+				assertEquals(expected.at(i, j), actual.at(i, j), 1e-12);
+	}
+
+	@Test
+	public void testDecompositionsInsideArena() {
+		Random r = new Random(13);
+		Matrix a = wellConditioned(12, r), b = MatrixMultiplyTest.random(12, 3, r);
+		Matrix lu = new LUDecomposition(a, true).solve(b, true);
+		Matrix qr = new QRDecomposition(a, true).solve(b, true);
+		Matrix svd = new SingularValueDecomposition(a, true, true).solve(b);
+		Matrix gj = new GaussJordan(a, b, true).getSolution();
+		for (int round = 0; round < 3; round++) {
+			try (MatrixArena arena = MatrixArena.open()) {
+				assertSame(arena, MatrixArena.current());
+				assertClose(lu, new LUDecomposition(a, true).solve(b, true));
+				assertClose(qr, new QRDecomposition(a, true).solve(b, true));
+				assertClose(svd, new SingularValueDecomposition(a, true, true).solve(b));
+				assertClose(gj, new GaussJordan(a, b, true).getSolution().clone());
+			}
+		}
+	}
+
+	@Test
+	public void testReuse() {
+		Random r = new Random(17);
+		Matrix a = wellConditioned(9, r);
+		MatrixArena arena = MatrixArena.open();
+		try {
+			new LUDecomposition(a, true);
+		} finally {
+			arena.close();
+		}
+		long fresh = MatrixArena.freshAllocations(), pooled = MatrixArena.pooledAllocations();
+		arena = MatrixArena.open();
+		try {
+			new LUDecomposition(a, true);
+		} finally {
+			arena.close();
+		}
+		// the copy of a, the pivot indices and the scale factors all come from the pool
+		assertEquals(fresh, MatrixArena.freshAllocations());
+		assertEquals(pooled + 3, MatrixArena.pooledAllocations());
+	}
+
+	@Test
+	public void testZeroed() {
+		try (MatrixArena arena = MatrixArena.open()) {
+			arena.doubles(5)[2] = 1.;
+			arena.ints(5)[3] = 1;
+		}
+		try (MatrixArena arena = MatrixArena.open()) {
+			for (double v : arena.doubles(5))
+				assertEquals(0., v, 0.);
+			for (int v : arena.ints(5))
+				assertEquals(0, v);
+			Matrix m = arena.matrix(1, 5);
+			for (int j = 0; j < 5; j++)
+				assertEquals(0., m.at(0, j), 0.);
+		}
+	}
+
+	@Test
+	public void testNesting() {
+		assertNull(MatrixArena.current());
+		MatrixArena outer = MatrixArena.open();
+		MatrixArena inner = MatrixArena.open();
+		assertSame(inner, MatrixArena.current());
+		try {
+			outer.close();
+			assertTrue(false);
+		} catch (IllegalStateException e) {
+		}
+		inner.close();
+		assertSame(outer, MatrixArena.current());
+		outer.close();
+		assertNull(MatrixArena.current());
+		outer.close();
+	}
+
+	@Test
+	public void testSuspend() {
+		assertNull(MatrixArena.suspend());
+		MatrixArena.resume(null);
+		try (MatrixArena arena = MatrixArena.open()) {
+			MatrixArena suspended = MatrixArena.suspend();
+			assertSame(arena, suspended);
+			assertNull(MatrixArena.current());
+			MatrixArena.resetStatistics();
+			MatrixArena.allocateDoubles(8);
+			// outside any scope, not counted
+			assertEquals(0, MatrixArena.freshAllocations());
+			assertEquals(0, MatrixArena.pooledAllocations());
+			MatrixArena.resume(suspended);
+			assertSame(arena, MatrixArena.current());
+		}
+		assertNull(MatrixArena.current());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() {
+		MatrixArena arena = MatrixArena.open();
+		arena.close();
+		arena.doubles(4);
+	}
+
+	@Test
+	public void testCopy() {
+		Random r = new Random(19);
+		Matrix a = MatrixMultiplyTest.random(4, 6, r);
+		try (MatrixArena arena = MatrixArena.open()) {
+			Matrix t = arena.copy(a.t());
+			assertNotSame(a.data(), t.data());
+			assertClose(a.t(), t);
+		}
+	}
+}
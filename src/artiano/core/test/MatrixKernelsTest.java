@@ -0,0 +1,90 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+
+public class MatrixKernelsTest {
+
+	static final double EPS = 1e-12;
+
+	@Test
+	public void testElementWise() {
+		Random r = new Random(23);
+		Matrix x = MatrixMultiplyTest.random(13, 21, r);
+		Matrix y = MatrixMultiplyTest.random(13, 21, r);
+		Matrix[] views = {x, x.at(new Range(2, 11), new Range(3, 17))};
+		Matrix[] others = {y, y.at(new Range(1, 10), new Range(5, 19))};
+		for (int v = 0; v < views.length; v++){
+			Matrix a = views[v], b = others[v];
+			Matrix sum = a.plus(b, true), dif = a.minus(b, true), abs = a.abs(true);
+			Matrix scaled = a.multiply(3., true), divided = a.divide(4., true), shifted = a.minus(.25, true);
+			Matrix root = abs.sqrt(true);
+			for (int i = 0; i < a.rows(); i++)
+				for (int j = 0; j < a.columns(); j++){
+					assertEquals(a.at(i, j) + b.at(i, j), sum.at(i, j), 0);
+					assertEquals(a.at(i, j) - b.at(i, j), dif.at(i, j), 0);
+					assertEquals(Math.abs(a.at(i, j)), abs.at(i, j), 0);
+					assertEquals(a.at(i, j) * 3., scaled.at(i, j), 0);
+					assertEquals(a.at(i, j) / 4., divided.at(i, j), 0);
+					assertEquals(a.at(i, j) - .25, shifted.at(i, j), 0);
+					assertEquals(Math.sqrt(Math.abs(a.at(i, j))), root.at(i, j), 0);
+				}
+		}
+		//in place on a view leaves the rest untouched
+		double outside = x.at(0, 0);
+		views[1].fill(7.);
+		assertEquals(outside, x.at(0, 0), 0);
+		assertEquals(7., x.at(2, 3), 0);
+	}
+
+	@Test
+	public void testReductions() {
+		Random r = new Random(29);
+		Matrix x = MatrixMultiplyTest.random(9, 14, r).plus(-10.);
+		Matrix v = x.at(new Range(1, 8), new Range(2, 13));
+		Matrix rowMax = v.rowMax(), rowMin = v.rowMin(), colMax = v.colMax(), colMin = v.colMin();
+		Matrix rowMean = v.rowMean(), colMean = v.colMean();
+		double diff = 0., sq = 0.;
+		for (int i = 0; i < v.rows(); i++){
+			double max = Double.NEGATIVE_INFINITY, min = Double.POSITIVE_INFINITY, sum = 0.;
+			for (int j = 0; j < v.columns(); j++){
+				max = Math.max(max, v.at(i, j));
+				min = Math.min(min, v.at(i, j));
+				sum += v.at(i, j);
+				diff += Math.abs(v.at(i, j) - x.at(i, j));
+				sq += (v.at(i, j) - x.at(i, j)) * (v.at(i, j) - x.at(i, j));
+			}
+			assertEquals(max, rowMax.at(i), 0);
+			assertEquals(min, rowMin.at(i), 0);
+			assertEquals(sum / v.columns(), colMean.at(i), EPS);
+		}
+		for (int j = 0; j < v.columns(); j++){
+			double max = Double.NEGATIVE_INFINITY, min = Double.POSITIVE_INFINITY, sum = 0.;
+			for (int i = 0; i < v.rows(); i++){
+				max = Math.max(max, v.at(i, j));
+				min = Math.min(min, v.at(i, j));
+				sum += v.at(i, j);
+			}
+			assertEquals(max, colMax.at(j), 0);
+			assertEquals(min, colMin.at(j), 0);
+			assertEquals(sum / v.rows(), rowMean.at(j), EPS);
+		}
+		Matrix other = x.at(new Range(0, 7), new Range(0, 11));
+		assertEquals(diff, v.difference(other), EPS);
+		assertEquals(sq, v.squaredDistance(other), EPS);
+		Matrix square = x.at(new Range(0, 9), new Range(5, 14));
+		double trace = 0.;
+		for (int i = 0; i < 9; i++)
+			trace += square.at(i, i);
+		assertEquals(trace, square.trace(), 0);
+		assertTrue(Matrix.kernels().length() > 0);
+	}
+
+}
@@ -0,0 +1,105 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.linalg.basic.Normalization;
+
+public class MatrixLayoutTest {
+
+	private static void assertClose(Matrix expected, Matrix actual, double eps) {
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.columns(), actual.columns());
+		for (int i = 0; i < expected.rows(); i++)
+			for (int j = 0; j < expected.columns(); j++)
+				assertEquals(expected.at(i, j), actual.at(i, j), eps);
+	}
+
+	@Test
+	public void testColumnMajorStorage() {
+		Matrix x = new Matrix(3, 4, Matrix.COLUMN_MAJOR);
+		assertTrue(x.isColumnMajor());
+		assertFalse(x.isContinuous());
+		x.set(2, 1, 5.);
+		assertEquals(5., x.data()[2 + 1 * 3], 0.);
+		x.fill(1.);
+		for (double v : x.data())
+			assertEquals(1., v, 0.);
+		assertTrue(new Matrix(3, 4).t().isColumnMajor());
+		assertTrue(new Matrix(1, 4, Matrix.COLUMN_MAJOR).isContinuous());
+	}
+
+	@Test
+	public void testConversion() {
+		Random r = new Random(23);
+		Matrix a = MatrixMultiplyTest.random(71, 45, r);
+		Matrix c = a.toColumnMajor();
+		assertTrue(c.isColumnMajor());
+		assertClose(a, c, 0.);
+		assertSame(c, c.toColumnMajor());
+		Matrix back = c.toRowMajor();
+		assertTrue(back.isContinuous());
+		assertClose(a, back, 0.);
+		assertSame(a, a.toRowMajor());
+		Matrix sub = a.at(new Range(3, 40), new Range(5, 30));
+		assertClose(sub, sub.toColumnMajor(), 0.);
+		assertClose(sub, sub.toColumnMajor().toRowMajor(), 0.);
+	}
+
+	@Test
+	public void testReductions() {
+		Random r = new Random(29);
+		Matrix a = MatrixMultiplyTest.random(37, 11, r);
+		Matrix c = a.toColumnMajor();
+		assertClose(a.rowMax(), c.rowMax(), 0.);
+		assertClose(a.rowMin(), c.rowMin(), 0.);
+		assertClose(a.colMax(), c.colMax(), 0.);
+		assertClose(a.colMin(), c.colMin(), 0.);
+		assertClose(a.rowMean(), c.rowMean(), 1e-12);
+		assertClose(a.colMean(), c.colMean(), 1e-12);
+		assertClose(a.getSingerCol(4), c.getSingerCol(4), 0.);
+		assertClose(a.covarianceOfRows(Matrix.COVARIANCE_NORMAL, a.rowMean(), false),
+				c.covarianceOfRows(Matrix.COVARIANCE_NORMAL, c.rowMean(), false), 1e-10);
+	}
+
+	@Test
+	public void testArithmetic() {
+		Random r = new Random(31);
+		Matrix a = MatrixMultiplyTest.random(19, 13, r), b = MatrixMultiplyTest.random(19, 13, r);
+		Matrix ca = a.toColumnMajor(), cb = b.toColumnMajor();
+		assertClose(a.plus(b, true), ca.plus(cb, true), 0.);
+		assertClose(a.minus(b, true), ca.minus(b, true), 0.);
+		assertClose(a.minus(b, true), a.minus(cb, true), 0.);
+		assertClose(a.multiply(3., true), ca.multiply(3., true), 0.);
+		assertClose(a.abs(true), ca.abs(true), 0.);
+		Matrix m = MatrixMultiplyTest.random(13, 7, r);
+		assertClose(a.multiply(m), ca.multiply(m.toColumnMajor()), 1e-12);
+		Matrix copy = new Matrix(19, 13, Matrix.COLUMN_MAJOR);
+		a.copyTo(copy);
+		assertClose(a, copy, 0.);
+		assertTrue(a.equals(copy));
+		assertClose(a, ca.clone(), 0.);
+	}
+
+	@Test
+	public void testNormalization() {
+		Random r = new Random(37);
+		Matrix a = MatrixMultiplyTest.random(25, 6, r);
+		a.column(2).fill(4.);
+		Normalization norm = new Normalization();
+		Matrix n1 = norm.colNorm0_1(a), n2 = norm.colNorm0_1(a.toColumnMajor());
+		assertTrue(n2.isColumnMajor());
+		assertClose(n1, n2, 0.);
+		assertClose(norm.colNormNeg1_1(a), norm.colNormNeg1_1(a.toColumnMajor()), 0.);
+		for (int i = 0; i < a.rows(); i++)
+			assertEquals(1., n1.at(i, 2), 0.);
+	}
+}
@@ -0,0 +1,126 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+
+public class MatrixMultiplyTest {
+
+	static final double EPS = 1e-9;
+
+	static Matrix random(int rows, int cols, Random r){
+		Matrix x = new Matrix(rows, cols);
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				x.set(i, j, r.nextDouble() - 0.5);
+		return x;
+	}
+
+	static void assertClose(Matrix expected, Matrix actual){
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.columns(), actual.columns());
+		for (int i = 0; i < expected.rows(); i++)
+			for (int j = 0; j < expected.columns(); j++)
+				assertEquals(expected.at(i, j), actual.at(i, j), EPS);
+	}
+
+	@Test
+	public void testNonFinite() {
+		// 0*NaN and 0*Inf are NaN on the small path too
+		Matrix a = new Matrix(2, 2, new double[]{0., 1., 1., 0.});
+		Matrix b = new Matrix(2, 2, new double[]{Double.NaN, 1., 2., Double.POSITIVE_INFINITY});
+		Matrix c = a.multiply(b);
+		assertEquals(Double.NaN, c.at(0, 0), 0.);
+		assertEquals(Double.POSITIVE_INFINITY, c.at(0, 1), 0.);
+		assertEquals(Double.NaN, c.at(1, 0), 0.);
+		assertEquals(Double.NaN, c.at(1, 1), 0.);
+	}
+
+	@Test
+	public void testMultiply() {
+		Random r = new Random(7);
+		int[][] sizes = {{1, 1, 1}, {3, 5, 2}, {17, 33, 9}, {70, 65, 300}, {130, 1030, 5}};
+		for (int[] s: sizes){
+			Matrix a = random(s[0], s[2], r);
+			Matrix b = random(s[2], s[1], r);
+			assertClose(MultiplyBenchmark.naive(a, b), a.multiply(b));
+		}
+	}
+
+	@Test
+	public void testMultiplyViews() {
+		Random r = new Random(11);
+		Matrix a = random(90, 80, r);
+		Matrix b = random(100, 120, r);
+		Matrix va = a.at(new Range(3, 71), new Range(5, 75));
+		Matrix vb = b.at(new Range(10, 80), new Range(7, 113));
+		assertClose(MultiplyBenchmark.naive(va, vb), va.multiply(vb));
+		assertClose(MultiplyBenchmark.naive(a.row(4), b.at(new Range(0, 80), Range.all())),
+				a.row(4).multiply(b.at(new Range(0, 80), Range.all())));
+	}
+
+	@Test
+	public void testMultiplyTranspose() {
+		Random r = new Random(13);
+		Matrix a = random(150, 40, r);
+		assertClose(MultiplyBenchmark.naive(a, a.t()), a.multiplyTranspose(Matrix.MULTIPLY_RIGHT_TRANSPOSE));
+		assertClose(MultiplyBenchmark.naive(a.t(), a), a.multiplyTranspose(Matrix.MULTIPLY_LEFT_TRANSPOSE));
+	}
+
+	@Test
+	public void testGemm() {
+		Random r = new Random(19);
+		Matrix a = random(40, 70, r);
+		Matrix b = random(90, 70, r);
+		Matrix c = random(60, 100, r);
+		Matrix out = c.at(new Range(5, 45), new Range(3, 93));
+		Matrix expected = MultiplyBenchmark.naive(a, b.t()).multiply(2.).plus(out.multiply(-0.5, true));
+		Matrix.gemm(2., a, false, b, true, -0.5, out);
+		assertClose(expected, out);
+		assertEquals(c.at(0, 0), c.at(0, 0), 0.);
+		Matrix d = new Matrix(70, 90);
+		Matrix.gemm(1., a, true, a.at(Range.all(), new Range(0, 40)).t(), true, 0., d.at(Range.all(), new Range(0, 40)));
+		assertClose(MultiplyBenchmark.naive(a.t(), a.at(Range.all(), new Range(0, 40))), d.at(Range.all(), new Range(0, 40)));
+		Matrix x = random(4, 5, r), y = random(4, 5, r);
+		Matrix z = x.minus(y, true);
+		Matrix.geam(1., x, -1., y, x);
+		assertClose(z, x);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGemmOverlap() {
+		Matrix a = new Matrix(10, 10);
+		Matrix.gemm(1., a.at(new Range(0, 5), Range.all()), false, a, false, 0., a.at(new Range(4, 9), Range.all()));
+	}
+
+	@Test
+	public void testParallelBitIdentical() {
+		Random r = new Random(17);
+		Matrix a = random(300, 520, r);
+		Matrix b = random(520, 410, r);
+		Matrix serial = a.multiply(b);
+		Matrix serialT = a.multiplyTranspose(Matrix.MULTIPLY_LEFT_TRANSPOSE);
+		long threshold = Matrix.getParallelThreshold();
+		Matrix.setParallelism(4);
+		Matrix.setParallelThreshold(0);
+		try {
+			Matrix parallel = a.multiply(b);
+			Matrix parallelT = a.multiplyTranspose(Matrix.MULTIPLY_LEFT_TRANSPOSE);
+			for (int i = 0; i < serial.rows(); i++)
+				for (int j = 0; j < serial.columns(); j++)
+					assertEquals(Double.doubleToLongBits(serial.at(i, j)), Double.doubleToLongBits(parallel.at(i, j)));
+			for (int i = 0; i < serialT.rows(); i++)
+				for (int j = 0; j < serialT.columns(); j++)
+					assertEquals(Double.doubleToLongBits(serialT.at(i, j)), Double.doubleToLongBits(parallelT.at(i, j)));
+		} finally {
+			Matrix.setParallelism(1);
+			Matrix.setParallelThreshold(threshold);
+		}
+	}
+
+}
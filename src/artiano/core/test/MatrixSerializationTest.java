@@ -0,0 +1,90 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.operation.Preservable;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.statistics.reducer.PrincipleComponentAnalysis;
+
+public class MatrixSerializationTest {
+
+	/** x.t().at(1..3, 0..2) of a 3*4 matrix holding 1..12, written by the default field serialization */
+	private static final String DEFAULT_FORM = "rO0ABXNyAB1hcnRpYW5vLmNvcmUuc3RydWN0dXJlLk1hdHJpeAAAAAAAAAABAgAGSQAJY29sU3RyaWRlSQAEY29sc0kABWRDb2xzSQAG"
+			+ "b2Zmc2V0SQAEcm93c1sAAWR0AAJbRHhwAAAABAAAAAIAAAABAAAAAQAAAAJ1cgACW0Q+powUq2NaHgIAAHhwAAAADD/wAAAAAAAAQAAAAAAA"
+			+ "AABACAAAAAAAAEAQAAAAAAAAQBQAAAAAAABAGAAAAAAAAEAcAAAAAAAAQCAAAAAAAABAIgAAAAAAAEAkAAAAAAAAQCYAAAAAAABAKAAAAAAAAA==";
+
+	private static byte[] serialize(Object x) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(x);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static Matrix deserialize(byte[] bytes) throws Exception {
+		return (Matrix) new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+	}
+
+	private static void assertSame(Matrix expected, Matrix actual) {
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.columns(), actual.columns());
+		for (int i = 0; i < expected.rows(); i++)
+			for (int j = 0; j < expected.columns(); j++)
+				assertEquals(expected.at(i, j), actual.at(i, j), 0.);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Random r = new Random(83);
+		Matrix a = MatrixMultiplyTest.random(300, 7, r);
+		Matrix[] forms = { a, a.t(), a.toColumnMajor(), a.at(new Range(10, 20), new Range(2, 5)),
+				a.stride(3, 2), new Matrix(1, 1, new double[] { Double.NaN }) };
+		for (Matrix x : forms) {
+			Matrix back = deserialize(serialize(x));
+			assertTrue(back.isContinuous());
+			assertSame(x, back);
+		}
+	}
+
+	@Test
+	public void testViewWritesVisibleRegionOnly() throws Exception {
+		Matrix a = MatrixMultiplyTest.random(1000, 100, new Random(89));
+		int whole = serialize(a).length, view = serialize(a.at(new Range(0, 10), Range.all())).length;
+		assertTrue(whole > 8 * 100000 && whole < 8 * 100000 * 1.01);
+		assertTrue(view < 8 * 1000 * 1.1);
+	}
+
+	@Test
+	public void testDefaultForm() throws Exception {
+		Matrix back = deserialize(Base64.getDecoder().decode(DEFAULT_FORM));
+		assertSame(new Matrix(2, 2, new double[] { 2, 6, 3, 7 }), back);
+	}
+
+	@Test
+	public void testPreservableStream() throws Exception {
+		Matrix x = MatrixMultiplyTest.random(200, 6, new Random(97));
+		PrincipleComponentAnalysis pca = new PrincipleComponentAnalysis();
+		pca.train(x.clone());
+		File file = File.createTempFile("pca", ".model");
+		try {
+			assertTrue(pca.save(file.getPath()));
+			PrincipleComponentAnalysis back = (PrincipleComponentAnalysis) Preservable.load(file.getPath());
+			assertSame(pca.getEigenValue(), back.getEigenValue());
+			assertSame(pca.reduce(x.row(5).clone()), back.reduce(x.row(5).clone()));
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.MatrixStatistics;
+import artiano.core.structure.OffHeapMatrix;
+import artiano.core.structure.Range;
+
+public class MatrixStatisticsTest {
+
+	/** reference statistics of column j by plain two-pass loops */
+	private static double[] reference(Matrix x, int j) {
+		double sum = 0., min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, l1 = 0., sq = 0.;
+		for (int i = 0; i < x.rows(); i++) {
+			double v = x.at(i, j);
+			sum += v;
+			min = Math.min(min, v);
+			max = Math.max(max, v);
+			l1 += Math.abs(v);
+			sq += v * v;
+		}
+		double mean = sum / x.rows(), m2 = 0.;
+		for (int i = 0; i < x.rows(); i++)
+			m2 += (x.at(i, j) - mean) * (x.at(i, j) - mean);
+		return new double[] { sum, mean, min, max, m2 / x.rows(), l1, Math.sqrt(sq) };
+	}
+
+	private static void assertStatistics(Matrix x, MatrixStatistics s, double eps) {
+		assertEquals(x.rows(), s.count());
+		assertEquals(x.columns(), s.size());
+		for (int j = 0; j < x.columns(); j++) {
+			double[] r = reference(x, j);
+			assertEquals(r[0], s.sum().at(j), eps * Math.abs(r[5]));
+			assertEquals(r[1], s.mean().at(j), eps * Math.abs(r[5]) / x.rows());
+			assertEquals(r[2], s.min().at(j), 0.);
+			assertEquals(r[3], s.max().at(j), 0.);
+			assertEquals(r[4], s.variance().at(j), eps * Math.abs(r[4]) + 1e-300);
+			assertEquals(r[5], s.l1Norm().at(j), eps * r[5]);
+			assertEquals(r[6], s.l2Norm().at(j), eps * r[6]);
+		}
+	}
+
+	@Test
+	public void testColumnsAndRows() {
+		Random r = new Random(43);
+		Matrix a = MatrixMultiplyTest.random(3000, 7, r).minus(2.);
+		assertStatistics(a, MatrixStatistics.ofColumns(a), 1e-12);
+		assertStatistics(a.t(), MatrixStatistics.ofRows(a), 1e-12);
+		assertStatistics(a.toColumnMajor(), MatrixStatistics.ofColumns(a.toColumnMajor()), 1e-12);
+		Matrix sub = a.at(new Range(100, 900), new Range(2, 6));
+		assertStatistics(sub, MatrixStatistics.ofColumns(sub), 1e-12);
+	}
+
+	@Test
+	public void testNegativeMaximum() {
+		Matrix a = new Matrix(2, 3, new double[] { -3, -1, -2, -5, -4, -6 });
+		assertArrayEquals(new double[] { -1, -4 }, a.rowMax().data(), 0.);
+		assertArrayEquals(new double[] { -3, -1, -2 }, a.colMax().data(), 0.);
+		assertArrayEquals(new double[] { -3, -6 }, a.rowMin().data(), 0.);
+		assertArrayEquals(new double[] { -5, -4, -6 }, a.colMin().data(), 0.);
+		assertArrayEquals(new double[] { -4, -2.5, -4 }, a.rowMean().data(), 0.);
+		assertArrayEquals(new double[] { -2, -5 }, a.colMean().data(), 0.);
+	}
+
+	@Test
+	public void testStableVariance() {
+		// a large offset destroys E[x^2]-E[x]^2, the merged centred sums keep it
+		int n = 200000;
+		Matrix a = new Matrix(n, 1);
+		for (int i = 0; i < n; i++)
+			a.set(i, 0, 1e9 + (i % 2 == 0 ? 1. : -1.));
+		MatrixStatistics s = MatrixStatistics.ofColumns(a, MatrixStatistics.VARIANCE);
+		assertEquals(1., s.variance().at(0), 1e-9);
+		assertEquals(1e9, s.mean().at(0), 1e-6);
+		assertEquals((double) n / (n - 1), s.sampleVariance().at(0), 1e-9);
+	}
+
+	@Test
+	public void testChunksAndWhole() {
+		Random r = new Random(47);
+		Matrix a = MatrixMultiplyTest.random(1000, 5, r);
+		MatrixStatistics chunked = new MatrixStatistics(5, MatrixStatistics.ALL);
+		for (int i = 0; i < 1000; i += 137)
+			chunked.add(a.at(new Range(i, Math.min(i + 137, 1000)), Range.all()));
+		assertStatistics(a, chunked, 1e-12);
+
+		MatrixStatistics whole = MatrixStatistics.of(a, MatrixStatistics.ALL);
+		Matrix flat = new Matrix(5000, 1, a.clone().data());
+		assertStatistics(flat, whole, 1e-12);
+	}
+
+	@Test
+	public void testParallelIsBitIdentical() {
+		Random r = new Random(53);
+		Matrix a = MatrixMultiplyTest.random(20000, 9, r);
+		MatrixStatistics serial = MatrixStatistics.ofColumns(a);
+		int level = Matrix.getParallelism();
+		long threshold = Matrix.getParallelThreshold();
+		try {
+			Matrix.setParallelism(4);
+			Matrix.setParallelThreshold(0);
+			MatrixStatistics parallel = MatrixStatistics.ofColumns(a);
+			assertArrayEquals(serial.sum().data(), parallel.sum().data(), 0.);
+			assertArrayEquals(serial.variance().data(), parallel.variance().data(), 0.);
+			assertArrayEquals(serial.max().data(), parallel.max().data(), 0.);
+			assertArrayEquals(serial.l2Norm().data(), parallel.l2Norm().data(), 0.);
+		} finally {
+			Matrix.setParallelism(level);
+			Matrix.setParallelThreshold(threshold);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNotComputed() {
+		MatrixStatistics.ofColumns(new Matrix(3, 3), MatrixStatistics.MIN).max();
+	}
+
+	@Test
+	public void testTraceAndNorm() {
+		Matrix a = new Matrix(3, 3);
+		a.set(0, 0, 1e16);
+		a.set(1, 1, 1.);
+		a.set(2, 2, -1e16);
+		assertEquals(1., a.trace(), 0.);
+
+		Matrix x = new Matrix(1, 2, new double[] { 3e200, 4e200 });
+		assertEquals(5e200, x.l2Norm(new Matrix(1, 2)), 1e186);
+		Matrix y = new Matrix(1, 2, new double[] { 3., 4. });
+		assertEquals(5., y.l2Norm(new Matrix(1, 2)), 0.);
+	}
+
+	@Test
+	public void testOffHeap() {
+		Random r = new Random(59);
+		Matrix a = MatrixMultiplyTest.random(2500, 4, r);
+		try (OffHeapMatrix y = OffHeapMatrix.valueOf(a)) {
+			assertStatistics(a, y.statistics(MatrixStatistics.ALL), 1e-12);
+			assertArrayEquals(a.rowMean().data(), y.rowMean().data(), 1e-15);
+		}
+	}
+}
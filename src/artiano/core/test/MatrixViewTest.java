@@ -0,0 +1,132 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+
+public class MatrixViewTest {
+
+	/** copy of x made through at(i, j) only */
+	private static Matrix copy(Matrix x) {
+		Matrix y = new Matrix(x.rows(), x.columns());
+		for (int i = 0; i < x.rows(); i++)
+			for (int j = 0; j < x.columns(); j++)
+				y.set(i, j, x.at(i, j));
+		return y;
+	}
+
+	@Test
+	public void testTransposeIsView() {
+		Random r = new Random(41);
+		Matrix a = MatrixMultiplyTest.random(7, 5, r);
+		Matrix t = a.t();
+		assertTrue(t.isTransposed());
+		assertFalse(t.isContinuous());
+		assertSame(a.data(), t.data());
+		for (int i = 0; i < 7; i++)
+			for (int j = 0; j < 5; j++)
+				assertEquals(a.at(i, j), t.at(j, i), 0.);
+		t.set(2, 3, 100.);
+		assertEquals(100., a.at(3, 2), 0.);
+		assertSame(a.data(), t.t().compact().data());
+		//compact copies a transposed view
+		Matrix c = t.compact();
+		assertTrue(c.isContinuous());
+		assertEquals(35, c.data().length);
+		MatrixMultiplyTest.assertClose(copy(t), c);
+	}
+
+	@Test
+	public void testKernelsOnViews() {
+		Random r = new Random(43);
+		Matrix a = MatrixMultiplyTest.random(9, 6, r);
+		Matrix b = MatrixMultiplyTest.random(6, 9, r);
+		Matrix t = a.t(), e = copy(t);
+		MatrixMultiplyTest.assertClose(copy(e).plus(b), t.plus(b, true));
+		MatrixMultiplyTest.assertClose(copy(b).minus(e), b.minus(t, true));
+		MatrixMultiplyTest.assertClose(copy(e).multiply(3.), t.multiply(3., true));
+		MatrixMultiplyTest.assertClose(copy(e).abs().sqrt(), t.abs(true).sqrt());
+		MatrixMultiplyTest.assertClose(e.rowMean(), t.rowMean());
+		MatrixMultiplyTest.assertClose(e.colMean(), t.colMean());
+		MatrixMultiplyTest.assertClose(e.colMin(), t.colMin());
+		MatrixMultiplyTest.assertClose(e.rowMin(), t.rowMin());
+		assertEquals(e.squaredDistance(b), t.squaredDistance(b), 1e-9);
+		assertEquals(e.difference(b), t.difference(b), 1e-9);
+		assertEquals(e.at(new Range(0, 6), new Range(0, 6)).trace(),
+				t.at(new Range(0, 6), new Range(0, 6)).trace(), 0.);
+		//in place on a view writes through to the parent
+		Matrix before = copy(a);
+		t.plus(1.);
+		MatrixMultiplyTest.assertClose(before.plus(1.), a);
+		//overlapping operand with a different layout
+		Matrix s = MatrixMultiplyTest.random(8, 8, r);
+		Matrix expected = copy(s).plus(copy(s.t()));
+		s.plus(s.t());
+		MatrixMultiplyTest.assertClose(expected, s);
+	}
+
+	@Test
+	public void testStride() {
+		Random r = new Random(47);
+		Matrix a = MatrixMultiplyTest.random(10, 7, r);
+		Matrix s = a.stride(3, 2);
+		assertEquals(4, s.rows());
+		assertEquals(4, s.columns());
+		for (int i = 0; i < 4; i++)
+			for (int j = 0; j < 4; j++)
+				assertEquals(a.at(3 * i, 2 * j), s.at(i, j), 0.);
+		//views of views
+		Matrix v = a.at(new Range(1, 9), new Range(1, 7)).stride(2, 1).t().at(new Range(1, 4), Range.all());
+		for (int i = 0; i < v.rows(); i++)
+			for (int j = 0; j < v.columns(); j++)
+				assertEquals(a.at(1 + 2 * j, 2 + i), v.at(i, j), 0.);
+		MatrixMultiplyTest.assertClose(copy(a.stride(2, 1)).rowMean(), a.stride(2, 1).rowMean());
+		s.fill(-1.);
+		assertEquals(-1., a.at(9, 6), 0.);
+		assertEquals(-1., a.at(3, 4), 0.);
+		assertTrue(a.at(4, 4) != -1.);
+	}
+
+	@Test
+	public void testMultiplyStrided() {
+		Random r = new Random(53);
+		Matrix a = MatrixMultiplyTest.random(30, 20, r);
+		Matrix b = MatrixMultiplyTest.random(30, 25, r);
+		MatrixMultiplyTest.assertClose(MultiplyBenchmark.naive(copy(a.t()), b), a.t().multiply(b));
+		MatrixMultiplyTest.assertClose(MultiplyBenchmark.naive(copy(a.t().stride(1, 2)), copy(b.stride(2, 1))),
+				a.t().stride(1, 2).multiply(b.stride(2, 1)));
+		MatrixMultiplyTest.assertClose(MultiplyBenchmark.naive(copy(a.t()), a),
+				a.t().multiplyTranspose(Matrix.MULTIPLY_RIGHT_TRANSPOSE));
+		//gemm into a transposed output
+		Matrix c = new Matrix(25, 20);
+		Matrix.gemm(1., a, true, b, false, 0., c.t());
+		MatrixMultiplyTest.assertClose(MultiplyBenchmark.naive(copy(a.t()), b), copy(c.t()));
+		//lazy expressions over views
+		MatrixMultiplyTest.assertClose(copy(a.t()).minus(copy(b.t().at(new Range(0, 20), Range.all())), true),
+				a.t().lazy().minus(b.t().at(new Range(0, 20), Range.all())).eval());
+	}
+
+	@Test
+	public void testSerializeView() throws Exception {
+		Matrix a = MatrixMultiplyTest.random(6, 4, new Random(59));
+		Matrix t = a.t().at(new Range(1, 3), Range.all());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(t);
+		out.close();
+		Matrix back = (Matrix) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		MatrixMultiplyTest.assertClose(copy(t), back);
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * MultiplyBenchmark.java
+ */
+package artiano.core.test;
+
+import java.util.Random;
+
+import artiano.core.structure.Matrix;
+
+/**
+ * <p>Description: Benchmark of {@link Matrix#multiply(Matrix)}, compares the blocked kernel with the original
+ * element-wise triple loop and prints GFLOP/s for square matrices.</p>
+ * <p>Usage: <code>MultiplyBenchmark [maxSize] [maxNaiveSize] [parallelism]</code>, sizes double from 256 up
+ * to maxSize (default 4096). The naive loop is only timed up to maxNaiveSize (default 1024) because it takes
+ * minutes beyond that. With parallelism greater than 1 the blocked kernel runs in parallel mode
+ * (see {@link Matrix#setParallelism(int)}).</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class MultiplyBenchmark {
+
+	static Matrix random(int rows, int cols, Random r){
+		Matrix x = new Matrix(rows, cols);
+		double[] d = x.data();
+		for (int i = 0; i < d.length; i++)
+			d[i] = r.nextDouble() - 0.5;
+		return x;
+	}
+
+	/**
+	 * The multiplication before blocking, kept here as reference.
+	 */
+	static Matrix naive(Matrix a, Matrix b){
+		Matrix y = new Matrix(a.rows(), b.columns());
+		for (int i = 0; i < a.rows(); i++)
+			for (int j = 0; j < b.columns(); j++)
+				for (int k = 0; k < a.columns(); k++)
+					y.plus(i, j, a.at(i, k) * b.at(k, j));
+		return y;
+	}
+
+	static double gflops(int n, long nanos){
+		return 2. * n * n * (double) n / nanos;
+	}
+
+	public static void main(String[] args){
+		int maxSize = args.length > 0 ? Integer.parseInt(args[0]): 4096;
+		int maxNaive = args.length > 1 ? Integer.parseInt(args[1]): 1024;
+		Matrix.setParallelism(args.length > 2 ? Integer.parseInt(args[2]): 1);
+		Random r = new Random(1);
+		//warm up
+		Matrix w = random(128, 128, r);
+		for (int i = 0; i < 20; i++){
+			w.multiply(w);
+			naive(w, w);
+		}
+		System.out.println("size\tblocked(GFLOP/s)\tnaive(GFLOP/s)\tmax|diff|");
+		for (int n = 256; n <= maxSize; n *= 2){
+			Matrix a = random(n, n, r);
+			Matrix b = random(n, n, r);
+			long t = System.nanoTime();
+			Matrix c = a.multiply(b);
+			long blocked = System.nanoTime() - t;
+			String naive = "-", diff = "-";
+			if (n <= maxNaive){
+				t = System.nanoTime();
+				Matrix e = naive(a, b);
+				long elapsed = System.nanoTime() - t;
+				naive = String.format("%.3f", gflops(n, elapsed));
+				double max = 0.;
+				for (int i = 0; i < n; i++)
+					for (int j = 0; j < n; j++)
+						max = Math.max(max, Math.abs(c.at(i, j) - e.at(i, j)));
+				diff = String.format("%.2e", max);
+			}
+			System.out.println(n + "\t" + String.format("%.3f", gflops(n, blocked)) + "\t\t\t" + naive + "\t\t" + diff);
+		}
+		Matrix.setParallelism(1);
+	}
+}
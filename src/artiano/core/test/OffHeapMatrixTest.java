@@ -0,0 +1,106 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.OffHeapMatrix;
+import artiano.core.structure.Range;
+
+public class OffHeapMatrixTest {
+
+	static void assertClose(Matrix expected, OffHeapMatrix actual, double eps){
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.columns(), actual.columns());
+		for (int i = 0; i < expected.rows(); i++)
+			for (int j = 0; j < expected.columns(); j++)
+				assertEquals(expected.at(i, j), actual.at(i, j), eps);
+	}
+
+	@Test
+	public void testViewsAndCopy() {
+		Matrix x = MatrixMultiplyTest.random(30, 20, new Random(7));
+		try (OffHeapMatrix y = OffHeapMatrix.valueOf(x)) {
+			assertClose(x, y, 0);
+			OffHeapMatrix v = y.at(new Range(3, 10), new Range(5, 12));
+			assertClose(x.at(new Range(3, 10), new Range(5, 12)), v, 0);
+			v.set(0, 0, 42.);
+			assertEquals(42., y.at(3, 5), 0);
+			assertClose(x.at(new Range(4, 5), Range.all()), y.row(4), 0);
+			assertClose(y.toMatrix(), y, 0);
+		}
+	}
+
+	@Test
+	public void testMultiplyAndMean() {
+		Random r = new Random(11);
+		Matrix a = MatrixMultiplyTest.random(2500, 16, r);
+		Matrix b = MatrixMultiplyTest.random(16, 5, r);
+		try (OffHeapMatrix y = OffHeapMatrix.valueOf(a); OffHeapMatrix z = y.multiply(b)) {
+			MatrixMultiplyTest.assertClose(a.multiply(b), z.toMatrix());
+			MatrixMultiplyTest.assertClose(a.rowMean(), y.rowMean());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClose() {
+		OffHeapMatrix y = new OffHeapMatrix(4, 4);
+		OffHeapMatrix v = y.at(new Range(1, 3), Range.all());
+		y.close();
+		y.close();
+		assertTrue(v.isClosed());
+		v.at(0, 0);
+	}
+
+	@Test
+	public void testMappedFile() throws IOException {
+		Path file = Files.createTempFile("matrix", ".bin");
+		try {
+			Matrix x = MatrixMultiplyTest.random(40, 9000, new Random(13));
+			Matrix view = x.at(new Range(5, 25), new Range(7, 8807));
+			view.save(file);
+			MatrixMultiplyTest.assertClose(view, Matrix.load(file));
+			try (OffHeapMatrix y = Matrix.map(file, true)) {
+				assertClose(view, y, 0);
+				y.set(3, 4, 1.5);
+				y.flush();
+			}
+			try (OffHeapMatrix y = Matrix.map(file)) {
+				assertEquals(1.5, y.at(3, 4), 0);
+				try {
+					y.set(0, 0, 1.);
+					assertTrue(false);
+				} catch (ReadOnlyBufferException e) { }
+				y.save(file.resolveSibling(file.getFileName() + ".copy"));
+			}
+			Matrix copy = Matrix.load(file.resolveSibling(file.getFileName() + ".copy"));
+			assertEquals(1.5, copy.at(3, 4), 0);
+			assertEquals(view.at(19, 8799), copy.at(19, 8799), 0);
+		} finally {
+			Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".copy"));
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testSaveNarrowRows() throws IOException {
+		// rows much shorter than the write buffer, filled across rows
+		Path file = Files.createTempFile("matrix", ".bin");
+		Matrix x = MatrixMultiplyTest.random(5000, 7, new Random(17));
+		try (OffHeapMatrix y = OffHeapMatrix.valueOf(x)) {
+			y.at(new Range(3, 4990), new Range(1, 6)).save(file);
+			MatrixMultiplyTest.assertClose(x.at(new Range(3, 4990), new Range(1, 6)), Matrix.load(file));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
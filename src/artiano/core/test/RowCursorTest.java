@@ -0,0 +1,121 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.core.structure.RowCursor;
+
+public class RowCursorTest {
+
+	@Test
+	public void testIterate() {
+		Random r = new Random(3);
+		Matrix a = MatrixMultiplyTest.random(6, 4, r);
+		RowCursor c = a.cursor();
+		assertEquals(-1, c.index());
+		int rows = 0;
+		while (c.next()) {
+			assertEquals(rows, c.index());
+			assertEquals(1, c.stride());
+			assertEquals(4, c.length());
+			for (int j = 0; j < 4; j++) {
+				assertEquals(a.at(rows, j), c.get(j), 0.);
+				assertEquals(a.at(rows, j), c.array()[c.offset() + j], 0.);
+			}
+			rows++;
+		}
+		assertEquals(6, rows);
+		assertFalse(c.next());
+	}
+
+	@Test
+	public void testSetWritesThrough() {
+		Matrix a = new Matrix(3, 3);
+		RowCursor c = a.cursor().moveTo(1);
+		c.set(2, 5.);
+		assertEquals(5., a.at(1, 2), 0.);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testMoveOutOfRange() {
+		new Matrix(2, 2).cursor().moveTo(2);
+	}
+
+	@Test
+	public void testSubMatrixAndTranspose() {
+		Random r = new Random(5);
+		Matrix a = MatrixMultiplyTest.random(7, 9, r);
+		Matrix sub = a.at(new Range(2, 6), new Range(1, 8));
+		RowCursor c = sub.cursor().moveTo(3);
+		for (int j = 0; j < sub.columns(); j++)
+			assertEquals(sub.at(3, j), c.get(j), 0.);
+
+		Matrix t = a.t();
+		RowCursor ct = t.cursor().moveTo(4);
+		assertEquals(a.columns(), ct.stride());
+		double[] row = new double[t.columns()];
+		ct.copyTo(row, 0);
+		for (int j = 0; j < t.columns(); j++)
+			assertEquals(a.at(j, 4), row[j], 0.);
+		assertArrayEquals(row, ct.toMatrix().data(), 0.);
+	}
+
+	@Test
+	public void testDistanceAndEquals() {
+		Random r = new Random(7);
+		Matrix a = MatrixMultiplyTest.random(5, 6, r);
+		Matrix b = a.t().clone().t();	// same values, strided layout
+		RowCursor x = a.cursor(), y = a.cursor(), z = b.cursor();
+		for (int i = 0; i < 5; i++)
+			for (int k = 0; k < 5; k++) {
+				x.moveTo(i);
+				y.moveTo(k);
+				z.moveTo(k);
+				double expected = a.row(i).squaredDistance(a.row(k));
+				assertEquals(expected, x.squaredDistance(y), 1e-12);
+				assertEquals(expected, x.squaredDistance(z), 1e-12);
+				assertEquals(i == k, x.valueEquals(y));
+				assertEquals(i == k, x.valueEquals(z));
+			}
+	}
+
+	@Test
+	public void testViewFollowsCursor() {
+		Random r = new Random(9);
+		Matrix a = MatrixMultiplyTest.random(4, 3, r);
+		RowCursor c = a.cursor();
+		Matrix view = c.moveTo(0).view();
+		c.moveTo(2);
+		assertSame(view, c.view());
+		assertTrue(a.row(2).equals(view));
+	}
+
+	@Test
+	public void testForEachRow() {
+		Random r = new Random(11);
+		final Matrix a = MatrixMultiplyTest.random(8, 5, r);
+		final double[] sums = new double[a.rows()];
+		a.forEachRow(new RowCursor.Visitor() {
+			@Override
+			public void visit(RowCursor row) {
+				for (int j = 0; j < row.length(); j++)
+					sums[row.index()] += row.get(j);
+			}
+		});
+		for (int i = 0; i < a.rows(); i++) {
+			double s = 0.;
+			for (int j = 0; j < a.columns(); j++)
+				s += a.at(i, j);
+			assertEquals(s, sums[i], 1e-12);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.CSCMatrix;
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.NominalAttribute;
+import artiano.core.structure.NumericAttribute;
+import artiano.core.structure.Table;
+
+public class SparseMatrixTest {
+
+	static Matrix sparse(int rows, int cols, double density, Random r){
+		Matrix x = new Matrix(rows, cols);
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				if (r.nextDouble() < density)
+					x.set(i, j, r.nextDouble() - 0.5);
+		return x;
+	}
+
+	@Test
+	public void testTriplets() {
+		int[] i = {2, 0, 2, 1, 0, 2};
+		int[] j = {3, 1, 0, 2, 1, 3};
+		double[] v = {1., 2., 3., 4., 5., 6.};
+		CSRMatrix a = CSRMatrix.fromTriplets(3, 4, i, j, v);
+		assertEquals(4, a.nonZeros());
+		assertEquals(7., a.at(0, 1), 0);
+		assertEquals(7., a.at(2, 3), 0);
+		assertEquals(0., a.at(1, 1), 0);
+		MatrixMultiplyTest.assertClose(a.toMatrix(), CSCMatrix.fromTriplets(3, 4, i, j, v).toMatrix());
+	}
+
+	@Test
+	public void testKernels() {
+		Random r = new Random(17);
+		Matrix a = sparse(60, 45, 0.05, r);
+		Matrix x = MatrixMultiplyTest.random(45, 7, r);
+		CSRMatrix csr = CSRMatrix.valueOf(a);
+		CSCMatrix csc = CSCMatrix.valueOf(a);
+		MatrixMultiplyTest.assertClose(a, csr.toMatrix());
+		MatrixMultiplyTest.assertClose(a, csc.toMatrix());
+		MatrixMultiplyTest.assertClose(a.t(), csr.t().toMatrix());
+		MatrixMultiplyTest.assertClose(a.t(), csc.t().toMatrix());
+		MatrixMultiplyTest.assertClose(a, csc.toCSR().toMatrix());
+		MatrixMultiplyTest.assertClose(a.multiply(x), csr.multiply(x));
+		MatrixMultiplyTest.assertClose(a.multiply(x), csc.multiply(x));
+		Matrix y = MatrixMultiplyTest.random(60, 3, r);
+		MatrixMultiplyTest.assertClose(a.t().multiply(y), csr.transposeMultiply(y));
+		double[] v = x.column(0).clone().data(), out = new double[60];
+		csr.multiply(v, out);
+		MatrixMultiplyTest.assertClose(a.multiply(x.column(0)), new Matrix(60, 1, out));
+		csc.multiply(v, out);
+		MatrixMultiplyTest.assertClose(a.multiply(x.column(0)), new Matrix(60, 1, out));
+	}
+
+	@Test
+	public void testDistance() {
+		Random r = new Random(19);
+		Matrix a = sparse(10, 30, 0.2, r);
+		CSRMatrix csr = CSRMatrix.valueOf(a);
+		for (int i = 0; i < 10; i++)
+			for (int j = 0; j < 10; j++){
+				double d = 0.;
+				for (int k = 0; k < 30; k++)
+					d += (a.at(i, k) - a.at(j, k)) * (a.at(i, k) - a.at(j, k));
+				assertEquals(Math.sqrt(d), csr.distance(i, csr, j), 1e-12);
+				assertEquals(Math.sqrt(d), csr.distance(i, a.row(j)), 1e-12);
+				// the same row as a strided view, a row of the transpose of the transpose
+				assertEquals(Math.sqrt(d), csr.distance(i, a.t().column(j).t()), 1e-12);
+			}
+		// [1, 3, 5] read from a column of the storage
+		Matrix m = new Matrix(3, 2, new double[]{1., 2., 3., 4., 5., 6.});
+		CSRMatrix zero = CSRMatrix.valueOf(new Matrix(1, 3));
+		assertEquals(Math.sqrt(35.), zero.distance(0, m.t().row(0)), 1e-12);
+	}
+
+	@Test
+	public void testTable() {
+		NumericAttribute num = new NumericAttribute("x");
+		NominalAttribute nom = new NominalAttribute("color");
+		nom.addNominal("red");
+		nom.addNominal("green");
+		nom.addNominal("blue");
+		Object[] colors = {"green", "blue", NominalAttribute.MISSING_VALUE, "red"};
+		double[] xs = {0., 1.5, 2., 0.};
+		for (int i = 0; i < 4; i++){
+			num.push(xs[i]);
+			nom.push(colors[i]);
+		}
+		Table t = new Table();
+		t.addAttribute(num);
+		t.addAttribute(nom);
+		CSRMatrix s = CSRMatrix.valueOf(t);
+		assertEquals(4, s.columns());
+		assertEquals(5, s.nonZeros());
+		Matrix expected = new Matrix(4, 4, new double[]{
+				0., 0., 1., 0.,
+				1.5, 0., 0., 1.,
+				2., 0., 0., 0.,
+				0., 1., 0., 0.});
+		MatrixMultiplyTest.assertClose(expected, s.toMatrix());
+	}
+
+}
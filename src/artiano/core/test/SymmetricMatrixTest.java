@@ -0,0 +1,83 @@
+package artiano.core.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.core.structure.SymmetricMatrix;
+import artiano.linalg.decomposition.CholeskyDecomposition;
+import artiano.linalg.decomposition.EigenValueDecomposition;
+
+public class SymmetricMatrixTest {
+
+	@Test
+	public void testSyrk() {
+		Random r = new Random(61);
+		//crosses the tile boundary of the kernel
+		Matrix a = MatrixMultiplyTest.random(300, 270, r);
+		MatrixMultiplyTest.assertClose(MultiplyBenchmark.naive(a.t(), a),
+				a.multiplyTransposePacked(Matrix.MULTIPLY_LEFT_TRANSPOSE).toMatrix());
+		MatrixMultiplyTest.assertClose(MultiplyBenchmark.naive(a, a.t()),
+				a.multiplyTranspose(Matrix.MULTIPLY_RIGHT_TRANSPOSE));
+		//alpha, beta and a view
+		Matrix v = a.at(new Range(10, 50), new Range(3, 23));
+		SymmetricMatrix c = SymmetricMatrix.valueOf(MultiplyBenchmark.naive(v.t(), v));
+		Matrix expected = MultiplyBenchmark.naive(v.t(), v).multiply(-1.5);
+		SymmetricMatrix.syrk(2., v, true, -3.5, c);
+		MatrixMultiplyTest.assertClose(expected, c.toMatrix());
+	}
+
+	@Test
+	public void testAccess() {
+		Random r = new Random(67);
+		Matrix x = MatrixMultiplyTest.random(9, 9, r);
+		SymmetricMatrix s = SymmetricMatrix.valueOf(x);
+		assertEquals(45, s.data().length);
+		for (int i = 0; i < 9; i++)
+			for (int j = 0; j < 9; j++)
+				assertEquals(x.at(Math.min(i, j), Math.max(i, j)), s.at(i, j), 0.);
+		s.set(7, 2, 5.);
+		assertEquals(5., s.at(2, 7), 0.);
+		Matrix dense = s.toMatrix();
+		Matrix y = MatrixMultiplyTest.random(9, 4, r);
+		MatrixMultiplyTest.assertClose(dense.multiply(y), s.multiply(y));
+		assertEquals(dense.trace(), s.trace(), 1e-12);
+	}
+
+	@Test
+	public void testCovariance() {
+		Random r = new Random(71);
+		Matrix x = MatrixMultiplyTest.random(40, 25, r);
+		MatrixMultiplyTest.assertClose(x.covarianceOfRows(Matrix.COVARIANCE_NORMAL, null, true),
+				x.covarianceOfRowsPacked(Matrix.COVARIANCE_NORMAL, null, true).toMatrix());
+		MatrixMultiplyTest.assertClose(x.covarianceOfRows(Matrix.COVARIANCE_INVERTED, null, false),
+				x.covarianceOfRowsPacked(Matrix.COVARIANCE_INVERTED, null, false).toMatrix());
+	}
+
+	@Test
+	public void testDecompositions() {
+		Random r = new Random(73);
+		Matrix x = MatrixMultiplyTest.random(30, 12, r);
+		SymmetricMatrix spd = x.multiplyTransposePacked(Matrix.MULTIPLY_LEFT_TRANSPOSE);
+		Matrix dense = spd.toMatrix();
+		Matrix b = MatrixMultiplyTest.random(12, 3, r);
+		Matrix expected = new CholeskyDecomposition(dense, true).solve(b);
+		CholeskyDecomposition packed = new CholeskyDecomposition(spd, true);
+		MatrixMultiplyTest.assertClose(expected, packed.solve(b));
+		MatrixMultiplyTest.assertClose(Matrix.unit(12), dense.multiply(packed.inverse()));
+		MatrixMultiplyTest.assertClose(new CholeskyDecomposition(dense, true).inverseOfL(),
+				packed.inverseOfL());
+		//eigen values of the packed and the dense forms
+		EigenValueDecomposition e1 = new EigenValueDecomposition(dense, true);
+		EigenValueDecomposition e2 = new EigenValueDecomposition(spd);
+		e1.sort();
+		e2.sort();
+		MatrixMultiplyTest.assertClose(e1.W(), e2.W());
+		Matrix v = e2.V();
+		MatrixMultiplyTest.assertClose(dense.multiply(v.column(0)), v.column(0).multiply(e2.W().at(0), true));
+	}
+}
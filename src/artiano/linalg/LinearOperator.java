@@ -0,0 +1,45 @@
+/**
+ * LinearOperator.java
+ */
+package artiano.linalg;
+
+import artiano.core.structure.Matrix;
+
+/**
+ * <p>Description: a linear map y = A*x known only by its products, so iterative methods can work on matrices
+ * that are never formed: sparse matrices, packed symmetric matrices, products such as X'*X applied as
+ * X'*(X*v), or any implicit operator.</p>
+ * <p>{@link LinearOperators} adapts {@link Matrix}, {@link artiano.core.structure.SymmetricMatrix},
+ * {@link artiano.core.structure.CSRMatrix} and {@link artiano.core.structure.CSCMatrix}. An operator that only
+ * has the vector form can implement the block form by
+ * {@link LinearOperators#applyByColumns(LinearOperator, Matrix, Matrix)}.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface LinearOperator {
+	/**
+	 * get the number of rows, the length of A*x
+	 * @return - rows
+	 */
+	public int rows();
+
+	/**
+	 * get the number of columns, the length of x
+	 * @return - columns
+	 */
+	public int columns();
+
+	/**
+	 * compute y = A*x
+	 * @param x - vector of columns() elements, not changed
+	 * @param y - vector of rows() elements, overwritten
+	 */
+	public void apply(double[] x, double[] y);
+
+	/**
+	 * compute Y = A*X for a block of column vectors
+	 * @param x - columns()*k matrix or view, not changed
+	 * @param y - rows()*k matrix or view, overwritten
+	 */
+	public void apply(Matrix x, Matrix y);
+}
@@ -0,0 +1,194 @@
+/**
+ * LinearOperators.java
+ */
+package artiano.linalg;
+
+import java.util.Arrays;
+
+import artiano.core.structure.CSCMatrix;
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.core.structure.RowCursor;
+import artiano.core.structure.SymmetricMatrix;
+
+/**
+ * <p>Description: {@link LinearOperator} adapters of the matrix classes. The operators share the storage of
+ * the matrices, later changes of a matrix are seen by its operator.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class LinearOperators {
+
+	private LinearOperators(){ }
+
+	/**
+	 * operator of a dense matrix (or view), the blocks go through {@link Matrix#gemm}
+	 * @param a - the matrix
+	 * @return - the operator
+	 */
+	public static LinearOperator valueOf(final Matrix a){
+		return new LinearOperator() {
+			@Override
+			public int rows(){
+				return a.rows();
+			}
+
+			@Override
+			public int columns(){
+				return a.columns();
+			}
+
+			@Override
+			public void apply(double[] x, double[] y){
+				check(this, x, y);
+				RowCursor r = a.cursor();
+				double[] d = r.array();
+				for (int i = 0; r.next(); i++){
+					int p = r.offset(), s = r.stride();
+					double sum = 0.;
+					for (int j = 0; j < x.length; j++, p += s)
+						sum += d[p] * x[j];
+					y[i] = sum;
+				}
+			}
+
+			@Override
+			public void apply(Matrix x, Matrix y){
+				check(this, x, y);
+				Matrix.gemm(1., a, false, x, false, 0., y);
+			}
+		};
+	}
+
+	/**
+	 * operator of a packed symmetric matrix, each element is read once per product
+	 * @param a - the matrix
+	 * @return - the operator
+	 */
+	public static LinearOperator valueOf(final SymmetricMatrix a){
+		return new LinearOperator() {
+			@Override
+			public int rows(){
+				return a.rows();
+			}
+
+			@Override
+			public int columns(){
+				return a.rows();
+			}
+
+			@Override
+			public void apply(double[] x, double[] y){
+				check(this, x, y);
+				int n = a.rows();
+				double[] d = a.data();
+				Arrays.fill(y, 0.);
+				for (int i = 0, p = 0; i < n; i++){
+					double xi = x[i], sum = d[p++] * xi;
+					for (int j = i + 1; j < n; j++, p++){
+						sum += d[p] * x[j];
+						y[j] += d[p] * xi;
+					}
+					y[i] += sum;
+				}
+			}
+
+			@Override
+			public void apply(Matrix x, Matrix y){
+				check(this, x, y);
+				a.multiply(x).copyTo(y);
+			}
+		};
+	}
+
+	/**
+	 * operator of a sparse matrix compressed by rows
+	 * @param a - the matrix
+	 * @return - the operator
+	 */
+	public static LinearOperator valueOf(final CSRMatrix a){
+		return new LinearOperator() {
+			@Override
+			public int rows(){
+				return a.rows();
+			}
+
+			@Override
+			public int columns(){
+				return a.columns();
+			}
+
+			@Override
+			public void apply(double[] x, double[] y){
+				a.multiply(x, y);
+			}
+
+			@Override
+			public void apply(Matrix x, Matrix y){
+				check(this, x, y);
+				a.multiply(x).copyTo(y);
+			}
+		};
+	}
+
+	/**
+	 * operator of a sparse matrix compressed by columns
+	 * @param a - the matrix
+	 * @return - the operator
+	 */
+	public static LinearOperator valueOf(final CSCMatrix a){
+		return new LinearOperator() {
+			@Override
+			public int rows(){
+				return a.rows();
+			}
+
+			@Override
+			public int columns(){
+				return a.columns();
+			}
+
+			@Override
+			public void apply(double[] x, double[] y){
+				a.multiply(x, y);
+			}
+
+			@Override
+			public void apply(Matrix x, Matrix y){
+				check(this, x, y);
+				a.multiply(x).copyTo(y);
+			}
+		};
+	}
+
+	/**
+	 * Y = A*X a column at a time with {@link LinearOperator#apply(double[], double[])}, the block form of an
+	 * operator that has no better one
+	 * @param a - the operator
+	 * @param x - columns()*k matrix or view
+	 * @param y - rows()*k matrix or view, overwritten
+	 */
+	public static void applyByColumns(LinearOperator a, Matrix x, Matrix y){
+		check(a, x, y);
+		double[] xv = new double[a.columns()], yv = new double[a.rows()];
+		for (int c = 0; c < x.columns(); c++){
+			Matrix xc = x.at(Range.all(), new Range(c, c + 1)), yc = y.at(Range.all(), new Range(c, c + 1));
+			for (int i = 0; i < xv.length; i++)
+				xv[i] = xc.at(i, 0);
+			a.apply(xv, yv);
+			for (int i = 0; i < yv.length; i++)
+				yc.set(i, 0, yv[i]);
+		}
+	}
+
+	static void check(LinearOperator a, double[] x, double[] y){
+		if (x.length != a.columns() || y.length != a.rows())
+			throw new IllegalArgumentException("LinearOperator apply, size not match.");
+	}
+
+	static void check(LinearOperator a, Matrix x, Matrix y){
+		if (x.rows() != a.columns() || y.rows() != a.rows() || x.columns() != y.columns())
+			throw new IllegalArgumentException("LinearOperator apply, size not match.");
+	}
+}
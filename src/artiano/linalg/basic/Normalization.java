@@ -9,27 +9,7 @@ public class Normalization {
 	 * @return 归一化后得到的新的数据集矩阵
 	 */
 	public Matrix colNorm0_1(Matrix dataset) {
-		int rows = dataset.rows();
-		int cols = dataset.columns();
-		Matrix colMax = dataset.colMax();
-		Matrix colMin = dataset.colMin();
-		
-		Matrix dataAfterNorm = new Matrix(rows, cols);
-		for(int j=0; j<cols; j++) {
-			double gap = colMax.at(j) - colMin.at(j);
-			if(gap < 1e-20) {  //该列的值都相同时，该列归一到1
-				for(int i=0; i<rows; i++) {
-					dataAfterNorm.set(i, j, 1);
-				}
-				continue;
-			}
-			
-			for(int i=0; i<rows; i++) {
-				double value = (dataset.at(i, j) - colMin.at(j))/gap;
-				dataAfterNorm.set(i, j, value);
-			}
-		}
-		return dataAfterNorm;
+		return colNorm(dataset, false);
 	}
 
 	/**
@@ -38,23 +18,38 @@ public class Normalization {
 	 * @return 归一化后得到的新的数据集矩阵
 	 */
 	public Matrix colNormNeg1_1(Matrix dataset) {
+		return colNorm(dataset, true);
+	}
+
+	/**
+	 * 按列归一化，结果与数据集的存放方式相同：按列存放时逐列计算，否则逐行计算，都顺序访问内存
+	 * @param dataset 待归一化数据集
+	 * @param symmetric 为true时归一化到[-1,1]，否则归一化到[0,1]
+	 * @return 归一化后得到的新的数据集矩阵
+	 */
+	private Matrix colNorm(Matrix dataset, boolean symmetric) {
 		int rows = dataset.rows();
 		int cols = dataset.columns();
 		Matrix colMax = dataset.colMax();
 		Matrix colMin = dataset.colMin();
-		
-		Matrix dataAfterNorm = new Matrix(rows, cols);
+		double[] min = new double[cols], gap = new double[cols];
 		for(int j=0; j<cols; j++) {
-			double gap = colMax.at(j) - colMin.at(j);
-			if(gap < 1e-20) {  //该列的值都相同时，该列归一到1
-				for(int i=0; i<rows; i++) {
-					dataAfterNorm.set(i, j, 1);
+			min[j] = colMin.at(j);
+			gap[j] = colMax.at(j) - min[j];
+		}
+		
+		boolean byColumn = dataset.isColumnMajor();
+		Matrix dataAfterNorm = new Matrix(rows, cols, byColumn ? Matrix.COLUMN_MAJOR : Matrix.ROW_MAJOR);
+		int outer = byColumn ? cols : rows, inner = byColumn ? rows : cols;
+		for(int p=0; p<outer; p++) {
+			for(int q=0; q<inner; q++) {
+				int i = byColumn ? q : p, j = byColumn ? p : q;
+				double value = 1;	//该列的值都相同时，该列归一到1
+				if(gap[j] >= 1e-20) {
+					value = (dataset.at(i, j) - min[j])/gap[j];
+					if(symmetric)
+						value = 2*value - 1;
 				}
-				continue;
-			}
-			
-			for(int i=0; i<rows; i++) {
-				double value = 2*((dataset.at(i, j) - colMin.at(j))/gap) - 1;
 				dataAfterNorm.set(i, j, value);
 			}
 		}
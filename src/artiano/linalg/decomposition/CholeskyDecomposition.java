@@ -4,6 +4,8 @@
 package artiano.linalg.decomposition;
 
 import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.core.structure.SymmetricMatrix;
 
 
 /**
@@ -26,6 +28,15 @@ import artiano.core.structure.Matrix;
  * }
  * </pre>
  * </blockquote>
+ * <li>The factor is computed from the upper triangle of <b>A</b>. A dense matrix decomposed in place (reserve is
+ * false) gets <b>L</b> in its lower triangle, diagonal included, and keeps its strict upper triangle.</li>
+ * <li>A symmetric matrix in packed storage ({@link SymmetricMatrix}) is decomposed in place as well, the factor
+ * <b>L</b> replaces the upper triangle (as <b>L'</b> by rows), so no dense n*n matrix is ever allocated, and the
+ * triangular solves read the packed factor directly.</li>
+ * <li>The decomposition is right-looking and blocked: a block of {@link #BLOCK} columns is factored, and the
+ * trailing triangle is updated by {@link Matrix#gemm} over row tiles, which run in parallel when
+ * {@link Matrix#setParallelism(int)} allows it. {@link #solve(Matrix)} solves all right-hand sides at once by
+ * blocked triangular solves.</li>
  * <li><i><b>NOTICE:</b></i> This program refer to the book Numerical Recipes, you can read the program at this book, there are detailed
  * description about Cholesky decomposition.</li>
  * @author Nano.Michael
@@ -35,25 +46,31 @@ import artiano.core.structure.Matrix;
  * @since 1.0.0
  */
 public class CholeskyDecomposition {
+	/** columns of a block */
+	static final int BLOCK = 64;
+	/** rows of a tile of the trailing update */
+	static final int TILE = 2 * BLOCK;
 	
 	protected Matrix a = null;
+	/** packed storage, used instead of a when the matrix is given packed */
+	protected SymmetricMatrix s = null;
 	protected double[] p = null;
 	protected boolean isDef = true;
 	
 	/**
 	 * constructor
 	 * @param a - coefficient matrix
-	 * @param reserve - to indicate reserve A whether or not
+	 * @param reserve - to indicate reserve A whether or not, if not the lower triangle of A is replaced by L
 	 */
 	public CholeskyDecomposition(Matrix a, boolean reserve){
 		if (a.rows() != a.columns())
 			throw new IllegalArgumentException("Accept square matrix only.");
-		if (reserve)
-			this.a = a.clone();
-		else
-			this.a = a;
+		//views are decomposed in a continuous copy, written back when not reserved
+		this.a = reserve? a.clone(): a.compact();
 		p = new double[a.rows()];
 		decompose();
+		if (!reserve && this.a != a)
+			this.a.copyTo(a);
 	}
 	
 	/* (non-Javadoc)
@@ -63,6 +80,60 @@ public class CholeskyDecomposition {
 		this(a, false);
 	}
 	
+	/**
+	 * constructor
+	 * @param a - coefficient matrix in packed storage
+	 * @param reserve - to indicate reserve A whether or not
+	 */
+	public CholeskyDecomposition(SymmetricMatrix a, boolean reserve){
+		this.s = reserve? a.clone(): a;
+		p = new double[a.rows()];
+		decompose();
+	}
+	
+	/**
+	 * constructor, A will be replaced by the factor
+	 * @param a - coefficient matrix in packed storage
+	 */
+	public CholeskyDecomposition(SymmetricMatrix a){
+		this(a, false);
+	}
+	
+	/**
+	 * order of the coefficient matrix
+	 */
+	private int order(){
+		return s == null? a.rows(): s.rows();
+	}
+	
+	/**
+	 * start of row i in packed storage, the upper element (i,j) is at base(n,i)+j
+	 */
+	private static int base(int n, int i){
+		return (int) ((long) i * (2 * n - i - 1) / 2);
+	}
+	
+	/**
+	 * element L(i,j), i&gt;=j, of the factor
+	 */
+	private double l(int i, int j){
+		int n = order();
+		return s == null? a.data()[i * n + j]: s.data()[base(n, j) + i];
+	}
+	
+	/**
+	 * copy the block L(r0..n-1, c0..c1-1) of the packed factor into the top left corner of panel
+	 * @return - a view of the copy
+	 */
+	private Matrix lowerPanel(int r0, int c0, int c1, Matrix panel){
+		int n = s.rows(), w = panel.columns();
+		double[] x = s.data(), y = panel.data();
+		for (int j = c0, q = 0; j < c1; j++, q++)
+			for (int i = r0, bj = base(n, j), k = q; i < n; i++, k += w)
+				y[k] = x[bj + i];
+		return panel.at(new Range(0, n - r0), new Range(0, c1 - c0));
+	}
+	
 	protected void clearJagg(Matrix x){
 		for (int i = 0; i < x.rows() - 1; i++)
 			for (int j = i + 1; j < x.columns(); j++)
@@ -71,22 +142,19 @@ public class CholeskyDecomposition {
 	
 	/**
 	 * inversion of L of a been decomposed
-	 * @param reserveA - indicate reserve a whether or not
+	 * @param reserveA - indicate reserve a whether or not, if not the inversion is written into a
 	 * @return - inversion of L
 	 */
 	public Matrix inverseOfL(boolean reserveA){
-		Matrix inv = reserveA? a.clone(): a;
-		double sum = 0.;
-		for (int i = 0; i < a.rows(); i++){
-			inv.set(i, i, 1./p[i]);
-			for (int j = i+1; j < a.rows(); j++){
-				sum = 0.;
-				for (int k = i; k<j; k++)
-					sum -= inv.at(j,k)*inv.at(k,i);
-				inv.set(j, i, sum/p[j]);
-			}
+		if (!isDef)
+			throw new UnsupportedOperationException("Cholesky decompositon, matrix is not positive-definite.");
+		//L*X = I, X stays lower triangular
+		Matrix inv = Matrix.unit(order(), 1.);
+		forward(inv.data(), inv.columns());
+		if (s == null && !reserveA){
+			inv.copyTo(a);
+			return a;
 		}
-		clearJagg(inv);
 		return inv;
 	}
 	
@@ -98,13 +166,26 @@ public class CholeskyDecomposition {
 		return inverseOfL(true);
 	}
 	
+	/**
+	 * get the lower triangular factor L
+	 * @return - L, L*L' = A
+	 */
+	public Matrix L(){
+		int n = order();
+		Matrix x = new Matrix(n, n);
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j <= i; j++)
+				x.set(i, j, l(i, j));
+		return x;
+	}
+	
 	/**
 	 * get inversion of the coefficient matrix A
 	 * @return - inversion matrix
 	 */
 	public Matrix inverse(){
 		//unit matrix;
-		Matrix I = Matrix.unit(a.rows(), 1);
+		Matrix I = Matrix.unit(order(), 1);
 		return solve(I);
 	}
 	
@@ -120,53 +201,200 @@ public class CholeskyDecomposition {
 	 * decompose the coefficient matrix to the form like L*L' = A
 	 */
 	protected void decompose(){
-		double sum = 0.;
-		int i, j, k;
-		
+		if (s == null)
+			decomposeDense();
+		else
+			decomposePacked();
+	}
+	
+	/**
+	 * L by rows in the lower triangle of a (row-major and continuous)
+	 */
+	private void decomposeDense(){
 		int n = a.rows();
-		for (i = 0; i < n; i++){
-			for (j = i; j < n; j++){
-				for (sum = a.at(i,j), k = i - 1; k >= 0; k--) sum -= a.at(i,k) * a.at(j, k);
-				if (i == j){
-					//non-positive-definite
-					if (sum <= 0.){
-						isDef = false;
-						return;
+		double[] x = a.data();
+		//the factor is computed from the upper triangle, mirror it into the lower one
+		for (int i = 1; i < n; i++)
+			for (int j = 0, io = i * n; j < i; j++)
+				x[io + j] = x[j * n + i];
+		Matrix tile = null;
+		for (int k0 = 0; k0 < n; k0 += BLOCK){
+			int k1 = Math.min(k0 + BLOCK, n);
+			//diagonal block, the earlier blocks are already subtracted
+			for (int j = k0; j < k1; j++){
+				int jo = j * n;
+				double sum = x[jo + j];
+				for (int k = k0; k < j; k++) sum -= x[jo + k] * x[jo + k];
+				//non-positive-definite
+				if (sum <= 0.){
+					isDef = false;
+					return;
+				}
+				p[j] = x[jo + j] = Math.sqrt(sum);
+				for (int i = j + 1, io = i * n; i < k1; i++, io += n){
+					sum = x[io + j];
+					for (int k = k0; k < j; k++) sum -= x[io + k] * x[jo + k];
+					x[io + j] = sum / p[j];
+				}
+			}
+			if (k1 == n)
+				break;
+			//L21 = A21*inv(L11')
+			for (int i = k1, io = i * n; i < n; i++, io += n)
+				for (int j = k0; j < k1; j++){
+					double sum = x[io + j];
+					for (int k = k0, jo = j * n; k < j; k++) sum -= x[io + k] * x[jo + k];
+					x[io + j] = sum / p[j];
+				}
+			//A22 -= L21*L21', lower triangle only, by row tiles
+			if (tile == null)
+				tile = new Matrix(TILE, TILE);
+			for (int r0 = k1; r0 < n; r0 += TILE){
+				int r1 = Math.min(r0 + TILE, n), t = r1 - r0;
+				Matrix li = a.at(new Range(r0, r1), new Range(k0, k1));
+				if (r0 > k1)
+					Matrix.gemm(-1., li, false, a.at(new Range(k1, r0), new Range(k0, k1)), true, 1.,
+							a.at(new Range(r0, r1), new Range(k1, r0)));
+				Matrix c = tile.at(new Range(0, t), new Range(0, t));
+				Matrix.gemm(1., li, false, li, true, 0., c);
+				double[] y = tile.data();
+				for (int i = 0; i < t; i++)
+					for (int j = 0, io = (r0 + i) * n + r0; j <= i; j++)
+						x[io + j] -= y[i * TILE + j];
+			}
+		}
+	}
+	
+	/**
+	 * L' by rows in the packed upper triangle of s, A = U'*U with U = L'
+	 */
+	private void decomposePacked(){
+		int n = s.rows();
+		double[] x = s.data();
+		Matrix buffer = null, panel = null;
+		for (int k0 = 0; k0 < n; k0 += BLOCK){
+			int k1 = Math.min(k0 + BLOCK, n);
+			//rows k0..k1-1 of U, the earlier blocks are already subtracted
+			for (int r = k0; r < k1; r++){
+				int br = base(n, r);
+				for (int q = k0; q < r; q++){
+					int bq = base(n, q);
+					double u = x[bq + r];
+					if (u != 0.)
+						for (int j = r; j < n; j++) x[br + j] -= u * x[bq + j];
+				}
+				//non-positive-definite
+				if (x[br + r] <= 0.){
+					isDef = false;
+					return;
+				}
+				p[r] = x[br + r] = Math.sqrt(x[br + r]);
+				for (int j = r + 1; j < n; j++) x[br + j] /= p[r];
+			}
+			if (k1 == n)
+				break;
+			//A22 -= U12'*U12 = L21*L21', upper triangle only, by row tiles
+			if (buffer == null){
+				buffer = new Matrix(TILE, n);
+				panel = new Matrix(n - k1, BLOCK);
+			}
+			Matrix l21 = lowerPanel(k1, k0, k1, panel);
+			double[] y = buffer.data();
+			for (int r0 = k1; r0 < n; r0 += TILE){
+				int r1 = Math.min(r0 + TILE, n);
+				Matrix c = buffer.at(new Range(0, r1 - r0), new Range(0, n - r0));
+				Matrix.gemm(1., l21.at(new Range(r0 - k1, r1 - k1), Range.all()), false,
+						l21.at(new Range(r0 - k1, n - k1), Range.all()), true, 0., c);
+				for (int i = r0; i < r1; i++)
+					for (int j = i, bi = base(n, i), k = (i - r0) * n + i - r0; j < n; j++, k++)
+						x[bi + j] -= y[k];
+			}
+		}
+	}
+	
+	/**
+	 * solve L*Y = B in place, B continuous with m columns
+	 */
+	private void forward(double[] y, int m){
+		int n = order();
+		for (int k0 = 0; k0 < n; k0 += BLOCK){
+			int k1 = Math.min(k0 + BLOCK, n);
+			for (int r = k0; r < k1; r++){
+				int ro = r * m;
+				for (int q = k0; q < r; q++){
+					double v = l(r, q);
+					if (v != 0.)
+						for (int k = 0, qo = q * m; k < m; k++) y[ro + k] -= v * y[qo + k];
+				}
+				for (int k = 0; k < m; k++) y[ro + k] /= p[r];
+			}
+			if (k1 == n)
+				break;
+			if (s == null){
+				Matrix b = new Matrix(n, m, y);
+				Matrix.gemm(-1., a.at(new Range(k1, n), new Range(k0, k1)), false, b.at(new Range(k0, k1), Range.all()),
+						false, 1., b.at(new Range(k1, n), Range.all()));
+			} else {
+				//Y2 -= U12'*Y1, the rows of U12 are continuous in packed storage
+				double[] x = s.data();
+				for (int q = k0; q < k1; q++)
+					for (int i = k1, bq = base(n, q), qo = q * m, io = k1 * m; i < n; i++, io += m){
+						double v = x[bq + i];
+						if (v != 0.)
+							for (int k = 0; k < m; k++) y[io + k] -= v * y[qo + k];
+					}
+			}
+		}
+	}
+	
+	/**
+	 * solve L'*X = Y in place, Y continuous with m columns
+	 */
+	private void backward(double[] y, int m){
+		int n = order();
+		for (int k1 = n, k0; k1 > 0; k1 = k0){
+			k0 = Math.max(0, k1 - BLOCK);
+			for (int r = k1 - 1; r >= k0; r--){
+				int ro = r * m;
+				for (int q = r + 1; q < k1; q++){
+					double v = l(q, r);
+					if (v != 0.)
+						for (int k = 0, qo = q * m; k < m; k++) y[ro + k] -= v * y[qo + k];
+				}
+				for (int k = 0; k < m; k++) y[ro + k] /= p[r];
+			}
+			if (k0 == 0)
+				break;
+			if (s == null){
+				Matrix b = new Matrix(n, m, y);
+				Matrix.gemm(-1., a.at(new Range(k0, k1), new Range(0, k0)), true, b.at(new Range(k0, k1), Range.all()),
+						false, 1., b.at(new Range(0, k0), Range.all()));
+			} else {
+				//Y1 -= U12*Y2, row by row of U12
+				double[] x = s.data();
+				for (int i = 0, io = 0; i < k0; i++, io += m)
+					for (int q = k0, bi = base(n, i), qo = k0 * m; q < k1; q++, qo += m){
+						double v = x[bi + q];
+						if (v != 0.)
+							for (int k = 0; k < m; k++) y[io + k] -= v * y[qo + k];
 					}
-					p[i] = Math.sqrt(sum);
-				}else 
-					a.set(j, i, sum / p[i]);
 			}
 		}
 	}
 	
 	/**
-	 * solve the matrix equation like A*x = B, B is row vector
+	 * solve the matrix equation like A*x = B, B may have several columns (right-hand sides)
 	 * @param b - constant matrix
 	 * @return - solution matrix
 	 */
 	public Matrix solve(Matrix b){
-		if (b.rows() != a.rows())
+		if (b.rows() != order())
 			throw new IllegalArgumentException("Cholesky decomposition solve, Size not match.");
 		if (!isDef)
 			throw new UnsupportedOperationException("Cholesky decompositon, matrix is not positive-definite.");
-		
-		int i, k;
-		double sum = 0.;
-		Matrix x = new Matrix(b.rows(), b.columns());
-		
-		int n = a.rows();
-		int m = b.columns();
-		for (int j = 0; j < m; j++){
-			for (i = 0; i < n; i++){
-				for (sum = b.at(i, j), k = i - 1; k >= 0; k--) sum -= a.at(i,k) * x.at(k, j);
-				x.set(i, j, sum / p[i]);
-			}
-			for (i = n - 1; i >= 0; i--){
-				for (sum = x.at(i, j), k = i + 1; k < n; k++) sum -= a.at(k, i) * x.at(k, j);
-				x.set(i, j, sum / p[i]);
-			}
-		}
+		Matrix x = b.clone();
+		forward(x.data(), x.columns());
+		backward(x.data(), x.columns());
 		return x;
 	}
 }
@@ -3,12 +3,33 @@
  */
 package artiano.linalg.decomposition;
 
+import java.util.Random;
+
 import javax.management.RuntimeErrorException;
 
 import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.core.structure.SymmetricMatrix;
 
 /**
- * <p>Description:</p>
+ * <p>Description: eigenvalues and eigenvectors of a real symmetric matrix, A = V*diag(W)*V'.</p>
+ * <p>The matrix is first reduced to a tridiagonal T = Q'*A*Q by Householder reflectors. The reduction is
+ * blocked: the reflectors of a panel of {@link #BLOCK} columns are gathered together with the matching columns
+ * of W, and the rest of the matrix is updated once per panel by A = A - V*W' - W*V' ({@link Matrix#gemm},
+ * parallel when {@link Matrix#setParallelism(int)} allows it). The eigenvalues of T are found by the implicit
+ * QL method, or by bisection on Sturm counts when only an index range is wanted. The eigenvectors of T are
+ * either the accumulated QL rotations or come from inverse iteration, and Q is applied to them blockwise in
+ * the compact WY form, as in {@link QRDecomposition}.</p>
+ * <p>The reduction costs about 4n^3/3 operations and the eigenvalues O(n^2). All the eigenvectors cost about
+ * 3n^3 more, k of them from {@link #range(SymmetricMatrix, int, int, boolean)} only O(n^2*k), which is what
+ * the leading components of a large covariance matrix need.</p>
+ * <p>To use the class, you should write code like:
+ * <pre>
+ * EigenValueDecomposition e = new EigenValueDecomposition(A);
+ * e.sort(); //descending eigenvalues, the vectors follow
+ * Matrix w = e.W(), v = e.V(); //1*n eigenvalues, eigenvectors in the columns of v
+ * EigenValueDecomposition top = EigenValueDecomposition.range(A, 0, 10, true); //the 10 largest
+ * </pre></p>
  * @author Nano.Michael
  * @version 1.0.0
  * @date 2013-9-7
@@ -16,12 +37,24 @@ import artiano.core.structure.Matrix;
  * @since 1.0.0
  */
 public class EigenValueDecomposition {
-	
-	protected Matrix a = null;
+	/** columns of a panel of the reduction */
+	static final int BLOCK = 32;
+	/** QL iterations allowed for one eigenvalue */
+	private static final int MAX_ITERATIONS = 30;
+	/** inverse iterations for one eigenvector */
+	private static final int INVERSE_ITERATIONS = 3;
+	private static final double EPS = Math.ulp(1.);
+
+	/** the working copy, the Householder vectors are left below the subdiagonal */
+	private Matrix a = null;
+	/** scale factors of the reflectors */
+	private double[] tau = null;
+	/** diagonal and subdiagonal of T */
+	private double[] diag = null, off = null;
 	protected Matrix v= null;
 	protected Matrix d = null;
 	protected int numberOfIterations = 0;
-	
+
 	/**
 	 * constructor
 	 * @param sym - symmetric matrix want to be decomposed
@@ -29,29 +62,122 @@ public class EigenValueDecomposition {
 	public EigenValueDecomposition(Matrix sym){
 		this(sym, false);
 	}
-	
+
 	/**
-	 * constructor
+	 * constructor, only the upper triangle is read and the matrix itself is never changed
 	 * @param sym - symmetric matrix want to b decomposed
-	 * @param reserve - to indicate reserve the matrix whether or not
+	 * @param reserve - kept for compatibility, the matrix is always reserved
 	 */
 	public EigenValueDecomposition(Matrix sym, boolean reserve){
-		if (sym.rows() != sym.columns())
-			throw new IllegalArgumentException("Eigen value decomposition, accept square matrix only.");
-		this.a = reserve? sym.clone(): sym;
-		d = new Matrix(1, sym.rows());
-		v = Matrix.unit(sym.rows());
-		decompose();
+		this(dense(sym), true, 0, sym.rows(), false);
+	}
+
+	/**
+	 * constructor
+	 * @param sym - symmetric matrix in packed storage
+	 */
+	public EigenValueDecomposition(SymmetricMatrix sym){
+		this(sym, false);
+	}
+
+	/**
+	 * constructor, the packed matrix is unpacked into a working copy and never changed
+	 * @param sym - symmetric matrix in packed storage
+	 * @param reserve - kept for compatibility, the matrix is always reserved
+	 */
+	public EigenValueDecomposition(SymmetricMatrix sym, boolean reserve){
+		this(sym.toMatrix(), true, 0, sym.rows(), false);
+	}
+
+	/**
+	 * decompose a working copy
+	 * @param work - dense symmetric copy, destroyed
+	 * @param vectors - compute the eigenvectors or not
+	 * @param from - first index of the descending eigenvalues wanted (range only)
+	 * @param to - end index, exclusive (range only)
+	 * @param range - all eigenvalues in QL order, or the range in descending order
+	 */
+	private EigenValueDecomposition(Matrix work, boolean vectors, int from, int to, boolean range){
+		int n = work.rows();
+		if (from < 0 || to > n || from >= to)
+			throw new IllegalArgumentException("EigenValueDecomposition, invalid index range.");
+		this.a = work;
+		tau = new double[n];
+		diag = new double[n];
+		off = new double[n];
+		tridiagonalize();
+		if (range)
+			selected(from, to, vectors);
+		else
+			all(vectors);
+	}
+
+	/**
+	 * eigenvalues only, {@link #V()} is null
+	 * @param sym - symmetric matrix, only the upper triangle is read
+	 * @return - the decomposition
+	 */
+	public static EigenValueDecomposition values(Matrix sym){
+		return new EigenValueDecomposition(dense(sym), false, 0, sym.rows(), false);
+	}
+
+	/**
+	 * eigenvalues only, {@link #V()} is null
+	 * @param sym - symmetric matrix in packed storage
+	 * @return - the decomposition
+	 */
+	public static EigenValueDecomposition values(SymmetricMatrix sym){
+		return new EigenValueDecomposition(sym.toMatrix(), false, 0, sym.rows(), false);
+	}
+
+	/**
+	 * the eigenvalues from..to-1 in descending order (0 is the largest), and their eigenvectors if wanted,
+	 * {@link #W()} is 1*(to-from) and already sorted
+	 * @param sym - symmetric matrix, only the upper triangle is read
+	 * @param from - index of the first eigenvalue
+	 * @param to - end index, exclusive
+	 * @param vectors - compute the eigenvectors or not
+	 * @return - the decomposition
+	 */
+	public static EigenValueDecomposition range(Matrix sym, int from, int to, boolean vectors){
+		return new EigenValueDecomposition(dense(sym), vectors, from, to, true);
+	}
+
+	/**
+	 * the eigenvalues from..to-1 in descending order, see {@link #range(Matrix, int, int, boolean)}
+	 * @param sym - symmetric matrix in packed storage
+	 * @param from - index of the first eigenvalue
+	 * @param to - end index, exclusive
+	 * @param vectors - compute the eigenvectors or not
+	 * @return - the decomposition
+	 */
+	public static EigenValueDecomposition range(SymmetricMatrix sym, int from, int to, boolean vectors){
+		return new EigenValueDecomposition(sym.toMatrix(), vectors, from, to, true);
+	}
+
+	/**
+	 * dense copy of the upper triangle and its mirror
+	 */
+	private static Matrix dense(Matrix sym){
+		int n = sym.rows();
+		if (n != sym.columns())
+			throw new IllegalArgumentException("EigenValueDecomposition, matrix is not square.");
+		Matrix x = new Matrix(n, n);
+		double[] xd = x.data();
+		for (int i = 0; i < n; i++)
+			for (int j = i; j < n; j++)
+				xd[i * n + j] = xd[j * n + i] = sym.at(i, j);
+		return x;
 	}
-	
+
 	/**
 	 * get eigen vectors
-	 * @return - eigen vectors that been decomposed
+	 * @return - eigen vectors that been decomposed, one per column, null if not computed
 	 */
 	public Matrix V(){
 		return this.v;
 	}
-	
+
 	/**
 	 * get eigen values
 	 * @return - eigen values that been decomposed
@@ -59,105 +185,423 @@ public class EigenValueDecomposition {
 	public Matrix W(){
 		return this.d;
 	}
-	
-	/**
-	 * rotate the matrix
-	 * @param a - the matrix want to be rotated
-	 * @param s - value to be copied
-	 * @param tau
-	 * @param i
-	 * @param j
-	 * @param k
-	 * @param l
-	 */
-	protected void rotate(Matrix a, double s, double tau, int i, int j, int k, int l){
-		double g,h;
-		g = a.at(i, j);
-		h = a.at(k, l);
-		a.set(i, j, g-s*(h+g*tau));
-		a.set(k, l, h+s*(g-h*tau));
-	}
-	
-	/**
-	 * decompose the matrix
-	 */
-	protected void decompose(){
-		int i,j,ip,iq;
-		double tresh, theta, tau, t, sm, s, h, g, c;
-		
-		int n = d.columns();
-		double[] b = new double[n];
-		double[] z = new double[n];
-		for (ip=0; ip<n; ip++){
-			b[ip] = a.at(ip, ip);
-			d.set(ip, a.at(ip, ip));
-			z[ip] = 0.;
-		}
-		//begin iterations
-		for (i=1; i<=50; i++){
-			sm=0.;
-			for (ip=0; ip<n-1; ip++){
-				for (iq=ip+1; iq<n; iq++)
-					sm+=Math.abs(a.at(ip, iq));
+
+	/**
+	 * get the number of QL iterations
+	 * @return - iterations over all the eigenvalues
+	 */
+	public int getNumberOfIterations(){
+		return numberOfIterations;
+	}
+
+	/**
+	 * Householder reduction to the tridiagonal diag/off, a panel at a time. For the column j of a panel, the
+	 * column is brought up to date with the earlier reflectors of the panel, its reflector v is generated and
+	 * w = tau*(A*v - V*W'*v - W*V'*v) - (tau/2)*(w'*v)*v, A being the matrix at the start of the panel
+	 */
+	private void tridiagonalize(){
+		int n = a.rows(), nr = Math.max(0, n - 2);
+		double[] x = a.data(), vj = new double[n], y = new double[n];
+		double[] wv = new double[BLOCK], vv = new double[BLOCK];
+		for (int i0 = 0; i0 < nr; i0 += BLOCK){
+			int i1 = Math.min(i0 + BLOCK, nr), nb = i1 - i0, rows = n - i0;
+			Matrix vm = new Matrix(rows, nb), wm = new Matrix(rows, nb);
+			double[] v = vm.data(), w = wm.data();
+			for (int j = i0; j < i1; j++){
+				int p = j - i0, s = p * nb;
+				//column j with the reflectors 0..p-1 of the panel
+				if (p > 0)
+					for (int i = j; i < n; i++){
+						int r = (i - i0) * nb;
+						double sum = 0.;
+						for (int q = 0; q < p; q++)
+							sum += v[r + q] * w[s + q] + w[r + q] * v[s + q];
+						x[i * n + j] -= sum;
+					}
+				diag[j] = x[j * n + j];
+				//reflector of x(j+1.., j), the vector is kept in x(j+2.., j)
+				double alpha = x[(j + 1) * n + j], sq = 0., t = 0.;
+				for (int i = j + 2; i < n; i++)
+					sq += x[i * n + j] * x[i * n + j];
+				if (sq != 0.){
+					double beta = -Math.copySign(Math.sqrt(alpha * alpha + sq), alpha);
+					t = (beta - alpha) / beta;
+					double scale = 1. / (alpha - beta);
+					for (int i = j + 2; i < n; i++)
+						x[i * n + j] *= scale;
+					alpha = beta;
+				}
+				off[j] = alpha;
+				tau[j] = t;
+				vj[j + 1] = 1.;
+				for (int i = j + 2; i < n; i++)
+					vj[i] = x[i * n + j];
+				for (int i = j + 1; i < n; i++)
+					v[(i - i0) * nb + p] = vj[i];
+				if (t == 0.)
+					continue;
+				//y = A*v - V*(W'*v) - W*(V'*v)
+				for (int i = j + 1; i < n; i++){
+					int r = i * n;
+					double sum = 0.;
+					for (int k = j + 1; k < n; k++)
+						sum += x[r + k] * vj[k];
+					y[i] = sum;
+				}
+				if (p > 0){
+					for (int q = 0; q < p; q++)
+						wv[q] = vv[q] = 0.;
+					for (int i = j + 1; i < n; i++){
+						int r = (i - i0) * nb;
+						for (int q = 0; q < p; q++){
+							wv[q] += w[r + q] * vj[i];
+							vv[q] += v[r + q] * vj[i];
+						}
+					}
+					for (int i = j + 1; i < n; i++){
+						int r = (i - i0) * nb;
+						double sum = 0.;
+						for (int q = 0; q < p; q++)
+							sum += v[r + q] * wv[q] + w[r + q] * vv[q];
+						y[i] -= sum;
+					}
+				}
+				double dot = 0.;
+				for (int i = j + 1; i < n; i++){
+					y[i] *= t;
+					dot += y[i] * vj[i];
+				}
+				double c = -.5 * t * dot;
+				for (int i = j + 1; i < n; i++)
+					w[(i - i0) * nb + p] = y[i] + c * vj[i];
 			}
-			if (sm==0.)
-				return;
-			if (i<4)
-				tresh=0.2*sm/(n*n);
-			else
-				tresh=0.;
-			for (ip=0; ip<n-1; ip++){
-				for (iq=ip+1; iq<n; iq++){
-					g=100.*Math.abs(a.at(ip, iq));
-					//rotate
-					if (i>4 && (Math.abs(d.at(ip))+g) == Math.abs(d.at(ip)) &&
-							(Math.abs(d.at(iq))+g) == Math.abs(d.at(iq)))
-						a.set(ip, iq, 0.);
-					else if (Math.abs(a.at(ip, iq)) > tresh){
-						h=d.at(iq)-d.at(ip);
-						if ((Math.abs(h)+g) == Math.abs(h))
-							t=a.at(ip, iq)/h;
-						else{
-							theta=0.5*h/a.at(ip, iq);
-							t=1./(Math.abs(theta)+Math.sqrt(1.+theta*theta));
-							if (theta<0.) t = -t;
+			//A = A - V*W' - W*V' after the panel
+			Range rest = new Range(i1 - i0, rows);
+			Matrix v2 = vm.at(rest, Range.all()), w2 = wm.at(rest, Range.all());
+			Matrix a22 = a.at(new Range(i1, n), new Range(i1, n));
+			Matrix.gemm(-1., v2, false, w2, true, 1., a22);
+			Matrix.gemm(-1., w2, false, v2, true, 1., a22);
+		}
+		//the last 2*2 block is already tridiagonal
+		for (int j = nr; j < n; j++)
+			diag[j] = x[j * n + j];
+		if (n > 1)
+			off[n - 2] = x[(n - 1) * n + n - 2];
+	}
+
+	/**
+	 * all the eigenvalues by QL, and the eigenvectors
+	 */
+	private void all(boolean vectors){
+		int n = a.rows();
+		//the rotations are applied to the rows, row i ends as the i-th eigenvector of T
+		Matrix z = vectors? Matrix.unit(n): null;
+		ql(z == null? null: z.data());
+		d = new Matrix(1, n, diag);
+		if (vectors){
+			v = z.t().clone();
+			backTransform(v);
+		}
+	}
+
+	/**
+	 * implicit QL with Wilkinson shifts on diag/off, rotating the rows of z (n*n) when it is not null
+	 */
+	private void ql(double[] z){
+		int n = diag.length, m;
+		double[] d = diag, e = off;
+		for (int l = 0; l < n; l++){
+			int iter = 0;
+			do {
+				for (m = l; m < n - 1; m++){
+					double dd = Math.abs(d[m]) + Math.abs(d[m + 1]);
+					if (Math.abs(e[m]) <= EPS * dd)
+						break;
+				}
+				if (m != l){
+					if (iter++ == MAX_ITERATIONS)
+						throw new RuntimeErrorException(new Error(), "Eigen value decomposition, no convergence in " +
+								MAX_ITERATIONS + " iterations.");
+					numberOfIterations++;
+					double g = (d[l + 1] - d[l]) / (2. * e[l]);
+					double r = pythag(g, 1.);
+					g = d[m] - d[l] + e[l] / (g + Math.copySign(r, g));
+					double s = 1., c = 1., p = 0.;
+					int i;
+					for (i = m - 1; i >= l; i--){
+						double f = s * e[i], b = c * e[i];
+						e[i + 1] = (r = pythag(f, g));
+						if (r == 0.){
+							d[i + 1] -= p;
+							e[m] = 0.;
+							break;
 						}
-						c=1./Math.sqrt(1+t*t);
-						s=t*c;
-						tau=s/(1.+c);
-						h=t*a.at(ip, iq);
-						z[ip] -= h;
-						z[iq] += h;
-						d.minus(0, ip, h);
-						d.plus(0, iq, h);
-						a.set(ip, iq, 0.);
-						for (j=0; j<ip; j++)
-							rotate(a, s, tau, j, ip, j, iq);
-						for (j=ip+1; j<iq; j++)
-							rotate(a, s, tau, ip, j, j, iq);
-						for (j=iq+1; j<n; j++)
-							rotate(a, s, tau, ip, j, iq, j);
-						for (j=0; j<n; j++)
-							rotate(v, s, tau, j, ip, j, iq);
-						numberOfIterations++;
+						s = f / r;
+						c = g / r;
+						g = d[i + 1] - p;
+						r = (d[i] - g) * s + 2. * c * b;
+						d[i + 1] = g + (p = s * r);
+						g = c * r - b;
+						if (z != null)
+							for (int k = i * n, k1 = k + n, end = k1; k < end; k++, k1++){
+								f = z[k1];
+								z[k1] = s * z[k] + c * f;
+								z[k] = c * z[k] - s * f;
+							}
 					}
+					if (r == 0. && i >= l)
+						continue;
+					d[l] -= p;
+					e[l] = g;
+					e[m] = 0.;
+				}
+			} while (m != l);
+		}
+	}
+
+	/**
+	 * sqrt(a^2+b^2) without overflow
+	 */
+	private static double pythag(double a, double b){
+		double x = Math.abs(a), y = Math.abs(b);
+		if (x > y)
+			return x * Math.sqrt(1. + (y / x) * (y / x));
+		return y == 0.? 0.: y * Math.sqrt(1. + (x / y) * (x / y));
+	}
+
+	/**
+	 * the eigenvalues from..to-1 (descending) by bisection, the eigenvectors by inverse iteration. Both work on T
+	 * scaled by a power of 2 to |T| in [1, 2) (exact, the vectors do not change), so the tolerances and the
+	 * perturbation of the pivots never vanish for a tiny |T| &gt; 0
+	 */
+	private void selected(int from, int to, boolean vectors){
+		int n = diag.length, k = to - from;
+		double scale = 0.;
+		for (int i = 0; i < n; i++)
+			scale = Math.max(scale, Math.abs(diag[i]) + Math.abs(off[i]));
+		if (scale == 0.){
+			//zero matrix, all the eigenvalues are 0 and the unit vectors are eigenvectors
+			d = new Matrix(1, k);
+			if (vectors){
+				v = new Matrix(n, k);
+				for (int q = 0; q < k; q++)
+					v.set(from + q, q, 1.);
+				backTransform(v);
+			}
+			return;
+		}
+		int shift = -Math.getExponent(scale);
+		double[] sd = new double[n], so = new double[n];
+		for (int i = 0; i < n; i++){
+			sd[i] = Math.scalb(diag[i], shift);
+			so[i] = Math.scalb(off[i], shift);
+		}
+		//Gershgorin interval of all the eigenvalues
+		double lo = Double.MAX_VALUE, hi = -Double.MAX_VALUE, e2 = 0.;
+		for (int i = 0; i < n; i++){
+			double r = (i > 0? Math.abs(so[i - 1]): 0.) + Math.abs(so[i]);
+			lo = Math.min(lo, sd[i] - r);
+			hi = Math.max(hi, sd[i] + r);
+			e2 = Math.max(e2, so[i] * so[i]);
+		}
+		double norm = Math.max(Math.abs(lo), Math.abs(hi)), pivmin = Double.MIN_NORMAL * Math.max(1., e2);
+		lo -= 2. * EPS * norm + pivmin;
+		hi += 2. * EPS * norm + pivmin;
+		double[] values = new double[k], scaled = new double[k];
+		for (int q = 0; q < k; q++){
+			scaled[q] = bisect(sd, so, n - 1 - from - q, lo, hi, 2. * EPS * norm + pivmin, pivmin);
+			values[q] = Math.scalb(scaled[q], -shift);
+		}
+		d = new Matrix(1, k, values);
+		if (vectors){
+			v = new Matrix(n, k);
+			inverseIteration(sd, so, scaled, v, norm);
+			backTransform(v);
+		}
+	}
+
+	/**
+	 * the index-th smallest eigenvalue of the tridiagonal diag/off in [lo, hi]
+	 */
+	private static double bisect(double[] diag, double[] off, int index, double lo, double hi, double tolerance,
+			double pivmin){
+		while (true){
+			double mid = .5 * (lo + hi);
+			if (hi - lo <= tolerance || mid <= lo || mid >= hi)
+				return mid;
+			if (count(diag, off, mid, pivmin) > index)
+				hi = mid;
+			else
+				lo = mid;
+		}
+	}
+
+	/**
+	 * number of the eigenvalues of the tridiagonal diag/off less than x (negative pivots of T - x*I)
+	 */
+	private static int count(double[] diag, double[] off, double x, double pivmin){
+		int c = 0;
+		double q = 1.;
+		for (int i = 0; i < diag.length; i++){
+			q = diag[i] - x - (i > 0? off[i - 1] * off[i - 1] / q: 0.);
+			if (Math.abs(q) <= pivmin)
+				q = -pivmin;
+			if (q < 0.)
+				c++;
+		}
+		return c;
+	}
+
+	/**
+	 * eigenvectors of the tridiagonal diag/off for the descending values into the columns of z, vectors of values
+	 * closer than 1e-3*|T| are kept orthogonal to each other
+	 */
+	private static void inverseIteration(double[] diag, double[] off, double[] values, Matrix z, double norm){
+		int n = diag.length, k = values.length;
+		double[] u = new double[n], u2 = new double[n], u3 = new double[n], l = new double[n], x = new double[n];
+		boolean[] swap = new boolean[n];
+		double[] zd = z.data();
+		double pert = Math.max(EPS * norm, Double.MIN_NORMAL), gap = 1e-3 * norm;
+		Random random = new Random(n);
+		for (int q = 0, first = 0; q < k; q++){
+			if (q > 0 && values[q - 1] - values[q] > gap)
+				first = q;
+			factor(diag, off, values[q], pert, u, u2, u3, l, swap);
+			for (int i = 0; i < n; i++)
+				x[i] = random.nextDouble() - .5;
+			for (int it = 0; it < INVERSE_ITERATIONS; it++){
+				solve(u, u2, u3, l, swap, x);
+				for (int p = first; p < q; p++){
+					double dot = 0.;
+					for (int i = 0; i < n; i++)
+						dot += zd[i * k + p] * x[i];
+					for (int i = 0; i < n; i++)
+						x[i] -= dot * zd[i * k + p];
 				}
+				double s = 0.;
+				for (int i = 0; i < n; i++)
+					s += x[i] * x[i];
+				s = 1. / Math.sqrt(s);
+				for (int i = 0; i < n; i++)
+					x[i] *= s;
+			}
+			for (int i = 0; i < n; i++)
+				zd[i * k + q] = x[i];
+		}
+	}
+
+	/**
+	 * T - lambda*I = P*L*U with partial pivoting, U has the diagonal u and the superdiagonals u2, u3,
+	 * l the multipliers and swap the row interchanges, tiny pivots are replaced by pert
+	 */
+	private static void factor(double[] diag, double[] off, double lambda, double pert, double[] u, double[] u2,
+			double[] u3, double[] l, boolean[] swap){
+		int n = diag.length;
+		u[0] = diag[0] - lambda;
+		u2[0] = off[0];
+		for (int i = 0; i < n - 1; i++){
+			double sub = off[i], next = diag[i + 1] - lambda, super2 = i + 2 < n? off[i + 1]: 0.;
+			swap[i] = Math.abs(sub) > Math.abs(u[i]);
+			if (!swap[i]){
+				if (Math.abs(u[i]) < pert)
+					u[i] = Math.copySign(pert, u[i]);
+				l[i] = sub / u[i];
+				u3[i] = 0.;
+				u[i + 1] = next - l[i] * u2[i];
+				u2[i + 1] = super2;
+			} else {
+				double t = u2[i];
+				l[i] = u[i] / sub;
+				u[i] = sub;
+				u2[i] = next;
+				u3[i] = super2;
+				u[i + 1] = t - l[i] * next;
+				u2[i + 1] = -l[i] * super2;
+			}
+		}
+		if (Math.abs(u[n - 1]) < pert)
+			u[n - 1] = Math.copySign(pert, u[n - 1]);
+	}
+
+	/**
+	 * x = inverse(T - lambda*I)*x with the factors of {@link #factor}
+	 */
+	private static void solve(double[] u, double[] u2, double[] u3, double[] l, boolean[] swap, double[] x){
+		int n = x.length;
+		for (int i = 0; i < n - 1; i++){
+			if (swap[i]){
+				double t = x[i];
+				x[i] = x[i + 1];
+				x[i + 1] = t;
 			}
-			for (ip=0; ip<n; ip++){
-				b[ip] += z[ip];
-				d.set(ip, b[ip]);
-				z[ip] = 0.;
+			x[i + 1] -= l[i] * x[i];
+		}
+		x[n - 1] /= u[n - 1];
+		if (n > 1)
+			x[n - 2] = (x[n - 2] - u2[n - 2] * x[n - 1]) / u[n - 2];
+		for (int i = n - 3; i >= 0; i--)
+			x[i] = (x[i] - u2[i] * x[i + 1] - u3[i] * x[i + 2]) / u[i];
+	}
+
+	/**
+	 * C = Q*C, the eigenvectors of T in the columns of C become those of A
+	 */
+	private void backTransform(Matrix c){
+		int n = a.rows(), nr = Math.max(0, n - 2);
+		for (int j0 = nr == 0? -1: (nr - 1) / BLOCK * BLOCK; j0 >= 0; j0 -= BLOCK)
+			applyBlock(j0, Math.min(j0 + BLOCK, nr), c.at(new Range(j0 + 1, n), Range.all()));
+	}
+
+	/**
+	 * the unit lower triangle of the vectors of the reflectors j0..j1-1 (rows j0+1..j1) as a dense matrix
+	 */
+	private Matrix topOfV(int j0, int j1){
+		int nb = j1 - j0, n = a.rows();
+		double[] x = a.data();
+		Matrix v = new Matrix(nb, nb);
+		for (int i = 0; i < nb; i++){
+			v.set(i, i, 1.);
+			for (int j = 0; j < i; j++)
+				v.set(i, j, x[(j0 + 1 + i) * n + j0 + j]);
+		}
+		return v;
+	}
+
+	/**
+	 * C = H(j0)*...*H(j1-1)*C = (I - V*T*V')*C, C has the rows j0+1..n-1, T from G = V'*V as in
+	 * {@link QRDecomposition}
+	 */
+	private void applyBlock(int j0, int j1, Matrix c){
+		int n = a.rows(), nb = j1 - j0, nc = c.columns();
+		Matrix v1 = topOfV(j0, j1), v2 = a.at(new Range(j1 + 1, n), new Range(j0, j1));
+		Matrix g = new Matrix(nb, nb), t = new Matrix(nb, nb);
+		Matrix.gemm(1., v1, true, v1, false, 0., g);
+		Matrix.gemm(1., v2, true, v2, false, 1., g);
+		for (int q = 0; q < nb; q++){
+			double tq = tau[j0 + q];
+			t.set(q, q, tq);
+			for (int i = 0; i < q; i++){
+				double sum = 0.;
+				for (int k = i; k < q; k++) sum += t.at(i, k) * g.at(k, q);
+				t.set(i, q, -tq * sum);
 			}
 		}
-		throw new RuntimeErrorException(new Error(), "Eigen value decomposition, no convergence in 50 iterations.");
+		Matrix c1 = c.at(new Range(0, nb), Range.all()), c2 = c.at(new Range(nb, n - j0 - 1), Range.all());
+		//W = V'*C, C -= V*T*W
+		Matrix w = new Matrix(nb, nc), tw = new Matrix(nb, nc);
+		Matrix.gemm(1., v1, true, c1, false, 0., w);
+		Matrix.gemm(1., v2, true, c2, false, 1., w);
+		Matrix.gemm(1., t, false, w, false, 0., tw);
+		Matrix.gemm(-1., v1, false, tw, false, 1., c1);
+		Matrix.gemm(-1., v2, false, tw, false, 1., c2);
 	}
-	
+
 	/**
-	 * sort the matrix
+	 * sort the eigenvalues in descending order, the eigenvectors (if any) follow
 	 */
 	public void sort(){
 		double p;
-		
+
 		int n=d.columns();
 		for (int i=0; i<n-1; i++){
 			int k=i;
@@ -171,7 +615,9 @@ public class EigenValueDecomposition {
 			if (k!=i){
 				d.set(k, d.at(i));
 				d.set(i, p);
-				for (int j=0; j<n; j++){
+				if (v == null)
+					continue;
+				for (int j=0; j<v.rows(); j++){
 					p=v.at(j, i);
 					v.set(j, i, v.at(j, k));
 					v.set(j, k, p);
@@ -179,5 +625,5 @@ public class EigenValueDecomposition {
 			}
 		}
 	}
-	
+
 }
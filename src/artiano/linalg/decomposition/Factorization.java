@@ -0,0 +1,170 @@
+/**
+ * Factorization.java
+ */
+package artiano.linalg.decomposition;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.MatrixArena;
+
+/**
+ * <p>Description: a reusable handle of an LU, Cholesky or QR decomposition, made once and then used for any number
+ * of solves. The coefficient matrix is copied before it is decomposed and the handle never changes after it is
+ * made, so the solves of one handle may run in parallel from several threads.</p>
+ * <p>The factors are allocated outside any {@link MatrixArena} opened by the calling thread, so the handle stays
+ * valid after the arena is closed. {@link FactorizationCache} keeps handles between calls.</p>
+ * <p>To use the class, you should write code like:
+ * <pre>
+ * Factorization f = Factorization.factor(A, Factorization.CHOLESKY);
+ * Matrix X = f.solve(B); //all the columns of B at once
+ * double[][] xs = f.solve(new double[][]{b1, b2, b3});
+ * </pre></p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class Factorization {
+	/** LU decomposition with partial pivoting, square nonsingular matrices */
+	public static final int LU = 0;
+	/** Cholesky decomposition, symmetric positive definite matrices */
+	public static final int CHOLESKY = 1;
+	/** Householder QR decomposition, least-squares solutions of matrices with rows &gt;= columns */
+	public static final int QR = 2;
+
+	private final int kind;
+	private final int rows;
+	private final int columns;
+	private final LUDecomposition lu;
+	private final CholeskyDecomposition cholesky;
+	private final QRDecomposition qr;
+
+	private Factorization(Matrix a, int kind){
+		this.kind = kind;
+		this.rows = a.rows();
+		this.columns = a.columns();
+		MatrixArena suspended = MatrixArena.suspend();
+		try {
+			lu = kind == LU? new LUDecomposition(a, true): null;
+			cholesky = kind == CHOLESKY? new CholeskyDecomposition(a, true): null;
+			qr = kind == QR? new QRDecomposition(a, true): null;
+		} finally {
+			MatrixArena.resume(suspended);
+		}
+		if (cholesky != null && !cholesky.isDefinite())
+			throw new UnsupportedOperationException("Factorization, matrix is not positive-definite.");
+	}
+
+	/**
+	 * decompose a matrix
+	 * @param a - coefficient matrix, not changed
+	 * @param kind - {@link #LU}, {@link #CHOLESKY} or {@link #QR}
+	 * @return - the handle
+	 */
+	public static Factorization factor(Matrix a, int kind){
+		check(kind);
+		return new Factorization(a, kind);
+	}
+
+	static void check(int kind){
+		if (kind < LU || kind > QR)
+			throw new IllegalArgumentException("Factorization, unknown kind of decomposition.");
+	}
+
+	/**
+	 * memory held by the factors of a rows*columns matrix, in bytes
+	 */
+	static long bytes(int rows, int columns, int kind){
+		long dense = 8L * rows * columns;
+		switch (kind){
+		case LU:
+			return dense + 4L * rows;
+		case CHOLESKY:
+			return dense + 8L * rows;
+		default:
+			//tau and the triangular factors of the panels
+			return dense + 8L * columns * (1 + QRDecomposition.BLOCK);
+		}
+	}
+
+	/**
+	 * solve A*X = B for all the columns of B at once (blocked triangular solves)
+	 * @param b - rows()*k right-hand sides, not changed
+	 * @return - columns()*k solutions, least-squares ones for {@link #QR}
+	 */
+	public Matrix solve(Matrix b){
+		if (b.rows() != rows)
+			throw new IllegalArgumentException("Factorization solve, size not match.");
+		switch (kind){
+		case LU:
+			return lu.solve(b, true);
+		case CHOLESKY:
+			return cholesky.solve(b);
+		default:
+			return qr.solve(b, true).compact();
+		}
+	}
+
+	/**
+	 * solve A*x = b for a batch of vectors, gathered into the columns of one matrix and solved at once
+	 * @param b - k vectors of rows() elements, not changed
+	 * @return - k solutions of columns() elements
+	 */
+	public double[][] solve(double[][] b){
+		int k = b.length;
+		if (k == 0)
+			return new double[0][];
+		Matrix x = new Matrix(rows, k);
+		double[] d = x.data();
+		for (int q = 0; q < k; q++){
+			if (b[q].length != rows)
+				throw new IllegalArgumentException("Factorization solve, size not match.");
+			for (int i = 0; i < rows; i++)
+				d[i * k + q] = b[q][i];
+		}
+		double[] y = solve(x).data();
+		double[][] solutions = new double[k][columns];
+		for (int i = 0; i < columns; i++)
+			for (int q = 0; q < k; q++)
+				solutions[q][i] = y[i * k + q];
+		return solutions;
+	}
+
+	/**
+	 * solve A*x = b
+	 * @param b - vector of rows() elements, not changed
+	 * @return - solution of columns() elements
+	 */
+	public double[] solve(double[] b){
+		return solve(new double[][]{ b })[0];
+	}
+
+	/**
+	 * get the kind of decomposition
+	 * @return - {@link #LU}, {@link #CHOLESKY} or {@link #QR}
+	 */
+	public int kind(){
+		return kind;
+	}
+
+	/**
+	 * get the rows of the decomposed matrix
+	 * @return - rows
+	 */
+	public int rows(){
+		return rows;
+	}
+
+	/**
+	 * get the columns of the decomposed matrix
+	 * @return - columns
+	 */
+	public int columns(){
+		return columns;
+	}
+
+	/**
+	 * get the memory held by the factors
+	 * @return - bytes
+	 */
+	public long bytes(){
+		return bytes(rows, columns, kind);
+	}
+}
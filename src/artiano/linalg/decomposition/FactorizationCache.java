@@ -0,0 +1,327 @@
+/**
+ * FactorizationCache.java
+ */
+package artiano.linalg.decomposition;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.RowCursor;
+
+/**
+ * <p>Description: a cache of {@link Factorization} handles, so code that solves with the same coefficient matrix
+ * again and again pays the O(n^3) decomposition once and then O(n^2) per right-hand side.</p>
+ * <p>A handle is found by one of two keys:</p>
+ * <li>a content fingerprint, {@link #get(Matrix, int)} hashes the elements of the matrix (O(n^2), two
+ * independent 64-bit hashes), so a changed matrix is decomposed again without any bookkeeping by the caller;</li>
+ * <li>an explicit identity and version, {@link #get(Object, long, Matrix, int)} does not read the matrix at all,
+ * the caller changes the version when the matrix changes and the handles of the other versions are dropped.</li>
+ * <p>The cache is bounded by a memory budget on the factors, the least recently used handles are evicted when it
+ * is exceeded (a handle larger than the whole budget is returned but not kept). An evicted handle stays usable
+ * by whoever holds it. All methods may be called from several threads: a matrix asked for by several threads at
+ * once is decomposed by one of them while the others wait, and the solves of a handle run in parallel.</p>
+ * <p>To use the class, you should write code like:
+ * <pre>
+ * FactorizationCache cache = new FactorizationCache(256L &lt;&lt; 20); //256MB of factors
+ * for (Matrix b: batches)
+ *     Matrix x = cache.get(A, Factorization.LU).solve(b);
+ * </pre></p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class FactorizationCache {
+	private final long memoryBudget;
+	/** handles in access order, the least recently used first */
+	private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, .75f, true);
+	private long memoryUsed = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * constructor
+	 * @param memoryBudget - bytes of factors kept at most
+	 */
+	public FactorizationCache(long memoryBudget){
+		if (memoryBudget <= 0)
+			throw new IllegalArgumentException("FactorizationCache, memory budget must be positive.");
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * get the handle of a matrix by the fingerprint of its content, decomposing it if it is not cached
+	 * @param a - coefficient matrix, not changed, must not change while it is decomposed
+	 * @param kind - {@link Factorization#LU}, {@link Factorization#CHOLESKY} or {@link Factorization#QR}
+	 * @return - the handle
+	 */
+	public Factorization get(Matrix a, int kind){
+		Factorization.check(kind);
+		return get(new Fingerprint(a, kind), a, kind);
+	}
+
+	/**
+	 * get the handle of a matrix by an explicit key, decomposing it if it is not cached, the handles of the
+	 * other versions of id are dropped
+	 * @param id - identity of the matrix, compared by equals
+	 * @param version - version of the matrix, to be changed whenever its content changes
+	 * @param a - coefficient matrix, only read when it is decomposed
+	 * @param kind - {@link Factorization#LU}, {@link Factorization#CHOLESKY} or {@link Factorization#QR}
+	 * @return - the handle
+	 */
+	public Factorization get(Object id, long version, Matrix a, int kind){
+		Factorization.check(kind);
+		if (id == null)
+			throw new IllegalArgumentException("FactorizationCache, id must not be null.");
+		return get(new Version(id, version, kind), a, kind);
+	}
+
+	/**
+	 * solve A*X = B with the cached handle of A (by fingerprint)
+	 * @param a - coefficient matrix
+	 * @param kind - kind of decomposition
+	 * @param b - right-hand sides, not changed
+	 * @return - solutions
+	 */
+	public Matrix solve(Matrix a, int kind, Matrix b){
+		return get(a, kind).solve(b);
+	}
+
+	private Factorization get(Object key, final Matrix a, final int kind){
+		FutureTask<Factorization> task;
+		boolean owner = false;
+		synchronized (this){
+			Entry e = entries.get(key);
+			if (e != null){
+				hits++;
+				task = e.task;
+			} else {
+				misses++;
+				task = new FutureTask<Factorization>(new Callable<Factorization>() {
+					@Override
+					public Factorization call(){
+						return Factorization.factor(a, kind);
+					}
+				});
+				owner = true;
+				if (key instanceof Version)
+					drop(((Version) key).id, (Version) key);
+				long bytes = Factorization.bytes(a.rows(), a.columns(), kind);
+				if (bytes <= memoryBudget){
+					entries.put(key, new Entry(task, bytes));
+					memoryUsed += bytes;
+					evict(key);
+				}
+			}
+		}
+		//decomposed out of the lock, the other threads asking for the same key wait on the task
+		if (owner)
+			task.run();
+		try {
+			return task.get();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("FactorizationCache, interrupted while waiting for a decomposition.");
+		} catch (ExecutionException e){
+			synchronized (this){
+				Entry failed = entries.get(key);
+				if (failed != null && failed.task == task)
+					remove(key);
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * evict the least recently used entries until the budget holds, keep is never evicted
+	 */
+	private void evict(Object keep){
+		Iterator<Map.Entry<Object, Entry>> it = entries.entrySet().iterator();
+		while (memoryUsed > memoryBudget && it.hasNext()){
+			Map.Entry<Object, Entry> e = it.next();
+			if (e.getKey().equals(keep))
+				continue;
+			memoryUsed -= e.getValue().bytes;
+			evictions++;
+			it.remove();
+		}
+	}
+
+	/**
+	 * remove the entries of id whose version is not the one of keep, all of them when keep is null
+	 */
+	private void drop(Object id, Version keep){
+		Iterator<Map.Entry<Object, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()){
+			Map.Entry<Object, Entry> e = it.next();
+			if (!(e.getKey() instanceof Version))
+				continue;
+			Version key = (Version) e.getKey();
+			if (key.id.equals(id) && (keep == null || key.version != keep.version)){
+				memoryUsed -= e.getValue().bytes;
+				it.remove();
+			}
+		}
+	}
+
+	private void remove(Object key){
+		Entry e = entries.remove(key);
+		if (e != null)
+			memoryUsed -= e.bytes;
+	}
+
+	/**
+	 * drop all the handles cached for an explicit id
+	 * @param id - identity given to {@link #get(Object, long, Matrix, int)}
+	 */
+	public synchronized void invalidate(Object id){
+		drop(id, null);
+	}
+
+	/**
+	 * drop all the handles
+	 */
+	public synchronized void clear(){
+		entries.clear();
+		memoryUsed = 0;
+	}
+
+	/**
+	 * get the number of cached handles
+	 * @return - handles
+	 */
+	public synchronized int size(){
+		return entries.size();
+	}
+
+	/**
+	 * get the memory held by the cached factors
+	 * @return - bytes
+	 */
+	public synchronized long getMemoryUsed(){
+		return memoryUsed;
+	}
+
+	/**
+	 * get the memory budget
+	 * @return - bytes
+	 */
+	public long getMemoryBudget(){
+		return memoryBudget;
+	}
+
+	/**
+	 * get the number of requests served from the cache
+	 * @return - hits
+	 */
+	public synchronized long hits(){
+		return hits;
+	}
+
+	/**
+	 * get the number of requests that decomposed a matrix
+	 * @return - misses
+	 */
+	public synchronized long misses(){
+		return misses;
+	}
+
+	/**
+	 * get the number of handles evicted to respect the budget
+	 * @return - evictions
+	 */
+	public synchronized long evictions(){
+		return evictions;
+	}
+
+	private static final class Entry {
+		final FutureTask<Factorization> task;
+		final long bytes;
+
+		Entry(FutureTask<Factorization> task, long bytes){
+			this.task = task;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * key of the content: kind, size and two independent hashes of the bits of the elements
+	 */
+	private static final class Fingerprint {
+		final int kind;
+		final int rows;
+		final int columns;
+		final long h1;
+		final long h2;
+
+		Fingerprint(Matrix a, int kind){
+			this.kind = kind;
+			this.rows = a.rows();
+			this.columns = a.columns();
+			long f = 0xcbf29ce484222325L, g = 0x6a09e667f3bcc909L;
+			RowCursor r = a.cursor();
+			double[] d = r.array();
+			while (r.next()){
+				int p = r.offset(), s = r.stride();
+				for (int j = 0; j < columns; j++, p += s){
+					long bits = Double.doubleToLongBits(d[p]);
+					//FNV-1a on the whole word, and a multiply-rotate mix
+					f = (f ^ bits) * 0x100000001b3L;
+					g = Long.rotateLeft(g + bits * 0x9e3779b97f4a7c15L, 31) * 0xbf58476d1ce4e5b9L;
+				}
+			}
+			this.h1 = f;
+			this.h2 = g;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if (!(o instanceof Fingerprint))
+				return false;
+			Fingerprint x = (Fingerprint) o;
+			return kind == x.kind && rows == x.rows && columns == x.columns && h1 == x.h1 && h2 == x.h2;
+		}
+
+		@Override
+		public int hashCode(){
+			return (int) (h1 ^ (h1 >>> 32)) * 31 + kind;
+		}
+	}
+
+	/**
+	 * key given by the caller
+	 */
+	private static final class Version {
+		final Object id;
+		final long version;
+		final int kind;
+
+		Version(Object id, long version, int kind){
+			this.id = id;
+			this.version = version;
+			this.kind = kind;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if (!(o instanceof Version))
+				return false;
+			Version x = (Version) o;
+			return version == x.version && kind == x.kind && id.equals(x.id);
+		}
+
+		@Override
+		public int hashCode(){
+			return (id.hashCode() * 31 + (int) (version ^ (version >>> 32))) * 31 + kind;
+		}
+	}
+}
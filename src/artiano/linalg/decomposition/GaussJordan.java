@@ -4,6 +4,7 @@
 package artiano.linalg.decomposition;
 
 import artiano.core.structure.Matrix;
+import artiano.core.structure.MatrixArena;
 
 /**
  * <p>Description: Solve the matrix equation like A*x = B.</p>
@@ -41,8 +42,8 @@ public class GaussJordan {
 		if (a.rows() != b.rows())
 			throw new IllegalArgumentException("GaussJordan, size of A and B not match.");
 		if (reserve){
-			this.a = a.clone();
-			this.b = b.clone();
+			this.a = MatrixArena.copyOf(a);
+			this.b = MatrixArena.copyOf(b);
 		}
 		else {
 			this.a = a;
@@ -84,9 +85,9 @@ public class GaussJordan {
 		int n = a.rows();
 		int m = b.columns();
 		//for record the main element
-		int[] colIdx = new int[n];
-		int[] rowIdx = new int[n];
-		int[] ipiv  = new int[n];
+		int[] colIdx = MatrixArena.allocateInts(n);
+		int[] rowIdx = MatrixArena.allocateInts(n);
+		int[] ipiv  = MatrixArena.allocateInts(n);
 		//variables for count
 		int i, icol = 0, irow = 0, j, k, l, ll;
 		//initialize
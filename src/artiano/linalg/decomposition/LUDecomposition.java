@@ -4,6 +4,8 @@
 package artiano.linalg.decomposition;
 
 import artiano.core.structure.Matrix;
+import artiano.core.structure.MatrixArena;
+import artiano.core.structure.Range;
 
 /**
  * <p>Description: solve matrix equation like A*x=b.</p>
@@ -16,6 +18,10 @@ import artiano.core.structure.Matrix;
  * <br>Matrix solution = decomposition.solve(b); //solve the equation, assume don't reserve</br>
  * <br>Matrix inversion = decompostion.inverse(); //get the inversion of A</br>
  * ...</code>
+ * <p>The decomposition is a right-looking blocked elimination with (implicitly scaled) partial pivoting: a panel
+ * of {@link #BLOCK} columns is factored sequentially, the rows of U to its right are solved against the unit
+ * lower triangle of the panel, and the trailing submatrix is updated by one {@link Matrix#gemm} call, which
+ * runs in parallel when {@link Matrix#setParallelism(int)} allows it. The solves are blocked the same way.</p>
  * @author Nano.Michael
  * @version 1.0.0
  * @date 2013-8-18
@@ -24,7 +30,9 @@ import artiano.core.structure.Matrix;
  * @since 1.0
  */
 public class LUDecomposition {
-	//coefficient matrix
+	/** columns of a panel */
+	static final int BLOCK = 64;
+	//coefficient matrix, L and U stored in it after decomposition (row-major and continuous)
 	private Matrix a = null;
 	//index
 	private int[] indx = null;
@@ -40,12 +48,13 @@ public class LUDecomposition {
 	public LUDecomposition(Matrix a, boolean reserve){
 		if (a.rows() != a.columns())
 			throw new IllegalArgumentException("The class accept the square matrix only.");
-		if (reserve)
-			this.a = a.clone();
-		else 
-			this.a = a;
-		indx = new int[a.rows()];
+		//views are decomposed in a continuous copy, written back when not reserved
+		Matrix work = reserve ? MatrixArena.copyOf(a): a.compact();
+		this.a = work;
+		indx = MatrixArena.allocateInts(a.rows());
 		decompose();
+		if (!reserve && work != a)
+			work.copyTo(a);
 	}
 	
 	/* (non-Javadoc)
@@ -70,7 +79,7 @@ public class LUDecomposition {
 	 * @return - determinant of the matrix
 	 */
 	public double det(){
-		double detvalue = 1.;
+		double detvalue = d;
 		for (int i = 0; i < a.rows(); i++)
 			detvalue *= a.at(i, i);
 		return detvalue;
@@ -80,50 +89,56 @@ public class LUDecomposition {
 	 * decompose A the form like this: L*U = A, the L and U stored in a
 	 */
 	protected void decompose(){
-		final double TINY = 1.e-20;
-		//variables for count
-		int i, imax = 0, j, k;
-		//useful variable
-		double big, dum,sum,temp;
-		
 		int n = a.rows();
+		double[] x = a.data();
 		//vv contents of each row for storing the scale factor
-		double[] vv = new double[n];
+		double[] vv = MatrixArena.allocateDoubles(n);
 		d = 1.;
 		
-		for (i = 0; i < n; i++){
-			big = 0.;
-			for (j = 0; j < n; j++)
-				if ((temp = Math.abs(a.at(i, j))) > big) big = temp;
+		for (int i = 0; i < n; i++){
+			double big = 0., temp;
+			for (int j = 0, p = i * n; j < n; j++, p++)
+				if ((temp = Math.abs(x[p])) > big) big = temp;
 			if (big == 0.)
 				throw new IllegalArgumentException("LU decomposition, singular matrix.");
 			//store the scale factor
 			vv[i] = 1. / big;
 		}
 		
-		for (j = 0; j < n; j++){
-			for (i = 0; i < j; i++){
-				sum = a.at(i, j);
-				for (k = 0; k < i; k++) sum -= a.at(i, k) * a.at(k, j);
-				a.set(i, j, sum);
-			}
+		for (int k0 = 0; k0 < n; k0 += BLOCK){
+			int k1 = Math.min(k0 + BLOCK, n);
+			factorPanel(x, n, k0, k1, vv);
+			if (k1 == n)
+				break;
+			//U12 = inv(L11)*A12
+			forward(x, n, k0, k1, x, n, k1, n);
+			//A22 -= L21*U12
+			Matrix.gemm(-1., a.at(new Range(k1, n), new Range(k0, k1)), false,
+					a.at(new Range(k0, k1), new Range(k1, n)), false, 1., a.at(new Range(k1, n), new Range(k1, n)));
+		}
+	}
+	
+	/**
+	 * factor the columns k0..k1-1 (rows k0..n-1), the pivot rows are swapped in full
+	 */
+	private void factorPanel(double[] x, int n, int k0, int k1, double[] vv){
+		final double TINY = 1.e-20;
+		for (int j = k0; j < k1; j++){
 			//initialize the biggest element
-			big = 0.;
-			for (i = j; i < n; i++){
-				sum = a.at(i, j);
-				for (k = 0; k < j; k++) sum -= a.at(i, k) *a.at(k, j);
-				a.set(i, j, sum);
-				if ((dum = vv[i] * Math.abs(sum)) >= big){
+			double big = 0., dum;
+			int imax = j;
+			for (int i = j, p = j * n + j; i < n; i++, p += n)
+				if ((dum = vv[i] * Math.abs(x[p])) >= big){
 					big = dum;
 					imax = i;
 				}
-			}
+			int jo = j * n;
 			if (j != imax){
 				//swap
-				for (k = 0; k < n; k++){
-					dum = a.at(imax, k);
-					a.set(imax, k, a.at(j, k));
-					a.set(j, k, dum);
+				for (int k = 0, io = imax * n; k < n; k++){
+					dum = x[io + k];
+					x[io + k] = x[jo + k];
+					x[jo + k] = dum;
 				}
 				//change the parity
 				d = -d;
@@ -131,10 +146,30 @@ public class LUDecomposition {
 			}
 			indx[j] = imax;
 			//if matrix is singular, a[j][j] replaced with tiny
-			if (a.at(j, j) == 0.) a.set(j, j, TINY);
-			if (j != n - 1){
-				dum = 1. / a.at(j, j);
-				for (i = j + 1; i < n; i++) a.multiply(i, j, dum);
+			if (x[jo + j] == 0.) x[jo + j] = TINY;
+			dum = 1. / x[jo + j];
+			for (int i = j + 1, io = i * n; i < n; i++, io += n){
+				double l = x[io + j] *= dum;
+				if (l != 0.)
+					for (int k = j + 1; k < k1; k++)
+						x[io + k] -= l * x[jo + k];
+			}
+		}
+	}
+	
+	/**
+	 * rows k0..k1-1 of b (columns c0..c1-1, row stride m) -= strictly lower part of L11 times themselves,
+	 * i.e. solve the unit lower triangular block of the rows k0..k1-1
+	 */
+	private static void forward(double[] x, int n, int k0, int k1, double[] b, int m, int c0, int c1){
+		for (int r = k0 + 1; r < k1; r++){
+			int ro = r * m;
+			for (int p = k0; p < r; p++){
+				double l = x[r * n + p];
+				if (l == 0.)
+					continue;
+				for (int k = c0, po = p * m; k < c1; k++)
+					b[ro + k] -= l * b[po + k];
 			}
 		}
 	}
@@ -157,30 +192,50 @@ public class LUDecomposition {
 		if (c.rows() != a.rows())
 			throw new IllegalArgumentException("LU solve, size not match.");
 		Matrix b = reserve ? c.clone(): c;
-		//variables for count
-		int i, ii = 0, ip, j;
-		double sum = 0;
-		
-		int n = a.rows();
-		//walk through all column-vectors
-		for (int k = 0; k < b.columns(); k++){
-			for (i = 0; i < n; i++){
-				ip = indx[i];
-				sum = b.at(ip, k);
-				b.set(ip, k, b.at(i, k));
-				if (ii != 0)
-					for (j = ii - 1; j < i; j++) sum -= a.at(i, j) * b.at(j, k);
-				else if (sum != 0.)
-					ii = i + 1;
-				b.set(i, k, sum);
+		Matrix w = b.compact();
+		int n = a.rows(), m = w.columns();
+		double[] x = a.data(), y = w.data();
+		//apply the row interchanges
+		for (int i = 0; i < n; i++){
+			int ip = indx[i];
+			if (ip == i)
+				continue;
+			for (int k = 0, io = i * m, po = ip * m; k < m; k++){
+				double t = y[io + k];
+				y[io + k] = y[po + k];
+				y[po + k] = t;
 			}
-			
-			for (i = n - 1; i >= 0; i--){
-				sum = b.at(i, k);
-				for (j = i + 1; j < n; j++) sum -= a.at(i, j) * b.at(j, k);
-				b.set(i, k, sum / a.at(i, i));
+		}
+		//L*z = P*b
+		for (int k0 = 0; k0 < n; k0 += BLOCK){
+			int k1 = Math.min(k0 + BLOCK, n);
+			forward(x, n, k0, k1, y, m, 0, m);
+			if (k1 < n)
+				Matrix.gemm(-1., a.at(new Range(k1, n), new Range(k0, k1)), false,
+						w.at(new Range(k0, k1), Range.all()), false, 1., w.at(new Range(k1, n), Range.all()));
+		}
+		//U*v = z
+		for (int k1 = n, k0; k1 > 0; k1 = k0){
+			k0 = Math.max(0, k1 - BLOCK);
+			for (int r = k1 - 1; r >= k0; r--){
+				int ro = r * m;
+				for (int p = r + 1; p < k1; p++){
+					double u = x[r * n + p];
+					if (u == 0.)
+						continue;
+					for (int k = 0, po = p * m; k < m; k++)
+						y[ro + k] -= u * y[po + k];
+				}
+				double pivot = x[r * n + r];
+				for (int k = 0; k < m; k++)
+					y[ro + k] /= pivot;
 			}
+			if (k0 > 0)
+				Matrix.gemm(-1., a.at(new Range(0, k0), new Range(k0, k1)), false,
+						w.at(new Range(k0, k1), Range.all()), false, 1., w.at(new Range(0, k0), Range.all()));
 		}
+		if (w != b)
+			w.copyTo(b);
 		return b;
 	}
 }
@@ -4,9 +4,23 @@
 package artiano.linalg.decomposition;
 
 import artiano.core.structure.Matrix;
+import artiano.core.structure.MatrixArena;
+import artiano.core.structure.Range;
 
 /**
- * <p>Description:</p>
+ * <p>Description: Householder QR decomposition A = Q*R of an m*n matrix, m &gt;= n.</p>
+ * <p>The decomposition is blocked: the reflectors H(k) = I - tau(k)*v(k)*v(k)' of a panel of {@link #BLOCK}
+ * columns are accumulated into the compact WY form H(k0)*...*H(k1-1) = I - V*T*V' (T upper triangular), and
+ * the rest of the matrix is updated by matrix-matrix products ({@link Matrix#gemm}, parallel when
+ * {@link Matrix#setParallelism(int)} allows it). R is kept in the upper triangle and the vectors v (with an
+ * implicit unit first element) below the diagonal, so Q is never formed: {@link #multiplyQt(Matrix, boolean)}
+ * and {@link #multiplyQ(Matrix, boolean)} apply it blockwise, {@link #Q()} forms only the thin m*n factor, and
+ * {@link #solve(Matrix)} solves the least-squares problem min|A*x-B| of a tall matrix.</p>
+ * <p>To use the class, you should write code like:
+ * <pre>
+ * QRDecomposition qr = new QRDecomposition(A, true);
+ * Matrix x = qr.solve(B, true); //least-squares solution, n*B.columns()
+ * </pre></p>
  * @author Nano.Michael
  * @version 1.0.0
  * @date 2013-9-7
@@ -14,10 +28,15 @@ import artiano.core.structure.Matrix;
  * @since 1.0.0
  */
 public class QRDecomposition {
+	/** columns of a panel */
+	static final int BLOCK = 32;
 	
+	/** R above and on the diagonal, the Householder vectors below it (row-major and continuous) */
 	protected Matrix a = null;
-	protected Matrix c = null;
-	protected Matrix d = null;
+	/** scale factors of the reflectors */
+	protected double[] tau = null;
+	/** triangular factors of the panels */
+	protected Matrix[] t = null;
 	boolean singular = false;
 	
 	/**
@@ -30,60 +49,143 @@ public class QRDecomposition {
 	
 	/**
 	 * constructor
-	 * @param a - matrix to decompose
-	 * @param reserve - indicate reserve a whether or not
+	 * @param a - matrix to decompose, rows must not be less than columns
+	 * @param reserve - indicate reserve a whether or not, if not a is replaced by R and the reflectors
 	 */
 	public QRDecomposition(Matrix a, boolean reserve){
-		if (a.rows() != a.columns())
-			throw new IllegalArgumentException("QRDecomposition, accept square matrix only.");
-		this.a = reserve? a.clone(): a;
-		c = new Matrix(a.rows(), 1);
-		d = new Matrix(a.rows(), 1);
+		if (a.rows() < a.columns())
+			throw new IllegalArgumentException("QRDecomposition, rows must not be less than columns.");
+		//views are decomposed in a continuous copy, written back when not reserved
+		this.a = reserve? MatrixArena.copyOf(a): a.compact();
+		tau = MatrixArena.allocateDoubles(a.columns());
+		t = new Matrix[(a.columns() + BLOCK - 1) / BLOCK];
 		decompose();
+		if (!reserve && this.a != a)
+			this.a.copyTo(a);
 	}
 	
 	/**
 	 * decompose the matrix
 	 */
 	protected void decompose(){
-		//for record index
-		int i, j, k;
-		double scale, sigma, sum, tau;
-		
-		int n = a.rows();
-		for (k = 0; k < n - 1; k++){
-			scale = 0.;
-			for (i = k; i < n; i++) scale = Math.max(scale, Math.abs(a.at(i, k)));
-			if (scale == 0.){
-				singular = true;
-				c.set(k, 0.);
-				d.set(k, 0.);
-			} else {
-				for (i = k; i < n; i++) a.divide(i, k, scale);
-				for (sum = 0., i = k; i < n; i++) sum += Math.pow(a.at(i, k), 2);
-				sigma = sign(Math.sqrt(sum), a.at(k, k));
-				a.plus(k, k, sigma);
-				c.set(k, sigma*a.at(k, k));
-				d.set(k, -scale*sigma);
-				for (j = k+1; j<n; j++){
-					for (sum = 0., i = k; i<n; i++) sum += a.at(i, k)*a.at(i, j);
-					tau = sum/c.at(k);
-					for (i=k; i<n; i++) a.minus(i, j, tau*a.at(i, k));
-				}
+		int m = a.rows(), n = a.columns();
+		double[] x = a.data();
+		for (int k0 = 0; k0 < n; k0 += BLOCK){
+			int k1 = Math.min(k0 + BLOCK, n);
+			factorPanel(x, m, n, k0, k1);
+			t[k0 / BLOCK] = triangularFactor(k0, k1);
+			if (k1 < n)
+				applyBlock(k0, k1, true, a.at(new Range(k0, m), new Range(k1, n)));
+		}
+		for (int k = 0; k < n; k++)
+			if (x[k * n + k] == 0.) singular = true;
+	}
+	
+	/**
+	 * reflectors of the columns k0..k1-1, applied to the rest of the panel row by row
+	 */
+	private void factorPanel(double[] x, int m, int n, int k0, int k1){
+		double[] w = new double[k1 - k0];
+		for (int j = k0; j < k1; j++){
+			int jj = j * n + j;
+			double alpha = x[jj], sum = 0.;
+			for (int i = j + 1, p = jj + n; i < m; i++, p += n) sum += x[p] * x[p];
+			if (Double.isInfinite(sum) || (sum < Double.MIN_NORMAL && sum > 0.)){
+				//rescale against overflow and underflow
+				double scale = 0.;
+				for (int i = j + 1, p = jj + n; i < m; i++, p += n) scale = Math.max(scale, Math.abs(x[p]));
+				sum = 0.;
+				for (int i = j + 1, p = jj + n; i < m; i++, p += n) sum += (x[p] / scale) * (x[p] / scale);
+				sum = scale * Math.sqrt(sum);
+			} else
+				sum = Math.sqrt(sum);
+			if (sum == 0.){
+				//nothing to eliminate, H(j) = I
+				tau[j] = 0.;
+				continue;
+			}
+			double beta = -Math.copySign(Math.hypot(alpha, sum), alpha);
+			tau[j] = (beta - alpha) / beta;
+			double f = 1. / (alpha - beta);
+			for (int i = j + 1, p = jj + n; i < m; i++, p += n) x[p] *= f;
+			x[jj] = beta;
+			if (j + 1 == k1)
+				continue;
+			//w = v'*A(j.., j+1..k1-1), A -= tau*v*w
+			int c0 = j + 1, nc = k1 - c0;
+			for (int c = 0; c < nc; c++) w[c] = x[jj + 1 + c];
+			for (int i = j + 1, p = i * n; i < m; i++, p += n){
+				double v = x[p + j];
+				if (v != 0.)
+					for (int c = 0; c < nc; c++) w[c] += v * x[p + c0 + c];
+			}
+			for (int c = 0; c < nc; c++) w[c] *= tau[j];
+			for (int c = 0; c < nc; c++) x[jj + 1 + c] -= w[c];
+			for (int i = j + 1, p = i * n; i < m; i++, p += n){
+				double v = x[p + j];
+				if (v != 0.)
+					for (int c = 0; c < nc; c++) x[p + c0 + c] -= v * w[c];
 			}
 		}
-		d.set(n-1, a.at(n-1, n-1));
-		if (d.at(n-1) == 0.) singular = true;	
 	}
 	
 	/**
-	 * sign function of a with b
-	 * @param a
-	 * @param b
-	 * @return sign function value
+	 * the unit lower triangle of the vectors of the columns k0..k1-1 (rows k0..k1-1) as a dense matrix
 	 */
-	private double sign(final double a, final double b){
-		return b >= 0 ? (a >= 0 ? a: -a): (a >= 0 ? -a: a);
+	private Matrix topOfV(int k0, int k1){
+		int nb = k1 - k0, n = a.columns();
+		double[] x = a.data();
+		Matrix v = new Matrix(nb, nb);
+		for (int i = 0; i < nb; i++){
+			v.set(i, i, 1.);
+			for (int j = 0; j < i; j++)
+				v.set(i, j, x[(k0 + i) * n + k0 + j]);
+		}
+		return v;
+	}
+	
+	/**
+	 * T of H(k0)*...*H(k1-1) = I - V*T*V', from G = V'*V: T(0..q-1, q) = -tau(q)*T(0..q-1, 0..q-1)*G(0..q-1, q)
+	 */
+	private Matrix triangularFactor(int k0, int k1){
+		int m = a.rows(), nb = k1 - k0;
+		Matrix v1 = topOfV(k0, k1), g = new Matrix(nb, nb);
+		Matrix.gemm(1., v1, true, v1, false, 0., g);
+		if (k1 < m){
+			Matrix v2 = a.at(new Range(k1, m), new Range(k0, k1));
+			Matrix.gemm(1., v2, true, v2, false, 1., g);
+		}
+		Matrix t = new Matrix(nb, nb);
+		for (int q = 0; q < nb; q++){
+			double tq = tau[k0 + q];
+			t.set(q, q, tq);
+			for (int i = 0; i < q; i++){
+				double sum = 0.;
+				for (int k = i; k < q; k++) sum += t.at(i, k) * g.at(k, q);
+				t.set(i, q, -tq * sum);
+			}
+		}
+		return t;
+	}
+	
+	/**
+	 * C = (I - V*op(T)*V')*C for the panel k0..k1-1, op(T) is T' when transpose (applying Q'), C has the rows
+	 * k0..m-1
+	 */
+	private void applyBlock(int k0, int k1, boolean transpose, Matrix c){
+		int m = a.rows(), nb = k1 - k0, nc = c.columns();
+		Matrix v1 = topOfV(k0, k1), v2 = k1 < m ? a.at(new Range(k1, m), new Range(k0, k1)): null;
+		Matrix c1 = c.at(new Range(0, nb), Range.all()), c2 = k1 < m ? c.at(new Range(nb, m - k0), Range.all()): null;
+		//W = V'*C
+		Matrix w = new Matrix(nb, nc), tw = new Matrix(nb, nc);
+		Matrix.gemm(1., v1, true, c1, false, 0., w);
+		if (v2 != null)
+			Matrix.gemm(1., v2, true, c2, false, 1., w);
+		//C -= V*op(T)*W
+		Matrix.gemm(1., t[k0 / BLOCK], transpose, w, false, 0., tw);
+		Matrix.gemm(-1., v1, false, tw, false, 1., c1);
+		if (v2 != null)
+			Matrix.gemm(-1., v2, false, tw, false, 1., c2);
 	}
 	
 	/**
@@ -91,12 +193,71 @@ public class QRDecomposition {
 	 * @return - inversion
 	 */
 	public Matrix inverse(){
+		if (a.rows() != a.columns())
+			throw new UnsupportedOperationException("QRDecomposition inverse, matrix is not square.");
 		Matrix I = Matrix.unit(a.rows());
 		return solve(I);
 	}
 	
 	/**
-	 * solve the matrix equation like A*x=B.
+	 * compute Q'*B blockwise, Q is never formed
+	 * @param B - matrix with as many rows as the decomposed matrix
+	 * @param reserve - indicate reserve B whether or not
+	 * @return - Q'*B
+	 */
+	public Matrix multiplyQt(Matrix B, boolean reserve){
+		int m = a.rows(), n = a.columns();
+		if (B.rows() != m)
+			throw new IllegalArgumentException("QRDecomposition multiply, size not match.");
+		Matrix b = reserve? B.clone(): B;
+		for (int k0 = 0; k0 < n; k0 += BLOCK)
+			applyBlock(k0, Math.min(k0 + BLOCK, n), true, b.at(new Range(k0, m), Range.all()));
+		return b;
+	}
+	
+	/**
+	 * compute Q*B blockwise, Q is never formed
+	 * @param B - matrix with as many rows as the decomposed matrix
+	 * @param reserve - indicate reserve B whether or not
+	 * @return - Q*B
+	 */
+	public Matrix multiplyQ(Matrix B, boolean reserve){
+		int m = a.rows(), n = a.columns();
+		if (B.rows() != m)
+			throw new IllegalArgumentException("QRDecomposition multiply, size not match.");
+		Matrix b = reserve? B.clone(): B;
+		for (int k0 = (n - 1) / BLOCK * BLOCK; k0 >= 0; k0 -= BLOCK)
+			applyBlock(k0, Math.min(k0 + BLOCK, n), false, b.at(new Range(k0, m), Range.all()));
+		return b;
+	}
+	
+	/**
+	 * the thin (economy) factor Q, m*n with orthonormal columns
+	 * @return - thin Q
+	 */
+	public Matrix Q(){
+		int m = a.rows(), n = a.columns();
+		Matrix q = new Matrix(m, n);
+		for (int i = 0; i < n; i++)
+			q.set(i, i, 1.);
+		return multiplyQ(q, false);
+	}
+	
+	/**
+	 * the upper triangular factor R, n*n
+	 * @return - R
+	 */
+	public Matrix R(){
+		int n = a.columns();
+		Matrix r = new Matrix(n, n);
+		for (int i = 0; i < n; i++)
+			for (int j = i; j < n; j++)
+				r.set(i, j, a.at(i, j));
+		return r;
+	}
+	
+	/**
+	 * solve the matrix equation like A*x=B (in the least-squares sense if A has more rows than columns).
 	 * @param B - constant matrix
 	 * @return - result
 	 */
@@ -105,26 +266,18 @@ public class QRDecomposition {
 	}
 	
 	/**
-	 * solve the matrix equation like A*x=B.
+	 * solve the matrix equation like A*x=B (in the least-squares sense if A has more rows than columns).
 	 * @param B - constant matrix
-	 * @param reserve - indicate reserve B whether or not
-	 * @return
+	 * @param reserve - indicate reserve B whether or not, if not B is replaced by Q'*B and the solution is its
+	 * first n rows
+	 * @return - the n*B.columns() solution
 	 */
 	public Matrix solve(Matrix B, boolean reserve){
 		if (B.rows() != a.rows())
 			throw new IllegalArgumentException("QRDecomposition solve, size not match.");
-		Matrix b = reserve? B.clone(): B;
-		double sum, tau;
-		int n = a.rows();
-		for (int k=0; k<b.columns(); k++){
-			for (int j = 0; j<n-1; j++){
-				sum = 0.;
-				for (int i = j; i<n; i++) sum += a.at(i, j)*b.at(i, k);
-				tau = sum/c.at(j);
-				for (int i = j; i<n; i++) b.minus(i, k, tau*a.at(i, j));
-			}
-		}
-		return solveR(b);
+		Matrix b = multiplyQt(B, reserve);
+		int n = a.columns();
+		return solveR(b.rows() == n ? b: b.at(new Range(0, n), Range.all()), false);
 	}
 	
 	/**
@@ -143,20 +296,31 @@ public class QRDecomposition {
 	 * @return - result
 	 */
 	public Matrix solveR(Matrix B, boolean reserve){
-		if (a.rows() != B.rows())
+		int n = a.columns();
+		if (B.rows() != n)
 			throw new IllegalArgumentException("QRDecomposition solveR, size not match.");
 		Matrix b = reserve? B.clone(): B;
-		double sum;
-		int n = a.rows();
-		
-		for (int k = 0; k < b.columns(); k++){
-			b.divide(n-1, k, d.at(n-1));
-			for (int i = n-2; i>=0; i--){
-				sum = 0.;
-				for (int j = i+1; j<n; j++) sum += a.at(i, j)*b.at(j, k);
-				b.set(i, k, (b.at(i, k)-sum)/d.at(i));
+		Matrix w = b.compact();
+		int m = w.columns();
+		double[] x = a.data(), y = w.data();
+		for (int k1 = n, k0; k1 > 0; k1 = k0){
+			k0 = Math.max(0, k1 - BLOCK);
+			for (int r = k1 - 1; r >= k0; r--){
+				int ro = r * m;
+				for (int q = r + 1; q < k1; q++){
+					double u = x[r * n + q];
+					if (u != 0.)
+						for (int k = 0, qo = q * m; k < m; k++) y[ro + k] -= u * y[qo + k];
+				}
+				double d = x[r * n + r];
+				for (int k = 0; k < m; k++) y[ro + k] /= d;
 			}
+			if (k0 > 0)
+				Matrix.gemm(-1., a.at(new Range(0, k0), new Range(k0, k1)), false,
+						w.at(new Range(k0, k1), Range.all()), false, 1., w.at(new Range(0, k0), Range.all()));
 		}
+		if (w != b)
+			w.copyTo(b);
 		return b;
 	}
 	
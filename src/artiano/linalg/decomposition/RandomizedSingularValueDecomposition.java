@@ -0,0 +1,280 @@
+/**
+ * RandomizedSingularValueDecomposition.java
+ */
+package artiano.linalg.decomposition;
+
+import java.util.Random;
+
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+
+/**
+ * <p>Description: truncated singular value decomposition A ~ U*diag(W)*V' of rank k by random projection
+ * (Halko, Martinsson and Tropp).</p>
+ * <p>The range of A is sampled by Y = A*G, G an n*(k+p) Gaussian matrix, p columns of oversampling. Each power
+ * iteration Y = A*(A'*Q) sharpens the decay of the spectrum, Q is orthonormalized by
+ * {@link QRDecomposition} after every product. The small matrix B = Q'*A is decomposed exactly through the
+ * QR decomposition of B' and the {@link SingularValueDecomposition} of its (k+p)*(k+p) factor. A is only used
+ * in the products A*X and A'*X, q+1 of each (2q+2 in all) for q power iterations, so the cost is O(m*n*(k+p)) for a dense
+ * matrix and O(nnz*(k+p)) for a {@link CSRMatrix}, against O(m*n^2) for the full decomposition.</p>
+ * <p>{@link #centered(Matrix, Matrix, int, int, int)} decomposes A - 1*mean without forming it, the principal
+ * components of the rows of A are then the columns of V.</p>
+ * <p>To use the class, you should write code like:
+ * <pre>
+ * RandomizedSingularValueDecomposition svd = new RandomizedSingularValueDecomposition(A, 50);
+ * Matrix u = svd.U(), w = svd.W(), v = svd.V(); //m*50, 1*50 in descending order, n*50
+ * </pre>
+ * The random matrix comes from a fixed seed, the same input gives the same result.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RandomizedSingularValueDecomposition {
+	/** default oversampling */
+	public static final int OVERSAMPLING = 10;
+	/** default number of power iterations */
+	public static final int POWER_ITERATIONS = 2;
+	private static final long SEED = 0x5eed;
+
+	protected Matrix u = null;
+	protected Matrix w = null;
+	protected Matrix v = null;
+
+	/**
+	 * A*X and A'*X of the decomposed matrix
+	 */
+	private interface Product {
+		Matrix multiply(Matrix x);
+		Matrix transposeMultiply(Matrix x);
+	}
+
+	/**
+	 * constructor, with the default oversampling and power iterations
+	 * @param a - matrix to decompose
+	 * @param rank - number of singular values wanted
+	 */
+	public RandomizedSingularValueDecomposition(Matrix a, int rank){
+		this(a, rank, OVERSAMPLING, POWER_ITERATIONS);
+	}
+
+	/**
+	 * constructor
+	 * @param a - matrix to decompose
+	 * @param rank - number of singular values wanted
+	 * @param oversampling - extra columns of the random projection
+	 * @param powerIterations - power iterations, more for a slowly decaying spectrum
+	 */
+	public RandomizedSingularValueDecomposition(Matrix a, int rank, int oversampling, int powerIterations){
+		this(dense(a), a.rows(), a.columns(), null, rank, oversampling, powerIterations);
+	}
+
+	/**
+	 * constructor of a sparse matrix, with the default oversampling and power iterations
+	 * @param a - sparse matrix to decompose
+	 * @param rank - number of singular values wanted
+	 */
+	public RandomizedSingularValueDecomposition(CSRMatrix a, int rank){
+		this(a, rank, OVERSAMPLING, POWER_ITERATIONS);
+	}
+
+	/**
+	 * constructor of a sparse matrix
+	 * @param a - sparse matrix to decompose
+	 * @param rank - number of singular values wanted
+	 * @param oversampling - extra columns of the random projection
+	 * @param powerIterations - power iterations, more for a slowly decaying spectrum
+	 */
+	public RandomizedSingularValueDecomposition(CSRMatrix a, int rank, int oversampling, int powerIterations){
+		this(sparse(a), a.rows(), a.columns(), null, rank, oversampling, powerIterations);
+	}
+
+	/**
+	 * decompose A - 1*mean, mean is subtracted from every row inside the products
+	 */
+	private RandomizedSingularValueDecomposition(Product a, int m, int n, Matrix mean, int rank, int oversampling,
+			int powerIterations){
+		if (rank <= 0 || rank > Math.min(m, n))
+			throw new IllegalArgumentException("Randomized singular value decomposition, invalid rank.");
+		if (oversampling < 0 || powerIterations < 0)
+			throw new IllegalArgumentException("Randomized singular value decomposition, invalid parameters.");
+		if (mean != null && (mean.rows() != 1 || mean.columns() != n))
+			throw new IllegalArgumentException("Randomized singular value decomposition, mean size not match.");
+		decompose(a, m, n, mean == null? null: mean.clone().data(), rank,
+				Math.min(rank + oversampling, Math.min(m, n)), powerIterations);
+	}
+
+	/**
+	 * decompose A - 1*mean, with the default oversampling and power iterations
+	 * @param a - matrix to decompose
+	 * @param mean - 1*n row subtracted from every row of a, usually a.rowMean()
+	 * @param rank - number of singular values wanted
+	 * @return - the decomposition
+	 */
+	public static RandomizedSingularValueDecomposition centered(Matrix a, Matrix mean, int rank){
+		return centered(a, mean, rank, OVERSAMPLING, POWER_ITERATIONS);
+	}
+
+	/**
+	 * decompose A - 1*mean
+	 * @param a - matrix to decompose
+	 * @param mean - 1*n row subtracted from every row of a, usually a.rowMean()
+	 * @param rank - number of singular values wanted
+	 * @param oversampling - extra columns of the random projection
+	 * @param powerIterations - power iterations
+	 * @return - the decomposition
+	 */
+	public static RandomizedSingularValueDecomposition centered(Matrix a, Matrix mean, int rank, int oversampling,
+			int powerIterations){
+		return new RandomizedSingularValueDecomposition(dense(a), a.rows(), a.columns(), mean, rank, oversampling,
+				powerIterations);
+	}
+
+	/**
+	 * decompose A - 1*mean of a sparse matrix, the matrix stays sparse
+	 * @param a - sparse matrix to decompose
+	 * @param mean - 1*n row subtracted from every row of a
+	 * @param rank - number of singular values wanted
+	 * @param oversampling - extra columns of the random projection
+	 * @param powerIterations - power iterations
+	 * @return - the decomposition
+	 */
+	public static RandomizedSingularValueDecomposition centered(CSRMatrix a, Matrix mean, int rank, int oversampling,
+			int powerIterations){
+		return new RandomizedSingularValueDecomposition(sparse(a), a.rows(), a.columns(), mean, rank, oversampling,
+				powerIterations);
+	}
+
+	private static Product dense(final Matrix a){
+		return new Product() {
+			@Override
+			public Matrix multiply(Matrix x){
+				Matrix y = new Matrix(a.rows(), x.columns());
+				Matrix.gemm(1., a, false, x, false, 0., y);
+				return y;
+			}
+
+			@Override
+			public Matrix transposeMultiply(Matrix x){
+				Matrix y = new Matrix(a.columns(), x.columns());
+				Matrix.gemm(1., a, true, x, false, 0., y);
+				return y;
+			}
+		};
+	}
+
+	private static Product sparse(final CSRMatrix a){
+		return new Product() {
+			@Override
+			public Matrix multiply(Matrix x){
+				return a.multiply(x);
+			}
+
+			@Override
+			public Matrix transposeMultiply(Matrix x){
+				return a.transposeMultiply(x);
+			}
+		};
+	}
+
+	/**
+	 * randomized range finder with power iterations, then the exact decomposition of Q'*A
+	 */
+	private void decompose(Product a, int m, int n, double[] mean, int rank, int l, int powerIterations){
+		Random random = new Random(SEED);
+		Matrix g = new Matrix(n, l);
+		double[] gd = g.data();
+		for (int i = 0; i < gd.length; i++)
+			gd[i] = random.nextGaussian();
+		Matrix q = orthonormal(multiply(a, mean, g));
+		for (int i = 0; i < powerIterations; i++)
+			q = orthonormal(multiply(a, mean, orthonormal(transposeMultiply(a, mean, q))));
+		//B' = A'*Q = Q2*R, B = R'*Q2' = (Ur*S)*(Q2*Vr)'
+		QRDecomposition qr = new QRDecomposition(transposeMultiply(a, mean, q), false);
+		SingularValueDecomposition small = new SingularValueDecomposition(qr.R().t().clone(), false, true);
+		small.sort();
+		Range first = new Range(0, rank);
+		u = q.multiply(small.U().at(Range.all(), first));
+		w = small.W().at(Range.all(), first).clone();
+		v = qr.multiplyQ(pad(small.V(), n, rank), false);
+	}
+
+	/**
+	 * the first columns of x under a block of zeros, rows*columns
+	 */
+	private static Matrix pad(Matrix x, int rows, int columns){
+		Matrix y = new Matrix(rows, columns);
+		for (int i = 0; i < x.rows(); i++)
+			for (int j = 0; j < columns; j++)
+				y.set(i, j, x.at(i, j));
+		return y;
+	}
+
+	/**
+	 * orthonormal basis of the columns of y
+	 */
+	private static Matrix orthonormal(Matrix y){
+		return new QRDecomposition(y, false).Q();
+	}
+
+	/**
+	 * (A - 1*mean)*x
+	 */
+	private static Matrix multiply(Product a, double[] mean, Matrix x){
+		Matrix y = a.multiply(x);
+		if (mean == null)
+			return y;
+		//1*(mean*x)
+		int l = x.columns();
+		double[] mx = new double[l], yd = y.data();
+		for (int i = 0; i < mean.length; i++)
+			for (int j = 0; j < l; j++)
+				mx[j] += mean[i] * x.at(i, j);
+		for (int i = 0; i < yd.length; i++)
+			yd[i] -= mx[i % l];
+		return y;
+	}
+
+	/**
+	 * (A - 1*mean)'*x
+	 */
+	private static Matrix transposeMultiply(Product a, double[] mean, Matrix x){
+		Matrix y = a.transposeMultiply(x);
+		if (mean == null)
+			return y;
+		//mean'*(1'*x)
+		int l = x.columns();
+		double[] sx = new double[l], yd = y.data();
+		for (int i = 0; i < x.rows(); i++)
+			for (int j = 0; j < l; j++)
+				sx[j] += x.at(i, j);
+		for (int i = 0, p = 0; i < mean.length; i++)
+			for (int j = 0; j < l; j++, p++)
+				yd[p] -= mean[i] * sx[j];
+		return y;
+	}
+
+	/**
+	 * get the left singular vectors
+	 * @return - m*rank, one vector per column
+	 */
+	public Matrix U(){
+		return this.u;
+	}
+
+	/**
+	 * get the singular values
+	 * @return - 1*rank in descending order
+	 */
+	public Matrix W(){
+		return this.w;
+	}
+
+	/**
+	 * get the right singular vectors
+	 * @return - n*rank, one vector per column
+	 */
+	public Matrix V(){
+		return this.v;
+	}
+
+}
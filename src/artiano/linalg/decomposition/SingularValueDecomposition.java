@@ -6,6 +6,7 @@ package artiano.linalg.decomposition;
 import javax.management.RuntimeErrorException;
 
 import artiano.core.structure.Matrix;
+import artiano.core.structure.MatrixArena;
 
 /**
  * <p>Description: This class for singular value decomposition.</p>
@@ -45,13 +46,13 @@ public class SingularValueDecomposition {
 	 */
 	public SingularValueDecomposition(Matrix a,  boolean reserve, boolean computeRight){
 		if (reserve)
-			this.u = a.clone();
+			this.u = MatrixArena.copyOf(a);
 		else
 			this.u = a;
-		w = new Matrix(1, a.columns());
+		w = MatrixArena.allocate(1, a.columns());
 		this.computeRight = computeRight;
 		if (computeRight)
-			v = new Matrix(a.columns(), a.columns());
+			v = MatrixArena.allocate(a.columns(), a.columns());
 		decompose();
 	}
 	
@@ -106,7 +107,7 @@ public class SingularValueDecomposition {
 		//if not supported
 		if (!computeRight)
 			throw new UnsupportedOperationException("Pseudo-inverse, right singular vectors not computed.");
-		Matrix t = new Matrix(u.columns(), u.rows());
+		Matrix t = MatrixArena.allocate(u.columns(), u.rows());
 		//X=(W^)*(U')
 		for (int i = 0; i < u.columns(); i++){
 			for (int j = 0; j < u.rows(); j++)
@@ -197,7 +198,7 @@ public class SingularValueDecomposition {
 		
 		int m = u.rows();
 		int n = u.columns();
-		double[] rv1 = new double[n];
+		double[] rv1 = MatrixArena.allocateDoubles(n);
 		
 		//householder approximate into double diagonal form
 		g = scale = anorm = 0.;
@@ -303,7 +304,7 @@ public class SingularValueDecomposition {
 				if (flag){
 					c = 0.;
 					s = 1.;
-					for (i = l - 1; i < k + 1; i++){
+					for (i = l; i < k + 1; i++){
 						f = s * rv1[i];
 						rv1[i] = c * rv1[i];
 						if (Math.abs(f) + anorm == anorm) break;
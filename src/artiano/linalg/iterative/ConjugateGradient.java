@@ -0,0 +1,109 @@
+/**
+ * ConjugateGradient.java
+ */
+package artiano.linalg.iterative;
+
+import java.util.Arrays;
+
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.SymmetricMatrix;
+import artiano.linalg.LinearOperator;
+import artiano.linalg.LinearOperators;
+
+/**
+ * <p>Description: the preconditioned conjugate gradient method for A*x = b, A symmetric positive definite (and
+ * so must be the preconditioner M).</p>
+ * <p>Each iteration costs one product by A, one application of M^-1 and a few vector operations, the memory is
+ * four vectors of length n. Without rounding the method ends in at most n iterations, in practice the number of
+ * iterations grows with the square root of the condition number of M^-1*A. When p'*A*p is not positive the
+ * matrix is not positive definite and the solve stops without converging.</p>
+ * <p>To use the class, you should write code like:
+ * <pre>
+ * ConjugateGradient cg = new ConjugateGradient(sparse); //CSRMatrix
+ * cg.setPreconditioner(new IncompleteCholesky(sparse));
+ * cg.setTolerance(1e-10);
+ * double[] x = new double[n]; //initial guess
+ * if (cg.solve(b, x))
+ *     System.out.println(cg.getIterations() + " iterations");
+ * </pre></p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ConjugateGradient extends IterativeSolver {
+
+	/**
+	 * constructor
+	 * @param a - symmetric positive definite operator
+	 */
+	public ConjugateGradient(LinearOperator a){
+		super(a);
+	}
+
+	/**
+	 * constructor
+	 * @param a - symmetric positive definite matrix
+	 */
+	public ConjugateGradient(Matrix a){
+		this(LinearOperators.valueOf(a));
+	}
+
+	/**
+	 * constructor
+	 * @param a - symmetric positive definite packed matrix
+	 */
+	public ConjugateGradient(SymmetricMatrix a){
+		this(LinearOperators.valueOf(a));
+	}
+
+	/**
+	 * constructor
+	 * @param a - symmetric positive definite sparse matrix
+	 */
+	public ConjugateGradient(CSRMatrix a){
+		this(LinearOperators.valueOf(a));
+	}
+
+	@Override
+	public boolean solve(double[] b, double[] x){
+		check(b, x);
+		begin();
+		int n = b.length;
+		double bnorm = norm(b);
+		if (bnorm == 0.){
+			Arrays.fill(x, 0.);
+			record(0.);
+			return converged = true;
+		}
+		double[] r = new double[n], z = new double[n], p = new double[n], ap = new double[n];
+		residual(b, x, r);
+		record(norm(r) / bnorm);
+		if (residual <= tolerance)
+			return converged = true;
+		precondition(r, z);
+		System.arraycopy(z, 0, p, 0, n);
+		double rz = dot(r, z);
+		while (iterations < maxIterations){
+			a.apply(p, ap);
+			products++;
+			iterations++;
+			double pap = dot(p, ap);
+			if (!(pap > 0.))
+				break;
+			double alpha = rz / pap;
+			for (int i = 0; i < n; i++){
+				x[i] += alpha * p[i];
+				r[i] -= alpha * ap[i];
+			}
+			record(norm(r) / bnorm);
+			if (residual <= tolerance)
+				return converged = true;
+			precondition(r, z);
+			double next = dot(r, z), beta = next / rz;
+			rz = next;
+			for (int i = 0; i < n; i++)
+				p[i] = z[i] + beta * p[i];
+		}
+		return converged;
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * GMRES.java
+ */
+package artiano.linalg.iterative;
+
+import java.util.Arrays;
+
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.linalg.LinearOperator;
+import artiano.linalg.LinearOperators;
+
+/**
+ * <p>Description: the restarted generalized minimal residual method GMRES(m) (Saad and Schultz) for A*x = b, A
+ * any nonsingular square matrix.</p>
+ * <p>An orthonormal basis of the Krylov space of A*M^-1 is built by the Arnoldi process (modified Gram-Schmidt),
+ * the Hessenberg matrix is reduced by Givens rotations as it grows, so the residual norm of the best solution in
+ * the space is known at every iteration without forming it. After m iterations the solution is formed, the true
+ * residual is computed and the process restarts from it. The preconditioner is applied on the right, A*M^-1*u = b
+ * and x = M^-1*u, so the residuals are those of the original system. The memory is m+1 vectors of length n.</p>
+ * <p>To use the class, you should write code like:
+ * <pre>
+ * GMRES gmres = new GMRES(sparse); //CSRMatrix
+ * gmres.setPreconditioner(new JacobiPreconditioner(sparse));
+ * gmres.setRestart(50);
+ * double[] x = new double[n]; //initial guess
+ * boolean converged = gmres.solve(b, x);
+ * double[] history = gmres.getResidualHistory();
+ * </pre></p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class GMRES extends IterativeSolver {
+	private int restart = 30;
+	private int restarts = 0;
+
+	/**
+	 * constructor
+	 * @param a - square operator
+	 */
+	public GMRES(LinearOperator a){
+		super(a);
+	}
+
+	/**
+	 * constructor
+	 * @param a - square matrix
+	 */
+	public GMRES(Matrix a){
+		this(LinearOperators.valueOf(a));
+	}
+
+	/**
+	 * constructor
+	 * @param a - square sparse matrix
+	 */
+	public GMRES(CSRMatrix a){
+		this(LinearOperators.valueOf(a));
+	}
+
+	/**
+	 * set the number of iterations between restarts, larger values converge in fewer iterations but use more
+	 * memory and more orthogonalization work, 30 by default
+	 * @param m - iterations of a cycle
+	 */
+	public void setRestart(int m){
+		if (m <= 0)
+			throw new IllegalArgumentException("GMRES, invalid restart.");
+		this.restart = m;
+	}
+
+	/**
+	 * get the number of restarts of the last solve
+	 * @return - restarts
+	 */
+	public int getRestarts(){
+		return restarts;
+	}
+
+	/**
+	 * {@inheritDoc} The history holds the Givens estimates, {@link #getResidual()} the true residual of the
+	 * returned x.
+	 */
+	@Override
+	public boolean solve(double[] b, double[] x){
+		check(b, x);
+		begin();
+		int n = b.length, m = Math.min(restart, n);
+		double bnorm = norm(b);
+		if (bnorm == 0.){
+			restarts = 0;
+			Arrays.fill(x, 0.);
+			record(0.);
+			return converged = true;
+		}
+		double[][] v = new double[m + 1][n], h = new double[m + 1][m];
+		double[] c = new double[m], s = new double[m], g = new double[m + 1], y = new double[m];
+		double[] z = new double[n], u = new double[n];
+		residual(b, x, v[0]);
+		double beta = norm(v[0]);
+		record(beta / bnorm);
+		restarts = -1;
+		while (residual > tolerance && iterations < maxIterations){
+			restarts++;
+			scale(v[0], 1. / beta);
+			Arrays.fill(g, 0.);
+			g[0] = beta;
+			int k = 0;
+			while (k < m && iterations < maxIterations){
+				double[] w = v[k + 1];
+				precondition(v[k], z);
+				a.apply(z, w);
+				products++;
+				iterations++;
+				for (int i = 0; i <= k; i++){
+					double hik = dot(w, v[i]);
+					h[i][k] = hik;
+					for (int l = 0; l < n; l++)
+						w[l] -= hik * v[i][l];
+				}
+				double next = norm(w);
+				if (next > 0.)
+					scale(w, 1. / next);
+				//previous rotations, then the one that zeroes h(k+1,k)
+				for (int i = 0; i < k; i++){
+					double t = c[i] * h[i][k] + s[i] * h[i + 1][k];
+					h[i + 1][k] = -s[i] * h[i][k] + c[i] * h[i + 1][k];
+					h[i][k] = t;
+				}
+				double r = Math.hypot(h[k][k], next);
+				if (r == 0.)
+					break;
+				c[k] = h[k][k] / r;
+				s[k] = next / r;
+				h[k][k] = r;
+				h[k + 1][k] = 0.;
+				g[k + 1] = -s[k] * g[k];
+				g[k] *= c[k];
+				k++;
+				record(Math.abs(g[k]) / bnorm);
+				//an exact solution when the space is invariant
+				if (residual <= tolerance || next == 0.)
+					break;
+			}
+			if (k == 0)
+				break;
+			//H*y = g by back substitution, x += M^-1*(V*y)
+			for (int i = k - 1; i >= 0; i--){
+				double t = g[i];
+				for (int l = i + 1; l < k; l++)
+					t -= h[i][l] * y[l];
+				y[i] = t / h[i][i];
+			}
+			Arrays.fill(u, 0.);
+			for (int i = 0; i < k; i++)
+				for (int l = 0; l < n; l++)
+					u[l] += y[i] * v[i][l];
+			precondition(u, z);
+			for (int l = 0; l < n; l++)
+				x[l] += z[l];
+			residual(b, x, v[0]);
+			beta = norm(v[0]);
+			residual = beta / bnorm;
+		}
+		restarts = Math.max(restarts, 0);
+		return converged = residual <= tolerance;
+	}
+
+	private static void scale(double[] x, double f){
+		for (int i = 0; i < x.length; i++)
+			x[i] *= f;
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * IncompleteCholesky.java
+ */
+package artiano.linalg.iterative;
+
+import java.util.Arrays;
+
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+
+/**
+ * <p>Description: the incomplete Cholesky preconditioner IC(0), M = L*L' where L keeps the sparsity pattern of
+ * the lower triangle of A, the elements that would fill in are dropped. Applying it is a forward and a backward
+ * sparse triangular solve, as cheap as a product by A.</p>
+ * <p>For some symmetric positive definite matrices the incomplete factorization meets a non positive pivot, the
+ * factorization is then done again for A + alpha*diag(A) with alpha growing (Manteuffel's shift) until it
+ * succeeds, {@link #getShift()} gives the alpha used.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class IncompleteCholesky implements Preconditioner {
+	/** shifts tried before the matrix is taken as not positive definite */
+	private static final int MAX_SHIFTS = 30;
+
+	private final int n;
+	/** L by rows, the diagonal last in each row */
+	private final int[] ptr;
+	private final int[] idx;
+	private final double[] l;
+	private final double shift;
+
+	/**
+	 * constructor
+	 * @param a - symmetric positive definite sparse matrix, only the lower triangle is read
+	 */
+	public IncompleteCholesky(CSRMatrix a){
+		if (a.rows() != a.columns())
+			throw new IllegalArgumentException("IncompleteCholesky, matrix is not square.");
+		n = a.rows();
+		int[] ap = a.rowPointers(), ai = a.columnIndices();
+		double[] av = a.values();
+		//pattern of the lower triangle, the diagonal is always kept
+		ptr = new int[n + 1];
+		for (int i = 0; i < n; i++){
+			int count = 1;
+			for (int k = ap[i]; k < ap[i + 1] && ai[k] < i; k++)
+				count++;
+			ptr[i + 1] = ptr[i] + count;
+		}
+		idx = new int[ptr[n]];
+		double[] lower = new double[ptr[n]], diagonal = new double[n];
+		for (int i = 0; i < n; i++){
+			int p = ptr[i];
+			for (int k = ap[i]; k < ap[i + 1] && ai[k] <= i; k++){
+				if (ai[k] == i)
+					diagonal[i] = av[k];
+				else {
+					idx[p] = ai[k];
+					lower[p++] = av[k];
+				}
+			}
+			idx[p] = i;
+		}
+		l = new double[ptr[n]];
+		double alpha = 0.;
+		for (int attempt = 0; !factor(lower, diagonal, alpha); attempt++){
+			if (attempt == MAX_SHIFTS)
+				throw new IllegalArgumentException("IncompleteCholesky, matrix is not positive definite.");
+			alpha = Math.max(2. * alpha, 1e-3);
+		}
+		shift = alpha;
+	}
+
+	/**
+	 * constructor, the zeros of a are not stored
+	 * @param a - symmetric positive definite matrix, only the lower triangle is read
+	 */
+	public IncompleteCholesky(Matrix a){
+		this(CSRMatrix.valueOf(a));
+	}
+
+	/**
+	 * L(i,j) = (A(i,j) - sum L(i,p)*L(j,p)) / L(j,j) over the p &lt; j in the pattern of both rows, row by row
+	 * @return - false at a non positive pivot
+	 */
+	private boolean factor(double[] lower, double[] diagonal, double alpha){
+		int[] position = new int[n];
+		Arrays.fill(position, -1);
+		for (int i = 0; i < n; i++){
+			int begin = ptr[i], end = ptr[i + 1] - 1;
+			for (int k = begin; k < end; k++)
+				position[idx[k]] = k;
+			double d = diagonal[i] * (1. + alpha);
+			for (int k = begin; k < end; k++){
+				int j = idx[k];
+				double s = lower[k];
+				for (int q = ptr[j], last = ptr[j + 1] - 1; q < last; q++){
+					int p = position[idx[q]];
+					if (p >= 0)
+						s -= l[p] * l[q];
+				}
+				l[k] = s / l[ptr[j + 1] - 1];
+				d -= l[k] * l[k];
+			}
+			for (int k = begin; k < end; k++)
+				position[idx[k]] = -1;
+			if (!(d > 0.))
+				return false;
+			l[end] = Math.sqrt(d);
+		}
+		return true;
+	}
+
+	/**
+	 * get the diagonal shift alpha of the factorization, L*L' approximates A + alpha*diag(A)
+	 * @return - 0 when the factorization of A itself succeeded
+	 */
+	public double getShift(){
+		return shift;
+	}
+
+	/**
+	 * get the number of stored elements of L
+	 * @return - non zeros of L
+	 */
+	public int nonZeros(){
+		return ptr[n];
+	}
+
+	@Override
+	public void apply(double[] r, double[] z){
+		if (r.length != n || z.length != n)
+			throw new IllegalArgumentException("IncompleteCholesky apply, size not match.");
+		//L*y = r, y in z
+		for (int i = 0; i < n; i++){
+			double s = r[i];
+			int end = ptr[i + 1] - 1;
+			for (int k = ptr[i]; k < end; k++)
+				s -= l[k] * z[idx[k]];
+			z[i] = s / l[end];
+		}
+		//L'*z = y in place, by the rows of L
+		for (int i = n - 1; i >= 0; i--){
+			int end = ptr[i + 1] - 1;
+			double zi = z[i] / l[end];
+			z[i] = zi;
+			for (int k = ptr[i]; k < end; k++)
+				z[idx[k]] -= l[k] * zi;
+		}
+	}
+}
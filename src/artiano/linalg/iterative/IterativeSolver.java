@@ -0,0 +1,210 @@
+/**
+ * IterativeSolver.java
+ */
+package artiano.linalg.iterative;
+
+import java.util.Arrays;
+
+import artiano.core.structure.Matrix;
+import artiano.linalg.LinearOperator;
+
+/**
+ * <p>Description: common part of the iterative solvers of A*x = b, the settings (preconditioner, tolerance,
+ * iteration limit) and the convergence telemetry of the last solve. A solve stops when the relative residual
+ * |b-A*x|/|b| reaches the tolerance or the iterations reach the limit.</p>
+ * <p>The matrix is used only through its products, so a dense, packed, sparse or implicit matrix can be solved
+ * once it is wrapped by {@link artiano.linalg.LinearOperators}. An instance keeps the telemetry of its last solve
+ * and is not meant to be shared by threads.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public abstract class IterativeSolver {
+	protected final LinearOperator a;
+	protected Preconditioner preconditioner = null;
+	protected double tolerance = 1e-8;
+	protected int maxIterations = 1000;
+
+	protected int iterations = 0;
+	protected int products = 0;
+	protected double residual = Double.NaN;
+	protected boolean converged = false;
+	/** relative residuals, the initial one and one per iteration */
+	protected double[] history = new double[16];
+	protected int historySize = 0;
+
+	/**
+	 * constructor
+	 * @param a - square operator
+	 */
+	protected IterativeSolver(LinearOperator a){
+		if (a.rows() != a.columns())
+			throw new IllegalArgumentException("IterativeSolver, operator is not square.");
+		this.a = a;
+	}
+
+	/**
+	 * set the preconditioner, none by default
+	 * @param preconditioner - approximate inverse of A, null for none
+	 */
+	public void setPreconditioner(Preconditioner preconditioner){
+		this.preconditioner = preconditioner;
+	}
+
+	/**
+	 * set the tolerance on the relative residual |b-A*x|/|b|, 1e-8 by default
+	 * @param tolerance - relative tolerance
+	 */
+	public void setTolerance(double tolerance){
+		if (!(tolerance > 0.))
+			throw new IllegalArgumentException("IterativeSolver, tolerance must be positive.");
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * set the maximum number of iterations of a solve, 1000 by default
+	 * @param maxIterations - iterations allowed
+	 */
+	public void setMaxIterations(int maxIterations){
+		if (maxIterations < 0)
+			throw new IllegalArgumentException("IterativeSolver, invalid number of iterations.");
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * solve A*x = b
+	 * @param b - right-hand side, not changed
+	 * @param x - initial guess, overwritten by the solution
+	 * @return - true if the tolerance was reached
+	 */
+	public abstract boolean solve(double[] b, double[] x);
+
+	/**
+	 * solve A*X = B a column at a time from a zero initial guess, the telemetry is the worst of the columns
+	 * (most iterations, largest residual) and the history is the one of the last column
+	 * @param b - n*k right-hand sides, not changed
+	 * @return - n*k solutions
+	 */
+	public Matrix solve(Matrix b){
+		int n = a.rows();
+		if (b.rows() != n)
+			throw new IllegalArgumentException("IterativeSolver solve, size not match.");
+		Matrix x = new Matrix(n, b.columns());
+		double[] bv = new double[n], xv = new double[n];
+		int worstIterations = 0, allProducts = 0;
+		double worstResidual = 0.;
+		boolean all = true;
+		for (int c = 0; c < b.columns(); c++){
+			for (int i = 0; i < n; i++)
+				bv[i] = b.at(i, c);
+			Arrays.fill(xv, 0.);
+			all &= solve(bv, xv);
+			for (int i = 0; i < n; i++)
+				x.set(i, c, xv[i]);
+			worstIterations = Math.max(worstIterations, iterations);
+			worstResidual = Math.max(worstResidual, residual);
+			allProducts += products;
+		}
+		iterations = worstIterations;
+		residual = worstResidual;
+		products = allProducts;
+		converged = all;
+		return x;
+	}
+
+	/**
+	 * reset the telemetry at the start of a solve
+	 */
+	protected void begin(){
+		iterations = products = 0;
+		historySize = 0;
+		residual = Double.NaN;
+		converged = false;
+	}
+
+	/**
+	 * add a relative residual to the history, it becomes the current residual
+	 */
+	protected void record(double relative){
+		if (historySize == history.length)
+			history = Arrays.copyOf(history, 2 * history.length);
+		history[historySize++] = relative;
+		residual = relative;
+	}
+
+	/**
+	 * z = M^-1*r, a copy without a preconditioner
+	 */
+	protected void precondition(double[] r, double[] z){
+		if (preconditioner == null)
+			System.arraycopy(r, 0, z, 0, r.length);
+		else
+			preconditioner.apply(r, z);
+	}
+
+	/**
+	 * r = b - A*x, one product
+	 */
+	protected void residual(double[] b, double[] x, double[] r){
+		a.apply(x, r);
+		products++;
+		for (int i = 0; i < r.length; i++)
+			r[i] = b[i] - r[i];
+	}
+
+	protected static double dot(double[] x, double[] y){
+		double s = 0.;
+		for (int i = 0; i < x.length; i++)
+			s += x[i] * y[i];
+		return s;
+	}
+
+	protected static double norm(double[] x){
+		return Math.sqrt(dot(x, x));
+	}
+
+	protected void check(double[] b, double[] x){
+		if (b.length != a.rows() || x.length != a.rows())
+			throw new IllegalArgumentException("IterativeSolver solve, size not match.");
+	}
+
+	/**
+	 * get the iterations of the last solve
+	 * @return - iterations
+	 */
+	public int getIterations(){
+		return iterations;
+	}
+
+	/**
+	 * get the operator products of the last solve, the iterations plus the residual evaluations
+	 * @return - products A*v
+	 */
+	public int getMatrixVectorProducts(){
+		return products;
+	}
+
+	/**
+	 * get the final relative residual |b-A*x|/|b| of the last solve
+	 * @return - relative residual
+	 */
+	public double getResidual(){
+		return residual;
+	}
+
+	/**
+	 * get the relative residuals of the last solve, the initial one first and then one per iteration (the
+	 * recurrence estimates of the method, which follow the true residual up to rounding)
+	 * @return - residual history
+	 */
+	public double[] getResidualHistory(){
+		return Arrays.copyOf(history, historySize);
+	}
+
+	/**
+	 * check whether the last solve reached the tolerance
+	 * @return - true if it converged
+	 */
+	public boolean isConverged(){
+		return converged;
+	}
+}
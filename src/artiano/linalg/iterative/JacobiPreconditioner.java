@@ -0,0 +1,88 @@
+/**
+ * JacobiPreconditioner.java
+ */
+package artiano.linalg.iterative;
+
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.SymmetricMatrix;
+
+/**
+ * <p>Description: the Jacobi (diagonal) preconditioner M = diag(A), z = r./diag(A). It costs n divisions per
+ * iteration and helps when the rows of A are scaled very differently.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class JacobiPreconditioner implements Preconditioner {
+	private final double[] inverse;
+
+	/**
+	 * constructor
+	 * @param diagonal - diagonal of A, no zero element, copied
+	 */
+	public JacobiPreconditioner(double[] diagonal){
+		inverse = new double[diagonal.length];
+		for (int i = 0; i < diagonal.length; i++){
+			if (diagonal[i] == 0.)
+				throw new IllegalArgumentException("JacobiPreconditioner, zero on the diagonal.");
+			inverse[i] = 1. / diagonal[i];
+		}
+	}
+
+	/**
+	 * constructor
+	 * @param a - square dense matrix
+	 */
+	public JacobiPreconditioner(Matrix a){
+		this(diagonal(a));
+	}
+
+	/**
+	 * constructor
+	 * @param a - packed symmetric matrix
+	 */
+	public JacobiPreconditioner(SymmetricMatrix a){
+		this(diagonal(a));
+	}
+
+	/**
+	 * constructor
+	 * @param a - square sparse matrix
+	 */
+	public JacobiPreconditioner(CSRMatrix a){
+		this(diagonal(a));
+	}
+
+	private static double[] diagonal(Matrix a){
+		if (!a.isSquare())
+			throw new IllegalArgumentException("JacobiPreconditioner, matrix is not square.");
+		double[] d = new double[a.rows()];
+		for (int i = 0; i < d.length; i++)
+			d[i] = a.at(i, i);
+		return d;
+	}
+
+	private static double[] diagonal(SymmetricMatrix a){
+		double[] d = new double[a.rows()];
+		for (int i = 0; i < d.length; i++)
+			d[i] = a.at(i, i);
+		return d;
+	}
+
+	private static double[] diagonal(CSRMatrix a){
+		if (a.rows() != a.columns())
+			throw new IllegalArgumentException("JacobiPreconditioner, matrix is not square.");
+		double[] d = new double[a.rows()];
+		for (int i = 0; i < d.length; i++)
+			d[i] = a.at(i, i);
+		return d;
+	}
+
+	@Override
+	public void apply(double[] r, double[] z){
+		if (r.length != inverse.length || z.length != inverse.length)
+			throw new IllegalArgumentException("JacobiPreconditioner apply, size not match.");
+		for (int i = 0; i < r.length; i++)
+			z[i] = r[i] * inverse[i];
+	}
+}
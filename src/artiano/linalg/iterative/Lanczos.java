@@ -0,0 +1,411 @@
+/**
+ * Lanczos.java
+ */
+package artiano.linalg.iterative;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.linalg.LinearOperator;
+import artiano.linalg.decomposition.EigenValueDecomposition;
+
+/**
+ * <p>Description: a few extreme eigenpairs of a large symmetric operator by the thick-restart Lanczos method
+ * (Wu and Simon).</p>
+ * <p>A basis of m orthonormal vectors is built from the products A*v, each new vector being fully
+ * reorthogonalized against the whole basis, so no spurious copies of eigenvalues appear. The projection T = V'*A*V (m*m)
+ * gives the Ritz pairs; the residual of a Ritz pair is |beta*y(m-1)|, beta being the norm of the next vector.
+ * When the wanted k pairs have not converged, the best (m+k)/2 Ritz vectors and the next Lanczos vector are
+ * kept, T becomes their arrowhead matrix, and the basis is extended again.</p>
+ * <p>A Krylov space started from one vector holds a single direction of each eigenspace, so the copies of a
+ * repeated eigenvalue would be missed. Once k pairs have converged they are locked, and the iteration is run
+ * again from a new random vector orthogonal to them; a wanted value found there replaces the worst locked one,
+ * and the solve ends when a pass finds none. The operator is used only through
+ * {@link LinearOperator#apply(double[], double[])}, the memory is the k locked vectors and the (m+1)*n basis,
+ * m = max(2k+1, k+20) by default, so O(n*k).</p>
+ * <p>To use the class, you should write code like:
+ * <pre>
+ * Lanczos lanczos = new Lanczos(LinearOperators.valueOf(laplacian), 10);
+ * lanczos.setWhich(Lanczos.SMALLEST);
+ * if (lanczos.solve()){
+ *     Matrix values = lanczos.getEigenValues(); //1*10, the smallest first
+ *     Matrix vectors = lanczos.getEigenVectors(); //n*10, one vector per column
+ * }
+ * </pre></p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class Lanczos {
+	/** the largest eigenvalues */
+	public static final int LARGEST = 0;
+	/** the smallest eigenvalues */
+	public static final int SMALLEST = 1;
+	/** the eigenvalues largest in absolute value */
+	public static final int LARGEST_MAGNITUDE = 2;
+	private static final double EPS = Math.ulp(1.);
+	/** elements of a vector orthogonalized at a time */
+	private static final int CHUNK = 2048;
+	/** a second Gram-Schmidt pass when the norm drops below this fraction */
+	private static final double REORTHOGONALIZE = Math.sqrt(.5);
+
+	private final LinearOperator a;
+	private final int k;
+	private int which = LARGEST;
+	private int basisSize = 0;
+	private int maxRestarts = 1000;
+	private double tolerance = 1e-8;
+	private long seed = 0x5eed;
+
+	private Matrix values = null;
+	private Matrix vectors = null;
+	private double[] residuals = null;
+	private int restarts = 0;
+	private int products = 0;
+	/** estimate of |A|, the largest Ritz value in magnitude so far */
+	private double norm = 0.;
+	private boolean converged = false;
+
+	/**
+	 * constructor
+	 * @param a - symmetric operator, only the products are used and the symmetry is not checked
+	 * @param k - number of eigenpairs wanted, less than the order of a
+	 */
+	public Lanczos(LinearOperator a, int k){
+		if (a.rows() != a.columns())
+			throw new IllegalArgumentException("Lanczos, operator is not square.");
+		if (k <= 0 || k >= a.rows())
+			throw new IllegalArgumentException("Lanczos, invalid number of eigenpairs.");
+		this.a = a;
+		this.k = k;
+	}
+
+	/**
+	 * set which end of the spectrum is wanted
+	 * @param which - {@link #LARGEST} (default), {@link #SMALLEST} or {@link #LARGEST_MAGNITUDE}
+	 */
+	public void setWhich(int which){
+		if (which < LARGEST || which > LARGEST_MAGNITUDE)
+			throw new IllegalArgumentException("Lanczos, unknown selection.");
+		this.which = which;
+	}
+
+	/**
+	 * set the convergence tolerance, a pair converges when |A*x-theta*x| &lt;= tolerance*|A| (|A| estimated by
+	 * the largest Ritz value), 1e-8 by default
+	 * @param tolerance - relative tolerance
+	 */
+	public void setTolerance(double tolerance){
+		if (!(tolerance > 0.))
+			throw new IllegalArgumentException("Lanczos, tolerance must be positive.");
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * set the number of basis vectors, more vectors converge in fewer restarts but use more memory
+	 * @param m - basis size, k &lt; m &lt;= n, 0 for the default max(2k+1, k+20)
+	 */
+	public void setBasisSize(int m){
+		if (m != 0 && (m <= k || m > a.rows()))
+			throw new IllegalArgumentException("Lanczos, invalid basis size.");
+		this.basisSize = m;
+	}
+
+	/**
+	 * set the maximum number of restarts, 1000 by default
+	 * @param maxRestarts - restarts allowed
+	 */
+	public void setMaxRestarts(int maxRestarts){
+		if (maxRestarts < 0)
+			throw new IllegalArgumentException("Lanczos, invalid number of restarts.");
+		this.maxRestarts = maxRestarts;
+	}
+
+	/**
+	 * set the seed of the random start vector
+	 * @param seed - random seed
+	 */
+	public void setSeed(long seed){
+		this.seed = seed;
+	}
+
+	/**
+	 * run the iteration
+	 * @return - true if all the k pairs converged, the pairs are available either way
+	 */
+	public boolean solve(){
+		int n = a.rows(), m = basisSize > 0? basisSize: Math.min(n, Math.max(2 * k + 1, k + 20));
+		//locked vectors in the rows 0..k-1, then the basis vectors
+		Matrix basis = new Matrix(k + m + 1, n);
+		Matrix found = new Matrix(k, n);
+		double[] theta = new double[k], res = new double[k];
+		Random random = new Random(seed);
+		restarts = products = 0;
+		norm = 0.;
+		converged = run(basis, 0, k, m, random, theta, res, found);
+		if (converged){
+			//a single start vector misses the copies of a repeated eigenvalue, lock the pairs and look for
+			//a wanted value in the rest of the space until there is none
+			double[] locked = theta.clone(), lockedResiduals = res.clone();
+			System.arraycopy(found.data(), 0, basis.data(), 0, k * n);
+			int rest = n - k, wanted = Math.min(k, rest);
+			while (true){
+				converged = run(basis, k, wanted, Math.min(m, rest), random, theta, res, found);
+				if (!converged || key(theta[0]) >= key(locked[k - 1]) - tolerance * norm)
+					break;
+				merge(basis, locked, lockedResiduals, found, theta, res, wanted);
+			}
+			System.arraycopy(basis.data(), 0, found.data(), 0, k * n);
+			theta = locked;
+			res = lockedResiduals;
+		}
+		values = new Matrix(1, k, theta);
+		vectors = found.t().compact();
+		residuals = res;
+		return converged;
+	}
+
+	/**
+	 * thick-restart Lanczos on A restricted to the complement of the rows 0..locked-1 of basis, which are kept
+	 * orthonormal and are not changed
+	 * @return - true if the wanted pairs converged, their values, residuals and vectors (by rows) are written
+	 * either way
+	 */
+	private boolean run(Matrix basis, int locked, int wanted, int m, Random random, double[] theta,
+			double[] res, Matrix found){
+		int n = a.rows();
+		double[] v = basis.data(), x = new double[n], y = new double[n];
+		Matrix t = new Matrix(m, m);
+		randomVector(v, locked, n, random);
+		int start = 0;
+		while (true){
+			double beta = 0.;
+			for (int j = start, r = locked + start; j < m; j++, r++){
+				System.arraycopy(v, r * n, x, 0, n);
+				a.apply(x, y);
+				products++;
+				System.arraycopy(y, 0, v, (r + 1) * n, n);
+				double alpha = orthogonalize(v, r + 1, n);
+				t.set(j, j, alpha);
+				beta = norm(v, r + 1, n);
+				double scale = Math.max(Math.abs(alpha), Math.abs(beta));
+				if (beta <= n * EPS * scale){
+					//invariant subspace, go on with a random direction
+					beta = 0.;
+					if (j + 1 < m)
+						randomVector(v, r + 1, n, random);
+				} else
+					scale(v, r + 1, n, 1. / beta);
+				if (j + 1 < m){
+					t.set(j, j + 1, beta);
+					t.set(j + 1, j, beta);
+				}
+			}
+			//Ritz pairs of T in the wanted order
+			EigenValueDecomposition evd = new EigenValueDecomposition(t, true);
+			Matrix w = evd.W(), s = evd.V();
+			int[] order = order(w);
+			for (int i = 0; i < m; i++)
+				norm = Math.max(norm, Math.abs(w.at(i)));
+			boolean done = true;
+			for (int q = 0; q < wanted; q++){
+				theta[q] = w.at(order[q]);
+				res[q] = Math.abs(beta * s.at(m - 1, order[q]));
+				done &= res[q] <= tolerance * norm;
+			}
+			Matrix current = basis.at(new Range(locked, locked + m), Range.all());
+			if (done || restarts == maxRestarts){
+				Matrix.gemm(1., select(s, order, wanted), true, current, false, 0.,
+						found.at(new Range(0, wanted), Range.all()));
+				return done;
+			}
+			//keep the best p Ritz vectors and the next Lanczos vector
+			int p = Math.min(m - 1, (m + wanted) / 2);
+			Matrix ritz = new Matrix(p, n);
+			Matrix.gemm(1., select(s, order, p), true, current, false, 0., ritz);
+			System.arraycopy(v, (locked + m) * n, v, (locked + p) * n, n);
+			System.arraycopy(ritz.data(), 0, v, locked * n, p * n);
+			t = new Matrix(m, m);
+			for (int q = 0; q < p; q++){
+				double c = beta * s.at(m - 1, order[q]);
+				t.set(q, q, w.at(order[q]));
+				t.set(q, p, c);
+				t.set(p, q, c);
+			}
+			start = p;
+			restarts++;
+		}
+	}
+
+	/**
+	 * the best k of the locked pairs (rows 0..k-1 of basis) and the found ones, orthogonal to them, become the
+	 * locked pairs, in the wanted order
+	 */
+	private void merge(Matrix basis, double[] locked, double[] lockedResiduals, Matrix found, double[] theta,
+			double[] res, int wanted){
+		int n = a.rows();
+		double[] v = basis.data(), f = found.data(), keep = new double[k * n];
+		double[] values = new double[k], residuals = new double[k];
+		for (int q = 0, i = 0, j = 0; q < k; q++){
+			if (j < wanted && (i == k || key(theta[j]) < key(locked[i]))){
+				values[q] = theta[j];
+				residuals[q] = res[j];
+				System.arraycopy(f, j++ * n, keep, q * n, n);
+			} else {
+				values[q] = locked[i];
+				residuals[q] = lockedResiduals[i];
+				System.arraycopy(v, i++ * n, keep, q * n, n);
+			}
+		}
+		System.arraycopy(keep, 0, v, 0, k * n);
+		System.arraycopy(values, 0, locked, 0, k);
+		System.arraycopy(residuals, 0, lockedResiduals, 0, k);
+	}
+
+	/**
+	 * sort key of a value, the wanted ones are the smallest
+	 */
+	private double key(double t){
+		return which == LARGEST? -t: which == SMALLEST? t: -Math.abs(t);
+	}
+
+	/**
+	 * the columns order[0..count-1] of s, m*count
+	 */
+	private static Matrix select(Matrix s, int[] order, int count){
+		Matrix x = new Matrix(s.rows(), count);
+		for (int i = 0; i < s.rows(); i++)
+			for (int q = 0; q < count; q++)
+				x.set(i, q, s.at(i, order[q]));
+		return x;
+	}
+
+	/**
+	 * indices of the Ritz values, the wanted ones first
+	 */
+	private int[] order(Matrix theta){
+		int m = theta.columns();
+		int[] order = new int[m];
+		double[] key = new double[m];
+		for (int i = 0; i < m; i++){
+			key[i] = key(theta.at(i));
+			order[i] = i;
+		}
+		for (int i = 1; i < m; i++){
+			int o = order[i];
+			int j = i - 1;
+			for (; j >= 0 && key[order[j]] > key[o]; j--)
+				order[j + 1] = order[j];
+			order[j + 1] = o;
+		}
+		return order;
+	}
+
+	/**
+	 * orthogonalize the row j of v against the rows 0..j-1 by classical Gram-Schmidt, a chunk of the row at a
+	 * time so it stays in cache while the basis streams by. The pass is repeated once when it removed most of
+	 * the vector (the test of Daniel, Gragg, Kaufman and Stewart), the coefficient of the row j-1 is returned
+	 */
+	private static double orthogonalize(double[] v, int j, int n){
+		double last = 0., before = norm(v, j, n);
+		double[] h = new double[j];
+		int w = j * n;
+		for (int pass = 0; pass < 2 && j > 0; pass++){
+			Arrays.fill(h, 0.);
+			for (int c0 = 0; c0 < n; c0 += CHUNK){
+				int c1 = Math.min(c0 + CHUNK, n);
+				for (int i = 0; i < j; i++){
+					double s = 0.;
+					for (int l = c0, u = i * n; l < c1; l++)
+						s += v[u + l] * v[w + l];
+					h[i] += s;
+				}
+			}
+			for (int c0 = 0; c0 < n; c0 += CHUNK){
+				int c1 = Math.min(c0 + CHUNK, n);
+				for (int i = 0; i < j; i++){
+					double hi = h[i];
+					for (int l = c0, u = i * n; l < c1; l++)
+						v[w + l] -= hi * v[u + l];
+				}
+			}
+			last += h[j - 1];
+			double after = norm(v, j, n);
+			if (after >= REORTHOGONALIZE * before)
+				break;
+			before = after;
+		}
+		return last;
+	}
+
+	/**
+	 * a random unit vector in the row j of v, orthogonal to the rows 0..j-1
+	 */
+	private static void randomVector(double[] v, int j, int n, Random random){
+		for (int l = 0; l < n; l++)
+			v[j * n + l] = random.nextDouble() - .5;
+		orthogonalize(v, j, n);
+		scale(v, j, n, 1. / norm(v, j, n));
+	}
+
+	private static double norm(double[] v, int j, int n){
+		double s = 0.;
+		for (int l = j * n, end = l + n; l < end; l++)
+			s += v[l] * v[l];
+		return Math.sqrt(s);
+	}
+
+	private static void scale(double[] v, int j, int n, double f){
+		for (int l = j * n, end = l + n; l < end; l++)
+			v[l] *= f;
+	}
+
+	/**
+	 * get the eigenvalues
+	 * @return - 1*k, the wanted end first
+	 */
+	public Matrix getEigenValues(){
+		return values;
+	}
+
+	/**
+	 * get the eigenvectors
+	 * @return - n*k, one unit vector per column in the order of {@link #getEigenValues()}
+	 */
+	public Matrix getEigenVectors(){
+		return vectors;
+	}
+
+	/**
+	 * get the residual norms |A*x-theta*x| of the pairs
+	 * @return - k residuals
+	 */
+	public double[] getResiduals(){
+		return residuals == null? null: residuals.clone();
+	}
+
+	/**
+	 * get the number of restarts of the last solve
+	 * @return - restarts
+	 */
+	public int getRestarts(){
+		return restarts;
+	}
+
+	/**
+	 * get the number of operator products of the last solve
+	 * @return - products A*v
+	 */
+	public int getMatrixVectorProducts(){
+		return products;
+	}
+
+	/**
+	 * check whether the last solve converged
+	 * @return - true if all the pairs converged
+	 */
+	public boolean isConverged(){
+		return converged;
+	}
+}
@@ -0,0 +1,20 @@
+/**
+ * Preconditioner.java
+ */
+package artiano.linalg.iterative;
+
+/**
+ * <p>Description: an approximate inverse M^-1 of the matrix of a linear system, applied once per iteration of
+ * {@link ConjugateGradient} or {@link GMRES}. A good preconditioner is cheap to apply and makes M^-1*A close to
+ * the identity, so the solver needs fewer iterations.</p>
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface Preconditioner {
+	/**
+	 * compute z = M^-1*r
+	 * @param r - vector, not changed
+	 * @param z - vector of the same length, overwritten
+	 */
+	public void apply(double[] r, double[] z);
+}
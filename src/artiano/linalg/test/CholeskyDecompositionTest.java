@@ -0,0 +1,64 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.core.structure.SymmetricMatrix;
+import artiano.linalg.decomposition.CholeskyDecomposition;
+
+public class CholeskyDecompositionTest {
+
+	/** a well conditioned symmetric positive-definite matrix spanning several blocks and tiles */
+	private static SymmetricMatrix spd(int n, Random r) {
+		SymmetricMatrix a = new SymmetricMatrix(n);
+		SymmetricMatrix.syrk(1., TestMatrices.random(n + 50, n, r), true, 0., a);
+		return a;
+	}
+
+	@Test
+	public void testDenseAndPacked() {
+		Random r = new Random(127);
+		SymmetricMatrix packed = spd(300, r);
+		Matrix dense = packed.toMatrix(), b = TestMatrices.random(300, 4, r);
+		CholeskyDecomposition cd = new CholeskyDecomposition(dense, true), cp = new CholeskyDecomposition(packed, true);
+		Matrix l = cd.L();
+		TestMatrices.assertClose(dense, l.multiply(l.t()), 1e-9);
+		TestMatrices.assertClose(l, cp.L(), 1e-12);
+		Matrix x = cd.solve(b);
+		TestMatrices.assertClose(b, dense.multiply(x), 1e-9);
+		TestMatrices.assertClose(x, cp.solve(b), 1e-12);
+		TestMatrices.assertClose(Matrix.unit(300, 1.), l.multiply(cp.inverseOfL()), 1e-10);
+	}
+
+	@Test
+	public void testInPlaceLowerTriangle() {
+		Random r = new Random(131);
+		Matrix a = spd(150, r).toMatrix(), original = a.clone();
+		CholeskyDecomposition cd = new CholeskyDecomposition(a);
+		Matrix l = cd.L();
+		for (int i = 0; i < 150; i++)
+			for (int j = 0; j < 150; j++)
+				assertEquals(j <= i ? l.at(i, j) : original.at(i, j), a.at(i, j), 0.);
+		// a view is factored in a copy and written back
+		Matrix big = new Matrix(160, 160);
+		Matrix view = big.at(new Range(5, 155), new Range(10, 160));
+		original.copyTo(view);
+		new CholeskyDecomposition(view);
+		TestMatrices.assertClose(a, view, 0.);
+	}
+
+	@Test
+	public void testNotDefinite() {
+		Matrix a = new Matrix(2, 2, new double[] { 1, 2, 2, 1 });
+		assertFalse(new CholeskyDecomposition(a, true).isDefinite());
+		SymmetricMatrix s = spd(100, new Random(137));
+		s.set(90, 90, -1.);
+		assertFalse(new CholeskyDecomposition(s).isDefinite());
+	}
+}
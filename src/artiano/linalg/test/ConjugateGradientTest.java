@@ -0,0 +1,145 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.SymmetricMatrix;
+import artiano.linalg.decomposition.CholeskyDecomposition;
+import artiano.linalg.iterative.ConjugateGradient;
+import artiano.linalg.iterative.IncompleteCholesky;
+import artiano.linalg.iterative.JacobiPreconditioner;
+
+public class ConjugateGradientTest {
+
+	private static double[] random(int n, Random r) {
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++)
+			x[i] = r.nextGaussian();
+		return x;
+	}
+
+	/** 2D Poisson matrix on a g*g grid with diagonal scaled by 1..10, SPD and badly scaled */
+	private static CSRMatrix poisson(int g, Random r) {
+		int n = g * g;
+		int[] i = new int[5 * n], j = new int[5 * n];
+		double[] v = new double[5 * n];
+		int p = 0;
+		for (int a = 0; a < g; a++)
+			for (int b = 0; b < g; b++) {
+				int k = a * g + b;
+				double scale = 1. + 9. * r.nextDouble();
+				i[p] = k; j[p] = k; v[p++] = 4. + scale * 10.;
+				int[] neighbours = { a > 0 ? k - g : -1, a < g - 1 ? k + g : -1, b > 0 ? k - 1 : -1,
+						b < g - 1 ? k + 1 : -1 };
+				for (int q : neighbours)
+					if (q >= 0) {
+						i[p] = k; j[p] = q; v[p++] = -1.;
+					}
+			}
+		return CSRMatrix.fromTriplets(n, n, Arrays.copyOf(i, p), Arrays.copyOf(j, p), Arrays.copyOf(v, p));
+	}
+
+	private static double relativeResidual(CSRMatrix a, double[] b, double[] x) {
+		double[] ax = new double[b.length];
+		a.multiply(x, ax);
+		double s = 0., t = 0.;
+		for (int i = 0; i < b.length; i++) {
+			s += (b[i] - ax[i]) * (b[i] - ax[i]);
+			t += b[i] * b[i];
+		}
+		return Math.sqrt(s / t);
+	}
+
+	@Test
+	public void testDense() {
+		Random r = new Random(163);
+		Matrix x = TestMatrices.random(80, 60, r), a = x.t().multiply(x).plus(Matrix.unit(60));
+		Matrix b = TestMatrices.random(60, 3, r);
+		ConjugateGradient cg = new ConjugateGradient(a);
+		cg.setTolerance(1e-12);
+		Matrix solution = cg.solve(b);
+		assertTrue(cg.isConverged());
+		Matrix expected = new CholeskyDecomposition(a, true).solve(b);
+		for (int i = 0; i < 60; i++)
+			for (int j = 0; j < 3; j++)
+				assertEquals(expected.at(i, j), solution.at(i, j), 1e-9);
+		ConjugateGradient packed = new ConjugateGradient(SymmetricMatrix.valueOf(a));
+		packed.setTolerance(1e-12);
+		Matrix same = packed.solve(b);
+		assertTrue(packed.isConverged());
+		assertEquals(solution.at(5, 1), same.at(5, 1), 1e-9);
+	}
+
+	@Test
+	public void testPreconditioners() {
+		Random r = new Random(167);
+		CSRMatrix a = poisson(40, r);
+		double[] b = random(a.rows(), r);
+		int[] iterations = new int[3];
+		IncompleteCholesky ic = new IncompleteCholesky(a);
+		assertEquals(0., ic.getShift(), 0.);
+		assertEquals((a.nonZeros() + a.rows()) / 2, ic.nonZeros());
+		ConjugateGradient cg = new ConjugateGradient(a);
+		cg.setTolerance(1e-10);
+		for (int q = 0; q < 3; q++) {
+			cg.setPreconditioner(q == 0 ? null : q == 1 ? new JacobiPreconditioner(a) : ic);
+			double[] x = new double[b.length];
+			assertTrue(cg.solve(b, x));
+			assertTrue(relativeResidual(a, b, x) < 1e-9);
+			iterations[q] = cg.getIterations();
+			double[] history = cg.getResidualHistory();
+			assertEquals(iterations[q] + 1, history.length);
+			assertEquals(1., history[0], 0.);
+			assertEquals(cg.getResidual(), history[history.length - 1], 0.);
+			assertEquals(iterations[q] + 1, cg.getMatrixVectorProducts());
+		}
+		assertTrue(iterations[1] < iterations[0]);
+		assertTrue(iterations[2] < iterations[1]);
+	}
+
+	@Test
+	public void testIncompleteCholeskyOfDense() {
+		// on a full pattern IC(0) is the exact factorization, CG ends in one iteration
+		Random r = new Random(173);
+		Matrix x = TestMatrices.random(50, 30, r), a = x.t().multiply(x).plus(Matrix.unit(30));
+		ConjugateGradient cg = new ConjugateGradient(a);
+		cg.setPreconditioner(new IncompleteCholesky(a));
+		double[] b = random(30, r), solution = new double[30];
+		assertTrue(cg.solve(b, solution));
+		assertEquals(1, cg.getIterations());
+	}
+
+	@Test
+	public void testLimits() {
+		Random r = new Random(179);
+		CSRMatrix a = poisson(20, r);
+		double[] b = random(a.rows(), r), x = new double[b.length];
+		ConjugateGradient cg = new ConjugateGradient(a);
+		cg.setMaxIterations(3);
+		assertFalse(cg.solve(b, x));
+		assertEquals(3, cg.getIterations());
+		assertTrue(cg.getResidual() > 1e-8);
+		// going on from the last iterate
+		cg.setMaxIterations(1000);
+		assertTrue(cg.solve(b, x));
+		// zero right-hand side
+		assertTrue(cg.solve(new double[b.length], x));
+		assertEquals(0., x[7], 0.);
+		assertEquals(0, cg.getIterations());
+	}
+
+	@Test
+	public void testIndefinite() {
+		Matrix a = new Matrix(2, 2, new double[] { 1., 0., 0., -1. });
+		ConjugateGradient cg = new ConjugateGradient(a);
+		assertFalse(cg.solve(new double[] { 1., 1. }, new double[2]));
+	}
+}
@@ -0,0 +1,138 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.SymmetricMatrix;
+import artiano.linalg.decomposition.EigenValueDecomposition;
+
+public class EigenValueDecompositionTest {
+
+	/** symmetric matrix spanning several panels */
+	private static Matrix symmetric(int n, Random r) {
+		Matrix x = TestMatrices.random(n, n, r);
+		return x.plus(x.t());
+	}
+
+	/** A*V = V*diag(W) and V'*V = I */
+	private static void assertEigenpairs(Matrix a, Matrix w, Matrix v, double eps) {
+		Matrix av = a.multiply(v), vw = v.clone();
+		for (int i = 0; i < vw.rows(); i++)
+			for (int j = 0; j < vw.columns(); j++)
+				vw.set(i, j, vw.at(i, j) * w.at(j));
+		TestMatrices.assertClose(vw, av, eps);
+		TestMatrices.assertClose(Matrix.unit(v.columns()), v.t().multiply(v), eps);
+	}
+
+	private static double[] descending(Matrix w) {
+		double[] x = w.clone().data();
+		Arrays.sort(x);
+		for (int i = 0, j = x.length - 1; i < j; i++, j--) {
+			double t = x[i];
+			x[i] = x[j];
+			x[j] = t;
+		}
+		return x;
+	}
+
+	@Test
+	public void testAll() {
+		Random r = new Random(101);
+		for (int n : new int[] { 1, 2, 3, 33, 150 }) {
+			Matrix a = symmetric(n, r);
+			EigenValueDecomposition e = new EigenValueDecomposition(a);
+			assertEigenpairs(a, e.W(), e.V(), 1e-10);
+			e.sort();
+			assertEigenpairs(a, e.W(), e.V(), 1e-10);
+			for (int i = 1; i < n; i++)
+				assertEquals(true, e.W().at(i - 1) >= e.W().at(i));
+			double trace = 0.;
+			for (int i = 0; i < n; i++)
+				trace += e.W().at(i);
+			assertEquals(a.trace(), trace, 1e-10);
+		}
+	}
+
+	@Test
+	public void testValuesAndRange() {
+		Random r = new Random(103);
+		Matrix a = symmetric(120, r);
+		double[] all = descending(new EigenValueDecomposition(a).W());
+		EigenValueDecomposition values = EigenValueDecomposition.values(SymmetricMatrix.valueOf(a));
+		assertNull(values.V());
+		values.sort();
+		for (int i = 0; i < all.length; i++)
+			assertEquals(all[i], values.W().at(i), 1e-10);
+
+		EigenValueDecomposition top = EigenValueDecomposition.range(a, 0, 7, true);
+		assertEigenpairs(a, top.W(), top.V(), 1e-10);
+		EigenValueDecomposition middle = EigenValueDecomposition.range(SymmetricMatrix.valueOf(a), 50, 60, false);
+		assertNull(middle.V());
+		for (int i = 0; i < 7; i++)
+			assertEquals(all[i], top.W().at(i), 1e-10);
+		for (int i = 0; i < 10; i++)
+			assertEquals(all[50 + i], middle.W().at(i), 1e-10);
+	}
+
+	@Test
+	public void testRepeatedEigenvalues() {
+		// I + u*u' has the eigenvalue 1 n-1 times, the range vectors must still be orthogonal
+		Random r = new Random(107);
+		Matrix u = TestMatrices.random(40, 1, r), a = Matrix.unit(40).plus(u.multiply(u.t()));
+		EigenValueDecomposition e = EigenValueDecomposition.range(a, 0, 6, true);
+		assertEquals(1. + u.t().multiply(u).at(0), e.W().at(0), 1e-10);
+		for (int i = 1; i < 6; i++)
+			assertEquals(1., e.W().at(i), 1e-12);
+		assertEigenpairs(a, e.W(), e.V(), 1e-10);
+		EigenValueDecomposition full = new EigenValueDecomposition(a);
+		assertEigenpairs(a, full.W(), full.V(), 1e-10);
+	}
+
+	@Test
+	public void testZeroMatrix() {
+		Matrix a = new Matrix(6, 6);
+		EigenValueDecomposition e = EigenValueDecomposition.range(a, 0, 5, true);
+		for (int i = 0; i < 5; i++)
+			assertEquals(0., e.W().at(i), 0.);
+		assertEigenpairs(a, e.W(), e.V(), 0.);
+		EigenValueDecomposition packed = EigenValueDecomposition.range(new SymmetricMatrix(6), 2, 6, true);
+		assertEigenpairs(a, packed.W(), packed.V(), 0.);
+		EigenValueDecomposition full = new EigenValueDecomposition(a);
+		assertEigenpairs(a, full.W(), full.V(), 0.);
+	}
+
+	@Test
+	public void testSingleEntry() {
+		// one non-zero element, of an ordinary and of a tiny magnitude: one eigenvalue and a zero one 5 times
+		for (double x : new double[] { 3., 1e-300, Double.MIN_VALUE * 8 }) {
+			Matrix a = new Matrix(6, 6);
+			a.set(2, 2, x);
+			EigenValueDecomposition e = EigenValueDecomposition.range(a, 0, 6, true);
+			double eps = 1e-15 * x;
+			assertEquals(x, e.W().at(0), eps);
+			for (int i = 1; i < 6; i++)
+				assertEquals(0., e.W().at(i), eps);
+			assertEquals(1., Math.abs(e.V().at(2, 0)), 1e-15);
+			assertEigenpairs(a, e.W(), e.V(), 1e-14 * Math.max(x, 1.));
+		}
+		// an off-diagonal pair, the eigenvalues 2, 0 (4 times) and -2
+		Matrix b = new Matrix(5, 5);
+		b.set(1, 3, 2.);
+		b.set(3, 1, 2.);
+		EigenValueDecomposition e = EigenValueDecomposition.range(b, 0, 5, true);
+		assertEquals(2., e.W().at(0), 1e-15);
+		assertEquals(-2., e.W().at(4), 1e-15);
+		assertEigenpairs(b, e.W(), e.V(), 1e-14);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRange() {
+		EigenValueDecomposition.range(Matrix.unit(5), 3, 6, false);
+	}
+}
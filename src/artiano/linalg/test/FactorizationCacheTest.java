@@ -0,0 +1,179 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.MatrixArena;
+import artiano.core.structure.Range;
+import artiano.linalg.decomposition.CholeskyDecomposition;
+import artiano.linalg.decomposition.Factorization;
+import artiano.linalg.decomposition.FactorizationCache;
+import artiano.linalg.decomposition.LUDecomposition;
+import artiano.linalg.decomposition.QRDecomposition;
+
+public class FactorizationCacheTest {
+
+	private static Matrix spd(int n, Random r) {
+		Matrix x = TestMatrices.random(n + 10, n, r);
+		return x.t().multiply(x).plus(Matrix.unit(n));
+	}
+
+	@Test
+	public void testSolves() {
+		Random r = new Random(197);
+		Matrix a = spd(30, r), tall = TestMatrices.random(45, 30, r);
+		Matrix b = TestMatrices.random(30, 4, r), c = TestMatrices.random(45, 4, r);
+		Matrix copy = a.clone();
+		TestMatrices.assertClose(new LUDecomposition(a, true).solve(b, true), Factorization.factor(a, Factorization.LU).solve(b),
+				1e-12);
+		TestMatrices.assertClose(new CholeskyDecomposition(a, true).solve(b),
+				Factorization.factor(a, Factorization.CHOLESKY).solve(b), 1e-12);
+		TestMatrices.assertClose(new QRDecomposition(tall, true).solve(c, true).clone(),
+				Factorization.factor(tall, Factorization.QR).solve(c), 1e-12);
+		TestMatrices.assertClose(copy, a, 0.);
+		// a batch of vectors against the matrix form
+		Factorization lu = Factorization.factor(a, Factorization.LU);
+		double[][] vectors = new double[4][30];
+		for (int q = 0; q < 4; q++)
+			for (int i = 0; i < 30; i++)
+				vectors[q][i] = b.at(i, q);
+		double[][] solutions = lu.solve(vectors);
+		Matrix x = lu.solve(b);
+		for (int q = 0; q < 4; q++)
+			for (int i = 0; i < 30; i++)
+				assertEquals(x.at(i, q), solutions[q][i], 1e-14);
+		assertEquals(x.at(3, 2), lu.solve(vectors[2])[3], 1e-14);
+	}
+
+	@Test
+	public void testFingerprint() {
+		Random r = new Random(199);
+		Matrix a = spd(20, r);
+		FactorizationCache cache = new FactorizationCache(1L << 20);
+		Factorization f = cache.get(a, Factorization.CHOLESKY);
+		assertSame(f, cache.get(a.clone(), Factorization.CHOLESKY));
+		assertEquals(1, cache.hits());
+		assertEquals(1, cache.misses());
+		// another kind, and a changed content, are other entries
+		assertNotSame(f, cache.get(a, Factorization.LU));
+		a.set(3, 4, a.at(3, 4) + 1e-12);
+		assertNotSame(f, cache.get(a, Factorization.LU));
+		assertEquals(3, cache.size());
+		assertEquals(3, cache.misses());
+		// a view with the same content
+		Matrix big = new Matrix(25, 25);
+		Matrix view = big.at(new Range(2, 22), new Range(3, 23));
+		a.copyTo(view);
+		assertSame(cache.get(a, Factorization.LU), cache.get(view, Factorization.LU));
+	}
+
+	@Test
+	public void testVersionsAndBudget() {
+		Random r = new Random(211);
+		Matrix a = spd(40, r), b = TestMatrices.random(40, 1, r);
+		long bytes = Factorization.factor(a, Factorization.LU).bytes();
+		FactorizationCache cache = new FactorizationCache(3 * bytes);
+		Factorization v1 = cache.get("a", 1, a, Factorization.LU);
+		assertSame(v1, cache.get("a", 1, null, Factorization.LU));
+		cache.get("a", 1, a, Factorization.QR);
+		Matrix a2 = a.clone().plus(Matrix.unit(40));
+		Factorization v2 = cache.get("a", 2, a2, Factorization.LU);
+		assertEquals(1, cache.size());
+		TestMatrices.assertClose(new LUDecomposition(a2, true).solve(b, true), v2.solve(b), 1e-12);
+		// least recently used first out
+		cache.get("b", 1, a, Factorization.LU);
+		cache.get("c", 1, a, Factorization.LU);
+		cache.get("a", 2, null, Factorization.LU);
+		cache.get("d", 1, a, Factorization.LU);
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.evictions());
+		assertSame(v2, cache.get("a", 2, null, Factorization.LU));
+		assertEquals(3 * bytes, cache.getMemoryUsed());
+		cache.invalidate("a");
+		assertEquals(2, cache.size());
+		assertEquals(2 * bytes, cache.getMemoryUsed());
+		// larger than the budget, returned but not kept
+		FactorizationCache small = new FactorizationCache(bytes / 2);
+		TestMatrices.assertClose(v1.solve(b), small.get(a, Factorization.LU).solve(b), 0.);
+		assertEquals(0, small.size());
+		assertEquals(0, small.getMemoryUsed());
+	}
+
+	@Test
+	public void testFailure() {
+		Matrix a = new Matrix(2, 2, new double[] { 1., 0., 0., -1. });
+		FactorizationCache cache = new FactorizationCache(1L << 20);
+		for (int round = 0; round < 2; round++) {
+			try {
+				cache.get(a, Factorization.CHOLESKY);
+				assertTrue(false);
+			} catch (UnsupportedOperationException e) {
+			}
+			assertEquals(0, cache.size());
+		}
+		assertEquals(2, cache.misses());
+	}
+
+	@Test
+	public void testInsideArena() {
+		Random r = new Random(223);
+		Matrix a = spd(16, r), b = TestMatrices.random(16, 2, r);
+		FactorizationCache cache = new FactorizationCache(1L << 20);
+		Matrix expected = new LUDecomposition(a, true).solve(b, true);
+		MatrixArena arena = MatrixArena.open();
+		try {
+			cache.get(a, Factorization.LU);
+		} finally {
+			arena.close();
+		}
+		// the arena recycles its arrays, the cached factors must not be among them
+		for (int round = 0; round < 3; round++) {
+			arena = MatrixArena.open();
+			try {
+				new LUDecomposition(TestMatrices.random(16, 16, r), true);
+				TestMatrices.assertClose(expected, cache.solve(a, Factorization.LU, b), 1e-12);
+			} finally {
+				arena.close();
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		Random r = new Random(227);
+		final Matrix a = spd(60, r);
+		final Matrix b = TestMatrices.random(60, 3, r);
+		final Matrix expected = new CholeskyDecomposition(a, true).solve(b);
+		final FactorizationCache cache = new FactorizationCache(1L << 20);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Matrix>> results = new ArrayList<Future<Matrix>>();
+			for (int t = 0; t < 16; t++)
+				results.add(pool.submit(new Callable<Matrix>() {
+					@Override
+					public Matrix call() {
+						return cache.solve(a, Factorization.CHOLESKY, b);
+					}
+				}));
+			for (Future<Matrix> f : results)
+				TestMatrices.assertClose(expected, f.get(), 1e-12);
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(1, cache.misses());
+		assertEquals(15, cache.hits());
+	}
+}
@@ -0,0 +1,132 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.linalg.LinearOperators;
+import artiano.linalg.decomposition.LUDecomposition;
+import artiano.linalg.iterative.GMRES;
+import artiano.linalg.iterative.JacobiPreconditioner;
+
+public class GMRESTest {
+
+	private static double[] random(int n, Random r) {
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++)
+			x[i] = r.nextGaussian();
+		return x;
+	}
+
+	/** convection-diffusion on a g*g grid, nonsymmetric, rows scaled by 1..100 */
+	private static CSRMatrix convection(int g, Random r) {
+		int n = g * g;
+		int[] i = new int[5 * n], j = new int[5 * n];
+		double[] v = new double[5 * n];
+		int p = 0;
+		for (int a = 0; a < g; a++)
+			for (int b = 0; b < g; b++) {
+				int k = a * g + b;
+				double scale = 1. + 99. * r.nextDouble();
+				i[p] = k; j[p] = k; v[p++] = 4. * scale;
+				if (a > 0) { i[p] = k; j[p] = k - g; v[p++] = -1.3 * scale; }
+				if (a < g - 1) { i[p] = k; j[p] = k + g; v[p++] = -.7 * scale; }
+				if (b > 0) { i[p] = k; j[p] = k - 1; v[p++] = -1.2 * scale; }
+				if (b < g - 1) { i[p] = k; j[p] = k + 1; v[p++] = -.8 * scale; }
+			}
+		return CSRMatrix.fromTriplets(n, n, Arrays.copyOf(i, p), Arrays.copyOf(j, p), Arrays.copyOf(v, p));
+	}
+
+	private static double relativeResidual(CSRMatrix a, double[] b, double[] x) {
+		double[] ax = new double[b.length];
+		a.multiply(x, ax);
+		double s = 0., t = 0.;
+		for (int i = 0; i < b.length; i++) {
+			s += (b[i] - ax[i]) * (b[i] - ax[i]);
+			t += b[i] * b[i];
+		}
+		return Math.sqrt(s / t);
+	}
+
+	@Test
+	public void testDense() {
+		Random r = new Random(181);
+		Matrix a = new Matrix(40, 40), b = new Matrix(40, 2);
+		for (int i = 0; i < 40; i++) {
+			for (int j = 0; j < 40; j++)
+				a.set(i, j, r.nextGaussian() / 10.);
+			a.set(i, i, a.at(i, i) + 3.);
+			b.set(i, 0, r.nextGaussian());
+			b.set(i, 1, r.nextGaussian());
+		}
+		GMRES gmres = new GMRES(a);
+		gmres.setTolerance(1e-12);
+		Matrix x = gmres.solve(b);
+		assertTrue(gmres.isConverged());
+		Matrix expected = new LUDecomposition(a, true).solve(b);
+		for (int i = 0; i < 40; i++)
+			for (int j = 0; j < 2; j++)
+				assertEquals(expected.at(i, j), x.at(i, j), 1e-10);
+	}
+
+	@Test
+	public void testRestartedAndPreconditioned() {
+		Random r = new Random(191);
+		CSRMatrix a = convection(30, r);
+		double[] b = random(a.rows(), r);
+		GMRES gmres = new GMRES(LinearOperators.valueOf(a));
+		gmres.setRestart(20);
+		gmres.setTolerance(1e-10);
+		double[] x = new double[b.length];
+		assertTrue(gmres.solve(b, x));
+		assertTrue(relativeResidual(a, b, x) <= 1e-10);
+		assertEquals(relativeResidual(a, b, x), gmres.getResidual(), 1e-14);
+		assertTrue(gmres.getRestarts() > 0);
+		int plain = gmres.getIterations();
+		double[] history = gmres.getResidualHistory();
+		assertEquals(plain + 1, history.length);
+		for (int q = 1; q < history.length; q++)
+			if (q % 20 != 1)
+				assertTrue(history[q] <= history[q - 1] * (1. + 1e-12));
+		// one residual per cycle on top of the iterations
+		assertEquals(plain + gmres.getRestarts() + 2, gmres.getMatrixVectorProducts());
+
+		gmres.setPreconditioner(new JacobiPreconditioner(a));
+		Arrays.fill(x, 0.);
+		assertTrue(gmres.solve(b, x));
+		assertTrue(relativeResidual(a, b, x) <= 1e-10);
+		assertTrue(gmres.getIterations() < plain);
+	}
+
+	@Test
+	public void testExactInSmallSpace() {
+		// b in an invariant subspace of dimension 3, the Arnoldi process stops there
+		Matrix a = new Matrix(6, 6);
+		for (int i = 0; i < 6; i++)
+			a.set(i, i, 1. + i % 3);
+		GMRES gmres = new GMRES(a);
+		double[] x = new double[6];
+		assertTrue(gmres.solve(new double[] { 1., 2., 3., 4., 5., 6. }, x));
+		assertEquals(3, gmres.getIterations());
+		assertEquals(5. / 2., x[4], 1e-14);
+	}
+
+	@Test
+	public void testIterationLimit() {
+		Random r = new Random(193);
+		CSRMatrix a = convection(20, r);
+		GMRES gmres = new GMRES(a);
+		gmres.setRestart(5);
+		gmres.setMaxIterations(12);
+		assertFalse(gmres.solve(random(a.rows(), r), new double[a.rows()]));
+		assertEquals(12, gmres.getIterations());
+		assertEquals(2, gmres.getRestarts());
+	}
+}
@@ -0,0 +1,52 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.linalg.decomposition.LUDecomposition;
+
+public class LUDecompositionTest {
+
+	@Test
+	public void testSolveAcrossBlocks() {
+		Random r = new Random(109);
+		Matrix a = TestMatrices.random(203, 203, r), b = TestMatrices.random(203, 5, r);
+		Matrix x = new LUDecomposition(a, true).solve(b, true);
+		TestMatrices.assertClose(b, a.multiply(x), 1e-9);
+		Matrix inv = new LUDecomposition(a, true).inverse();
+		TestMatrices.assertClose(Matrix.unit(203, 1.), a.multiply(inv), 1e-9);
+	}
+
+	@Test
+	public void testDeterminant() {
+		Matrix p = new Matrix(3, 3, new double[] { 0, 1, 0, 1, 0, 0, 0, 0, 1 });
+		assertEquals(-1., new LUDecomposition(p, true).det(), 0.);
+		Matrix a = new Matrix(3, 3, new double[] { 2, -1, 0, -1, 2, -1, 0, -1, 2 });
+		assertEquals(4., new LUDecomposition(a, true).det(), 1e-12);
+		Matrix u = new Matrix(3, 3, new double[] { 0, 2, 3, 0, 0, 5, 7, 1, 1 });
+		assertEquals(70., new LUDecomposition(u, true).det(), 1e-12);
+	}
+
+	@Test
+	public void testViews() {
+		Random r = new Random(113);
+		Matrix big = TestMatrices.random(150, 150, r);
+		Matrix a = big.at(new Range(10, 140), new Range(5, 135)).t(), copy = a.clone();
+		Matrix b = TestMatrices.random(130, 3, r), rhs = new Matrix(3, 130);
+		b.t().copyTo(rhs);
+		LUDecomposition lu = new LUDecomposition(a, false);
+		Matrix x = lu.solve(rhs.t(), false);
+		TestMatrices.assertClose(b, copy.multiply(x), 1e-9);
+		TestMatrices.assertClose(x, rhs.t(), 0.);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroRow() {
+		new LUDecomposition(new Matrix(3, 3, new double[] { 1, 2, 3, 0, 0, 0, 4, 5, 6 }), true);
+	}
+}
@@ -0,0 +1,181 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.CSCMatrix;
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.SymmetricMatrix;
+import artiano.linalg.LinearOperator;
+import artiano.linalg.LinearOperators;
+import artiano.linalg.decomposition.EigenValueDecomposition;
+import artiano.linalg.iterative.Lanczos;
+
+public class LanczosTest {
+
+	/** Laplacian D - W of a ring plus random edges with weights in (0, 1), connected so 0 is simple */
+	private static CSRMatrix laplacian(int n, int edges, Random r) {
+		int[] i = new int[2 * (edges + n) + n], j = new int[i.length];
+		double[] v = new double[i.length], degree = new double[n];
+		int p = 0;
+		for (int e = 0; e < edges + n; e++) {
+			int a = e < n ? e : r.nextInt(n), b = e < n ? (e + 1) % n : r.nextInt(n);
+			if (a == b)
+				continue;
+			double w = r.nextDouble();
+			i[p] = a; j[p] = b; v[p++] = -w;
+			i[p] = b; j[p] = a; v[p++] = -w;
+			degree[a] += w;
+			degree[b] += w;
+		}
+		for (int k = 0; k < n; k++) {
+			i[p] = k; j[p] = k; v[p++] = degree[k];
+		}
+		return CSRMatrix.fromTriplets(n, n, Arrays.copyOf(i, p), Arrays.copyOf(j, p), Arrays.copyOf(v, p));
+	}
+
+	/** |A*x - theta*x| for every returned pair, and orthonormal vectors */
+	private static void assertPairs(LinearOperator a, Lanczos lanczos, double eps) {
+		Matrix x = lanczos.getEigenVectors(), ax = new Matrix(x.rows(), x.columns());
+		a.apply(x, ax);
+		for (int q = 0; q < x.columns(); q++)
+			for (int i = 0; i < x.rows(); i++)
+				assertEquals(lanczos.getEigenValues().at(q) * x.at(i, q), ax.at(i, q), eps);
+		TestMatrices.assertClose(Matrix.unit(x.columns()), x.t().multiply(x), 1e-10);
+	}
+
+	@Test
+	public void testOperators() {
+		Random r = new Random(139);
+		Matrix a = TestMatrices.random(40, 30, r), x = TestMatrices.random(30, 3, r);
+		Matrix s = a.t().multiply(a);
+		CSRMatrix csr = CSRMatrix.valueOf(a);
+		LinearOperator[] ops = { LinearOperators.valueOf(a), LinearOperators.valueOf(csr),
+				LinearOperators.valueOf(CSCMatrix.valueOf(a)) };
+		Matrix expected = a.multiply(x);
+		for (LinearOperator op : ops) {
+			Matrix y = new Matrix(40, 3);
+			op.apply(x, y);
+			TestMatrices.assertClose(expected, y, 1e-12);
+			LinearOperators.applyByColumns(op, x, y);
+			TestMatrices.assertClose(expected, y, 1e-12);
+			double[] yv = new double[40];
+			op.apply(x.column(1).clone().data(), yv);
+			TestMatrices.assertClose(expected.column(1), new Matrix(40, 1, yv), 1e-12);
+		}
+		LinearOperator packed = LinearOperators.valueOf(SymmetricMatrix.valueOf(s));
+		double[] yv = new double[30];
+		packed.apply(x.column(0).clone().data(), yv);
+		TestMatrices.assertClose(s.multiply(x.column(0)), new Matrix(30, 1, yv), 1e-10);
+	}
+
+	@Test
+	public void testLargestOfDense() {
+		Random r = new Random(149);
+		Matrix x = TestMatrices.random(300, 300, r), a = x.plus(x.t());
+		LinearOperator op = LinearOperators.valueOf(SymmetricMatrix.valueOf(a));
+		Lanczos lanczos = new Lanczos(op, 6);
+		assertTrue(lanczos.solve());
+		EigenValueDecomposition exact = EigenValueDecomposition.range(a, 0, 6, false);
+		TestMatrices.assertClose(exact.W(), lanczos.getEigenValues(), 1e-8);
+		assertPairs(op, lanczos, 1e-6);
+		assertTrue(lanczos.getRestarts() > 0);
+	}
+
+	@Test
+	public void testSmallestOfLaplacian() {
+		Random r = new Random(151);
+		int n = 800;
+		CSRMatrix l = laplacian(n, 2400, r);
+		LinearOperator op = LinearOperators.valueOf(l);
+		Lanczos lanczos = new Lanczos(op, 4);
+		lanczos.setWhich(Lanczos.SMALLEST);
+		lanczos.setBasisSize(60);
+		lanczos.setTolerance(1e-10);
+		assertTrue(lanczos.solve());
+		// the constant vector is in the null space of a Laplacian
+		assertEquals(0., lanczos.getEigenValues().at(0), 1e-8);
+		EigenValueDecomposition exact = EigenValueDecomposition.range(l.toMatrix(), n - 4, n, false);
+		for (int q = 0; q < 4; q++)
+			assertEquals(exact.W().at(3 - q), lanczos.getEigenValues().at(q), 1e-8);
+		assertPairs(op, lanczos, 1e-7);
+	}
+
+	@Test
+	public void testMagnitudeAndRepeated() {
+		// eigenvalues -10, 1 (twice), 2, ..., and 9.5
+		int n = 500;
+		double[] d = new double[n];
+		for (int i = 0; i < n; i++)
+			d[i] = 1. + i * 8. / n;
+		d[7] = -10.;
+		d[8] = 1.;
+		d[9] = 9.5;
+		Matrix a = new Matrix(n, n);
+		for (int i = 0; i < n; i++)
+			a.set(i, i, d[i]);
+		Lanczos lanczos = new Lanczos(LinearOperators.valueOf(a), 2);
+		lanczos.setWhich(Lanczos.LARGEST_MAGNITUDE);
+		assertTrue(lanczos.solve());
+		assertEquals(-10., lanczos.getEigenValues().at(0), 1e-10);
+		assertEquals(9.5, lanczos.getEigenValues().at(1), 1e-10);
+		assertEquals(2, lanczos.getResiduals().length);
+	}
+
+	@Test
+	public void testRepeatedOfGrid() {
+		// 2D Laplacian on a g*g grid, the eigenvalues l(i)+l(j) of the 1D ones, l(i)+l(j) = l(j)+l(i) are double
+		int g = 30, n = g * g;
+		int[] i = new int[5 * n], j = new int[5 * n];
+		double[] v = new double[5 * n];
+		int p = 0;
+		for (int a = 0; a < g; a++)
+			for (int b = 0; b < g; b++) {
+				int k = a * g + b;
+				i[p] = k; j[p] = k; v[p++] = 4.;
+				int[] neighbours = { a > 0 ? k - g : -1, a < g - 1 ? k + g : -1, b > 0 ? k - 1 : -1,
+						b < g - 1 ? k + 1 : -1 };
+				for (int q : neighbours)
+					if (q >= 0) {
+						i[p] = k; j[p] = q; v[p++] = -1.;
+					}
+			}
+		LinearOperator op = LinearOperators.valueOf(
+				CSRMatrix.fromTriplets(n, n, Arrays.copyOf(i, p), Arrays.copyOf(j, p), Arrays.copyOf(v, p)));
+		double[] l = new double[g + 1], expected = new double[n];
+		for (int q = 1; q <= g; q++)
+			l[q] = 2. - 2. * Math.cos(q * Math.PI / (g + 1));
+		for (int a = 0; a < g; a++)
+			for (int b = 0; b < g; b++)
+				expected[a * g + b] = l[a + 1] + l[b + 1];
+		Arrays.sort(expected);
+		for (double tolerance : new double[] { 1e-8, 1e-12 }) {
+			Lanczos lanczos = new Lanczos(op, 5);
+			lanczos.setWhich(Lanczos.SMALLEST);
+			lanczos.setTolerance(tolerance);
+			assertTrue(lanczos.solve());
+			assertTrue(lanczos.isConverged());
+			for (int q = 0; q < 5; q++)
+				assertEquals(expected[q], lanczos.getEigenValues().at(q), 1e-8);
+			assertPairs(op, lanczos, 1e-6);
+		}
+	}
+
+	@Test
+	public void testNoConvergence() {
+		Random r = new Random(157);
+		Matrix x = TestMatrices.random(200, 200, r), a = x.plus(x.t());
+		Lanczos lanczos = new Lanczos(LinearOperators.valueOf(a), 5);
+		lanczos.setMaxRestarts(0);
+		lanczos.setBasisSize(8);
+		assertEquals(false, lanczos.solve());
+		assertEquals(8, lanczos.getMatrixVectorProducts());
+		assertEquals(5, lanczos.getEigenValues().columns());
+	}
+}
@@ -0,0 +1,59 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.Matrix;
+import artiano.linalg.decomposition.CholeskyDecomposition;
+import artiano.linalg.decomposition.QRDecomposition;
+
+public class QRDecompositionTest {
+
+	@Test
+	public void testThinFactors() {
+		Random r = new Random(139);
+		Matrix a = TestMatrices.random(500, 70, r);
+		QRDecomposition qr = new QRDecomposition(a, true);
+		Matrix q = qr.Q(), rr = qr.R();
+		assertEquals(500, q.rows());
+		assertEquals(70, q.columns());
+		TestMatrices.assertClose(Matrix.unit(70, 1.), q.t().multiply(q), 1e-12);
+		TestMatrices.assertClose(a, q.multiply(rr), 1e-12);
+		for (int i = 1; i < 70; i++)
+			for (int j = 0; j < i; j++)
+				assertEquals(0., rr.at(i, j), 0.);
+		Matrix b = TestMatrices.random(500, 3, r);
+		TestMatrices.assertClose(b, qr.multiplyQ(qr.multiplyQt(b, true), false), 1e-12);
+	}
+
+	@Test
+	public void testLeastSquares() {
+		Random r = new Random(149);
+		Matrix a = TestMatrices.random(400, 45, r), b = TestMatrices.random(400, 2, r);
+		Matrix x = new QRDecomposition(a, true).solve(b, true);
+		assertEquals(45, x.rows());
+		// normal equations A'A*x = A'b
+		Matrix normal = new CholeskyDecomposition(a.t().multiply(a), true).solve(a.t().multiply(b));
+		TestMatrices.assertClose(normal, x, 1e-10);
+		// the residual is orthogonal to the columns of A
+		Matrix residual = a.multiply(x).minus(b, true);
+		TestMatrices.assertClose(new Matrix(45, 2), a.t().multiply(residual), 1e-10);
+	}
+
+	@Test
+	public void testSquare() {
+		Random r = new Random(151);
+		Matrix a = TestMatrices.random(100, 100, r), b = TestMatrices.random(100, 3, r);
+		QRDecomposition qr = new QRDecomposition(a, true);
+		TestMatrices.assertClose(b, a.multiply(qr.solve(b, true)), 1e-9);
+		TestMatrices.assertClose(Matrix.unit(100, 1.), a.multiply(qr.inverse()), 1e-9);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWide() {
+		new QRDecomposition(new Matrix(3, 5), true);
+	}
+}
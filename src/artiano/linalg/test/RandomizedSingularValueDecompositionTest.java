@@ -0,0 +1,119 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.Matrix;
+import artiano.core.structure.Range;
+import artiano.linalg.decomposition.RandomizedSingularValueDecomposition;
+import artiano.linalg.decomposition.SingularValueDecomposition;
+import artiano.statistics.reducer.PrincipleComponentAnalysis;
+
+public class RandomizedSingularValueDecompositionTest {
+
+	/** m*n matrix of rank k with singular values 100, 50, 25, ... */
+	private static Matrix lowRank(int m, int n, int k, Random r) {
+		Matrix u = TestMatrices.random(m, k, r), v = TestMatrices.random(k, n, r);
+		for (int j = 0; j < k; j++) {
+			double s = 100. / (1 << j) / Math.sqrt(m * n);
+			for (int i = 0; i < m; i++)
+				u.set(i, j, u.at(i, j) * s);
+		}
+		return u.multiply(v);
+	}
+
+	private static Matrix exactValues(Matrix a) {
+		SingularValueDecomposition svd = new SingularValueDecomposition(a.clone(), false);
+		svd.sort();
+		return svd.W();
+	}
+
+	/** U*diag(W)*V' rebuilt, U and V with orthonormal columns */
+	private static void assertFactors(Matrix a, RandomizedSingularValueDecomposition svd, double eps) {
+		Matrix u = svd.U().clone(), v = svd.V();
+		int k = svd.W().columns();
+		TestMatrices.assertClose(Matrix.unit(k), u.t().multiply(u), 1e-10);
+		TestMatrices.assertClose(Matrix.unit(k), v.t().multiply(v), 1e-10);
+		for (int i = 0; i < u.rows(); i++)
+			for (int j = 0; j < k; j++)
+				u.set(i, j, u.at(i, j) * svd.W().at(j));
+		TestMatrices.assertClose(a, u.multiply(v.t()), eps);
+	}
+
+	@Test
+	public void testLowRank() {
+		Random r = new Random(109);
+		Matrix a = lowRank(300, 120, 8, r);
+		RandomizedSingularValueDecomposition svd = new RandomizedSingularValueDecomposition(a, 8);
+		Matrix w = exactValues(a);
+		for (int j = 0; j < 8; j++)
+			assertEquals(w.at(j), svd.W().at(j), 1e-10 * w.at(0));
+		assertFactors(a, svd, 1e-10);
+	}
+
+	@Test
+	public void testLeadingValues() {
+		// a decaying spectrum with noise, the leading values come out accurate
+		Random r = new Random(113);
+		Matrix a = lowRank(200, 150, 20, r).plus(TestMatrices.random(200, 150, r).multiply(1e-4, true));
+		RandomizedSingularValueDecomposition svd = new RandomizedSingularValueDecomposition(a, 5);
+		Matrix w = exactValues(a);
+		for (int j = 0; j < 5; j++)
+			assertEquals(w.at(j), svd.W().at(j), 1e-6 * w.at(0));
+	}
+
+	@Test
+	public void testSparse() {
+		Random r = new Random(127);
+		// each row loads on one of 6 sparse factors, the matrix is sparse and of rank 6
+		Matrix u = new Matrix(150, 6), v = TestMatrices.random(6, 90, r);
+		for (int i = 0; i < 150; i++)
+			u.set(i, r.nextInt(6), 1. + i % 7);
+		for (int i = 0; i < 6; i++)
+			for (int j = 0; j < 90; j++)
+				if (r.nextInt(3) != 0)
+					v.set(i, j, 0.);
+		Matrix a = u.multiply(v);
+		RandomizedSingularValueDecomposition dense = new RandomizedSingularValueDecomposition(a, 4);
+		RandomizedSingularValueDecomposition sparse = new RandomizedSingularValueDecomposition(CSRMatrix.valueOf(a), 4);
+		TestMatrices.assertClose(dense.W(), sparse.W(), 1e-10);
+		TestMatrices.assertClose(exactValues(a).at(new Range(0, 1), new Range(0, 4)), sparse.W(), 1e-10);
+	}
+
+	@Test
+	public void testCentered() {
+		Random r = new Random(131);
+		Matrix a = lowRank(250, 60, 5, r).plus(3.);
+		Matrix mean = a.rowMean();
+		RandomizedSingularValueDecomposition implicit = RandomizedSingularValueDecomposition.centered(a, mean, 5);
+		RandomizedSingularValueDecomposition sparse = RandomizedSingularValueDecomposition.centered(
+				CSRMatrix.valueOf(a), mean, 5, 10, 2);
+		Matrix centred = a.lazy().minus(mean).eval();
+		TestMatrices.assertClose(new RandomizedSingularValueDecomposition(centred, 5).W(), implicit.W(), 1e-10);
+		TestMatrices.assertClose(implicit.W(), sparse.W(), 1e-10);
+		assertFactors(centred, implicit, 1e-10);
+	}
+
+	@Test
+	public void testPrincipleComponentAnalysis() {
+		Random r = new Random(137);
+		Matrix x = TestMatrices.random(400, 6, r);
+		PrincipleComponentAnalysis direct = new PrincipleComponentAnalysis();
+		direct.train(x.clone());
+		PrincipleComponentAnalysis randomized = new PrincipleComponentAnalysis();
+		randomized.train(x, 6);
+		TestMatrices.assertClose(direct.getEigenValue(), randomized.getEigenValue(), 1e-10);
+		Matrix a = direct.reduce(x.row(7)), b = randomized.reduce(x.row(7));
+		for (int j = 0; j < a.columns(); j++)
+			assertEquals(Math.abs(a.at(j)), Math.abs(b.at(j)), 1e-10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRank() {
+		new RandomizedSingularValueDecomposition(new Matrix(10, 4), 5);
+	}
+}
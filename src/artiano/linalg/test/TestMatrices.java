@@ -0,0 +1,34 @@
+package artiano.linalg.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import artiano.core.structure.Matrix;
+
+/**
+ * Helpers shared by the tests of this package.
+ */
+final class TestMatrices {
+
+	private TestMatrices() {
+	}
+
+	/** rows*cols matrix of standard normal elements */
+	static Matrix random(int rows, int cols, Random r) {
+		Matrix x = new Matrix(rows, cols);
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				x.set(i, j, r.nextGaussian());
+		return x;
+	}
+
+	/** same size and every element within eps */
+	static void assertClose(Matrix expected, Matrix actual, double eps) {
+		assertEquals(expected.rows(), actual.rows());
+		assertEquals(expected.columns(), actual.columns());
+		for (int i = 0; i < expected.rows(); i++)
+			for (int j = 0; j < expected.columns(); j++)
+				assertEquals(expected.at(i, j), actual.at(i, j), eps);
+	}
+}
@@ -3,6 +3,7 @@ package artiano.ml;
 import java.util.LinkedList;
 import java.util.Queue;
 
+import artiano.core.structure.CSRMatrix;
 import artiano.core.structure.Matrix;
 
 public abstract class BaseKDTree {
@@ -100,11 +101,30 @@ public abstract class BaseKDTree {
 				"两个数据点列的维数应该一致且行数为1!");
 		}
 		
-		double distance = 0;
-		for(int i=0; i<point1.columns(); i++) {
-			distance += Math.pow(point1.at(i) - point2.at(i), 2);
-		}
-		return Math.sqrt(distance);
+		return Math.sqrt(point1.squaredDistance(point2));
+	}
+
+	/**
+	 * 计算稀疏矩阵中两个数据点之间的欧式距离，只访问非零元素
+	 * @param data1 - 稀疏数据集
+	 * @param i - 数据点在data1中的行下标
+	 * @param data2 - 稀疏数据集
+	 * @param j - 数据点在data2中的行下标
+	 * @return 两个数据点之间的欧式距离
+	 */
+	protected double distance(CSRMatrix data1, int i, CSRMatrix data2, int j) {
+		return data1.distance(i, data2, j);
+	}
+
+	/**
+	 * 计算稠密数据点与稀疏矩阵中一个数据点之间的欧式距离
+	 * @param point - 数据点（行向量）
+	 * @param data - 稀疏数据集
+	 * @param i - 数据点在data中的行下标
+	 * @return 两个数据点之间的欧式距离
+	 */
+	protected double distance(Matrix point, CSRMatrix data, int i) {
+		return data.distance(i, point);
 	}
 
 	/**  
@@ -3,8 +3,11 @@ package artiano.ml.classifier;
 import java.util.*;
 import java.util.Map.Entry;
 
+import artiano.core.structure.CSRMatrix;
+import artiano.core.structure.FloatMatrix;
 import artiano.core.structure.Matrix;
 import artiano.core.structure.NominalAttribute;
+import artiano.core.structure.RowCursor;
 import artiano.core.structure.Table;
 import artiano.core.structure.Table.TableRow;
 import artiano.ml.classifier.KDTree.KDNode;
@@ -53,12 +56,39 @@ public class KNearest extends Classifier {
 	public NominalAttribute predict(Table samples) {
 		Matrix sampleMat = samples.toMatrix();
 		NominalAttribute results = new NominalAttribute("label");
-		for(int i=0; i<samples.rows(); i++) {
-			results.push(findKNearestForSingleSample(sampleMat.row(i), k));
+		RowCursor sample = sampleMat.cursor();
+		while(sample.next()) {
+			results.push(findKNearestForSingleSample(sample.view(), k));
 		}
 		return results;									
 	}
 
+	/**
+	 * 使用构造的KD树对单精度数据集进行分类
+	 * @param samples 待分类的数据集，每行一个样本
+	 * @return 输入数据的类标构成的向量
+	 */
+	public NominalAttribute predict(FloatMatrix samples) {
+		NominalAttribute results = new NominalAttribute("label");
+		for(int i=0; i<samples.rows(); i++) {
+			results.push(findKNearestForSingleSample(samples.row(i).toMatrix(), k));
+		}
+		return results;
+	}
+
+	/**
+	 * 使用构造的KD树对稀疏数据集进行分类，每次只展开一行，内存占用与非零元素个数成正比
+	 * @param samples 待分类的数据集，每行一个样本
+	 * @return 输入数据的类标构成的向量
+	 */
+	public NominalAttribute predict(CSRMatrix samples) {
+		NominalAttribute results = new NominalAttribute("label");
+		for(int i=0; i<samples.rows(); i++) {
+			results.push(findKNearestForSingleSample(samples.row(i).toMatrix(), k));
+		}
+		return results;
+	}
+
 	/**
 	 * 找到数据集的分类
 	 * @param samples - 待分类数据
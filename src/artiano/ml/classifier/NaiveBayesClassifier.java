@@ -79,8 +79,9 @@ public class NaiveBayesClassifier extends Classifier {
 	public NominalAttribute predict(Table samples) {		
 		Matrix samplesMat = samples.toMatrix();
 		NominalAttribute result = new NominalAttribute("label");
-		for (int i = 0; i < samples.rows(); i++) {			
-			Object predictResult = classifySingleData(samplesMat.row(i));
+		RowCursor sample = samplesMat.cursor();
+		while (sample.next()) {			
+			Object predictResult = classifySingleData(sample.view());
 			result.push(predictResult);
 		}
 		return result;
@@ -210,16 +211,29 @@ public class NaiveBayesClassifier extends Classifier {
 	 * @return 键值对, 类标号作为键, 类标号对应的数据作为值.
 	 */
 	private Map<Object, Matrix> groupTraningDataByLabel() {
-		Map<Object, Matrix> labelMap = new HashMap<Object, Matrix>();
+		// 先统计每个类标号的数据条数, 再一次性分配矩阵并逐行拷贝
+		Map<Object, Integer> labelCount = new HashMap<Object, Integer>();
 		for (int i = 0; i < trainData.rows(); i++) {
 			Object label = classAttribute.get(i);  // 获取该条数据的类标号
-			if(!labelMap.containsKey(label)) {
-				labelMap.put(label, trainData.row(i));
-			} else {
-				Matrix oldMatrix = labelMap.get(label);
-				oldMatrix.mergeAfterRow(trainData.row(i));
-				labelMap.put(label, oldMatrix);
-			}		
+			Integer count = labelCount.get(label);
+			labelCount.put(label, count == null ? 1 : count + 1);
+		}
+		Map<Object, Matrix> labelMap = new HashMap<Object, Matrix>();
+		for (Entry<Object, Integer> entry : labelCount.entrySet()) {
+			labelMap.put(entry.getKey(), new Matrix(entry.getValue(), trainData.columns()));
+			entry.setValue(0);
+		}
+		RowCursor row = trainData.cursor();
+		while (row.next()) {
+			Object label = classAttribute.get(row.index());
+			Matrix group = labelMap.get(label);
+			int filled = labelCount.get(label);
+			row.copyTo(group.data(), filled * group.columns());
+			labelCount.put(label, filled + 1);
+		}
+		// 每个属性的统计量按列计算, 转换为按列存放后逐个属性顺序访问
+		for (Entry<Object, Matrix> entry : labelMap.entrySet()) {
+			entry.setValue(entry.getValue().toColumnMajor());
 		}
 		return labelMap;
 	}
@@ -3,6 +3,7 @@ package artiano.ml.clustering;
 import java.util.*;
 
 import artiano.core.structure.Matrix;
+import artiano.core.structure.RowCursor;
 import artiano.ml.clustering.structure.Cluster;
 
 public class Agenes {
@@ -58,15 +59,8 @@ public class Agenes {
 	}
 
 	// 计算两个样本点之间的欧几里得距离
-	private static double getDistance(Matrix dataPoint1, Matrix dataPoint2) {
-		double distance = 0;
-		int columns = dataPoint1.columns();
-		for (int j = 0; j < columns; j++) {
-			double temp = Math.pow((dataPoint1.at(j) - dataPoint2.at(j)), 2);
-			distance = distance + temp;
-		}
-		distance = Math.pow(distance, 0.5);
-		return distance;
+	private static double getDistance(RowCursor dataPoint1, RowCursor dataPoint2) {
+		return Math.sqrt(dataPoint1.squaredDistance(dataPoint2));
 	}
 
 	//获取当前最接近的两个簇
@@ -81,12 +75,13 @@ public class Agenes {
 					Cluster cluster_2 = currentClusters.get(j);
 					Matrix dataPoints_1 = cluster_1.getDataPoints();
 					Matrix dataPoints_2 = cluster_2.getDataPoints();
+					RowCursor point_1 = dataPoints_1.cursor(), point_2 = dataPoints_2.cursor();
 					//获取当前两个簇最小的簇间距离
 					for (int m = 0; m < dataPoints_1.rows(); m++) {
+						point_1.moveTo(m);
 						for (int n = 0; n < dataPoints_2.rows(); n++) {
 							// 簇1中的点到簇2中的点的距离
-							double tempDistance = getDistance(
-									dataPoints_1.row(m), dataPoints_2.row(n));
+							double tempDistance = getDistance(point_1, point_2.moveTo(n));
 							if (tempDistance < minDistance) {
 								minDistance = tempDistance;
 								clusterIndex_1 = i;
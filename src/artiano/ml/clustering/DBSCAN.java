@@ -1,6 +1,8 @@
 package artiano.ml.clustering;
 
 import java.util.*;
+import artiano.core.operation.Distances;
+import artiano.core.structure.FloatMatrix;
 import artiano.core.structure.Matrix;
 import artiano.ml.clustering.structure.AbstractGraph.Edge;
 import artiano.ml.clustering.structure.*;
@@ -9,7 +11,8 @@ public class DBSCAN {
 	private double eps;				//半径
 	private int minNeighborsNum;	//在指定半径内相邻的点的最少数目
 	private Matrix dataPoints;		//数据点
-	private List<List<Double>> distances;	//数据点之间的距离	
+	private FloatMatrix floatPoints;	//单精度数据点，不为null时dataPoints为null
+	private double[] distances;	//数据点之间的距离（按行保存的上三角，参见Distances.condensed）	
 	private List<Integer> pointType;		//数据点的类型(核心，边界，噪声)
 	private int numberOfPoints;				//数据点的个数
 	
@@ -21,12 +24,23 @@ public class DBSCAN {
 		this.numberOfPoints = dataPoints.rows();
 	}
 	
+	/**
+	 * 单精度数据点，距离直接由单精度数据计算，只有簇和噪声点中的数据点被转换为{@link Matrix}
+	 */
+	public DBSCAN(double eps, int minNeighborsNum, FloatMatrix dataPoints) {
+		super();
+		this.eps = eps;
+		this.minNeighborsNum = minNeighborsNum;
+		this.floatPoints = dataPoints;
+		this.numberOfPoints = dataPoints.rows();
+	}
+	
 	/**
 	 * 对输入的数据点进行聚类处理
 	 * @return 划分的所有簇
 	 */
 	public List<Matrix> cluster() {
-		Matrix copyOfDataPoints = this.dataPoints.clone();		
+		Matrix copyOfDataPoints = dataPoints == null ? null: this.dataPoints.clone();		
 		//计算所有数据点之间的距离
 		getDistanceBetweenAnyTwoPoints(copyOfDataPoints);
 		//根据数据点之间的距离指定数据点的类型
@@ -57,7 +71,7 @@ public class DBSCAN {
 				Vertex vertex = graph.getVertex(branch.get(j));
 				int indexInDataPoint = vertex.getIndexInDataPoints(); 
 				pointsOfACluster.put(indexInDataPoint, 
-					copyOfDataPoints.row(indexInDataPoint));
+					row(copyOfDataPoints, indexInDataPoint));
 			}
 			pointsOfCoreClusters.add(pointsOfACluster);
 		}
@@ -75,7 +89,7 @@ public class DBSCAN {
 						for(Map<Integer, Matrix> clusterMap: pointsOfCoreClusters) {
 							//该边界点与此核心点相邻，加到这个核心点所在的簇中
 							if(clusterMap.containsKey(j)) {
-								clusterMap.put(i, copyOfDataPoints.row(i));
+								clusterMap.put(i, row(copyOfDataPoints, i));
 							}
 						}
 					}
@@ -154,40 +168,68 @@ public class DBSCAN {
 	
 	//计算所有数据点之间的距离
 	private void getDistanceBetweenAnyTwoPoints(Matrix dataPoints) { 
-		distances = new ArrayList<List<Double>>(numberOfPoints);
+		if(dataPoints != null) {
+			distances = Distances.condensed(dataPoints, Distances.EUCLIDEAN);
+			recomputeNearEps(dataPoints);
+			return;
+		}
+		//单精度数据点，按Distances.condensedIndex的顺序直接计算
+		long size = (long) numberOfPoints * (numberOfPoints - 1) / 2;
+		if(size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("DBSCAN, too many data points.");
+		}
+		distances = new double[(int) size];
+		for(int i=0, p=0; i<numberOfPoints; i++) {
+			for(int j=i+1; j<numberOfPoints; j++) {
+				distances[p++] = Math.sqrt(floatPoints.squaredDistance(i, floatPoints, j));
+			}
+		}
+	}
+	
+	//Distances.condensed由Gram矩阵计算距离，平方距离的舍入误差与中心化后的平方范数成正比，
+	//与eps足够接近的点对由差值直接重新计算，使"<= eps"的判断与逐元素相减的结果相同
+	private void recomputeNearEps(Matrix dataPoints) {
+		int columns = dataPoints.columns();
+		Matrix mean = dataPoints.rowMean();
+		double[] norms = new double[numberOfPoints];
 		for(int i=0; i<numberOfPoints; i++) {
-			distances.add(new ArrayList<Double>());
-			for(int j=0; j<=i; j++) {
-				double distance;
-				if(j == i) {
-					distance = 0;
-				} else {
-				   distance = getDistance(dataPoints.row(i), dataPoints.row(j));					
-				}				
-				distances.get(i).add(distance);
+			for(int j=0; j<columns; j++) {
+				double v = dataPoints.at(i, j) - mean.at(j);
+				norms[i] += v * v;
+			}
+		}
+		double eps2 = eps * eps, u = 8. * (columns + 2) * Math.ulp(1.);
+		for(int i=0, p=0; i<numberOfPoints; i++) {
+			for(int j=i+1; j<numberOfPoints; j++, p++) {
+				double d = distances[p];
+				if(Math.abs(d * d - eps2) <= u * (norms[i] + norms[j])) {
+					distances[p] = directDistance(dataPoints, i, j);
+				}
 			}
 		}
 	}
 	
-	//计算两个数据点之间的欧氏距离
-	private double getDistance(Matrix verctor_1, Matrix verctor_2) {
+	//两个数据点之间的欧氏距离，由差值直接计算
+	private double directDistance(Matrix dataPoints, int i, int j) {
 		double distance = 0;
-		int columns = verctor_1.columns();
-		for(int j=0; j<columns; j++) {
-			distance += Math.pow(verctor_1.at(j)-verctor_2.at(j), 2);
+		for(int k=0; k<dataPoints.columns(); k++) {
+			double v = dataPoints.at(i, k) - dataPoints.at(j, k);
+			distance += v * v;
 		}
 		return Math.sqrt(distance);
 	}
 	
+	//第i个数据点（行向量），单精度数据点时为转换得到的拷贝
+	private Matrix row(Matrix points, int i) {
+		return points != null ? points.row(i): floatPoints.row(i).toMatrix();
+	}
+	
 	//得到第i个数据点到第j个数据点的距离
 	private double getDistance(int i, int j) {
-		double distance = 0;
-		if(j<=i) {
-			distance = distances.get(i).get(j);
-		} else {
-			distance = distances.get(j).get(i);
+		if(i == j) {
+			return 0;
 		}
-		return distance;
+		return distances[Distances.condensedIndex(numberOfPoints, i, j)];
 	}
 	
 	//根据数据点之间的距离来指定数据点的类型
@@ -244,10 +286,9 @@ public class DBSCAN {
 	//获取核心点
 	private Map<Integer, Matrix> getCorePoints(Matrix dataPoints) {
 		Map<Integer, Matrix> corePoints = new HashMap<Integer, Matrix>();
-		int numOfPoints = dataPoints.rows();
-		for(int i=0; i<numOfPoints; i++) {
+		for(int i=0; i<numberOfPoints; i++) {
 			if(pointType.get(i) == PointType.CORE) {
-				corePoints.put(i, dataPoints.row(i));
+				corePoints.put(i, row(dataPoints, i));
 			}
 		}
 		return corePoints;
@@ -258,7 +299,7 @@ public class DBSCAN {
 		List<Matrix> noisePointList = new ArrayList<Matrix>();
 		for(int i=0; i<numberOfPoints; i++) {
 			if(pointType.get(i) == PointType.NOISE) {
-				noisePointList.add(dataPoints.row(i));
+				noisePointList.add(row(dataPoints, i));
 			}
 		}
 		return noisePointList;
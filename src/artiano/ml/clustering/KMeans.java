@@ -93,10 +93,12 @@ public class KMeans extends Preservable {
 		KDTree kdTree = new KDTree(centers);  //构造簇中心组成的KD-Tree
 		//用LinkedHashMap来维持簇中心点之间的顺序
 		Map<Matrix, Matrix> clusterMap = new LinkedHashMap<Matrix, Matrix>();
+		RowCursor centerRow = centers.cursor(), point = data.cursor();
 		for(int i=0; i<centers.rows(); i++) {
 			boolean isPart = false;
+			centerRow.moveTo(i);
 			for(int m=0; m<data.rows(); m++) {
-				if(centers.row(i).equals(data.row(m))) {
+				if(centerRow.valueEquals(point.moveTo(m))) {
 					isPart = true;
 					break;
 				}
@@ -166,10 +168,12 @@ public class KMeans extends Preservable {
 	private Matrix getNonCenterData(Matrix centers) {
 		//统计数据集中作为簇中心的数据点的数目
 		int centerInDataNum = 0; 
+		RowCursor center = centers.cursor(), point = data.cursor();
 		for(int i=0; i<centers.rows(); i++) {
 			boolean isInData = false;
+			center.moveTo(i);
 			for(int m=0; m<data.rows(); m++) {
-				if(centers.row(i).equals(data.row(m))) {
+				if(center.valueEquals(point.moveTo(m))) {
 					isInData = true;
 				}
 			}			
@@ -183,14 +187,15 @@ public class KMeans extends Preservable {
 		int count = 0;
 		for(int i=0; i<data.rows(); i++) {
 			boolean isSplit = false;    //当前数据点是不是中心点
+			point.moveTo(i);
 			for(int m=0; m<centers.rows(); m++) {
-				if(data.row(i).equals(centers.row(m))) {
+				if(point.valueEquals(center.moveTo(m))) {
 					isSplit = true;
 					break;
 				}
 			}			
 			if(!isSplit) {
-				remaining.setRow(count, data.row(i));
+				remaining.setRow(count, point.view());
 				count++;
 			}					
 		}
@@ -221,8 +226,9 @@ public class KMeans extends Preservable {
 	 */
 	private double evaluate(Matrix center, Matrix members) {
 		double evaluation = 0;
-		for(int i=0; i<members.rows(); i++) {
-			evaluation += distance(center, members.row(i));
+		RowCursor c = center.cursor().moveTo(0), member = members.cursor();
+		while(member.next()) {
+			evaluation += distance(c, member);
 		}
 		return evaluation;
 	}
@@ -233,15 +239,11 @@ public class KMeans extends Preservable {
 	 * @param mat2 向量2
 	 * @return 两个向量之间的欧氏距离
 	 */
-	private double distance(Matrix mat1, Matrix mat2) {
-		if(mat1.columns() != mat2.columns() || mat1.rows() != 1 || mat2.rows() != 1) {
+	private double distance(RowCursor vec1, RowCursor vec2) {
+		if(vec1.length() != vec2.length()) {
 			throw new IllegalArgumentException("两个向量应该具有相同的大小!");
 		}		
-		double distance = 0;
-		for(int j=0; j<mat1.columns(); j++) {
-			distance += Math.pow(mat1.at(0, j) - mat2.at(0, j), 2);
-		}
-		return distance;
+		return vec1.squaredDistance(vec2);
 	}
 	
 	/**
@@ -1,6 +1,9 @@
 package artiano.ml.clustering.test;
 
+import static org.junit.Assert.assertEquals;
+
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -37,6 +40,42 @@ public class DBSCANTest {
 		for(Matrix noisePoint: noisePointList) {
 			noisePoint.printAll();
 		}
+		
+		//单精度数据点得到相同的簇和噪声点
+		DBSCAN floatDbscan = new DBSCAN(eps, minNeighborsNum, dataPoints.toFloatMatrix());
+		List<Matrix> floatClusterList = floatDbscan.cluster();
+		assertEquals(clusterList.size(), floatClusterList.size());
+		for(int c=0; c<clusterList.size(); c++) {
+			assertEquals(0., clusterList.get(c).difference(floatClusterList.get(c)), 0.);
+		}
+		List<Matrix> floatNoisePointList = floatDbscan.getNoisePoints();
+		assertEquals(noisePointList.size(), floatNoisePointList.size());
+		for(int c=0; c<noisePointList.size(); c++) {
+			assertEquals(0., noisePointList.get(c).difference(floatNoisePointList.get(c)), 0.);
+		}
+	}
+
+	@Test
+	public void testEpsBoundary() {
+		//a close pair far from a third point: eps is exactly the distance of the pair, computed from the
+		//differences, so the pair is a cluster and the third point is noise
+		Random r = new Random(229);
+		for(int trial=0; trial<50; trial++) {
+			double[] d = new double[9];
+			for(int j=0; j<3; j++) {
+				d[j] = r.nextGaussian();
+				d[3 + j] = d[j] + 1e-3 * r.nextGaussian();
+				d[6 + j] = 1e4 + r.nextGaussian();
+			}
+			Matrix dataPoints = new Matrix(3, 3, d);
+			double eps = 0;
+			for(int j=0; j<3; j++) {
+				eps += (d[j] - d[3 + j]) * (d[j] - d[3 + j]);
+			}
+			DBSCAN dbscan = new DBSCAN(Math.sqrt(eps), 1, dataPoints);
+			assertEquals(1, dbscan.cluster().size());
+			assertEquals(1, dbscan.getNoisePoints().size());
+		}
 	}
 
 }
@@ -4,6 +4,7 @@
 package artiano.ml.regression;
 
 import artiano.core.structure.Matrix;
+import artiano.core.structure.SymmetricMatrix;
 import artiano.linalg.decomposition.CholeskyDecomposition;
 
 /**
@@ -31,39 +32,23 @@ public class LinearRegression extends Regression {
 	public Matrix fit(Matrix XData, Matrix YData) {
 		Matrix coefficients = generateCoefficientMatrix(XData);
     	/* Solve AW=b to coefficients of the linear regression Polynomial */
-    	Matrix A = genearteLeftHandSide(coefficients);
+    	SymmetricMatrix A = genearteLeftHandSide(coefficients);
     	Matrix b = generateRightHandSide(YData, coefficients);
     	CholeskyDecomposition decomposition = new CholeskyDecomposition(A);
     	return decomposition.solve(b);
 	}
 	
 	private static Matrix generateRightHandSide(Matrix right_hand, Matrix coefficients) {
-		int rows = coefficients.rows();
-		int cols = coefficients.columns() - 1;
-		Matrix b = new Matrix(cols + 1, 1);
-    	for(int i=0; i<cols+1; i++) {
-    		double sumY = 0;
-    		for(int n=0; n<rows; n++) {
-				sumY += right_hand.at(n, 0) * coefficients.at(n, i);    				
-			}
-			b.set(i, 0, sumY);
-    	}
+		//b=coefficients.t()*y
+		Matrix b = new Matrix(coefficients.columns(), 1);
+		Matrix.gemm(1., coefficients, true, right_hand.column(0), false, 0., b);
 		return b;
 	}
 
-	private static Matrix genearteLeftHandSide(Matrix coefficients) {
-		int rows = coefficients.rows();
-		int cols = coefficients.columns() - 1;
-		Matrix a = new Matrix(cols + 1, cols + 1);
-    	for(int i=0; i<a.rows(); i++) {
-    		for(int j=0; j<a.columns(); j++) {
-    			double sumX = 0;
-    			for(int n=0; n<rows; n++) {
-    				sumX += coefficients.at(n, j) * coefficients.at(n, i);    				
-    			}
-    			a.set(i, j, sumX);    			    		
-    		}    		    		
-    	}
+	private static SymmetricMatrix genearteLeftHandSide(Matrix coefficients) {
+		//a=coefficients.t()*coefficients, symmetric, only the upper triangle is computed
+		SymmetricMatrix a = new SymmetricMatrix(coefficients.columns());
+		SymmetricMatrix.syrk(1., coefficients, true, 0., a);
 		return a;
 	}
 
@@ -3,8 +3,11 @@
  */
 package artiano.statistics.reducer;
 
+import artiano.core.structure.CovarianceAccumulator;
 import artiano.core.structure.Matrix;
 import artiano.core.structure.Range;
+import artiano.linalg.decomposition.EigenValueDecomposition;
+import artiano.linalg.decomposition.RandomizedSingularValueDecomposition;
 import artiano.linalg.decomposition.SingularValueDecomposition;
 
 /**
@@ -144,13 +147,26 @@ public class PrincipleComponentAnalysis extends Reducer implements UnsupervisedR
 				t_a.row(i).minus(mean);
 			Matrix x = t_a.t();
 			eigenVectors = x.multiply(v);
-		} else {
-			SingularValueDecomposition svd = new SingularValueDecomposition(cov, false);
-			svd.sort();
-			eigenVectors = svd.U();
-			eigenValues = svd.W().sqrt();
-		}
-		eigenVectors = eigenVectors.t();
+			eigenVectors = eigenVectors.t();
+		} else
+			computeEigensOfCovariance(cov);
+	}
+	
+	/**
+	 * compute the eigen-vectors of a covariance matrix computed by column with the symmetric
+	 * {@link EigenValueDecomposition}, sorted in descending order. The values kept are the square roots of the
+	 * eigenvalues, as the square roots of the singular values were kept when the covariance was decomposed by SVD,
+	 * so {@link #getEigenValue()} and the rate of contribution keep their meaning (rounding may leave tiny
+	 * negative eigenvalues, they are cut to zero before the root)
+	 * @param cov
+	 */
+	protected void computeEigensOfCovariance(Matrix cov){
+		EigenValueDecomposition evd = new EigenValueDecomposition(cov, true);
+		evd.sort();
+		eigenVectors = evd.V().t();
+		eigenValues = evd.W();
+		for (int i = 0; i < eigenValues.columns(); i++)
+			eigenValues.set(0, i, Math.sqrt(Math.max(0., eigenValues.at(0, i))));
 	}
 	
 	/* (non-Javadoc)
@@ -164,13 +180,44 @@ public class PrincipleComponentAnalysis extends Reducer implements UnsupervisedR
 		computeEigens(samples);
 	}
 	
+	/**
+	 * 只计算前components个主成分，使用随机投影的截断奇异值分解（{@link RandomizedSingularValueDecomposition}），
+	 * 不计算协方差矩阵，适合样本多、维数高而只需要少量主成分的情形。特征值的含义与{@link #train(Matrix)}相同。
+	 * @param samples 训练样本，每行一个样本
+	 * @param components 主成分个数，不超过样本个数和维数
+	 */
+	public void train(Matrix samples, int components) {
+		samplesNumber = samples.rows();
+		sampleSize = samples.columns();
+		mean = samples.rowMean();
+		covarianceInverted = false;
+		//the singular values of the centred samples are the square roots of the eigenvalues of the scatter
+		RandomizedSingularValueDecomposition svd = RandomizedSingularValueDecomposition.centered(samples, mean,
+				components);
+		eigenVectors = svd.V().t();
+		eigenValues = svd.W();
+		eigens = components;
+	}
+	
+	/**
+	 * 使用流式累加的均值和协方差训练，样本不需要同时读入内存（协方差总是按列计算，即维数*维数的矩阵）。
+	 * @param accumulator 加入了全部训练样本的累加器
+	 */
+	public void train(CovarianceAccumulator accumulator) {
+		samplesNumber = (int) Math.min(Integer.MAX_VALUE, accumulator.count());
+		sampleSize = accumulator.dimension();
+		eigens = (int) Math.min(accumulator.count(), sampleSize);
+		mean = accumulator.mean();
+		covarianceInverted = false;
+		computeEigensOfCovariance(accumulator.scatter());
+	}
+	
 	@Override
 	public Matrix reduce(Matrix sample) {
 		if (sample.columns() != this.sampleSize)
 			throw new IllegalArgumentException("PrincipleComponentAnalysis reduce, size not match.");
-		Matrix feature;
-		feature = eigenVectors.multiply(sample.minus(mean, true).t()).t();
-		return feature;
+		//feature=(sample-mean)*eigenVectors.t()
+		return sample.lazy().minus(mean).multiply(eigenVectors.lazy().t());
 	}
 
 	/* (non-Javadoc)
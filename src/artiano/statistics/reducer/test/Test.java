@@ -3,6 +3,7 @@
  */
 package artiano.statistics.reducer.test;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 
@@ -40,16 +41,21 @@ public class Test {
 		Matrix m = new Matrix(3, 10, b);
 		extractor.train(m);
 		//save
+		String path;
 		try {
-			extractor.save("F:\\Artiano\\pca-extractor.ext");
+			File file = File.createTempFile("pca-extractor", ".ext");
+			file.deleteOnExit();
+			path = file.getPath();
+			extractor.save(path);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
+			return;
 		}
 		//load
 		PrincipleComponentAnalysis extractor2;
 		try {
-			extractor2 = (PrincipleComponentAnalysis) PrincipleComponentAnalysis.load("F:\\Artiano\\pca-extractor.ext");
+			extractor2 = (PrincipleComponentAnalysis) PrincipleComponentAnalysis.load(path);
 			Matrix eigen = extractor2.getEigenValue();
 			System.out.println("Eigen values:");
 			eigen.print();